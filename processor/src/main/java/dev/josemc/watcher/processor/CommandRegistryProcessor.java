@@ -0,0 +1,142 @@
+package dev.josemc.watcher.processor;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.Filer;
+import javax.annotation.processing.Messager;
+import javax.annotation.processing.ProcessingEnvironment;
+import javax.annotation.processing.RoundEnvironment;
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.NestingKind;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.ElementFilter;
+import javax.tools.Diagnostic;
+import javax.tools.JavaFileObject;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Procesador de anotaciones que genera el registro estatico de comandos.
+ * <p>
+ * Recoge todas las clases anotadas con {@code @Command} y, al terminar la compilacion,
+ * genera {@code dev.josemc.watcher.commands.GeneratedCommands}, que las instancia sin
+ * escanear el classpath en tiempo de ejecucion.
+ */
+@SupportedAnnotationTypes(CommandRegistryProcessor.COMMAND_ANNOTATION)
+public class CommandRegistryProcessor extends AbstractProcessor {
+
+    static final String COMMAND_ANNOTATION = "dev.josemc.watcher.commands.interfaces.Command";
+    static final String COMMAND_INTERFACE = "dev.josemc.watcher.commands.interfaces.ICommand";
+    static final String REGISTRY_PACKAGE = "dev.josemc.watcher.commands";
+    static final String REGISTRY_CLASS = "GeneratedCommands";
+
+    private final List<String> commands = new ArrayList<>();
+    private Filer filer;
+    private Messager messager;
+    private boolean generated;
+
+    @Override
+    public synchronized void init(ProcessingEnvironment processingEnv) {
+        super.init(processingEnv);
+        filer = processingEnv.getFiler();
+        messager = processingEnv.getMessager();
+    }
+
+    @Override
+    public SourceVersion getSupportedSourceVersion() {
+        return SourceVersion.latestSupported();
+    }
+
+    @Override
+    public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
+        TypeElement commandInterface = processingEnv.getElementUtils().getTypeElement(COMMAND_INTERFACE);
+
+        for (TypeElement annotation : annotations) {
+            for (Element element : roundEnv.getElementsAnnotatedWith(annotation)) {
+                if (isValid(element, commandInterface)) {
+                    commands.add(((TypeElement) element).getQualifiedName().toString());
+                }
+            }
+        }
+
+        // Se genera tras la primera ronda con comandos, o al final si no se encontro ninguno,
+        // para que el registro siempre exista y CommandManager compile.
+        if (!generated && commandInterface != null && (!commands.isEmpty() || roundEnv.processingOver())) {
+            generated = true;
+            writeRegistry();
+        }
+        return false;
+    }
+
+    /**
+     * Comprueba que la clase anotada se pueda instanciar desde el registro generado.
+     */
+    private boolean isValid(Element element, TypeElement commandInterface) {
+        if (element.getKind() != ElementKind.CLASS) {
+            messager.printMessage(Diagnostic.Kind.ERROR, "@Command solo se puede usar en clases", element);
+            return false;
+        }
+
+        TypeElement type = (TypeElement) element;
+        Set<Modifier> modifiers = type.getModifiers();
+        if (modifiers.contains(Modifier.ABSTRACT) || !modifiers.contains(Modifier.PUBLIC)
+                || (type.getNestingKind() == NestingKind.MEMBER && !modifiers.contains(Modifier.STATIC))
+                || type.getNestingKind() == NestingKind.LOCAL || type.getNestingKind() == NestingKind.ANONYMOUS) {
+            messager.printMessage(Diagnostic.Kind.ERROR, "El comando debe ser una clase publica, concreta y de nivel superior o estatica", element);
+            return false;
+        }
+
+        if (commandInterface != null) {
+            TypeMirror commandType = processingEnv.getTypeUtils().erasure(commandInterface.asType());
+            if (!processingEnv.getTypeUtils().isAssignable(type.asType(), commandType)) {
+                messager.printMessage(Diagnostic.Kind.ERROR, "El comando debe implementar " + COMMAND_INTERFACE, element);
+                return false;
+            }
+        }
+
+        boolean hasNoArgConstructor = ElementFilter.constructorsIn(type.getEnclosedElements()).stream()
+                .anyMatch(constructor -> constructor.getParameters().isEmpty() && constructor.getModifiers().contains(Modifier.PUBLIC));
+        if (!hasNoArgConstructor && !ElementFilter.constructorsIn(type.getEnclosedElements()).isEmpty()) {
+            messager.printMessage(Diagnostic.Kind.ERROR, "El comando necesita un constructor publico sin argumentos", element);
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Escribe la clase del registro con todos los comandos encontrados.
+     */
+    private void writeRegistry() {
+        commands.sort(Comparator.naturalOrder());
+
+        try {
+            JavaFileObject file = filer.createSourceFile(REGISTRY_PACKAGE + "." + REGISTRY_CLASS);
+            try (Writer writer = file.openWriter()) {
+                writer.write("package " + REGISTRY_PACKAGE + ";\n\n");
+                writer.write("import " + COMMAND_INTERFACE + ";\n\n");
+                writer.write("import java.util.List;\n\n");
+                writer.write("/**\n * Registro de comandos generado por " + getClass().getSimpleName() + ". No editar.\n */\n");
+                writer.write("@javax.annotation.processing.Generated(\"" + getClass().getName() + "\")\n");
+                writer.write("final class " + REGISTRY_CLASS + " {\n\n");
+                writer.write("    private " + REGISTRY_CLASS + "() {\n    }\n\n");
+                writer.write("    static List<ICommand> create() {\n");
+                writer.write("        return List.of(");
+                for (int i = 0; i < commands.size(); i++) {
+                    writer.write(i == 0 ? "\n" : ",\n");
+                    writer.write("                new " + commands.get(i) + "()");
+                }
+                writer.write(");\n    }\n}\n");
+            }
+        } catch (IOException e) {
+            messager.printMessage(Diagnostic.Kind.ERROR, "No se pudo generar el registro de comandos: " + e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,73 @@
+package dev.josemc.watcher;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Mide las lecturas de {@link Config} sobre una copia de la configuracion por defecto
+ * en una carpeta temporal.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ConfigBenchmark {
+
+    Path folder;
+    Config config;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        folder = Files.createTempDirectory("watcher-config");
+        config = new Config(folder);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        config.close();
+        try (Stream<Path> files = Files.walk(folder)) {
+            for (Path path : files.sorted(Comparator.reverseOrder()).toList()) {
+                Files.deleteIfExists(path);
+            }
+        }
+    }
+
+    @Benchmark
+    public String getString() {
+        return config.getString("status");
+    }
+
+    @Benchmark
+    public int getIntNested() {
+        return config.getInt("command_executor.threads", 4);
+    }
+
+    @Benchmark
+    public int getIntMissing() {
+        return config.getInt("command_timeout.unknown", 30);
+    }
+
+    @Benchmark
+    public boolean snapshotGetBoolean() {
+        return config.getSnapshot().getBoolean("command_scan", false);
+    }
+}
@@ -0,0 +1,80 @@
+package dev.josemc.watcher.antispam;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Random;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Mensajes por segundo que revisa el {@link SpamDetector} desde varios hilos, como los hilos de eventos de las shards,
+ * con mensajes de chat de distintos servidores, canales y usuarios, y una parte de spam repetido.
+ */
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class SpamDetectorBenchmark {
+    static final int GUILDS = 1000;
+    static final int USERS = 100_000;
+    static final int MESSAGES = 1 << 16;
+
+    SpamDetector detector;
+    String[] contents;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        detector = new SpamDetector(10_000, 8, 60, 5, 20, 10, 30_000, 600_000, 200_000);
+
+        Random random = new Random(1);
+        String[] words = new String[3000];
+        for (int i = 0; i < words.length; i++) {
+            StringBuilder word = new StringBuilder();
+            for (int j = 2 + random.nextInt(7); j > 0; j--) {
+                word.append((char) ('a' + random.nextInt(26)));
+            }
+            words[i] = word.toString();
+        }
+        contents = new String[MESSAGES];
+        for (int i = 0; i < MESSAGES; i++) {
+            if (i % 20 == 0) {
+                contents[i] = "Free nitro en https://disc0rd.gift/" + Integer.toHexString(i) + " reclamalo ya @everyone";
+                continue;
+            }
+            StringBuilder content = new StringBuilder();
+            for (int j = 1 + random.nextInt(12); j > 0; j--) {
+                content.append(words[random.nextInt(words.length)]).append(' ');
+            }
+            contents[i] = content.toString();
+        }
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.Throughput)
+    @OutputTimeUnit(TimeUnit.SECONDS)
+    @Threads(4)
+    public SpamVerdict inspect() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        int guild = random.nextInt(GUILDS);
+        return detector.inspect(guild, guild * 50L + random.nextInt(50), random.nextInt(USERS), contents[random.nextInt(MESSAGES)],
+                System.currentTimeMillis());
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SampleTime)
+    @OutputTimeUnit(TimeUnit.NANOSECONDS)
+    public boolean minHash() {
+        return MinHash.of(contents[ThreadLocalRandom.current().nextInt(MESSAGES)], new long[MinHash.BANDS]);
+    }
+}
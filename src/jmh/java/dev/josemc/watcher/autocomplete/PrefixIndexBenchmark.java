@@ -0,0 +1,73 @@
+package dev.josemc.watcher.autocomplete;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Latencia de una sugerencia de autocompletado en el {@link PrefixIndex} de un servidor grande,
+ * mientras otro hilo aplica cambios de nombre como los que llegan del gateway.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PrefixIndexBenchmark {
+
+    private static final String[] SYLLABLES = {"ka", "lo", "mi", "ñu", "ré", "sa", "to", "vi", "xe", "zu"};
+
+    @Param({"1000", "100000"})
+    int members;
+
+    PrefixIndex index;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        index = new PrefixIndex();
+        for (int i = 0; i < members; i++) {
+            index.put(Integer.toString(i), name(i), "user" + i);
+        }
+    }
+
+    @Benchmark
+    @Group("suggest")
+    @GroupThreads(4)
+    public List<PrefixIndex.Entry> search() {
+        int length = ThreadLocalRandom.current().nextInt(4);
+        return index.search(name(ThreadLocalRandom.current().nextInt(members)).substring(0, length), 25);
+    }
+
+    @Benchmark
+    @Group("suggest")
+    @GroupThreads(1)
+    public void rename() {
+        int id = ThreadLocalRandom.current().nextInt(members);
+        index.put(Integer.toString(id), name(ThreadLocalRandom.current().nextInt(members)), "user" + id);
+    }
+
+    private static String name(int seed) {
+        StringBuilder builder = new StringBuilder();
+        for (int i = 0; i < 4; i++) {
+            builder.append(SYLLABLES[seed % SYLLABLES.length]);
+            seed = seed / SYLLABLES.length + i * 7;
+        }
+        return builder.toString();
+    }
+}
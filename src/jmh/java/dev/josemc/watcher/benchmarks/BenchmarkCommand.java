@@ -0,0 +1,47 @@
+package dev.josemc.watcher.benchmarks;
+
+import dev.josemc.watcher.commands.CommandEvent;
+import dev.josemc.watcher.commands.interfaces.Command;
+import dev.josemc.watcher.commands.interfaces.ICommand;
+import net.dv8tion.jda.api.interactions.commands.build.CommandData;
+import net.dv8tion.jda.api.interactions.commands.build.Commands;
+
+/**
+ * Comando vacio usado en los benchmarks. Esta fuera de {@code dev.josemc.watcher.commands}
+ * para que el escaneo del classpath no lo registre.
+ */
+@Command(name = "benchmark", description = "Comando de prueba")
+public class BenchmarkCommand implements ICommand {
+    private final CommandData commandData;
+    private final String[] alias;
+    private final String reply;
+
+    public BenchmarkCommand(String name) {
+        this(name, null);
+    }
+
+    /**
+     * @param name  nombre del SlashCommand.
+     * @param reply texto con el que responde el comando, o null para no responder.
+     */
+    public BenchmarkCommand(String name, String reply) {
+        this.commandData = Commands.slash(name, "Comando de prueba");
+        this.alias = new String[]{"alias-" + name};
+        this.reply = reply;
+    }
+
+    @Override
+    public void onPerform(CommandEvent commandEvent) {
+        if (reply != null) commandEvent.reply(reply);
+    }
+
+    @Override
+    public CommandData getCommandData() {
+        return commandData;
+    }
+
+    @Override
+    public String[] getAlias() {
+        return alias;
+    }
+}
@@ -0,0 +1,27 @@
+package dev.josemc.watcher.benchmarks;
+
+import dev.josemc.watcher.commands.executor.CommandExecutor;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link CommandExecutor} que ejecuta las tareas en el hilo que las envia, para medir
+ * el camino de un comando sin el coste de cambiar de hilo.
+ */
+public final class DirectCommandExecutor implements CommandExecutor {
+
+    @Override
+    public boolean submit(long guildId, Runnable task) {
+        task.run();
+        return true;
+    }
+
+    @Override
+    public void shutdown() {
+    }
+
+    @Override
+    public boolean awaitTermination(long timeout, TimeUnit unit) {
+        return true;
+    }
+}
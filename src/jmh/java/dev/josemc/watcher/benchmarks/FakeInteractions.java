@@ -0,0 +1,175 @@
+package dev.josemc.watcher.benchmarks;
+
+import net.dv8tion.jda.api.JDA;
+import net.dv8tion.jda.api.entities.Guild;
+import net.dv8tion.jda.api.entities.Member;
+import net.dv8tion.jda.api.entities.User;
+import net.dv8tion.jda.api.entities.channel.unions.MessageChannelUnion;
+import net.dv8tion.jda.api.events.interaction.command.SlashCommandInteractionEvent;
+import net.dv8tion.jda.api.interactions.InteractionHook;
+import net.dv8tion.jda.api.interactions.commands.OptionMapping;
+import net.dv8tion.jda.api.interactions.commands.OptionType;
+import net.dv8tion.jda.api.interactions.commands.SlashCommandInteraction;
+import net.dv8tion.jda.api.requests.restaction.interactions.ReplyCallbackAction;
+import net.dv8tion.jda.api.utils.data.DataObject;
+
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Fuente de eventos de JDA falsa: crea {@link SlashCommandInteractionEvent} sobre stubs de
+ * {@link SlashCommandInteraction}, {@link InteractionHook} y {@link MessageChannelUnion},
+ * de forma que el camino completo de un comando se puede ejecutar sin conexion a Discord.
+ * Las respuestas se cuentan en {@link Stubs#REST_CALLS}.
+ */
+public final class FakeInteractions {
+
+    private static final JDA JDA_STUB = Stubs.of(JDA.class).returning("getStatus", JDA.Status.CONNECTED).build();
+
+    private FakeInteractions() {
+    }
+
+    /**
+     * Crear un servidor falso.
+     *
+     * @param guildId id del servidor.
+     * @return el {@link Guild}.
+     */
+    public static Guild guild(long guildId) {
+        return Stubs.of(Guild.class)
+                .returning("getIdLong", guildId)
+                .returning("getId", Long.toUnsignedString(guildId))
+                .returning("getJDA", JDA_STUB)
+                .build();
+    }
+
+    /**
+     * Crear un miembro falso de un servidor.
+     *
+     * @param guild  el servidor.
+     * @param userId id del usuario.
+     * @return el {@link Member}.
+     */
+    public static Member member(Guild guild, long userId) {
+        User user = Stubs.of(User.class)
+                .returning("getIdLong", userId)
+                .returning("getId", Long.toUnsignedString(userId))
+                .build();
+        return Stubs.of(Member.class)
+                .returning("getIdLong", userId)
+                .returning("getUser", user)
+                .returning("getGuild", guild)
+                .returning("hasPermission", true)
+                .build();
+    }
+
+    /**
+     * Crear un canal de texto falso en el que siempre se puede escribir.
+     *
+     * @param channelId id del canal.
+     * @return el {@link MessageChannelUnion}.
+     */
+    public static MessageChannelUnion channel(long channelId) {
+        return Stubs.of(MessageChannelUnion.class)
+                .returning("getIdLong", channelId)
+                .returning("canTalk", true)
+                .build();
+    }
+
+    /**
+     * Crear un {@link InteractionHook} falso. {@code setEphemeral} devuelve el propio hook y los envios
+     * devuelven un {@link net.dv8tion.jda.api.requests.RestAction} falso.
+     *
+     * @return el hook.
+     */
+    public static InteractionHook hook() {
+        return Stubs.of(InteractionHook.class).returning("getJDA", JDA_STUB).build();
+    }
+
+    /**
+     * Crear el evento de un SlashCommand ejecutado por un miembro en un canal.
+     *
+     * @param name    nombre del SlashCommand.
+     * @param member  el miembro que lo ejecuta.
+     * @param channel el canal donde se ejecuta.
+     * @return el {@link SlashCommandInteractionEvent}.
+     */
+    public static SlashCommandInteractionEvent slashCommand(String name, Member member, MessageChannelUnion channel) {
+        return slashCommand(name, member, channel, hook(), null, null);
+    }
+
+    /**
+     * Crear el evento de un SlashCommand con un hook propio, avisando cuando se aplaza la respuesta.
+     *
+     * @param name    nombre del SlashCommand.
+     * @param member  el miembro que lo ejecuta.
+     * @param channel el canal donde se ejecuta.
+     * @param hook    el {@link InteractionHook} de la interaccion.
+     * @param onDefer llamado en cada {@code deferReply}, puede ser null.
+     * @param onReply llamado con el mensaje de cada respuesta directa a la interaccion, puede ser null.
+     * @return el {@link SlashCommandInteractionEvent}.
+     */
+    public static SlashCommandInteractionEvent slashCommand(String name, Member member, MessageChannelUnion channel, InteractionHook hook, Runnable onDefer, Consumer<Object> onReply) {
+        return slashCommand(name, member, channel, hook, onDefer, onReply, List.of());
+    }
+
+    /**
+     * Crear el evento de un SlashCommand con opciones.
+     *
+     * @param name    nombre del SlashCommand.
+     * @param member  el miembro que lo ejecuta.
+     * @param channel el canal donde se ejecuta.
+     * @param options las opciones, ver {@link #option(String, OptionType, Object)}.
+     * @return el {@link SlashCommandInteractionEvent}.
+     */
+    public static SlashCommandInteractionEvent slashCommand(String name, Member member, MessageChannelUnion channel, List<OptionMapping> options) {
+        return slashCommand(name, member, channel, hook(), null, null, options);
+    }
+
+    /**
+     * Crear una opcion de un SlashCommand.
+     *
+     * @param name  nombre de la opcion.
+     * @param type  tipo de la opcion.
+     * @param value el valor, como lo envia Discord.
+     * @return la {@link OptionMapping}.
+     */
+    public static OptionMapping option(String name, OptionType type, Object value) {
+        DataObject data = DataObject.empty().put("name", name).put("type", type.getKey()).put("value", value);
+        // El mapa de entidades resueltas es de Trove, que no esta en el classpath de compilacion; sin entidades basta null, y JDA
+        // tambien, porque las opciones de texto lo convierten a JDAImpl para sus menciones.
+        try {
+            return (OptionMapping) OptionMapping.class.getConstructors()[0].newInstance(data, null, null, null);
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static SlashCommandInteractionEvent slashCommand(String name, Member member, MessageChannelUnion channel, InteractionHook hook, Runnable onDefer, Consumer<Object> onReply, List<OptionMapping> options) {
+        Stubs.Builder<SlashCommandInteraction> interaction = Stubs.of(SlashCommandInteraction.class)
+                .returning("getName", name)
+                .returning("getFullCommandName", name)
+                .returning("getGuild", member.getGuild())
+                .returning("getMember", member)
+                .returning("getUser", member.getUser())
+                .returning("getChannel", channel)
+                .returning("getMessageChannel", channel)
+                .returning("getHook", hook)
+                .returning("getOptions", options)
+                .with("getOption", args -> options.stream().filter(option -> option.getName().equals(args[0])).findFirst().orElse(null))
+                .returning("getJDA", JDA_STUB);
+        if (onDefer != null) {
+            interaction.with("deferReply", args -> {
+                onDefer.run();
+                return Stubs.restAction(ReplyCallbackAction.class, hook);
+            });
+        }
+        if (onReply != null) {
+            interaction.with("reply", args -> {
+                onReply.accept(args[0]);
+                return Stubs.restAction(ReplyCallbackAction.class, hook);
+            });
+        }
+        return new SlashCommandInteractionEvent(JDA_STUB, 0, interaction.build());
+    }
+}
@@ -0,0 +1,144 @@
+package dev.josemc.watcher.benchmarks;
+
+import net.dv8tion.jda.api.requests.RestAction;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * Implementaciones falsas de las interfaces de JDA para los benchmarks, sin conexion a Discord.
+ * <p>
+ * Los metodos no definidos devuelven un valor por defecto; los que devuelven un {@link RestAction}
+ * devuelven una accion falsa que cuenta las llamadas REST y completa al momento.
+ */
+public final class Stubs {
+
+    /**
+     * Numero de llamadas REST que se habrian enviado a Discord.
+     */
+    public static final LongAdder REST_CALLS = new LongAdder();
+
+    private Stubs() {
+    }
+
+    /**
+     * Empezar a definir un stub de una interfaz.
+     *
+     * @param type la interfaz.
+     * @return el constructor del stub.
+     */
+    public static <T> Builder<T> of(Class<T> type) {
+        return new Builder<>(type);
+    }
+
+    /**
+     * Crear un {@link RestAction} falso que completa al momento con el valor dado.
+     *
+     * @param type  la interfaz de la accion.
+     * @param value el resultado de la accion.
+     * @return la accion.
+     */
+    public static <T> T restAction(Class<T> type, Object value) {
+        return type.cast(Proxy.newProxyInstance(Stubs.class.getClassLoader(), new Class<?>[]{type}, new RestActionHandler(type, value)));
+    }
+
+    /**
+     * Constructor de stubs. Los metodos se identifican por nombre, sin distinguir sobrecargas.
+     */
+    public static final class Builder<T> {
+        private final Class<T> type;
+        private final Map<String, Function<Object[], Object>> methods = new HashMap<>();
+
+        private Builder(Class<T> type) {
+            this.type = type;
+        }
+
+        /**
+         * Definir el resultado de un metodo.
+         *
+         * @param name           nombre del metodo.
+         * @param implementation funcion que recibe los argumentos y devuelve el resultado.
+         * @return este constructor.
+         */
+        public Builder<T> with(String name, Function<Object[], Object> implementation) {
+            methods.put(name, implementation);
+            return this;
+        }
+
+        /**
+         * Definir un resultado fijo para un metodo.
+         */
+        public Builder<T> returning(String name, Object value) {
+            return with(name, args -> value);
+        }
+
+        public T build() {
+            return type.cast(Proxy.newProxyInstance(Stubs.class.getClassLoader(), new Class<?>[]{type}, new Handler(type, Map.copyOf(methods))));
+        }
+    }
+
+    static Object defaultValue(Method method, Object proxy) {
+        Class<?> returnType = method.getReturnType();
+        if (returnType == boolean.class) return false;
+        if (returnType == int.class) return 0;
+        if (returnType == long.class) return 0L;
+        if (returnType == double.class) return 0D;
+        if (returnType == float.class) return 0F;
+        if (returnType == short.class) return (short) 0;
+        if (returnType == byte.class) return (byte) 0;
+        if (returnType == char.class) return (char) 0;
+        if (RestAction.class.isAssignableFrom(returnType) && returnType.isInterface()) return restAction(returnType, null);
+        if (returnType.isInstance(proxy)) return proxy;
+        return null;
+    }
+
+    private record Handler(Class<?> type, Map<String, Function<Object[], Object>> methods) implements InvocationHandler {
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) {
+            Function<Object[], Object> implementation = methods.get(method.getName());
+            if (implementation != null) return implementation.apply(args == null ? new Object[0] : args);
+
+            switch (method.getName()) {
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "equals":
+                    return proxy == args[0];
+                case "toString":
+                    return "Stub(" + type.getSimpleName() + ")";
+                default:
+                    return defaultValue(method, proxy);
+            }
+        }
+    }
+
+    private record RestActionHandler(Class<?> type, Object value) implements InvocationHandler {
+        @Override
+        @SuppressWarnings("unchecked")
+        public Object invoke(Object proxy, Method method, Object[] args) {
+            switch (method.getName()) {
+                case "queue":
+                    REST_CALLS.increment();
+                    if (args != null && args.length > 0 && args[0] != null) ((Consumer<Object>) args[0]).accept(value);
+                    return null;
+                case "complete":
+                    REST_CALLS.increment();
+                    return value;
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "equals":
+                    return proxy == args[0];
+                case "toString":
+                    return "StubRestAction(" + type.getSimpleName() + ")";
+                default:
+                    // Los metodos encadenables (setEphemeral, addCommands...) devuelven la propia accion.
+                    return defaultValue(method, proxy);
+            }
+        }
+    }
+}
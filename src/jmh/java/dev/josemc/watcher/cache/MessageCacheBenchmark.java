@@ -0,0 +1,86 @@
+package dev.josemc.watcher.cache;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Coste de guardar y leer mensajes en el {@link MessageCache} con un millon de mensajes, y memoria usada por millon
+ * de mensajes, dentro y fuera del heap.
+ */
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgs = "-XX:MaxDirectMemorySize=1g")
+@State(Scope.Benchmark)
+public class MessageCacheBenchmark {
+    static final int MESSAGES = 1_000_000;
+    static final int GUILDS = 1000;
+    static final long DISCORD_EPOCH = 1420070400000L;
+
+    static final String[] CONTENTS = {
+            "hola",
+            "alguien para jugar esta noche?",
+            "jajajaja",
+            "Os dejo el enlace de la partida de ayer: https://www.youtube.com/watch?v=dQw4w9WgXcQ",
+            "Recordad que las normas del servidor prohiben el spam en los canales de texto. Si teneis dudas preguntad a "
+                    + "un moderador antes de publicar enlaces, y usad el canal de sugerencias para proponer cambios. Gracias!",
+    };
+    static final List<CachedMessage.Attachment> ATTACHMENT = List.of(new CachedMessage.Attachment(1L << 40, "captura.png", 245_000));
+
+    MessageCache cache;
+    long[] ids;
+    int next;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        // Sin limites por servidor ni antigüedad, para medir la memoria de un millon de mensajes.
+        cache = new MessageCache(512L * 1024 * 1024, MessageCache.SLAB_BYTES, Integer.MAX_VALUE, TimeUnit.DAYS.toMillis(1));
+        ids = new long[MESSAGES];
+        long now = System.currentTimeMillis() - MESSAGES;
+        for (int i = 0; i < MESSAGES; i++) {
+            ids[i] = ((now + i - DISCORD_EPOCH) << 22) | (i & 0xFFF);
+            put(ids[i], i);
+        }
+        System.out.printf("%n%d mensajes: %d KB fuera del heap usados (%d reservados), %d KB en el heap, %d bytes por mensaje%n",
+                cache.size(), cache.getOffHeapUsedBytes() / 1024, cache.getOffHeapBytes() / 1024, cache.getHeapBytes() / 1024,
+                (cache.getOffHeapUsedBytes() + cache.getHeapBytes()) / cache.size());
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        System.out.printf("%n%d mensajes, %d quitados%n", cache.size(), cache.getEvicted());
+    }
+
+    void put(long id, int i) {
+        cache.put(id, i % GUILDS, i % GUILDS * 100 + i % 7, i * 31L, CONTENTS[i % CONTENTS.length], i % 10 == 0 ? ATTACHMENT : List.of());
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SampleTime)
+    @OutputTimeUnit(TimeUnit.NANOSECONDS)
+    public CachedMessage get() {
+        return cache.get(ids[ThreadLocalRandom.current().nextInt(MESSAGES)]);
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SampleTime)
+    @OutputTimeUnit(TimeUnit.NANOSECONDS)
+    public void update() {
+        // Sustituye un mensaje existente, como al editarlo.
+        int i = ThreadLocalRandom.current().nextInt(MESSAGES);
+        put(ids[i], i);
+    }
+}
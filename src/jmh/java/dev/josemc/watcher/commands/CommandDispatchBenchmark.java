@@ -0,0 +1,125 @@
+package dev.josemc.watcher.commands;
+
+import dev.josemc.watcher.benchmarks.BenchmarkCommand;
+import dev.josemc.watcher.benchmarks.DirectCommandExecutor;
+import dev.josemc.watcher.benchmarks.FakeInteractions;
+import dev.josemc.watcher.benchmarks.Stubs;
+import dev.josemc.watcher.commands.interfaces.ICommand;
+import net.dv8tion.jda.api.EmbedBuilder;
+import net.dv8tion.jda.api.entities.Guild;
+import net.dv8tion.jda.api.entities.Member;
+import net.dv8tion.jda.api.entities.MessageEmbed;
+import net.dv8tion.jda.api.entities.channel.unions.MessageChannelUnion;
+import net.dv8tion.jda.api.events.interaction.command.SlashCommandInteractionEvent;
+import net.dv8tion.jda.api.utils.messages.MessageCreateBuilder;
+import net.dv8tion.jda.api.utils.messages.MessageCreateData;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.awt.Color;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Mide el camino de un SlashCommand sobre eventos de JDA falsos: la ejecucion completa
+ * desde {@link CommandManager#perform}, la creacion del {@link CommandEvent} y la respuesta
+ * con {@link MessageCreateBuilder} o con los textos precompilados de {@link CommandEvent#replyResource}. El comando responde siempre, de forma que el temporizador
+ * de {@code command_defer} se cancela y no se acumula. Los comandos se ejecutan en el mismo hilo con
+ * {@link DirectCommandExecutor}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CommandDispatchBenchmark {
+
+    CommandManager commandManager;
+    List<ICommand> registered;
+    Member member;
+    MessageChannelUnion channel;
+    SlashCommandInteractionEvent replyEvent;
+    SlashCommandInteractionEvent unknownEvent;
+    CommandEvent commandEvent;
+    MessageEmbed embed;
+
+    @Setup(Level.Trial)
+    public void setup() throws Exception {
+        registered = List.of(new BenchmarkCommand("ping", "pong"));
+        commandManager = new CommandManager(registered);
+        commandManager.setExecutor(new DirectCommandExecutor());
+
+        Guild guild = FakeInteractions.guild(1L);
+        member = FakeInteractions.member(guild, 2L);
+        channel = FakeInteractions.channel(3L);
+        replyEvent = FakeInteractions.slashCommand("ping", member, channel);
+        unknownEvent = FakeInteractions.slashCommand("unknown", member, channel);
+        commandEvent = new CommandEvent(commandManager, "ping", member, null, channel, null, replyEvent);
+        embed = new EmbedBuilder().setTitle("Watcher").setDescription("pong").setColor(Color.GREEN).build();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        registered.forEach(commandManager::removeCommand);
+        commandManager.getDeletionScheduler().stop();
+    }
+
+    @Benchmark
+    public boolean dispatchAndReply() {
+        return commandManager.perform(channel, replyEvent);
+    }
+
+    @Benchmark
+    public boolean dispatchUnknown() {
+        return commandManager.perform(channel, unknownEvent);
+    }
+
+    @Benchmark
+    public CommandEvent createEvent() {
+        return new CommandEvent(commandManager, "ping", member, null, channel, null, replyEvent);
+    }
+
+    @Benchmark
+    public MessageCreateData buildMessage() {
+        return new MessageCreateBuilder().setContent("pong").build();
+    }
+
+    @Benchmark
+    public long replyText() {
+        commandEvent.reply("pong");
+        return Stubs.REST_CALLS.sum();
+    }
+
+    @Benchmark
+    public long replyEmbed() {
+        commandEvent.reply(embed);
+        return Stubs.REST_CALLS.sum();
+    }
+
+    @Benchmark
+    public long replyResource() {
+        commandEvent.replyResource("command.perform.busy");
+        return Stubs.REST_CALLS.sum();
+    }
+
+    @Benchmark
+    public MessageCreateData renderResource() {
+        return commandEvent.getBundle().message("command.setup.saved", "<#3>");
+    }
+
+    @Benchmark
+    public MessageCreateData renderEmbedResource() {
+        return commandEvent.getBundle().message("command.setup.current", "<#3>");
+    }
+}
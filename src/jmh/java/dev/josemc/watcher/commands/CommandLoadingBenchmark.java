@@ -0,0 +1,49 @@
+package dev.josemc.watcher.commands;
+
+import dev.josemc.watcher.commands.interfaces.ICommand;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compara el tiempo de arranque de {@link CommandManager} usando el registro generado
+ * frente al escaneo del classpath. Cada medida se hace en una JVM nueva, para reflejar el arranque en frio.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 0)
+@Measurement(iterations = 1)
+@Fork(10)
+public class CommandLoadingBenchmark {
+
+    @Param({"registry", "scan"})
+    String mode;
+
+    CommandManager commandManager;
+
+    @Benchmark
+    public CommandManager load() throws Exception {
+        commandManager = new CommandManager("scan".equals(mode));
+        return commandManager;
+    }
+
+    @TearDown(Level.Iteration)
+    public void tearDown() {
+        for (ICommand command : List.copyOf(commandManager.getCommands())) {
+            commandManager.removeCommand(command);
+        }
+    }
+}
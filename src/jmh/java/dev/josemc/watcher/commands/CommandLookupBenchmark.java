@@ -0,0 +1,73 @@
+package dev.josemc.watcher.commands;
+
+import dev.josemc.watcher.benchmarks.BenchmarkCommand;
+import dev.josemc.watcher.commands.interfaces.ICommand;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Mide el coste de buscar un comando con distintos numeros de comandos registrados.
+ * El resultado deberia mantenerse plano al aumentar {@code commandCount}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CommandLookupBenchmark {
+
+    @Param({"1", "10", "100", "500"})
+    int commandCount;
+
+    CommandManager commandManager;
+    List<ICommand> registered;
+    String lastSlashName;
+    String lastAlias;
+
+    @Setup(Level.Trial)
+    public void setup() throws Exception {
+        registered = new ArrayList<>();
+        for (int i = 0; i < commandCount; i++) {
+            registered.add(new BenchmarkCommand("cmd" + i));
+        }
+        commandManager = new CommandManager(registered);
+        lastSlashName = "cmd" + (commandCount - 1);
+        lastAlias = "ALIAS-CMD" + (commandCount - 1);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        registered.forEach(commandManager::removeCommand);
+    }
+
+    @Benchmark
+    public ICommand bySlashName() {
+        return commandManager.getCommandBySlashName(lastSlashName);
+    }
+
+    @Benchmark
+    public ICommand byAlias() {
+        return commandManager.getCommandByName(lastAlias);
+    }
+
+    @Benchmark
+    public ICommand missing() {
+        return commandManager.getCommandBySlashName("unknown");
+    }
+}
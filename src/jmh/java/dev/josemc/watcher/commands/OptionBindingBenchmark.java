@@ -0,0 +1,93 @@
+package dev.josemc.watcher.commands;
+
+import dev.josemc.watcher.benchmarks.FakeInteractions;
+import dev.josemc.watcher.commands.interfaces.Command;
+import dev.josemc.watcher.commands.interfaces.Option;
+import dev.josemc.watcher.commands.interfaces.Perform;
+import dev.josemc.watcher.commands.interfaces.TypedCommand;
+import net.dv8tion.jda.api.entities.Guild;
+import net.dv8tion.jda.api.entities.Member;
+import net.dv8tion.jda.api.entities.channel.unions.MessageChannelUnion;
+import net.dv8tion.jda.api.events.interaction.command.SlashCommandInteractionEvent;
+import net.dv8tion.jda.api.interactions.commands.OptionMapping;
+import net.dv8tion.jda.api.interactions.commands.OptionType;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Coste de leer cuatro opciones de un SlashCommand: a mano con {@code getOption} y conversiones, como hacian los
+ * comandos, o con el {@link TypedCommand}, que las recibe ya convertidas.
+ */
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Benchmark)
+public class OptionBindingBenchmark {
+
+    public enum Mode {
+        FAST, SAFE, DEBUG
+    }
+
+    @Command(name = "bench", description = "Benchmark")
+    public static class Typed extends TypedCommand {
+        long result;
+
+        @Perform
+        public void perform(CommandEvent commandEvent,
+                            @Option(name = "text", description = "Texto") String text,
+                            @Option(name = "count", description = "Numero", min = 1, max = 100) int count,
+                            @Option(name = "mode", description = "Modo") Mode mode,
+                            @Option(name = "verbose", description = "Detalles", required = false) boolean verbose) {
+            result = text.length() + count + mode.ordinal() + (verbose ? 1 : 0);
+        }
+    }
+
+    Typed typed;
+    CommandEvent commandEvent;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        typed = new Typed();
+        Guild guild = FakeInteractions.guild(1);
+        Member member = FakeInteractions.member(guild, 2);
+        MessageChannelUnion channel = FakeInteractions.channel(3);
+        List<OptionMapping> options = List.of(
+                FakeInteractions.option("text", OptionType.STRING, "hola mundo"),
+                FakeInteractions.option("count", OptionType.INTEGER, 42),
+                FakeInteractions.option("mode", OptionType.INTEGER, Mode.SAFE.ordinal()),
+                FakeInteractions.option("verbose", OptionType.BOOLEAN, true));
+        SlashCommandInteractionEvent event = FakeInteractions.slashCommand("bench", member, channel, options);
+        commandEvent = new CommandEvent(null, "bench", member, null, channel, null, event, null);
+    }
+
+    @Benchmark
+    public long manual() {
+        SlashCommandInteractionEvent event = commandEvent.getSlashCommandInteractionEvent();
+        OptionMapping text = event.getOption("text");
+        OptionMapping count = event.getOption("count");
+        OptionMapping mode = event.getOption("mode");
+        OptionMapping verbose = event.getOption("verbose");
+        Mode value = Mode.values()[(int) mode.getAsLong()];
+        return text.getAsString().length() + (int) count.getAsLong() + value.ordinal() + (verbose != null && verbose.getAsBoolean() ? 1 : 0);
+    }
+
+    @Benchmark
+    public long typed() {
+        typed.onPerform(commandEvent);
+        return typed.result;
+    }
+}
@@ -0,0 +1,126 @@
+package dev.josemc.watcher.commands.permissions;
+
+import dev.josemc.watcher.benchmarks.Stubs;
+import net.dv8tion.jda.api.Permission;
+import net.dv8tion.jda.api.entities.Guild;
+import net.dv8tion.jda.api.entities.Member;
+import net.dv8tion.jda.api.entities.Role;
+import net.dv8tion.jda.api.entities.channel.ChannelType;
+import net.dv8tion.jda.api.entities.channel.concrete.TextChannel;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Coste de comprobar los permisos de un comando: calculandolos cada vez, con la cache comprobando los roles del
+ * miembro (sin el intent {@code GUILD_MEMBERS}) y con la cache confiando en los eventos de miembros.
+ * Cada comprobacion es de uno de 1000 miembros con 5 roles en uno de 20 canales.
+ */
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Benchmark)
+public class PermissionCacheBenchmark {
+    static final int MEMBERS = 1000;
+    static final int CHANNELS = 20;
+    static final int CHECKS = 1 << 14;
+
+    final long required = Permission.getRaw(Permission.MANAGE_SERVER);
+    PermissionCache uncached;
+    PermissionCache verified;
+    PermissionCache trusted;
+    Member[] members;
+    TextChannel[] channels;
+    int[] order;
+    int next;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        Random random = new Random(1);
+        Role[] publicRole = new Role[1];
+        Guild guild = Stubs.of(Guild.class)
+                .returning("getIdLong", 1L)
+                .with("getPublicRole", args -> publicRole[0])
+                .build();
+        publicRole[0] = role(guild, 1, Permission.getRaw(Permission.VIEW_CHANNEL, Permission.MESSAGE_SEND));
+
+        Role[] roles = new Role[30];
+        for (int i = 0; i < roles.length; i++) {
+            roles[i] = role(guild, 100 + i, i == 0 ? Permission.getRaw(Permission.MANAGE_SERVER) : Permission.getRaw(Permission.MESSAGE_HISTORY));
+        }
+
+        members = new Member[MEMBERS];
+        for (int i = 0; i < MEMBERS; i++) {
+            List<Role> memberRoles = new ArrayList<>();
+            while (memberRoles.size() < 5) {
+                Role role = roles[random.nextInt(roles.length)];
+                if (!memberRoles.contains(role)) memberRoles.add(role);
+            }
+            members[i] = Stubs.of(Member.class)
+                    .returning("getIdLong", 1000L + i)
+                    .returning("getGuild", guild)
+                    .returning("getRoles", List.copyOf(memberRoles))
+                    .build();
+        }
+
+        channels = new TextChannel[CHANNELS];
+        for (int i = 0; i < CHANNELS; i++) {
+            channels[i] = Stubs.of(TextChannel.class)
+                    .returning("getIdLong", 500L + i)
+                    .returning("getType", ChannelType.TEXT)
+                    .returning("getGuild", guild)
+                    .build();
+        }
+
+        order = new int[CHECKS];
+        for (int i = 0; i < CHECKS; i++) order[i] = random.nextInt(MEMBERS * CHANNELS);
+
+        uncached = new PermissionCache(false, MEMBERS);
+        verified = new PermissionCache(true, MEMBERS);
+        trusted = new PermissionCache(true, MEMBERS);
+        trusted.setMemberEvents(true);
+    }
+
+    private static Role role(Guild guild, long id, long permissions) {
+        return Stubs.of(Role.class)
+                .returning("getIdLong", id)
+                .returning("getGuild", guild)
+                .returning("getPermissionsRaw", permissions)
+                .build();
+    }
+
+    private boolean check(PermissionCache cache) {
+        int index = order[next++ & (CHECKS - 1)];
+        return cache.hasPermissions(members[index % MEMBERS], channels[index / MEMBERS], required);
+    }
+
+    @Benchmark
+    public boolean uncached() {
+        return check(uncached);
+    }
+
+    @Benchmark
+    public boolean verified() {
+        return check(verified);
+    }
+
+    @Benchmark
+    public boolean trusted() {
+        return check(trusted);
+    }
+}
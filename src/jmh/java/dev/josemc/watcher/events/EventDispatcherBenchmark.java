@@ -0,0 +1,142 @@
+package dev.josemc.watcher.events;
+
+import dev.josemc.watcher.benchmarks.Stubs;
+import net.dv8tion.jda.api.JDA;
+import net.dv8tion.jda.api.entities.Guild;
+import net.dv8tion.jda.api.entities.Member;
+import net.dv8tion.jda.api.events.guild.member.GuildMemberJoinEvent;
+import net.dv8tion.jda.api.events.guild.member.GuildMemberRemoveEvent;
+import net.dv8tion.jda.api.events.interaction.command.CommandAutoCompleteInteractionEvent;
+import net.dv8tion.jda.api.events.interaction.command.SlashCommandInteractionEvent;
+import net.dv8tion.jda.api.events.message.MessageDeleteEvent;
+import net.dv8tion.jda.api.events.message.MessageReceivedEvent;
+import net.dv8tion.jda.api.events.message.MessageUpdateEvent;
+import net.dv8tion.jda.api.hooks.IEventManager;
+import net.dv8tion.jda.api.hooks.InterfacedEventManager;
+import net.dv8tion.jda.api.hooks.ListenerAdapter;
+import net.dv8tion.jda.internal.requests.WebSocketClient;
+import org.jetbrains.annotations.NotNull;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Coste de repartir eventos de entrada de miembros de 64 servidores entre seis listeners parecidos a los del bot, de
+ * los que solo uno atiende las entradas: con el {@link InterfacedEventManager} de JDA, que pasa cada evento por todos
+ * los listeners en el hilo que lo recibe, y con el {@link EventDispatcher}, contando hasta que se han atendido todos.
+ * El hilo del benchmark se marca como hilo del gateway, que es el unico cuyos eventos pasan por las colas.
+ */
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Benchmark)
+public class EventDispatcherBenchmark {
+    static final int GUILDS = 64;
+    static final int EVENTS = 1024;
+
+    final LongAdder joins = new LongAdder();
+    IEventManager interfaced;
+    EventDispatcher dispatcher;
+    GuildMemberJoinEvent[] events;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        JDA jda = Stubs.of(JDA.class).returning("getShardInfo", new JDA.ShardInfo(0, 1)).build();
+        Guild[] guilds = new Guild[GUILDS];
+        for (int i = 0; i < GUILDS; i++) {
+            guilds[i] = Stubs.of(Guild.class).returning("getIdLong", 1000L + i).build();
+        }
+        events = new GuildMemberJoinEvent[EVENTS];
+        for (int i = 0; i < EVENTS; i++) {
+            Member member = Stubs.of(Member.class)
+                    .returning("getIdLong", 5000L + i)
+                    .returning("getGuild", guilds[i % GUILDS])
+                    .build();
+            events[i] = new GuildMemberJoinEvent(jda, i, member);
+        }
+
+        interfaced = new InterfacedEventManager();
+        dispatcher = new EventDispatcher(2, 10_000, 1000, 100, 0);
+        for (Object listener : listeners()) {
+            interfaced.register(listener);
+            dispatcher.register(listener);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws InterruptedException {
+        dispatcher.shutdown(5, TimeUnit.SECONDS);
+    }
+
+    private Object[] listeners() {
+        return new Object[]{
+                new ListenerAdapter() {
+                    @Override
+                    public void onGuildMemberJoin(@NotNull GuildMemberJoinEvent event) {
+                        joins.increment();
+                    }
+                },
+                new ListenerAdapter() {
+                    @Override
+                    public void onMessageReceived(@NotNull MessageReceivedEvent event) {
+                    }
+                },
+                new ListenerAdapter() {
+                    @Override
+                    public void onMessageUpdate(@NotNull MessageUpdateEvent event) {
+                    }
+
+                    @Override
+                    public void onMessageDelete(@NotNull MessageDeleteEvent event) {
+                    }
+                },
+                new ListenerAdapter() {
+                    @Override
+                    public void onGuildMemberRemove(@NotNull GuildMemberRemoveEvent event) {
+                    }
+                },
+                new ListenerAdapter() {
+                    @Override
+                    public void onSlashCommandInteraction(@NotNull SlashCommandInteractionEvent event) {
+                    }
+                },
+                new ListenerAdapter() {
+                    @Override
+                    public void onCommandAutoCompleteInteraction(@NotNull CommandAutoCompleteInteractionEvent event) {
+                    }
+                }
+        };
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(EVENTS)
+    public long interfaced() {
+        for (GuildMemberJoinEvent event : events) interfaced.handle(event);
+        return joins.sum();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(EVENTS)
+    public long dispatcher() {
+        WebSocketClient.WS_THREAD.set(true);
+        long target = dispatcher.getDispatched() + EVENTS;
+        for (GuildMemberJoinEvent event : events) dispatcher.handle(event);
+        while (dispatcher.getDispatched() < target) Thread.yield();
+        return joins.sum();
+    }
+}
@@ -0,0 +1,131 @@
+package dev.josemc.watcher.journal;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Coste de {@link Journal#append(JournalRecord)} desde varios hilos, como los hilos de eventos de JDA, y latencia
+ * de una busqueda por servidor o usuario con un millon de eventos guardados.
+ */
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class JournalBenchmark {
+
+    static final int GUILDS = 1000;
+    static final int USERS = 50_000;
+
+    @State(Scope.Benchmark)
+    public static class Writing {
+        Path directory;
+        Journal journal;
+
+        @Setup(Level.Trial)
+        public void setup() throws IOException {
+            directory = Files.createTempDirectory("journal-benchmark");
+            journal = new Journal(directory, 32 * 1024 * 1024, 4, 65536, 50);
+        }
+
+        @TearDown(Level.Trial)
+        public void tearDown() throws IOException {
+            journal.close();
+            System.out.printf("%n%d eventos escritos, %d descartados, %d escrituras a disco%n", journal.getAppended(), journal.getDropped(), journal.getCommits());
+            delete(directory);
+        }
+    }
+
+    @State(Scope.Benchmark)
+    public static class Reading {
+        static final int EVENTS = 1_000_000;
+
+        Path directory;
+        Journal journal;
+        long start;
+
+        @Setup(Level.Trial)
+        public void setup() throws IOException, InterruptedException {
+            directory = Files.createTempDirectory("journal-benchmark");
+            journal = new Journal(directory, 32 * 1024 * 1024, 8, EVENTS, 50);
+            start = System.currentTimeMillis() - EVENTS;
+            long writeStart = System.nanoTime();
+            for (int i = 0; i < EVENTS; i++) {
+                journal.append(record(start + i, i % GUILDS, i % USERS));
+            }
+            while (journal.getAppended() < EVENTS) {
+                Thread.sleep(1);
+            }
+            long millis = Math.max(1, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - writeStart));
+            System.out.printf("%n%d eventos escritos en %d ms (%d eventos/s), %d escrituras a disco%n", EVENTS, millis, EVENTS * 1000L / millis, journal.getCommits());
+        }
+
+        @TearDown(Level.Trial)
+        public void tearDown() throws IOException {
+            journal.close();
+            delete(directory);
+        }
+    }
+
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    @State(Scope.Thread)
+    public static class Drops {
+        public long dropped;
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.Throughput)
+    @OutputTimeUnit(TimeUnit.SECONDS)
+    @Threads(4)
+    public boolean append(Writing writing, Drops drops) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        boolean accepted = writing.journal.append(record(System.currentTimeMillis(), random.nextInt(GUILDS), random.nextInt(USERS)));
+        if (!accepted) drops.dropped++;
+        return accepted;
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SampleTime)
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public List<JournalRecord> queryGuild(Reading reading) {
+        int guild = ThreadLocalRandom.current().nextInt(GUILDS);
+        return reading.journal.query(new JournalQuery(guild, 0, null, reading.start, Long.MAX_VALUE, 20));
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SampleTime)
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public List<JournalRecord> queryUserByType(Reading reading) {
+        int user = ThreadLocalRandom.current().nextInt(USERS);
+        return reading.journal.query(new JournalQuery(user % GUILDS, user, JournalEventType.MESSAGE_EDIT, reading.start, Long.MAX_VALUE, 20));
+    }
+
+    static JournalRecord record(long timestamp, long guildId, long userId) {
+        return new JournalRecord(timestamp, JournalEventType.MESSAGE_EDIT, guildId, userId, guildId * 10, timestamp, "mensaje editado de prueba");
+    }
+
+    static void delete(Path directory) throws IOException {
+        try (Stream<Path> files = Files.walk(directory)) {
+            files.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+        }
+    }
+}
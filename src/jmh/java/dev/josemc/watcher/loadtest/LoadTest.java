@@ -0,0 +1,147 @@
+package dev.josemc.watcher.loadtest;
+
+import dev.josemc.watcher.OtherEvents;
+import dev.josemc.watcher.benchmarks.FakeInteractions;
+import dev.josemc.watcher.benchmarks.Stubs;
+import dev.josemc.watcher.commands.CommandManager;
+import dev.josemc.watcher.commands.executor.CommandExecutor;
+import dev.josemc.watcher.commands.executor.CommandExecutors;
+import dev.josemc.watcher.commands.executor.GuildFairCommandExecutor;
+import net.dv8tion.jda.api.entities.Guild;
+import net.dv8tion.jda.api.entities.Member;
+import net.dv8tion.jda.api.entities.channel.unions.MessageChannelUnion;
+import net.dv8tion.jda.api.interactions.InteractionHook;
+import net.dv8tion.jda.api.requests.restaction.WebhookMessageCreateAction;
+import net.dv8tion.jda.api.utils.messages.MessageCreateData;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Prueba de carga sin conexion a Discord.
+ * <p>
+ * Genera SlashCommands falsos a un ritmo fijo (bucle abierto: las llegadas no esperan a las respuestas)
+ * y los entrega a {@link OtherEvents} como lo haria el hilo del gateway de JDA. Cada interaccion tiene
+ * su propio {@link InteractionHook}, que registra el {@code deferReply} y lo que envia
+ * {@link CommandManager}, tanto las respuestas directas como los mensajes de seguimiento. Al terminar se muestra el rendimiento y los percentiles de latencia.
+ * <p>
+ * Se ejecuta con {@code ./gradlew loadTest -PloadTestArgs="--rate=500 --duration=60"}.
+ */
+public final class LoadTest {
+    private static final Logger log = LoggerFactory.getLogger(LoadTest.class);
+
+    private LoadTest() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        LoadTestOptions options;
+        try {
+            options = LoadTestOptions.parse(args);
+        } catch (IllegalArgumentException e) {
+            System.err.println(e.getMessage());
+            System.exit(2);
+            return;
+        }
+
+        LoadTestReport report = run(options);
+        System.out.println(report);
+        if (options.out() != null) {
+            Files.writeString(Path.of(options.out()), report.toString(), StandardCharsets.UTF_8);
+        }
+        System.exit(0);
+    }
+
+    /**
+     * Ejecutar la prueba de carga.
+     *
+     * @param options las opciones de la prueba.
+     * @return el informe.
+     */
+    static LoadTestReport run(LoadTestOptions options) throws Exception {
+        List<SyntheticCommand> commands = new ArrayList<>();
+        int[] cumulativeWeights = new int[options.mix().size()];
+        int totalWeight = 0;
+        for (int i = 0; i < options.mix().size(); i++) {
+            LoadTestOptions.MixEntry entry = options.mix().get(i);
+            commands.add(new SyntheticCommand(entry.name(), entry.workMillis()));
+            totalWeight += entry.weight();
+            cumulativeWeights[i] = totalWeight;
+        }
+
+        CommandManager commandManager = new CommandManager(commands);
+        CommandExecutor delegate = "virtual".equalsIgnoreCase(options.executor()) ? CommandExecutors.virtual() : null;
+        if (delegate == null) delegate = CommandExecutors.bounded(options.threads(), options.queue());
+        CommandExecutor executor = new GuildFairCommandExecutor(delegate, options.guildConcurrency(), options.guildQueue());
+        commandManager.setExecutor(executor);
+        OtherEvents listener = new OtherEvents(commandManager, null);
+
+        Guild[] guilds = new Guild[options.guilds()];
+        MessageChannelUnion[] channels = new MessageChannelUnion[options.guilds()];
+        for (int i = 0; i < guilds.length; i++) {
+            guilds[i] = FakeInteractions.guild(100_000L + i);
+            channels[i] = FakeInteractions.channel(200_000L + i);
+        }
+
+        int total = options.totalInteractions();
+        ReplyRecorder recorder = new ReplyRecorder(total);
+        SplittableRandom random = new SplittableRandom(options.seed());
+        double meanIntervalNanos = 1e9 / options.rate();
+
+        log.info("Prueba de carga: {} interacciones a {}/s", total, options.rate());
+        long start = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(50);
+        double offset = 0;
+        for (int i = 0; i < total; i++) {
+            long intended = start + (long) offset;
+            offset += options.poisson() ? -Math.log(1 - random.nextDouble()) * meanIntervalNanos : meanIntervalNanos;
+
+            int guild = random.nextInt(guilds.length);
+            int weight = random.nextInt(totalWeight);
+            int command = 0;
+            while (cumulativeWeights[command] <= weight) command++;
+            Member member = FakeInteractions.member(guilds[guild], 300_000L + random.nextInt(options.users()));
+
+            int interaction = i;
+            InteractionHook hook = recordingHook(recorder, interaction);
+            var event = FakeInteractions.slashCommand(options.mix().get(command).name(), member, channels[guild], hook,
+                    () -> recorder.deferred(interaction), message -> recorder.replied(interaction, content(message), true));
+
+            long wait = intended - System.nanoTime();
+            if (wait > 0) LockSupport.parkNanos(wait);
+            recorder.arrived(interaction, intended);
+            listener.onEvent(event);
+        }
+
+        long drainDeadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(options.drainSeconds());
+        while (recorder.pending(0, total) > 0 && System.nanoTime() < drainDeadline) {
+            Thread.sleep(10);
+        }
+
+        executor.shutdown();
+        executor.awaitTermination(1, TimeUnit.SECONDS);
+        commandManager.getDeletionScheduler().stop();
+        return LoadTestReport.of(options, recorder);
+    }
+
+    /**
+     * Crear un {@link InteractionHook} que registra cada mensaje enviado por la interaccion.
+     */
+    private static InteractionHook recordingHook(ReplyRecorder recorder, int interaction) {
+        return Stubs.of(InteractionHook.class).with("sendMessage", args -> {
+            recorder.replied(interaction, content(args[0]), false);
+            return Stubs.restAction(WebhookMessageCreateAction.class, null);
+        }).build();
+    }
+
+    private static String content(Object message) {
+        return message instanceof MessageCreateData data ? data.getContent() : String.valueOf(message);
+    }
+}
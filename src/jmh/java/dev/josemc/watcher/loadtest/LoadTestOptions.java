@@ -0,0 +1,127 @@
+package dev.josemc.watcher.loadtest;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Opciones de la prueba de carga, leidas de argumentos {@code --nombre=valor}.
+ *
+ * @param rate             interacciones por segundo.
+ * @param durationSeconds  segundos de medicion.
+ * @param warmupSeconds    segundos de calentamiento, que no entran en el informe.
+ * @param drainSeconds     segundos maximos de espera a las respuestas pendientes al terminar.
+ * @param poisson          true para llegadas de Poisson, false para llegadas a intervalos fijos.
+ * @param mix              los comandos y su peso.
+ * @param guilds           numero de servidores.
+ * @param users            numero de usuarios.
+ * @param executor         {@code bounded} o {@code virtual}.
+ * @param threads          hilos del ejecutor {@code bounded}.
+ * @param queue            cola del ejecutor {@code bounded}.
+ * @param guildConcurrency comandos a la vez por servidor.
+ * @param guildQueue       comandos en espera por servidor.
+ * @param seed             semilla de los numeros aleatorios.
+ * @param out              fichero donde guardar el informe, o null.
+ */
+record LoadTestOptions(int rate, int durationSeconds, int warmupSeconds, int drainSeconds, boolean poisson,
+                       List<MixEntry> mix, int guilds, int users, String executor, int threads, int queue,
+                       int guildConcurrency, int guildQueue, long seed, String out) {
+
+    /**
+     * Un comando de la mezcla.
+     *
+     * @param name       nombre del SlashCommand.
+     * @param weight     peso relativo en el trafico.
+     * @param workMillis tiempo de trabajo simulado.
+     */
+    record MixEntry(String name, int weight, long workMillis) {
+    }
+
+    static final String USAGE = """
+            Opciones (--nombre=valor):
+              --rate=200                   interacciones por segundo
+              --duration=30                segundos de medicion
+              --warmup=5                   segundos de calentamiento
+              --drain=10                   segundos de espera a las respuestas pendientes
+              --arrival=poisson            poisson o uniform
+              --mix=ping:80:0,work:15:5,slow:5:50
+                                           comandos como nombre:peso:milisegundos de trabajo
+              --guilds=100                 numero de servidores
+              --users=1000                 numero de usuarios
+              --executor=bounded           bounded o virtual
+              --threads=<2 x nucleos>      hilos del ejecutor bounded
+              --queue=256                  cola del ejecutor bounded
+              --guild-concurrency=2        comandos a la vez por servidor
+              --guild-queue=16             comandos en espera por servidor
+              --seed=42                    semilla
+              --out=<fichero>              guardar tambien el informe en un fichero
+            """;
+
+    static LoadTestOptions parse(String[] args) {
+        Map<String, String> values = new HashMap<>();
+        for (String arg : args) {
+            if (!arg.startsWith("--") || !arg.contains("=")) {
+                throw new IllegalArgumentException("Argumento no valido: " + arg + "\n" + USAGE);
+            }
+            int separator = arg.indexOf('=');
+            values.put(arg.substring(2, separator), arg.substring(separator + 1));
+        }
+
+        LoadTestOptions options = new LoadTestOptions(
+                intValue(values, "rate", 200),
+                intValue(values, "duration", 30),
+                intValue(values, "warmup", 5),
+                intValue(values, "drain", 10),
+                !"uniform".equalsIgnoreCase(values.remove("arrival")),
+                parseMix(values.getOrDefault("mix", "ping:80:0,work:15:5,slow:5:50")),
+                intValue(values, "guilds", 100),
+                intValue(values, "users", 1000),
+                values.getOrDefault("executor", "bounded"),
+                intValue(values, "threads", Runtime.getRuntime().availableProcessors() * 2),
+                intValue(values, "queue", 256),
+                intValue(values, "guild-concurrency", 2),
+                intValue(values, "guild-queue", 16),
+                intValue(values, "seed", 42),
+                values.get("out"));
+        values.remove("mix");
+        values.remove("executor");
+        values.remove("out");
+        if (!values.isEmpty()) {
+            throw new IllegalArgumentException("Opciones desconocidas: " + values.keySet() + "\n" + USAGE);
+        }
+        if (options.rate <= 0 || options.durationSeconds <= 0 || options.guilds <= 0 || options.users <= 0) {
+            throw new IllegalArgumentException("rate, duration, guilds y users deben ser mayores que 0");
+        }
+        return options;
+    }
+
+    private static int intValue(Map<String, String> values, String key, int def) {
+        String value = values.remove(key);
+        return value == null ? def : Integer.parseInt(value);
+    }
+
+    private static List<MixEntry> parseMix(String value) {
+        List<MixEntry> mix = new ArrayList<>();
+        for (String entry : value.split(",")) {
+            String[] parts = entry.trim().split(":");
+            if (parts.length != 3) throw new IllegalArgumentException("Entrada de --mix no valida: " + entry);
+            mix.add(new MixEntry(parts[0], Integer.parseInt(parts[1]), Long.parseLong(parts[2])));
+        }
+        return List.copyOf(mix);
+    }
+
+    /**
+     * Numero de interacciones de calentamiento.
+     */
+    int warmupInteractions() {
+        return rate * warmupSeconds;
+    }
+
+    /**
+     * Numero total de interacciones, incluido el calentamiento.
+     */
+    int totalInteractions() {
+        return rate * (warmupSeconds + durationSeconds);
+    }
+}
@@ -0,0 +1,111 @@
+package dev.josemc.watcher.loadtest;
+
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Informe de la prueba de carga: rendimiento y percentiles de latencia sobre las interacciones medidas.
+ * Las latencias se miden desde la llegada prevista, de forma que un generador retrasado no oculta las esperas.
+ */
+final class LoadTestReport {
+    private final LoadTestOptions options;
+    private final int measured;
+    private final int unanswered;
+    private final double throughput;
+    private final long[] deferLatencies;
+    private final long[] replyLatencies;
+    private final Map<String, Long> contents;
+    private final long defers;
+    private final long directReplies;
+    private final long followUps;
+
+    private LoadTestReport(LoadTestOptions options, int measured, int unanswered, double throughput, long[] deferLatencies, long[] replyLatencies, Map<String, Long> contents, long defers, long directReplies, long followUps) {
+        this.options = options;
+        this.measured = measured;
+        this.unanswered = unanswered;
+        this.throughput = throughput;
+        this.deferLatencies = deferLatencies;
+        this.replyLatencies = replyLatencies;
+        this.contents = contents;
+        this.defers = defers;
+        this.directReplies = directReplies;
+        this.followUps = followUps;
+    }
+
+    /**
+     * Calcular el informe de las interacciones que no son de calentamiento.
+     *
+     * @param options  las opciones de la prueba.
+     * @param recorder el registro de las interacciones.
+     * @return el informe.
+     */
+    static LoadTestReport of(LoadTestOptions options, ReplyRecorder recorder) {
+        int from = options.warmupInteractions();
+        int to = options.totalInteractions();
+        long[] deferLatencies = new long[to - from];
+        long[] replyLatencies = new long[to - from];
+        int deferCount = 0;
+        int replyCount = 0;
+        long lastReply = Long.MIN_VALUE;
+
+        for (int i = from; i < to; i++) {
+            long arrival = recorder.arrival(i);
+            long deferredAt = recorder.deferredAt(i);
+            long repliedAt = recorder.repliedAt(i);
+            if (deferredAt != 0) deferLatencies[deferCount++] = deferredAt - arrival;
+            if (repliedAt != 0) {
+                replyLatencies[replyCount++] = repliedAt - arrival;
+                lastReply = Math.max(lastReply, repliedAt);
+            }
+        }
+
+        double window = replyCount == 0 ? 0 : (lastReply - recorder.arrival(from)) / 1e9;
+        double throughput = window <= 0 ? 0 : replyCount / window;
+
+        deferLatencies = Arrays.copyOf(deferLatencies, deferCount);
+        replyLatencies = Arrays.copyOf(replyLatencies, replyCount);
+        Arrays.sort(deferLatencies);
+        Arrays.sort(replyLatencies);
+        return new LoadTestReport(options, to - from, recorder.pending(from, to), throughput, deferLatencies, replyLatencies, recorder.getContents(),
+                recorder.getDefers(), recorder.getDirectReplies(), recorder.getFollowUps());
+    }
+
+    private static String percentiles(long[] sorted) {
+        if (sorted.length == 0) return "sin datos";
+        return String.format(Locale.ROOT, "p50 %s  p99 %s  p999 %s  max %s",
+                millis(percentile(sorted, 0.50)), millis(percentile(sorted, 0.99)),
+                millis(percentile(sorted, 0.999)), millis(sorted[sorted.length - 1]));
+    }
+
+    static long percentile(long[] sorted, double quantile) {
+        int index = (int) Math.ceil(quantile * sorted.length) - 1;
+        return sorted[Math.max(0, Math.min(sorted.length - 1, index))];
+    }
+
+    private static String millis(long nanos) {
+        return String.format(Locale.ROOT, "%.3f ms", nanos / 1e6);
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder builder = new StringBuilder();
+        builder.append("Prueba de carga\n");
+        builder.append(String.format(Locale.ROOT, "  Trafico:       %d interacciones/s (%s) durante %d s, %d s de calentamiento%n",
+                options.rate(), options.poisson() ? "poisson" : "uniforme", options.durationSeconds(), options.warmupSeconds()));
+        builder.append(String.format(Locale.ROOT, "  Ejecutor:      %s, %d hilos, cola %d, por servidor %d/%d%n",
+                options.executor(), options.threads(), options.queue(), options.guildConcurrency(), options.guildQueue()));
+        builder.append("  Mezcla:        ");
+        options.mix().forEach(entry -> builder.append(entry.name()).append(" x").append(entry.weight()).append(" (").append(entry.workMillis()).append(" ms) "));
+        builder.append('\n');
+        builder.append(String.format(Locale.ROOT, "  Medidas:       %d interacciones, %d sin respuesta%n", measured, unanswered));
+        builder.append(String.format(Locale.ROOT, "  Rendimiento:   %.1f respuestas/s%n", throughput));
+        builder.append("  deferReply:    ").append(percentiles(deferLatencies)).append('\n');
+        builder.append("  Respuesta:     ").append(percentiles(replyLatencies)).append('\n');
+        builder.append(String.format(Locale.ROOT, "  Llamadas REST: %d deferReply, %d respuestas directas, %d seguimientos (%d ahorradas sin deferReply)%n",
+                defers, directReplies, followUps, directReplies));
+        builder.append("  Respuestas enviadas (incluido el calentamiento):\n");
+        contents.forEach((content, count) -> builder.append(String.format(Locale.ROOT, "    %-30s %d%n", content, count)));
+        return builder.toString();
+    }
+}
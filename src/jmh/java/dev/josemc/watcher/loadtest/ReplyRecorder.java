@@ -0,0 +1,103 @@
+package dev.josemc.watcher.loadtest;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Registro de cada interaccion de la prueba: cuando deberia haber llegado, cuando se aplazo
+ * la respuesta y cuando {@link dev.josemc.watcher.commands.CommandManager} envio la primera respuesta,
+ * ademas del contenido de todas las respuestas.
+ */
+final class ReplyRecorder {
+    private final long[] arrivals;
+    private final AtomicLongArray deferred;
+    private final AtomicLongArray replied;
+    private final Map<String, LongAdder> contents = new ConcurrentHashMap<>();
+    private final LongAdder defers = new LongAdder();
+    private final LongAdder directReplies = new LongAdder();
+    private final LongAdder followUps = new LongAdder();
+
+    ReplyRecorder(int interactions) {
+        arrivals = new long[interactions];
+        deferred = new AtomicLongArray(interactions);
+        replied = new AtomicLongArray(interactions);
+    }
+
+    /**
+     * Registrar la llegada prevista de una interaccion. Solo lo llama el generador de trafico.
+     */
+    void arrived(int interaction, long intendedNanos) {
+        arrivals[interaction] = intendedNanos;
+    }
+
+    void deferred(int interaction) {
+        defers.increment();
+        deferred.compareAndSet(interaction, 0, System.nanoTime());
+    }
+
+    /**
+     * Registrar una respuesta.
+     *
+     * @param interaction la interaccion.
+     * @param content     el contenido de la respuesta.
+     * @param direct      true si es la respuesta directa a la interaccion, false si es un mensaje de seguimiento.
+     */
+    void replied(int interaction, String content, boolean direct) {
+        (direct ? directReplies : followUps).increment();
+        replied.compareAndSet(interaction, 0, System.nanoTime());
+        contents.computeIfAbsent(content, key -> new LongAdder()).increment();
+    }
+
+    long getDefers() {
+        return defers.sum();
+    }
+
+    long getDirectReplies() {
+        return directReplies.sum();
+    }
+
+    long getFollowUps() {
+        return followUps.sum();
+    }
+
+    long arrival(int interaction) {
+        return arrivals[interaction];
+    }
+
+    /**
+     * @return el momento del {@code deferReply}, o 0 si no se aplazo.
+     */
+    long deferredAt(int interaction) {
+        return deferred.get(interaction);
+    }
+
+    /**
+     * @return el momento de la primera respuesta, o 0 si no hubo respuesta.
+     */
+    long repliedAt(int interaction) {
+        return replied.get(interaction);
+    }
+
+    /**
+     * Contar las interacciones sin respuesta entre dos posiciones.
+     */
+    int pending(int from, int to) {
+        int pending = 0;
+        for (int i = from; i < to; i++) {
+            if (replied.get(i) == 0) pending++;
+        }
+        return pending;
+    }
+
+    /**
+     * @return el numero de respuestas por contenido, ordenado por contenido.
+     */
+    Map<String, Long> getContents() {
+        Map<String, Long> result = new TreeMap<>();
+        contents.forEach((content, count) -> result.put(content, count.sum()));
+        return result;
+    }
+}
@@ -0,0 +1,50 @@
+package dev.josemc.watcher.loadtest;
+
+import dev.josemc.watcher.commands.CommandEvent;
+import dev.josemc.watcher.commands.interfaces.Command;
+import dev.josemc.watcher.commands.interfaces.ICommand;
+import net.dv8tion.jda.api.interactions.commands.build.CommandData;
+import net.dv8tion.jda.api.interactions.commands.build.Commands;
+
+/**
+ * Comando de la prueba de carga: espera el tiempo indicado, simulando una llamada externa, y responde.
+ */
+@Command(name = "loadtest", description = "Comando de la prueba de carga")
+public class SyntheticCommand implements ICommand {
+    private final CommandData commandData;
+    private final long workMillis;
+    private final String reply;
+
+    /**
+     * @param name       nombre del SlashCommand.
+     * @param workMillis tiempo de trabajo simulado en milisegundos.
+     */
+    public SyntheticCommand(String name, long workMillis) {
+        this.commandData = Commands.slash(name, "Comando de la prueba de carga");
+        this.workMillis = workMillis;
+        this.reply = "ok:" + name;
+    }
+
+    @Override
+    public void onPerform(CommandEvent commandEvent) {
+        if (workMillis > 0) {
+            try {
+                Thread.sleep(workMillis);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+        commandEvent.reply(reply);
+    }
+
+    @Override
+    public CommandData getCommandData() {
+        return commandData;
+    }
+
+    @Override
+    public String[] getAlias() {
+        return new String[0];
+    }
+}
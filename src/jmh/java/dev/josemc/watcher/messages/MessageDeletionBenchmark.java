@@ -0,0 +1,94 @@
+package dev.josemc.watcher.messages;
+
+import dev.josemc.watcher.benchmarks.Stubs;
+import net.dv8tion.jda.api.Permission;
+import net.dv8tion.jda.api.entities.Guild;
+import net.dv8tion.jda.api.entities.Member;
+import net.dv8tion.jda.api.entities.channel.concrete.TextChannel;
+import net.dv8tion.jda.api.utils.TimeUtil;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Mide el rendimiento del {@link MessageDeletionScheduler} con una capa REST falsa.
+ * Cada operacion borra {@link #MESSAGES} mensajes repartidos entre {@code channelCount} canales;
+ * el contador {@code restCalls} indica cuantas llamadas REST se habrian hecho.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MessageDeletionBenchmark {
+
+    static final int MESSAGES = 1000;
+
+    @Param({"1", "10", "100"})
+    int channelCount;
+
+    TextChannel[] channels;
+    long[] messageIds;
+    MessageDeletionScheduler scheduler;
+    JdaMessageDeleter deleter;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        Member selfMember = Stubs.of(Member.class).returning("hasPermission", true).build();
+        Guild guild = Stubs.of(Guild.class).returning("getSelfMember", selfMember).build();
+
+        channels = new TextChannel[channelCount];
+        for (int i = 0; i < channelCount; i++) {
+            long id = 1000 + i;
+            channels[i] = Stubs.of(TextChannel.class).returning("getIdLong", id).returning("getGuild", guild).build();
+        }
+
+        long now = TimeUtil.getDiscordTimestamp(System.currentTimeMillis());
+        messageIds = new long[MESSAGES];
+        for (int i = 0; i < MESSAGES; i++) {
+            messageIds[i] = now + i;
+        }
+
+        deleter = new JdaMessageDeleter();
+        scheduler = new MessageDeletionScheduler(deleter, 250, 512);
+    }
+
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    @State(Scope.Thread)
+    public static class RestCalls {
+        public long restCalls;
+    }
+
+    @Benchmark
+    public void batched(RestCalls counters) {
+        long before = Stubs.REST_CALLS.sum();
+        for (int i = 0; i < MESSAGES; i++) {
+            scheduler.schedule(channels[i % channels.length], messageIds[i], 0, TimeUnit.SECONDS);
+        }
+        scheduler.flushAll();
+        counters.restCalls += Stubs.REST_CALLS.sum() - before;
+    }
+
+    @Benchmark
+    public void individual(RestCalls counters) {
+        long before = Stubs.REST_CALLS.sum();
+        for (int i = 0; i < MESSAGES; i++) {
+            deleter.delete(channels[i % channels.length], List.of(messageIds[i]));
+        }
+        counters.restCalls += Stubs.REST_CALLS.sum() - before;
+    }
+}
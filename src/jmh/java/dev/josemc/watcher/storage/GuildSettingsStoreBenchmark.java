@@ -0,0 +1,76 @@
+package dev.josemc.watcher.storage;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Latencia de lectura y escritura del {@link GuildSettingsStore} con varios hilos a la vez.
+ * Con {@code cacheSize} menor que {@link #GUILDS} parte de las lecturas van al fichero. Las escrituras se pasan a disco
+ * cada 50 ms, como en la configuracion por defecto.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Threads(8)
+@Fork(1)
+public class GuildSettingsStoreBenchmark {
+
+    static final int GUILDS = 20_000;
+
+    @Param({"1000", "20000"})
+    int cacheSize;
+
+    Path directory;
+    GuildSettingsStore store;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        directory = Files.createTempDirectory("guild-settings-benchmark");
+        store = new GuildSettingsStore(directory.resolve("settings.log"), cacheSize, 0, 50);
+        for (long guildId = 0; guildId < GUILDS; guildId++) {
+            store.put(guildId, "log_channel", Long.toString(guildId * 31));
+            store.put(guildId, "language", "es");
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        store.close();
+        try (Stream<Path> files = Files.walk(directory)) {
+            files.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+        }
+    }
+
+    @Benchmark
+    public String read() {
+        return store.get(ThreadLocalRandom.current().nextInt(GUILDS)).get("log_channel");
+    }
+
+    @Benchmark
+    public void write() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        store.put(random.nextInt(GUILDS), "log_channel", Long.toString(random.nextLong()));
+    }
+}
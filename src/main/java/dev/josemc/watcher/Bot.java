@@ -1,8 +1,27 @@
 package dev.josemc.watcher;
 
 import ch.qos.logback.classic.Logger;
+import dev.josemc.watcher.antispam.AntiSpamListener;
+import dev.josemc.watcher.cache.CacheProfile;
+import dev.josemc.watcher.cache.MessageCache;
+import dev.josemc.watcher.cache.CacheReporter;
+import dev.josemc.watcher.cluster.ClusterCoordinator;
 import dev.josemc.watcher.commands.CommandManager;
+import dev.josemc.watcher.commands.CommandRegistrar;
+import dev.josemc.watcher.commands.executor.CommandExecutors;
+import dev.josemc.watcher.events.EventDispatcher;
+import dev.josemc.watcher.i18n.Localization;
+import dev.josemc.watcher.journal.Journal;
+import dev.josemc.watcher.journal.JournalListener;
+import dev.josemc.watcher.messages.MessageDeletionScheduler;
+import dev.josemc.watcher.messages.OutboundScheduler;
+import dev.josemc.watcher.metrics.MetricsHttpServer;
+import dev.josemc.watcher.plugins.PluginManager;
+import dev.josemc.watcher.state.RestoredDeletions;
+import dev.josemc.watcher.state.StateSnapshot;
+import dev.josemc.watcher.storage.GuildSettingsStore;
 import io.github.cdimascio.dotenv.Dotenv;
+import net.dv8tion.jda.api.JDA;
 import net.dv8tion.jda.api.OnlineStatus;
 import net.dv8tion.jda.api.entities.Activity;
 import net.dv8tion.jda.api.requests.GatewayIntent;
@@ -12,9 +31,17 @@ import org.slf4j.LoggerFactory;
 
 import javax.security.auth.login.LoginException;
 import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
 
 public class Bot {
-    private final ShardManager shardManager;
+    private volatile ShardManager shardManager;
+    private DefaultShardManagerBuilder shardManagerBuilder;
     private final Dotenv envVars;
     public static Bot getInstance() {
         return instance;
@@ -28,7 +55,49 @@ public class Bot {
     }
     private static Config config;
     private CommandManager commandManager;
+    public CommandRegistrar getCommandRegistrar() {
+        return commandRegistrar;
+    }
+    private CommandRegistrar commandRegistrar;
+    public GuildSettingsStore getGuildSettingsStore() {
+        return guildSettingsStore;
+    }
+    private GuildSettingsStore guildSettingsStore;
+    private MetricsHttpServer metricsServer;
+    public CacheReporter getCacheReporter() {
+        return cacheReporter;
+    }
+    private CacheReporter cacheReporter;
+    public ClusterCoordinator getClusterCoordinator() {
+        return clusterCoordinator;
+    }
+    private ClusterCoordinator clusterCoordinator;
+    public PluginManager getPluginManager() {
+        return pluginManager;
+    }
+    private PluginManager pluginManager;
+    public Journal getJournal() {
+        return journal;
+    }
+    private Journal journal;
+    public MessageCache getMessageCache() {
+        return messageCache;
+    }
+    private MessageCache messageCache;
+    public EventDispatcher getEventDispatcher() {
+        return eventDispatcher;
+    }
+    private EventDispatcher eventDispatcher;
     private static final Logger logger = (Logger) LoggerFactory.getLogger(Bot.class);
+    /**
+     * Carpeta con los ficheros de idioma propios, que sustituyen a los incluidos en el bot.
+     */
+    private static final Path LANG_FOLDER = Paths.get("Watcher", "lang");
+    /**
+     * Estado guardado al apagar el bot y restaurado al arrancar. En un cluster se guarda uno por shard
+     * ({@link #shardSnapshotFile(int)}), que restaura el proceso que la tome despues.
+     */
+    private static final Path SNAPSHOT_FILE = Paths.get("Watcher", "state.snapshot");
 
     private Bot() throws LoginException, IOException {
         instance = this;
@@ -36,17 +105,244 @@ public class Bot {
         config = new Config();
         logger.info("Configuracion cargada!");
         envVars = Dotenv.configure().load();
-        DefaultShardManagerBuilder builder = DefaultShardManagerBuilder.createDefault(envVars.get("TOKEN"));
-        builder.setStatus(OnlineStatus.fromKey(config.getString("status")));
-        builder.setActivity(Activity.of(Activity.ActivityType.valueOf(config.getString("activity").toUpperCase()), config.getString("activity_message")));
-        builder.enableIntents(GatewayIntent.GUILD_MEMBERS, GatewayIntent.DIRECT_MESSAGES);
-        shardManager = builder.build();
-        shardManager.addEventListener(new OtherEvents());
+        guildSettingsStore = new GuildSettingsStore(Paths.get("Watcher", "guilds", "settings.log"), config.getInt("guild_settings.cache_size", 10000), config.getLong("guild_settings.compaction_minutes", 10),
+                config.getLong("guild_settings.sync_millis", 50));
+        // Los comandos se cargan antes de conectar, para que esten listos al recibir los primeros eventos.
         try {
-            instance.commandManager = new CommandManager();
+            instance.commandManager = new CommandManager(config.getBoolean("command_scan"));
+            instance.commandManager.setExecutor(CommandExecutors.fromConfig(config));
+            instance.commandManager.setLocalization(Localization.fromConfig(config.getSnapshot(), LANG_FOLDER));
         } catch (Exception e) {
             throw new RuntimeException(e);
         }
+        if (config.getBoolean("plugins.enabled", true)) {
+            // Los plugins se cargan antes de calcular el hash de los comandos, para registrarlos junto al resto.
+            pluginManager = new PluginManager(commandManager, Paths.get(config.getSnapshot().getString("plugins.directory", "Watcher/plugins")), this::onCommandsChanged);
+            pluginManager.start();
+        }
+        commandRegistrar = new CommandRegistrar(commandManager, CommandRegistrar.Mode.fromConfig(config.getString("command_registration")), Paths.get("Watcher", "command-hashes.properties"));
+        // En un cluster el estado de cada shard se restaura al tomarla, en startShards.
+        StateSnapshot snapshot = config.getBoolean("cluster.enabled", false) ? null : restoreSnapshot(SNAPSHOT_FILE);
+        DefaultShardManagerBuilder builder = DefaultShardManagerBuilder.createDefault(envVars.get("TOKEN"));
+        builder.setStatus(OnlineStatus.fromKey(config.getString("status")));
+        builder.setActivity(createActivity(config.getSnapshot()));
+        // El apagado lo hace Bot#shutdown: con el hook de JDA las shards se cerrarian mientras se esperan los comandos.
+        builder.setEnableShutdownHook(false);
+        CacheProfile cacheProfile = CacheProfile.fromConfig(config.getSnapshot());
+        cacheProfile.apply(builder);
+        logger.info("Perfil de cache: {}", cacheProfile);
+        List<String> memberFeatures = CacheProfile.memberFeatures(config.getSnapshot());
+        if (!cacheProfile.intents().contains(GatewayIntent.GUILD_MEMBERS) && !memberFeatures.isEmpty()) {
+            logger.warn("Sin el intent GUILD_MEMBERS no llegan los eventos de los miembros que usan {}: el journal no registra entradas ni salidas, "
+                    + "el anti-spam no detecta raids y los permisos guardados se comprueban con los roles en cada comando", memberFeatures);
+        }
+        cacheReporter = new CacheReporter(config.getLong("cache.report_minutes", 10));
+        builder.addEventListeners(commandManager.getAutoCompleteIndex(), new OtherEvents(commandManager, commandRegistrar), cacheReporter, commandManager.getOutbound(), commandManager.getPermissionCache());
+        if (snapshot != null) builder.addEventListeners(new RestoredDeletions(commandManager.getDeletionScheduler(), snapshot));
+        if (config.getBoolean("cache.messages.enabled", true)) messageCache = MessageCache.fromConfig(config);
+        if (config.getBoolean("journal.enabled", true)) {
+            journal = Journal.fromConfig(config);
+            builder.addEventListeners(new JournalListener(journal, messageCache));
+        }
+        // Despues del journal: JDA llama a los listeners en orden y el journal necesita el mensaje anterior a la edicion o al borrado.
+        if (messageCache != null) builder.addEventListeners(messageCache);
+        if (config.getBoolean("antispam.enabled", false)) {
+            builder.addEventListeners(AntiSpamListener.fromConfig(config, commandManager.getDeletionScheduler(), commandManager.getOutbound()));
+        }
+        if (config.getBoolean("events.dispatcher", true)) {
+            // Una instancia para todas las shards: los eventos de cada servidor se atienden en orden en su propia cola.
+            eventDispatcher = EventDispatcher.fromConfig(config);
+            builder.setEventManagerProvider(shardId -> eventDispatcher);
+        }
+        if (config.getBoolean("cluster.enabled", false)) {
+            // Las shards se inician a medida que este proceso toma rangos del cluster.
+            clusterCoordinator = new ClusterCoordinator(Paths.get(config.getSnapshot().getString("cluster.directory", "Watcher/cluster")),
+                    config.getInt("cluster.total_shards", 1), config.getInt("cluster.shards_per_slot", 1),
+                    config.getInt("cluster.max_slots", 1), config.getLong("cluster.poll_seconds", 5));
+            builder.setShardsTotal(clusterCoordinator.getTotalShards());
+            builder.setSessionController(clusterCoordinator.getSessionController());
+            commandRegistrar.setLeaderCheck(clusterCoordinator::isLeader);
+            shardManagerBuilder = builder;
+            clusterCoordinator.start(this::startShards, this::onLeaderElected);
+        } else {
+            shardManager = builder.build();
+        }
+        config.addListener(this::onConfigChange);
+
+        int metricsPort = config.getInt("metrics.port", 0);
+        if (metricsPort > 0) {
+            metricsServer = new MetricsHttpServer(config.getSnapshot().getString("metrics.host", "127.0.0.1"), metricsPort);
+        }
+        Runtime.getRuntime().addShutdownHook(new Thread(this::shutdown, "Shutdown"));
+    }
+
+    /**
+     * Leer el estado guardado al apagar el bot: los hashes de los comandos se añaden al {@link CommandRegistrar}
+     * y los ajustes de los servidores que estaban en cache se vuelven a cargar en segundo plano. El fichero se
+     * borra tras leerlo, para no restaurar dos veces el mismo estado si el bot se cierra sin apagarse.
+     *
+     * @param file el fichero del estado.
+     * @return el estado, o null si no habia.
+     */
+    private StateSnapshot restoreSnapshot(Path file) {
+        StateSnapshot snapshot = StateSnapshot.read(file);
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            logger.warn("No se pudo borrar {}", file, e);
+        }
+        if (snapshot == null) return null;
+
+        commandRegistrar.restore(snapshot.getCommandHashes());
+        long[] guilds = snapshot.getCachedGuilds();
+        Thread warmer = new Thread(() -> {
+            long start = System.nanoTime();
+            for (long guildId : guilds) {
+                guildSettingsStore.get(guildId);
+            }
+            logger.info("Ajustes de {} servidores cargados en {} ms", guilds.length, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+        }, "GuildSettings-Warmup");
+        warmer.setDaemon(true);
+        warmer.start();
+        logger.info("Estado restaurado: {} hashes de comandos, {} servidores, {} borrados pendientes",
+                snapshot.getCommandHashes().size(), guilds.length, snapshot.getDeletions().size());
+        return snapshot;
+    }
+
+    /**
+     * Apagar el bot sin perder trabajo: se dejan de aceptar comandos, se espera a los que estan en curso y a la
+     * cola de salida durante como maximo {@code shutdown.drain_seconds}, y se guarda el estado para el siguiente
+     * arranque antes de desconectar.
+     */
+    private void shutdown() {
+        logger.info("Apagando el bot...");
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(config.getLong("shutdown.drain_seconds", 10));
+        if (pluginManager != null) pluginManager.close();
+        try {
+            if (!commandManager.drain(deadline - System.nanoTime(), TimeUnit.NANOSECONDS)) {
+                logger.warn("Algunos comandos no terminaron antes de apagar el bot");
+            }
+            OutboundScheduler outbound = commandManager.getOutbound();
+            while (System.nanoTime() < deadline && Arrays.stream(OutboundScheduler.Priority.values()).anyMatch(priority -> outbound.getQueued(priority) > 0)) {
+                Thread.sleep(50);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        MessageDeletionScheduler deletionScheduler = commandManager.getDeletionScheduler();
+        deletionScheduler.stop();
+        commandRegistrar.flush();
+        StateSnapshot snapshot = new StateSnapshot(System.currentTimeMillis(), commandRegistrar.getPushedHashes(), guildSettingsStore.getCachedGuilds(), deletionScheduler.drain());
+        if (clusterCoordinator == null) {
+            writeSnapshot(snapshot, SNAPSHOT_FILE);
+        } else {
+            // Los procesos del cluster comparten la carpeta: cada uno guarda solo las shards que tiene.
+            for (int shard : clusterCoordinator.getOwnedShards()) {
+                writeSnapshot(snapshot.forShard(shard, clusterCoordinator.getTotalShards()), shardSnapshotFile(shard));
+            }
+        }
+
+        if (shardManager != null) shardManager.shutdown();
+        if (clusterCoordinator != null) clusterCoordinator.close();
+        // Antes de cerrar el journal y la cache de mensajes, que aun pueden recibir los eventos en cola.
+        try {
+            if (eventDispatcher != null && !eventDispatcher.shutdown(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS)) {
+                logger.warn("Quedaron {} eventos sin atender al apagar el bot", eventDispatcher.getPending());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (metricsServer != null) metricsServer.stop();
+        cacheReporter.stop();
+        if (journal != null) journal.close();
+        if (messageCache != null) messageCache.stop();
+        try {
+            guildSettingsStore.close();
+        } catch (IOException e) {
+            logger.error("No se pudieron cerrar los ajustes de los servidores", e);
+        }
+    }
+
+    /**
+     * Iniciar las shards de un rango del cluster. El {@link ShardManager} se crea con el primer rango.
+     */
+    private synchronized void startShards(List<Integer> shards) {
+        // El estado de cada shard lo guardo el proceso que la tenia al apagarse, que puede ser otro.
+        List<Object> restored = new ArrayList<>();
+        for (int shard : shards) {
+            StateSnapshot snapshot = restoreSnapshot(shardSnapshotFile(shard));
+            if (snapshot != null) restored.add(new RestoredDeletions(commandManager.getDeletionScheduler(), snapshot));
+        }
+        if (shardManager == null) {
+            shardManagerBuilder.addEventListeners(restored.toArray());
+            shardManagerBuilder.setShards(shards);
+            shardManager = shardManagerBuilder.build();
+        } else {
+            if (!restored.isEmpty()) shardManager.addEventListener(restored.toArray());
+            shards.forEach(shardManager::start);
+        }
+    }
+
+    private static Path shardSnapshotFile(int shard) {
+        return Paths.get("Watcher", "state-shard-" + shard + ".snapshot");
+    }
+
+    private void writeSnapshot(StateSnapshot snapshot, Path file) {
+        try {
+            snapshot.write(file);
+            logger.info("Estado guardado en {}: {} hashes de comandos, {} servidores, {} borrados pendientes",
+                    file, snapshot.getCommandHashes().size(), snapshot.getCachedGuilds().length, snapshot.getDeletions().size());
+        } catch (IOException e) {
+            logger.error("No se pudo guardar el estado en {}", file, e);
+        }
+    }
+
+    /**
+     * Registrar en Discord los comandos que han cambiado al recargar un plugin.
+     */
+    private void onCommandsChanged() {
+        CommandRegistrar.Changes changes = commandRegistrar.refresh();
+        ShardManager current = shardManager;
+        // Sin shards conectadas, los comandos se registran al conectar, comparando el hash como siempre.
+        if (current == null) return;
+        commandRegistrar.pushChanges(changes, current.getShards().stream()
+                .filter(jda -> jda.getStatus() == JDA.Status.CONNECTED)
+                .toList());
+    }
+
+    /**
+     * Registrar los comandos globales al pasar a ser el lider, si ya hay alguna shard conectada.
+     * Si no, se registran cuando la primera shard este lista.
+     */
+    private void onLeaderElected() {
+        ShardManager current = shardManager;
+        if (current == null) return;
+        current.getShards().stream()
+                .filter(jda -> jda.getStatus() == JDA.Status.CONNECTED)
+                .findFirst()
+                .ifPresent(commandRegistrar::onLeaderElected);
+    }
+
+    /**
+     * Actualizar la presencia del bot cuando cambia la configuracion.
+     */
+    private void onConfigChange(ConfigSnapshot previous, ConfigSnapshot current) {
+        if (current.changed(previous, "locale.default") || current.changed(previous, "locale.source")) {
+            commandManager.setLocalization(Localization.fromConfig(current, LANG_FOLDER));
+        }
+        ShardManager shardManager = this.shardManager;
+        if (shardManager == null) return;
+        if (current.changed(previous, "status")) {
+            shardManager.setStatus(OnlineStatus.fromKey(current.getString("status")));
+        }
+        if (current.changed(previous, "activity") || current.changed(previous, "activity_message")) {
+            shardManager.setActivity(createActivity(current));
+        }
+    }
+
+    private static Activity createActivity(ConfigSnapshot snapshot) {
+        return Activity.of(Activity.ActivityType.valueOf(snapshot.getString("activity").toUpperCase()), snapshot.getString("activity_message"));
     }
 
     public static void main(String[] args) {
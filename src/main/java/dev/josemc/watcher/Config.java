@@ -1,34 +1,272 @@
 package dev.josemc.watcher;
 
 import org.simpleyaml.configuration.file.YamlFile;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
-import java.io.File;
 import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.ClosedWatchServiceException;
 import java.nio.file.Files;
+import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
 
+/**
+ * Configuracion del bot, guardada en {@code Watcher/config.yml}.
+ * <p>
+ * Las lecturas se hacen sobre un {@link ConfigSnapshot} en memoria. Los cambios hechos con
+ * {@link #set(String, Object)} se agrupan y se guardan en segundo plano, escribiendo un fichero
+ * temporal que sustituye al original de forma atomica. Si el fichero se modifica desde fuera,
+ * se recarga y se avisa a los {@link ConfigListener} registrados.
+ */
 public class Config {
-    final YamlFile yamlFile = new YamlFile("Watcher/config.yml");
-    File folder = new File(Paths.get("Watcher").toUri());
-    File file = new File(Paths.get(folder.getPath(),"config.yml").toUri());
+    private static final Logger log = LoggerFactory.getLogger(Config.class);
+
+    /**
+     * Tiempo que se espera tras un cambio antes de guardar o recargar, para agrupar varios cambios.
+     */
+    private static final long DEBOUNCE_MILLIS = 500;
+
+    final Path folder;
+    final Path file;
+    private YamlFile yamlFile;
+    private volatile ConfigSnapshot snapshot = ConfigSnapshot.EMPTY;
+    private final List<ConfigListener> listeners = new CopyOnWriteArrayList<>();
+    private final ScheduledExecutorService worker = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "Config-Worker");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private ScheduledFuture<?> pendingFlush;
+    /**
+     * true desde que se programa un guardado hasta que este lee la configuracion; los cambios posteriores programan otro.
+     */
+    private boolean flushScheduled;
+    /**
+     * Bloqueo de la escritura del fichero, para que dos guardados no se escriban en distinto orden del que se leyeron.
+     */
+    private final Object flushLock = new Object();
+    private ScheduledFuture<?> pendingReload;
+    private String lastWritten;
+    private WatchService watchService;
+
     public Config() throws IOException {
-        if (!file.exists()) {
-            folder.mkdirs();
-            Files.copy(Bot.class.getResourceAsStream("/config.yml"), file.toPath());
+        this(Paths.get("Watcher"));
+    }
+
+    /**
+     * Cargar la configuracion de {@code config.yml} en una carpeta, creandola con los valores por defecto si no existe.
+     *
+     * @param folder la carpeta de la configuracion.
+     * @throws IOException si no se puede crear o leer el fichero.
+     */
+    public Config(Path folder) throws IOException {
+        this.folder = folder;
+        this.file = folder.resolve("config.yml");
+        if (!Files.exists(file)) {
+            Files.createDirectories(folder);
+            try (InputStream inputStream = Bot.class.getResourceAsStream("/config.yml")) {
+                Files.copy(inputStream, file);
+            }
         }
+        yamlFile = new YamlFile(file.toFile());
         yamlFile.createOrLoadWithComments();
+        lastWritten = Files.readString(file, StandardCharsets.UTF_8);
+        snapshot = ConfigSnapshot.of(yamlFile);
+        startWatcher();
+    }
+
+    /**
+     * Obtener la configuracion actual.
+     *
+     * @return el {@link ConfigSnapshot} actual, que no cambia aunque se modifique la configuracion.
+     */
+    public ConfigSnapshot getSnapshot() {
+        return snapshot;
     }
 
     public String getString(String path) {
-        return yamlFile.getString(path);
+        return snapshot.getString(path);
+    }
+
+    public boolean getBoolean(String path) {
+        return snapshot.getBoolean(path);
+    }
+
+    public boolean getBoolean(String path, boolean def) {
+        return snapshot.getBoolean(path, def);
+    }
+
+    public int getInt(String path, int def) {
+        return snapshot.getInt(path, def);
+    }
+
+    public long getLong(String path, long def) {
+        return snapshot.getLong(path, def);
     }
 
+    /**
+     * Cambiar un valor. El cambio es visible al momento y se guarda en disco en segundo plano.
+     *
+     * @param path  la ruta del valor.
+     * @param value el nuevo valor.
+     */
     public void set(String path, Object value) {
-        yamlFile.set(path, value);
+        ConfigSnapshot previous;
+        ConfigSnapshot current;
+        synchronized (this) {
+            yamlFile.set(path, value);
+            previous = snapshot;
+            current = ConfigSnapshot.of(yamlFile);
+            snapshot = current;
+
+            if (!flushScheduled) {
+                flushScheduled = true;
+                pendingFlush = worker.schedule(this::flush, DEBOUNCE_MILLIS, TimeUnit.MILLISECONDS);
+            }
+        }
+        notifyListeners(previous, current);
+    }
+
+    /**
+     * Registrar un listener de cambios.
+     *
+     * @param listener el listener.
+     */
+    public void addListener(ConfigListener listener) {
+        listeners.add(listener);
+    }
+
+    public void removeListener(ConfigListener listener) {
+        listeners.remove(listener);
+    }
+
+    /**
+     * Guardar los cambios pendientes y detener la recarga automatica.
+     */
+    public void close() {
+        synchronized (this) {
+            if (pendingFlush != null) pendingFlush.cancel(false);
+        }
+        flush();
+        worker.shutdown();
         try {
-            yamlFile.save();
+            if (watchService != null) watchService.close();
         } catch (IOException e) {
-            throw new RuntimeException(e);
+            log.warn("No se pudo cerrar el WatchService de la configuracion", e);
+        }
+    }
+
+    /**
+     * Escribir la configuracion en un fichero temporal y sustituir el original.
+     */
+    void flush() {
+        synchronized (flushLock) {
+            String content;
+            synchronized (this) {
+                // Un set() a partir de aqui ya no esta en content, y programa otro guardado.
+                flushScheduled = false;
+                try {
+                    content = yamlFile.saveToString();
+                } catch (IOException e) {
+                    log.error("No se pudo serializar la configuracion", e);
+                    return;
+                }
+                if (content.equals(lastWritten)) return;
+                lastWritten = content;
+            }
+
+            try {
+                Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+                Files.writeString(temp, content, StandardCharsets.UTF_8);
+                Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (IOException e) {
+                log.error("No se pudo guardar la configuracion", e);
+            }
+        }
+    }
+
+    /**
+     * Volver a leer el fichero si su contenido no es el que se escribio por ultima vez.
+     */
+    void reload() {
+        ConfigSnapshot previous;
+        ConfigSnapshot current;
+        try {
+            String content = Files.readString(file, StandardCharsets.UTF_8);
+            YamlFile reloaded = new YamlFile(file.toFile());
+            synchronized (this) {
+                if (content.equals(lastWritten)) return;
+                reloaded.loadWithComments();
+                yamlFile = reloaded;
+                lastWritten = content;
+                previous = snapshot;
+                current = ConfigSnapshot.of(reloaded);
+                snapshot = current;
+            }
+        } catch (IOException | RuntimeException e) {
+            log.error("No se pudo recargar la configuracion, se mantiene la anterior", e);
+            return;
+        }
+
+        log.info("Configuracion recargada");
+        notifyListeners(previous, current);
+    }
+
+    private void notifyListeners(ConfigSnapshot previous, ConfigSnapshot current) {
+        for (ConfigListener listener : listeners) {
+            try {
+                listener.onConfigChange(previous, current);
+            } catch (RuntimeException e) {
+                log.error("Error en un listener de la configuracion", e);
+            }
+        }
+    }
+
+    private void startWatcher() {
+        try {
+            watchService = folder.getFileSystem().newWatchService();
+            folder.register(watchService, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY);
+        } catch (IOException | UnsupportedOperationException e) {
+            log.warn("No se puede vigilar {}, la configuracion no se recargara automaticamente", file, e);
+            return;
+        }
+
+        Thread thread = new Thread(this::watch, "Config-Watcher");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    private void watch() {
+        try {
+            while (true) {
+                WatchKey key = watchService.take();
+                for (WatchEvent<?> event : key.pollEvents()) {
+                    if (event.context() instanceof Path path && path.equals(file.getFileName())) {
+                        scheduleReload();
+                    }
+                }
+                if (!key.reset()) return;
+            }
+        } catch (InterruptedException | ClosedWatchServiceException ignored) {
+        }
+    }
+
+    private synchronized void scheduleReload() {
+        if (pendingReload == null || pendingReload.isDone()) {
+            pendingReload = worker.schedule(this::reload, DEBOUNCE_MILLIS, TimeUnit.MILLISECONDS);
         }
     }
 }
@@ -0,0 +1,16 @@
+package dev.josemc.watcher;
+
+/**
+ * Listener de cambios en la {@link Config}, ya sea por {@link Config#set(String, Object)} o por recarga del fichero.
+ */
+@FunctionalInterface
+public interface ConfigListener {
+
+    /**
+     * Llamado despues de sustituir la configuracion.
+     *
+     * @param previous la configuracion anterior.
+     * @param current  la configuracion nueva.
+     */
+    void onConfigChange(ConfigSnapshot previous, ConfigSnapshot current);
+}
@@ -0,0 +1,128 @@
+package dev.josemc.watcher;
+
+import org.simpleyaml.configuration.file.YamlFile;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Copia inmutable de los valores de la configuracion.
+ * <p>
+ * Las rutas usan el mismo formato que {@link YamlFile} ({@code seccion.clave}). Los valores se leen
+ * de memoria, sin acceder al fichero, y se convierten al tipo pedido en cada lectura.
+ */
+public final class ConfigSnapshot {
+
+    /**
+     * Configuracion vacia.
+     */
+    public static final ConfigSnapshot EMPTY = new ConfigSnapshot(Map.of());
+
+    private final Map<String, Object> values;
+
+    private ConfigSnapshot(Map<String, Object> values) {
+        this.values = values;
+    }
+
+    /**
+     * Crear una copia de los valores actuales de un {@link YamlFile}.
+     *
+     * @param yamlFile el fichero ya cargado.
+     * @return la copia.
+     */
+    static ConfigSnapshot of(YamlFile yamlFile) {
+        Map<String, Object> values = new HashMap<>();
+        for (String key : yamlFile.getKeys(true)) {
+            if (yamlFile.isConfigurationSection(key)) continue;
+
+            Object value = yamlFile.get(key);
+            if (value != null) values.put(key, value instanceof List<?> list ? copyOf(list) : value);
+        }
+        return new ConfigSnapshot(Map.copyOf(values));
+    }
+
+    /**
+     * Copiar una lista sin sus elementos nulos: un elemento vacio en YAML ({@code - }) se lee como null y
+     * {@link List#copyOf} no los admite.
+     */
+    private static List<?> copyOf(List<?> list) {
+        return list.stream().filter(Objects::nonNull).toList();
+    }
+
+    public Object get(String path) {
+        return values.get(path);
+    }
+
+    public boolean contains(String path) {
+        return values.containsKey(path);
+    }
+
+    public String getString(String path) {
+        return getString(path, null);
+    }
+
+    public String getString(String path, String def) {
+        Object value = values.get(path);
+        return value != null ? value.toString() : def;
+    }
+
+    public boolean getBoolean(String path) {
+        return getBoolean(path, false);
+    }
+
+    public boolean getBoolean(String path, boolean def) {
+        Object value = values.get(path);
+        if (value instanceof Boolean bool) return bool;
+        if (value instanceof String string) return Boolean.parseBoolean(string);
+        return def;
+    }
+
+    public int getInt(String path, int def) {
+        Object value = values.get(path);
+        if (value instanceof Number number) return number.intValue();
+        if (value instanceof String string) {
+            try {
+                return Integer.parseInt(string.trim());
+            } catch (NumberFormatException ignored) {
+            }
+        }
+        return def;
+    }
+
+    public long getLong(String path, long def) {
+        Object value = values.get(path);
+        if (value instanceof Number number) return number.longValue();
+        if (value instanceof String string) {
+            try {
+                return Long.parseLong(string.trim());
+            } catch (NumberFormatException ignored) {
+            }
+        }
+        return def;
+    }
+
+    public double getDouble(String path, double def) {
+        Object value = values.get(path);
+        if (value instanceof Number number) return number.doubleValue();
+        if (value instanceof String string) {
+            try {
+                return Double.parseDouble(string.trim());
+            } catch (NumberFormatException ignored) {
+            }
+        }
+        return def;
+    }
+
+    /**
+     * Comprobar si un valor es distinto en otra copia.
+     *
+     * @param other la otra copia.
+     * @param path  la ruta del valor.
+     * @return true, si el valor ha cambiado.
+     */
+    public boolean changed(ConfigSnapshot other, String path) {
+        return !Objects.equals(values.get(path), other.values.get(path));
+    }
+}
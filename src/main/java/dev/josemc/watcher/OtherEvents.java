@@ -1,21 +1,53 @@
 package dev.josemc.watcher;
 
+import dev.josemc.watcher.commands.CommandManager;
+import dev.josemc.watcher.commands.CommandRegistrar;
+import net.dv8tion.jda.api.events.guild.GuildJoinEvent;
 import net.dv8tion.jda.api.events.guild.GuildReadyEvent;
+import net.dv8tion.jda.api.events.interaction.command.CommandAutoCompleteInteractionEvent;
 import net.dv8tion.jda.api.events.interaction.command.SlashCommandInteractionEvent;
+import net.dv8tion.jda.api.events.session.ReadyEvent;
 import net.dv8tion.jda.api.hooks.ListenerAdapter;
 import org.jetbrains.annotations.NotNull;
 
 import javax.annotation.Nonnull;
 
 public class OtherEvents extends ListenerAdapter {
+    private final CommandManager commandManager;
+    private final CommandRegistrar commandRegistrar;
+
+    /**
+     * @param commandManager   el {@link CommandManager} que ejecuta los SlashCommands.
+     * @param commandRegistrar el {@link CommandRegistrar} que registra los comandos, puede ser null si no se registran.
+     */
+    public OtherEvents(CommandManager commandManager, CommandRegistrar commandRegistrar) {
+        this.commandManager = commandManager;
+        this.commandRegistrar = commandRegistrar;
+    }
+
     @Override
     public void onGuildReady(@Nonnull GuildReadyEvent event) {
-       Bot.getInstance().getCommandManager().addSlashCommand(event.getJDA()).queue();
+       if (commandRegistrar != null) commandRegistrar.onGuildReady(event.getGuild());
+    }
+
+    @Override
+    public void onGuildJoin(@Nonnull GuildJoinEvent event) {
+        if (commandRegistrar != null) commandRegistrar.onGuildReady(event.getGuild());
+    }
+
+    @Override
+    public void onReady(@Nonnull ReadyEvent event) {
+        if (commandRegistrar != null) commandRegistrar.onShardReady(event.getJDA());
     }
 
     @Override
     public void onSlashCommandInteraction(@NotNull SlashCommandInteractionEvent event) {
-        event.deferReply(true).queue();
-        Bot.getInstance().getCommandManager().perform(event.getChannel(), event);
+        // La respuesta solo se aplaza si el comando no responde a tiempo, ver command_defer.
+        commandManager.perform(event.getChannel(), event);
+    }
+
+    @Override
+    public void onCommandAutoCompleteInteraction(@NotNull CommandAutoCompleteInteractionEvent event) {
+        commandManager.autoComplete(event);
     }
 }
@@ -0,0 +1,213 @@
+package dev.josemc.watcher.antispam;
+
+import dev.josemc.watcher.Config;
+import dev.josemc.watcher.messages.MessageDeletionScheduler;
+import dev.josemc.watcher.messages.OutboundScheduler;
+import dev.josemc.watcher.metrics.WatcherMetrics;
+import net.dv8tion.jda.api.Permission;
+import net.dv8tion.jda.api.entities.Guild;
+import net.dv8tion.jda.api.entities.Member;
+import net.dv8tion.jda.api.entities.UserSnowflake;
+import net.dv8tion.jda.api.entities.channel.concrete.TextChannel;
+import net.dv8tion.jda.api.events.guild.member.GuildMemberJoinEvent;
+import net.dv8tion.jda.api.events.message.MessageReceivedEvent;
+import net.dv8tion.jda.api.hooks.ListenerAdapter;
+import net.dv8tion.jda.api.requests.RestAction;
+import org.jetbrains.annotations.NotNull;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Iterator;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Revisa los mensajes y las entradas de miembros con el {@link SpamDetector} y aplica las acciones configuradas.
+ * <p>
+ * Las acciones se agrupan para hacer el menor numero de llamadas: los mensajes se borran con el
+ * {@link MessageDeletionScheduler}, que junta los de un mismo canal en un borrado masivo, y cada usuario o canal
+ * recibe como maximo una sancion o un modo lento por ventana, aunque siga superando el limite. Las llamadas van por
+ * la cola de salida, detras de las respuestas a los comandos.
+ */
+public class AntiSpamListener extends ListenerAdapter {
+    private static final Logger log = LoggerFactory.getLogger(AntiSpamListener.class);
+
+    /**
+     * Esperas guardadas a partir de las cuales cada accion limpia parte de las vencidas.
+     */
+    private static final int SWEEP_THRESHOLD = 1024;
+
+    private static final long USER_COOLDOWN = 1;
+    private static final long CHANNEL_COOLDOWN = 2;
+    private static final long RAID_COOLDOWN = 3;
+
+    /**
+     * Accion sobre un usuario.
+     */
+    public enum Action {
+        NONE, DELETE, TIMEOUT, KICK;
+
+        static Action fromKey(String key) {
+            return valueOf(key.trim().toUpperCase(Locale.ROOT));
+        }
+    }
+
+    private final SpamDetector detector;
+    private final MessageDeletionScheduler deletionScheduler;
+    private final OutboundScheduler outbound;
+    private final Action action;
+    private final Action raidAction;
+    private final long timeoutMillis;
+    private final int slowmodeSeconds;
+    private final long cooldownMillis;
+    private final ConcurrentHashMap<Long, Long> cooldowns = new ConcurrentHashMap<>();
+    private final AtomicBoolean sweeping = new AtomicBoolean();
+    /**
+     * Posicion de la limpieza de las esperas, solo la usa el hilo que tiene {@link #sweeping}.
+     */
+    private Iterator<Map.Entry<Long, Long>> cursor;
+    private final LongAdder actions = new LongAdder();
+
+    /**
+     * @param detector          el detector.
+     * @param deletionScheduler donde se programan los borrados.
+     * @param outbound          la cola de salida de las sanciones.
+     * @param action            accion sobre los autores de spam: {@code NONE}, {@code DELETE} (borrar el mensaje),
+     *                          {@code TIMEOUT} o {@code KICK} (ademas de borrarlo).
+     * @param raidAction        accion sobre los miembros que entran durante un raid: {@code NONE}, {@code TIMEOUT} o {@code KICK}.
+     * @param timeoutMillis     duracion del aislamiento.
+     * @param slowmodeSeconds   modo lento de un canal saturado, 0 para no activarlo.
+     * @param cooldownMillis    tiempo minimo entre dos sanciones al mismo usuario o canal.
+     */
+    public AntiSpamListener(SpamDetector detector, MessageDeletionScheduler deletionScheduler, OutboundScheduler outbound, Action action,
+                            Action raidAction, long timeoutMillis, int slowmodeSeconds, long cooldownMillis) {
+        this.detector = detector;
+        this.deletionScheduler = deletionScheduler;
+        this.outbound = outbound;
+        this.action = action;
+        this.raidAction = raidAction == Action.DELETE ? Action.NONE : raidAction;
+        this.timeoutMillis = timeoutMillis;
+        this.slowmodeSeconds = slowmodeSeconds;
+        this.cooldownMillis = cooldownMillis;
+        WatcherMetrics.get().counter("watcher_antispam_actions_total", actions::sum);
+    }
+
+    /**
+     * Crear el listener segun la seccion {@code antispam} de la configuracion.
+     *
+     * @param config            la configuracion.
+     * @param deletionScheduler donde se programan los borrados.
+     * @param outbound          la cola de salida de las sanciones.
+     * @return el listener.
+     * @throws IllegalArgumentException si alguna accion no existe.
+     */
+    public static AntiSpamListener fromConfig(Config config, MessageDeletionScheduler deletionScheduler, OutboundScheduler outbound) {
+        return new AntiSpamListener(SpamDetector.fromConfig(config), deletionScheduler, outbound,
+                Action.fromKey(config.getSnapshot().getString("antispam.action", "delete")),
+                Action.fromKey(config.getSnapshot().getString("antispam.raid_action", "timeout")),
+                TimeUnit.MINUTES.toMillis(config.getLong("antispam.timeout_minutes", 10)), config.getInt("antispam.slowmode_seconds", 5),
+                TimeUnit.SECONDS.toMillis(config.getLong("antispam.window_seconds", 10)));
+    }
+
+    @Override
+    public void onMessageReceived(@NotNull MessageReceivedEvent event) {
+        if (!event.isFromGuild() || event.getAuthor().isBot() || event.isWebhookMessage()) return;
+        long now = System.currentTimeMillis();
+        Guild guild = event.getGuild();
+        SpamVerdict verdict = detector.inspect(guild.getIdLong(), event.getChannel().getIdLong(), event.getAuthor().getIdLong(),
+                event.getMessage().getContentRaw(), now);
+        if (verdict == SpamVerdict.OK) return;
+
+        // Los permisos solo se calculan para los mensajes marcados.
+        Member member = event.getMember();
+        if (member != null && member.hasPermission(Permission.MESSAGE_MANAGE)) return;
+
+        if (verdict == SpamVerdict.CHANNEL_FLOOD) {
+            if (slowmodeSeconds > 0 && event.getChannel() instanceof TextChannel channel && channel.getSlowmode() < slowmodeSeconds
+                    && guild.getSelfMember().hasPermission(channel, Permission.MANAGE_CHANNEL)
+                    && acquire(SlidingWindowCounter.key(CHANNEL_COOLDOWN, guild.getIdLong(), channel.getIdLong()), now)) {
+                log.info("[AntiSpam] Modo lento de {}s en el canal {} del servidor {}", slowmodeSeconds, channel.getId(), guild.getId());
+                submit(guild, () -> channel.getManager().setSlowmode(slowmodeSeconds));
+            }
+            return;
+        }
+
+        if (action == Action.NONE) {
+            // Sin accion solo se escribe en el log, para probar los limites en un servidor antes de sancionar.
+            if (acquire(SlidingWindowCounter.key(USER_COOLDOWN, guild.getIdLong(), event.getAuthor().getIdLong()), now)) {
+                log.info("[AntiSpam] Spam ({}) de {} en el servidor {}, sin accion", verdict.getKey(), event.getAuthor().getId(), guild.getId());
+            }
+            return;
+        }
+        if (guild.getSelfMember().hasPermission(event.getGuildChannel(), Permission.MESSAGE_MANAGE)) {
+            deletionScheduler.schedule(event.getChannel(), event.getMessageIdLong(), 0, TimeUnit.MILLISECONDS);
+            actions.increment();
+        }
+        if (action != Action.DELETE) punish(guild, event.getAuthor().getIdLong(), action, now, "Spam (" + verdict.getKey() + ")");
+    }
+
+    @Override
+    public void onGuildMemberJoin(@NotNull GuildMemberJoinEvent event) {
+        if (event.getUser().isBot()) return;
+        long now = System.currentTimeMillis();
+        if (!detector.join(event.getGuild().getIdLong(), now)) return;
+        if (raidAction != Action.NONE) {
+            punish(event.getGuild(), event.getUser().getIdLong(), raidAction, now, "Raid");
+        } else if (acquire(SlidingWindowCounter.key(RAID_COOLDOWN, event.getGuild().getIdLong(), 0), now)) {
+            log.info("[AntiSpam] Modo raid en el servidor {}, sin accion", event.getGuild().getId());
+        }
+    }
+
+    private void punish(Guild guild, long userId, Action action, long now, String reason) {
+        if (!acquire(SlidingWindowCounter.key(USER_COOLDOWN, guild.getIdLong(), userId), now)) return;
+        UserSnowflake user = UserSnowflake.fromId(userId);
+        if (action == Action.TIMEOUT && guild.getSelfMember().hasPermission(Permission.MODERATE_MEMBERS)) {
+            submit(guild, () -> guild.timeoutFor(user, timeoutMillis, TimeUnit.MILLISECONDS).reason(reason));
+        } else if (action == Action.KICK && guild.getSelfMember().hasPermission(Permission.KICK_MEMBERS)) {
+            submit(guild, () -> guild.kick(user).reason(reason));
+        }
+    }
+
+    private void submit(Guild guild, Supplier<? extends RestAction<?>> restAction) {
+        actions.increment();
+        if (!outbound.submit(OutboundScheduler.Priority.CHANNEL, "moderation:" + guild.getId(), restAction,
+                throwable -> log.warn("[AntiSpam] No se pudo aplicar una accion en el servidor {}: {}", guild.getId(), throwable.getMessage()))) {
+            log.warn("[AntiSpam] Cola de salida llena, no se aplica una accion en el servidor {}", guild.getId());
+        }
+    }
+
+    /**
+     * Reservar una accion sobre un usuario o canal si no ha recibido otra en la ultima espera.
+     *
+     * @return true, si se puede aplicar la accion.
+     */
+    private boolean acquire(long key, long now) {
+        if (cooldowns.size() >= SWEEP_THRESHOLD && sweeping.compareAndSet(false, true)) {
+            // Como en SlidingWindowCounter, cada vez se revisa solo una parte: durante un raid hay una espera por miembro.
+            try {
+                for (int i = 0; i < SlidingWindowCounter.SWEEP_BATCH; i++) {
+                    if (cursor == null || !cursor.hasNext()) {
+                        cursor = cooldowns.entrySet().iterator();
+                        if (!cursor.hasNext()) break;
+                    }
+                    Map.Entry<Long, Long> entry = cursor.next();
+                    if (entry.getValue() <= now) cooldowns.remove(entry.getKey(), entry.getValue());
+                }
+            } finally {
+                sweeping.set(false);
+            }
+        }
+        long until = now + cooldownMillis;
+        while (true) {
+            Long previous = cooldowns.putIfAbsent(key, until);
+            if (previous == null) return true;
+            if (previous > now) return false;
+            if (cooldowns.replace(key, previous, until)) return true;
+        }
+    }
+}
@@ -0,0 +1,108 @@
+package dev.josemc.watcher.antispam;
+
+import java.util.Arrays;
+
+/**
+ * Huellas de similitud (MinHash por bandas) de un texto, para contar mensajes parecidos.
+ * <p>
+ * El texto se pasa a minusculas, se ignoran los signos y los espacios repetidos, y se divide en fragmentos de
+ * {@link #SHINGLE} caracteres. Cada fragmento se asigna por su hash a uno de {@link #BANDS}{@code  * }{@link #ROWS}
+ * grupos y en cada grupo se guarda el hash minimo; los {@link #ROWS} minimos de cada banda se combinan en una
+ * huella. Dos textos comparten una banda con una probabilidad que crece con la proporcion de fragmentos comunes:
+ * casi siempre si solo cambia una palabra o un enlace, casi nunca si no tienen nada que ver. Asi los mensajes parecidos se cuentan con contadores normales,
+ * uno por banda, sin comparar cada mensaje con los anteriores.
+ */
+public final class MinHash {
+    /**
+     * Caracteres de cada fragmento.
+     */
+    static final int SHINGLE = 4;
+
+    /**
+     * Numero de bandas, y de huellas de cada texto.
+     */
+    public static final int BANDS = 6;
+
+    /**
+     * Hashes que se combinan en cada banda.
+     */
+    static final int ROWS = 3;
+
+    private static final int HASHES = BANDS * ROWS;
+
+    private MinHash() {
+    }
+
+    /**
+     * Calcular las huellas de un texto.
+     *
+     * @param text  el texto.
+     * @param bands array de {@link #BANDS} posiciones donde se guardan las huellas.
+     * @return false, si el texto no tiene letras ni numeros.
+     */
+    public static boolean of(CharSequence text, long[] bands) {
+        long[] minimums = new long[HASHES];
+        Arrays.fill(minimums, -1L);
+        // Ultimos SHINGLE caracteres normalizados, uno por cada 16 bits.
+        long window = 0;
+        int length = 0;
+        boolean space = false;
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (Character.isLetterOrDigit(c)) {
+                c = Character.toLowerCase(c);
+                space = false;
+            } else if (Character.isWhitespace(c) && length > 0 && !space) {
+                c = ' ';
+                space = true;
+            } else {
+                continue;
+            }
+            window = window << 16 | c;
+            if (++length >= SHINGLE) add(minimums, window);
+        }
+        if (length == 0) return false;
+        if (length < SHINGLE) add(minimums, window);
+        densify(minimums);
+
+        for (int band = 0; band < BANDS; band++) {
+            long hash = band;
+            for (int row = 0; row < ROWS; row++) {
+                hash = mix(hash ^ minimums[band * ROWS + row]);
+            }
+            bands[band] = hash;
+        }
+        return true;
+    }
+
+    private static void add(long[] minimums, long shingle) {
+        // Un solo hash por fragmento: los bits altos eligen el minimo que actualiza (one permutation hashing).
+        long hash = mix(shingle);
+        int bin = (int) (((hash >>> 32) * HASHES) >>> 32);
+        if (Long.compareUnsigned(hash, minimums[bin]) < 0) minimums[bin] = hash;
+    }
+
+    /**
+     * Rellenar los minimos que no han recibido ningun fragmento con el siguiente que si, desplazado segun la
+     * distancia, para que dos textos parecidos sigan coincidiendo.
+     */
+    private static void densify(long[] minimums) {
+        long[] filled = minimums.clone();
+        for (int i = 0; i < HASHES; i++) {
+            if (filled[i] != -1L) continue;
+            for (int distance = 1; distance < HASHES; distance++) {
+                long next = filled[(i + distance) % HASHES];
+                if (next != -1L) {
+                    minimums[i] = next + distance * 0x9E3779B97F4A7C15L;
+                    break;
+                }
+            }
+        }
+    }
+
+    private static long mix(long value) {
+        value = (value ^ (value >>> 30)) * 0xBF58476D1CE4E5B9L;
+        value = (value ^ (value >>> 27)) * 0x94D049BB133111EBL;
+        return value ^ (value >>> 31);
+    }
+}
@@ -0,0 +1,165 @@
+package dev.josemc.watcher.antispam;
+
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Contadores de eventos en una ventana deslizante, uno por clave (usuario, canal, servidor...).
+ * <p>
+ * Cada contador es un unico {@code long} con la ventana actual y los eventos de la actual y de la anterior, y se
+ * actualiza con CAS sin bloqueos. La cuenta en la ventana deslizante se estima suponiendo que los eventos de la
+ * ventana anterior estaban repartidos por igual. Como en {@link dev.josemc.watcher.commands.ratelimit.TokenBucket},
+ * los contadores de hace mas de dos ventanas equivalen a no existir y se eliminan de forma perezosa; si aun asi se
+ * llega a {@code maxEntries}, las claves nuevas no se cuentan hasta la siguiente limpieza.
+ * <p>
+ * La limpieza se hace en el hilo del evento, asi que cada vez solo revisa {@value #SWEEP_BATCH} contadores y la
+ * siguiente continua por donde lo dejo: con muchas claves distintas (un raid) cada evento sigue costando lo mismo, en
+ * lugar de recorrer todo el mapa. Como en el {@code TokenBucket}, un contador se marca como eliminado antes de quitarlo
+ * del mapa, y un hilo que ya lo habia leido cuenta el evento en el contador que haya en el mapa.
+ */
+public final class SlidingWindowCounter {
+    /**
+     * Cada cuantos incrementos se limpia una parte del mapa.
+     */
+    private static final int SWEEP_INTERVAL = 64;
+
+    /**
+     * Contadores revisados en cada limpieza.
+     */
+    static final int SWEEP_BATCH = 64;
+
+    private static final int COUNT_BITS = 20;
+    private static final long COUNT_MASK = (1L << COUNT_BITS) - 1;
+    /**
+     * Solo se guardan los bits bajos del numero de ventana; basta para distinguir las ultimas.
+     */
+    private static final long WINDOW_MASK = (1L << (Long.SIZE - COUNT_BITS * 2)) - 1;
+    /**
+     * Valor de un contador ya eliminado del mapa. Un contador usado siempre tiene al menos un evento en la ventana
+     * actual, y uno nuevo vale 0, asi que ninguno puede valer esto.
+     */
+    private static final long REMOVED = 1L << COUNT_BITS;
+
+    private final long windowMillis;
+    private final int maxEntries;
+    private final ConcurrentHashMap<Long, AtomicLong> counters = new ConcurrentHashMap<>();
+    private final AtomicInteger increments = new AtomicInteger();
+    private final AtomicBoolean sweeping = new AtomicBoolean();
+    private final AtomicLong rejected = new AtomicLong();
+    /**
+     * Posicion de la limpieza en el mapa, solo la usa el hilo que tiene {@link #sweeping}.
+     */
+    private Iterator<Map.Entry<Long, AtomicLong>> cursor;
+
+    /**
+     * @param windowMillis duracion de la ventana.
+     * @param maxEntries   numero maximo de claves.
+     */
+    public SlidingWindowCounter(long windowMillis, int maxEntries) {
+        this.windowMillis = windowMillis;
+        this.maxEntries = maxEntries;
+    }
+
+    /**
+     * Contar un evento.
+     *
+     * @param key la clave, ver {@link #key(long, long, long)}.
+     * @param now el momento actual, de {@link System#currentTimeMillis()}.
+     * @return los eventos de la clave en la ventana, incluido este; 0 si la clave no se ha podido guardar.
+     */
+    public int increment(long key, long now) {
+        if ((increments.incrementAndGet() & (SWEEP_INTERVAL - 1)) == 0) sweep(now);
+        AtomicLong counter = counters.get(key);
+        if (counter == null) {
+            if (counters.size() >= maxEntries) {
+                sweep(now);
+                if (counters.size() >= maxEntries) {
+                    rejected.incrementAndGet();
+                    return 0;
+                }
+            }
+            counter = counters.computeIfAbsent(key, k -> new AtomicLong());
+        }
+
+        long window = (now / windowMillis) & WINDOW_MASK;
+        while (true) {
+            long value = counter.get();
+            if (value == REMOVED) {
+                counter = counters.computeIfAbsent(key, k -> new AtomicLong());
+                continue;
+            }
+            long current = value & COUNT_MASK;
+            long previous = (value >>> COUNT_BITS) & COUNT_MASK;
+            long valueWindow = value >>> (COUNT_BITS * 2);
+            if (valueWindow == window) {
+                current = Math.min(current + 1, COUNT_MASK);
+            } else {
+                previous = valueWindow == ((window - 1) & WINDOW_MASK) ? current : 0;
+                current = 1;
+            }
+            if (counter.compareAndSet(value, window << (COUNT_BITS * 2) | previous << COUNT_BITS | current)) {
+                return (int) (current + previous * (windowMillis - now % windowMillis) / windowMillis);
+            }
+        }
+    }
+
+    /**
+     * Numero de claves guardadas.
+     */
+    public int size() {
+        return counters.size();
+    }
+
+    /**
+     * Numero de eventos que no se han contado por haber demasiadas claves.
+     */
+    public long getRejected() {
+        return rejected.get();
+    }
+
+    /**
+     * Combinar un tipo de contador y dos ids en una clave.
+     *
+     * @param type el tipo, para separar por ejemplo los contadores de usuario de los de canal.
+     * @param a    el primer id.
+     * @param b    el segundo id.
+     * @return la clave.
+     */
+    public static long key(long type, long a, long b) {
+        return mix(mix(type * 0x9E3779B97F4A7C15L ^ a) ^ b);
+    }
+
+    private static long mix(long value) {
+        value = (value ^ (value >>> 33)) * 0xFF51AFD7ED558CCDL;
+        value = (value ^ (value >>> 33)) * 0xC4CEB9FE1A85EC53L;
+        return value ^ (value >>> 33);
+    }
+
+    /**
+     * Eliminar los contadores de hace mas de dos ventanas entre los {@value #SWEEP_BATCH} siguientes del mapa. Solo un
+     * hilo limpia a la vez; el resto continua sin esperar.
+     */
+    private void sweep(long now) {
+        if (!sweeping.compareAndSet(false, true)) return;
+        try {
+            long window = now / windowMillis;
+            for (int i = 0; i < SWEEP_BATCH; i++) {
+                if (cursor == null || !cursor.hasNext()) {
+                    cursor = counters.entrySet().iterator();
+                    if (!cursor.hasNext()) return;
+                }
+                Map.Entry<Long, AtomicLong> entry = cursor.next();
+                AtomicLong counter = entry.getValue();
+                long value = counter.get();
+                if (value != REMOVED && ((window - (value >>> (COUNT_BITS * 2))) & WINDOW_MASK) >= 2
+                        && counter.compareAndSet(value, REMOVED)) counters.remove(entry.getKey(), counter);
+            }
+        } finally {
+            sweeping.set(false);
+        }
+    }
+}
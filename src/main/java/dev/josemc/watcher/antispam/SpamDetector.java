@@ -0,0 +1,161 @@
+package dev.josemc.watcher.antispam;
+
+import dev.josemc.watcher.Config;
+import dev.josemc.watcher.metrics.WatcherMetrics;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Deteccion de spam y raids sobre el flujo de mensajes y entradas de miembros, sin conexion a Discord.
+ * <p>
+ * Cada mensaje cuenta en una {@link SlidingWindowCounter} para su usuario, su canal y, si es lo bastante largo,
+ * para cada banda de su {@link MinHash} en el servidor, de forma que los mensajes parecidos de distintos usuarios
+ * cuentan juntos. Las entradas cuentan por servidor en otra ventana; al superar el limite el servidor pasa a modo
+ * raid durante un tiempo. Todo el estado se actualiza sin bloqueos, para revisar los eventos en el hilo de JDA.
+ */
+public class SpamDetector {
+    private static final Logger log = LoggerFactory.getLogger(SpamDetector.class);
+
+    private static final long USER = 1;
+    private static final long CHANNEL = 2;
+    private static final long JOIN = 3;
+    private static final long DUPLICATE = 16;
+
+    private final SlidingWindowCounter messages;
+    private final SlidingWindowCounter joins;
+    private final int userMessages;
+    private final int channelMessages;
+    private final int duplicateMessages;
+    private final int duplicateMinLength;
+    private final int raidJoins;
+    private final long raidMillis;
+    private final Map<Long, Long> raidUntil = new ConcurrentHashMap<>();
+    private final LongAdder inspected = new LongAdder();
+    private final Map<SpamVerdict, LongAdder> flagged = new EnumMap<>(SpamVerdict.class);
+    private final LongAdder raids = new LongAdder();
+
+    /**
+     * @param windowMillis       ventana de los contadores de mensajes.
+     * @param userMessages       mensajes de un usuario en la ventana a partir de los que se marca como spam.
+     * @param channelMessages    mensajes de un canal en la ventana a partir de los que se marca como saturado.
+     * @param duplicateMessages  mensajes parecidos en un servidor en la ventana a partir de los que se marcan como spam.
+     * @param duplicateMinLength caracteres minimos de un mensaje para contarlo como parecido a otros.
+     * @param raidJoins          entradas a un servidor en {@code raidWindowMillis} a partir de las que empieza un raid.
+     * @param raidWindowMillis   ventana del contador de entradas.
+     * @param raidMillis         duracion del modo raid desde la ultima entrada que supera el limite.
+     * @param maxKeys            numero maximo de contadores de mensajes; limita la memoria usada.
+     */
+    public SpamDetector(long windowMillis, int userMessages, int channelMessages, int duplicateMessages, int duplicateMinLength,
+                        int raidJoins, long raidWindowMillis, long raidMillis, int maxKeys) {
+        this.messages = new SlidingWindowCounter(windowMillis, maxKeys);
+        this.joins = new SlidingWindowCounter(raidWindowMillis, Math.max(1024, maxKeys / 16));
+        this.userMessages = userMessages;
+        this.channelMessages = channelMessages;
+        this.duplicateMessages = duplicateMessages;
+        this.duplicateMinLength = duplicateMinLength;
+        this.raidJoins = raidJoins;
+        this.raidMillis = raidMillis;
+
+        WatcherMetrics metrics = WatcherMetrics.get();
+        metrics.counter("watcher_antispam_inspected_total", inspected::sum);
+        for (SpamVerdict verdict : SpamVerdict.values()) {
+            if (verdict == SpamVerdict.OK) continue;
+            LongAdder adder = new LongAdder();
+            flagged.put(verdict, adder);
+            metrics.counter("watcher_antispam_flagged_total{reason=\"" + verdict.getKey() + "\"}", adder::sum);
+        }
+        metrics.counter("watcher_antispam_raids_total", raids::sum);
+        metrics.gauge("watcher_antispam_tracked_keys", () -> messages.size() + joins.size());
+        metrics.counter("watcher_antispam_rejected_total", () -> messages.getRejected() + joins.getRejected());
+    }
+
+    /**
+     * Crear el detector segun la seccion {@code antispam} de la configuracion.
+     *
+     * @param config la configuracion.
+     * @return el detector.
+     */
+    public static SpamDetector fromConfig(Config config) {
+        return new SpamDetector(TimeUnit.SECONDS.toMillis(config.getLong("antispam.window_seconds", 10)),
+                config.getInt("antispam.user_messages", 8), config.getInt("antispam.channel_messages", 60),
+                config.getInt("antispam.duplicate_messages", 5), config.getInt("antispam.duplicate_min_length", 20),
+                config.getInt("antispam.raid_joins", 10), TimeUnit.SECONDS.toMillis(config.getLong("antispam.raid_window_seconds", 30)),
+                TimeUnit.MINUTES.toMillis(config.getLong("antispam.raid_minutes", 10)), config.getInt("antispam.max_keys", 200_000));
+    }
+
+    /**
+     * Revisar un mensaje.
+     *
+     * @param guildId   id del servidor.
+     * @param channelId id del canal.
+     * @param userId    id del autor.
+     * @param content   el contenido, vacio si el bot no tiene el intent {@code MESSAGE_CONTENT}.
+     * @param now       el momento actual, de {@link System#currentTimeMillis()}.
+     * @return el resultado; si se superan varios limites, el del usuario antes que el de parecidos y el del canal.
+     */
+    public SpamVerdict inspect(long guildId, long channelId, long userId, CharSequence content, long now) {
+        inspected.increment();
+        SpamVerdict verdict = SpamVerdict.OK;
+        if (messages.increment(SlidingWindowCounter.key(USER, guildId, userId), now) >= userMessages) {
+            verdict = SpamVerdict.USER_FLOOD;
+        }
+
+        if (content.length() >= duplicateMinLength) {
+            long[] bands = new long[MinHash.BANDS];
+            if (MinHash.of(content, bands)) {
+                int similar = 0;
+                for (int band = 0; band < MinHash.BANDS; band++) {
+                    similar = Math.max(similar, messages.increment(SlidingWindowCounter.key(DUPLICATE + band, guildId, bands[band]), now));
+                }
+                if (similar >= duplicateMessages && verdict == SpamVerdict.OK) verdict = SpamVerdict.DUPLICATE;
+            }
+        }
+
+        if (messages.increment(SlidingWindowCounter.key(CHANNEL, guildId, channelId), now) >= channelMessages && verdict == SpamVerdict.OK) {
+            verdict = SpamVerdict.CHANNEL_FLOOD;
+        }
+
+        if (verdict != SpamVerdict.OK) flagged.get(verdict).increment();
+        return verdict;
+    }
+
+    /**
+     * Contar la entrada de un miembro.
+     *
+     * @param guildId id del servidor.
+     * @param now     el momento actual, de {@link System#currentTimeMillis()}.
+     * @return true, si el servidor esta en modo raid.
+     */
+    public boolean join(long guildId, long now) {
+        if (joins.increment(SlidingWindowCounter.key(JOIN, guildId, 0), now) >= raidJoins) {
+            Long previous = raidUntil.put(guildId, now + raidMillis);
+            if (previous == null || previous <= now) {
+                raids.increment();
+                log.warn("[AntiSpam] Raid detectado en el servidor {}: {} entradas en la ventana", guildId, raidJoins);
+            }
+            return true;
+        }
+        return isRaid(guildId, now);
+    }
+
+    /**
+     * Comprobar si un servidor esta en modo raid.
+     *
+     * @param guildId id del servidor.
+     * @param now     el momento actual, de {@link System#currentTimeMillis()}.
+     * @return true, si el servidor esta en modo raid.
+     */
+    public boolean isRaid(long guildId, long now) {
+        Long until = raidUntil.get(guildId);
+        if (until == null) return false;
+        if (until > now) return true;
+        raidUntil.remove(guildId, until);
+        return false;
+    }
+}
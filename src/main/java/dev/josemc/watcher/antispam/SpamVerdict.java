@@ -0,0 +1,34 @@
+package dev.josemc.watcher.antispam;
+
+import java.util.Locale;
+
+/**
+ * Resultado de revisar un mensaje con el {@link SpamDetector}.
+ */
+public enum SpamVerdict {
+    /**
+     * El mensaje no supera ningun limite.
+     */
+    OK,
+    /**
+     * El usuario ha enviado demasiados mensajes en la ventana.
+     */
+    USER_FLOOD,
+    /**
+     * Se han enviado demasiados mensajes parecidos en el servidor en la ventana.
+     */
+    DUPLICATE,
+    /**
+     * Se han enviado demasiados mensajes en el canal en la ventana, aunque ningun usuario supere su limite.
+     */
+    CHANNEL_FLOOD;
+
+    /**
+     * Obtener el nombre en minusculas, como se usa en las metricas.
+     *
+     * @return el nombre.
+     */
+    public String getKey() {
+        return name().toLowerCase(Locale.ROOT);
+    }
+}
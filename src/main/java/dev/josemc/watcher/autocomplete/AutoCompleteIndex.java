@@ -0,0 +1,159 @@
+package dev.josemc.watcher.autocomplete;
+
+import net.dv8tion.jda.api.entities.Guild;
+import net.dv8tion.jda.api.entities.Member;
+import net.dv8tion.jda.api.events.channel.ChannelCreateEvent;
+import net.dv8tion.jda.api.events.channel.ChannelDeleteEvent;
+import net.dv8tion.jda.api.events.channel.update.ChannelUpdateNameEvent;
+import net.dv8tion.jda.api.events.guild.GuildJoinEvent;
+import net.dv8tion.jda.api.events.guild.GuildLeaveEvent;
+import net.dv8tion.jda.api.events.guild.GuildReadyEvent;
+import net.dv8tion.jda.api.events.guild.member.GuildMemberJoinEvent;
+import net.dv8tion.jda.api.events.guild.member.GuildMemberRemoveEvent;
+import net.dv8tion.jda.api.events.guild.member.update.GuildMemberUpdateNicknameEvent;
+import net.dv8tion.jda.api.events.interaction.command.CommandAutoCompleteInteractionEvent;
+import net.dv8tion.jda.api.events.interaction.command.SlashCommandInteractionEvent;
+import net.dv8tion.jda.api.events.role.RoleCreateEvent;
+import net.dv8tion.jda.api.events.role.RoleDeleteEvent;
+import net.dv8tion.jda.api.events.role.update.RoleUpdateNameEvent;
+import net.dv8tion.jda.api.events.user.update.UserUpdateNameEvent;
+import net.dv8tion.jda.api.hooks.ListenerAdapter;
+import org.jetbrains.annotations.NotNull;
+
+import javax.annotation.Nullable;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Indices de autocompletado de todos los servidores.
+ * <p>
+ * Se crean con la cache del servidor al estar listo y despues se mantienen con los eventos del gateway, de forma
+ * que una sugerencia es solo una busqueda en el indice. Los miembros que usan el bot tambien se añaden al
+ * interactuar con el, ya que con {@code cache.profile: lean} la cache de miembros esta casi vacia.
+ */
+public class AutoCompleteIndex extends ListenerAdapter {
+    private final Map<Long, GuildIndex> guilds = new ConcurrentHashMap<>();
+    private final Map<String, PrefixIndex> values = new ConcurrentHashMap<>();
+
+    /**
+     * Obtener los indices de un servidor, creandolos vacios si aun no existen.
+     *
+     * @param guildId el id del servidor.
+     * @return el {@link GuildIndex}.
+     */
+    public GuildIndex get(long guildId) {
+        return guilds.computeIfAbsent(guildId, GuildIndex::new);
+    }
+
+    /**
+     * Obtener los indices de un servidor, sin crearlos.
+     *
+     * @param guildId el id del servidor.
+     * @return el {@link GuildIndex}, o null si el servidor no esta indexado.
+     */
+    @Nullable
+    public GuildIndex find(long guildId) {
+        return guilds.get(guildId);
+    }
+
+    /**
+     * Obtener un indice de valores comun a todos los servidores, creandolo si no existe.
+     *
+     * @param key el nombre del indice.
+     * @return el {@link PrefixIndex}.
+     */
+    public PrefixIndex values(String key) {
+        return values.computeIfAbsent(key, ignored -> new PrefixIndex());
+    }
+
+    /**
+     * Obtener el numero de servidores indexados.
+     *
+     * @return los servidores.
+     */
+    public int size() {
+        return guilds.size();
+    }
+
+    @Override
+    public void onGuildReady(@NotNull GuildReadyEvent event) {
+        get(event.getGuild().getIdLong()).load(event.getGuild());
+    }
+
+    @Override
+    public void onGuildJoin(@NotNull GuildJoinEvent event) {
+        get(event.getGuild().getIdLong()).load(event.getGuild());
+    }
+
+    @Override
+    public void onGuildLeave(@NotNull GuildLeaveEvent event) {
+        guilds.remove(event.getGuild().getIdLong());
+    }
+
+    @Override
+    public void onGuildMemberJoin(@NotNull GuildMemberJoinEvent event) {
+        get(event.getGuild().getIdLong()).putMember(event.getMember());
+    }
+
+    @Override
+    public void onGuildMemberRemove(@NotNull GuildMemberRemoveEvent event) {
+        GuildIndex index = find(event.getGuild().getIdLong());
+        if (index != null) index.getMembers().remove(event.getUser().getId());
+    }
+
+    @Override
+    public void onGuildMemberUpdateNickname(@NotNull GuildMemberUpdateNicknameEvent event) {
+        get(event.getGuild().getIdLong()).putMember(event.getMember());
+    }
+
+    @Override
+    public void onUserUpdateName(@NotNull UserUpdateNameEvent event) {
+        for (Guild guild : event.getJDA().getMutualGuilds(event.getUser())) {
+            Member member = guild.getMember(event.getUser());
+            if (member != null) get(guild.getIdLong()).putMember(member);
+        }
+    }
+
+    @Override
+    public void onRoleCreate(@NotNull RoleCreateEvent event) {
+        get(event.getGuild().getIdLong()).putRole(event.getRole());
+    }
+
+    @Override
+    public void onRoleDelete(@NotNull RoleDeleteEvent event) {
+        GuildIndex index = find(event.getGuild().getIdLong());
+        if (index != null) index.getRoles().remove(event.getRole().getId());
+    }
+
+    @Override
+    public void onRoleUpdateName(@NotNull RoleUpdateNameEvent event) {
+        get(event.getGuild().getIdLong()).putRole(event.getRole());
+    }
+
+    @Override
+    public void onChannelCreate(@NotNull ChannelCreateEvent event) {
+        if (event.isFromGuild()) get(event.getGuild().getIdLong()).putChannel(event.getChannel().asGuildChannel());
+    }
+
+    @Override
+    public void onChannelDelete(@NotNull ChannelDeleteEvent event) {
+        if (!event.isFromGuild()) return;
+        GuildIndex index = find(event.getGuild().getIdLong());
+        if (index != null) index.getChannels().remove(event.getChannel().getId());
+    }
+
+    @Override
+    public void onChannelUpdateName(@NotNull ChannelUpdateNameEvent event) {
+        if (event.isFromGuild()) get(event.getGuild().getIdLong()).putChannel(event.getChannel().asGuildChannel());
+    }
+
+    @Override
+    public void onSlashCommandInteraction(@NotNull SlashCommandInteractionEvent event) {
+        if (event.getGuild() != null && event.getMember() != null) get(event.getGuild().getIdLong()).putMember(event.getMember());
+    }
+
+    @Override
+    public void onCommandAutoCompleteInteraction(@NotNull CommandAutoCompleteInteractionEvent event) {
+        if (event.getGuild() != null && event.getMember() != null) get(event.getGuild().getIdLong()).putMember(event.getMember());
+    }
+}
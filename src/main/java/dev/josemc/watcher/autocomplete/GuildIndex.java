@@ -0,0 +1,117 @@
+package dev.josemc.watcher.autocomplete;
+
+import net.dv8tion.jda.api.entities.Guild;
+import net.dv8tion.jda.api.entities.Member;
+import net.dv8tion.jda.api.entities.Role;
+import net.dv8tion.jda.api.entities.channel.middleman.GuildChannel;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Indices de autocompletado de un servidor: miembros, roles, canales y los valores propios de cada comando.
+ */
+public final class GuildIndex {
+    private final long guildId;
+    private final PrefixIndex members = new PrefixIndex();
+    private final PrefixIndex roles = new PrefixIndex();
+    private final PrefixIndex channels = new PrefixIndex();
+    private final Map<String, PrefixIndex> values = new ConcurrentHashMap<>();
+
+    /**
+     * @param guildId el id del servidor.
+     */
+    public GuildIndex(long guildId) {
+        this.guildId = guildId;
+    }
+
+    /**
+     * Rellenar los indices con la cache de JDA del servidor.
+     *
+     * @param guild el servidor.
+     */
+    public void load(Guild guild) {
+        members.clear();
+        roles.clear();
+        channels.clear();
+        guild.getMemberCache().forEach(this::putMember);
+        guild.getRoleCache().forEach(this::putRole);
+        guild.getChannels().forEach(this::putChannel);
+    }
+
+    /**
+     * Añadir o actualizar un miembro, por su nombre en el servidor y su nombre de usuario.
+     *
+     * @param member el miembro.
+     */
+    public void putMember(Member member) {
+        String username = member.getUser().getName();
+        String effectiveName = member.getEffectiveName();
+        if (effectiveName.equals(username)) members.put(member.getId(), effectiveName);
+        else members.put(member.getId(), effectiveName, username);
+    }
+
+    /**
+     * Añadir o actualizar un rol. El rol {@code @everyone} no se indexa.
+     *
+     * @param role el rol.
+     */
+    public void putRole(Role role) {
+        if (!role.isPublicRole()) roles.put(role.getId(), role.getName());
+    }
+
+    /**
+     * Añadir o actualizar un canal.
+     *
+     * @param channel el canal.
+     */
+    public void putChannel(GuildChannel channel) {
+        channels.put(channel.getId(), channel.getName());
+    }
+
+    /**
+     * Obtener el id del servidor.
+     *
+     * @return el id.
+     */
+    public long getGuildId() {
+        return guildId;
+    }
+
+    /**
+     * Obtener el indice de miembros. Las entradas tienen el id del miembro.
+     *
+     * @return el {@link PrefixIndex} de miembros.
+     */
+    public PrefixIndex getMembers() {
+        return members;
+    }
+
+    /**
+     * Obtener el indice de roles. Las entradas tienen el id del rol.
+     *
+     * @return el {@link PrefixIndex} de roles.
+     */
+    public PrefixIndex getRoles() {
+        return roles;
+    }
+
+    /**
+     * Obtener el indice de canales. Las entradas tienen el id del canal.
+     *
+     * @return el {@link PrefixIndex} de canales.
+     */
+    public PrefixIndex getChannels() {
+        return channels;
+    }
+
+    /**
+     * Obtener un indice de valores propio de un comando en este servidor, creandolo si no existe.
+     *
+     * @param key el nombre del indice, por ejemplo {@code "tags"}.
+     * @return el {@link PrefixIndex}.
+     */
+    public PrefixIndex values(String key) {
+        return values.computeIfAbsent(key, ignored -> new PrefixIndex());
+    }
+}
@@ -0,0 +1,143 @@
+package dev.josemc.watcher.autocomplete;
+
+import net.dv8tion.jda.api.interactions.commands.Command;
+import net.dv8tion.jda.api.interactions.commands.build.OptionData;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+/**
+ * Indice de nombres ordenado para buscar por prefijo.
+ * <p>
+ * Los nombres se guardan normalizados (minusculas y sin acentos) en un {@link ConcurrentSkipListMap}, de forma que
+ * una busqueda es un {@code subMap} del prefijo recorrido hasta el limite de resultados, sin recorrer el resto.
+ * Las lecturas no se bloquean; los cambios de un mismo id se hacen de forma atomica.
+ */
+public final class PrefixIndex {
+    /**
+     * Separa el nombre normalizado del id en la clave, para que dos entradas con el mismo nombre no se pisen.
+     */
+    private static final char SEPARATOR = '\u0000';
+
+    private final ConcurrentSkipListMap<String, Entry> entries = new ConcurrentSkipListMap<>();
+    private final ConcurrentHashMap<String, String[]> keysById = new ConcurrentHashMap<>();
+
+    /**
+     * Una entrada del indice.
+     *
+     * @param id   el id, o el propio valor en los indices de valores.
+     * @param name el nombre que se muestra.
+     */
+    public record Entry(String id, String name) {
+        /**
+         * Crear la opcion de autocompletado de la entrada, con el nombre visible y el id como valor.
+         *
+         * @return la {@link Command.Choice}.
+         */
+        public Command.Choice toChoice() {
+            return new Command.Choice(name.length() > OptionData.MAX_CHOICE_NAME_LENGTH ? name.substring(0, OptionData.MAX_CHOICE_NAME_LENGTH) : name, id);
+        }
+    }
+
+    /**
+     * Añadir o actualizar una entrada.
+     *
+     * @param id      el id de la entrada.
+     * @param name    el nombre que se muestra, por el que se busca.
+     * @param aliases otros nombres por los que tambien se encuentra, como el nombre de usuario de un miembro.
+     */
+    public void put(String id, String name, String... aliases) {
+        Entry entry = new Entry(id, name);
+        keysById.compute(id, (key, previous) -> {
+            if (previous != null) {
+                for (String old : previous) entries.remove(old);
+            }
+            String[] keys = new String[1 + aliases.length];
+            keys[0] = fold(name) + SEPARATOR + id;
+            for (int i = 0; i < aliases.length; i++) {
+                keys[i + 1] = fold(aliases[i]) + SEPARATOR + id;
+            }
+            for (String newKey : keys) entries.put(newKey, entry);
+            return keys;
+        });
+    }
+
+    /**
+     * Quitar una entrada.
+     *
+     * @param id el id de la entrada.
+     */
+    public void remove(String id) {
+        keysById.computeIfPresent(id, (key, previous) -> {
+            for (String old : previous) entries.remove(old);
+            return null;
+        });
+    }
+
+    /**
+     * Buscar las entradas cuyo nombre empieza por un prefijo, en orden alfabetico.
+     *
+     * @param prefix el prefijo, sin distinguir mayusculas ni acentos.
+     * @param limit  numero maximo de resultados.
+     * @return las entradas, sin repetir ids.
+     */
+    public List<Entry> search(String prefix, int limit) {
+        String folded = fold(prefix);
+        ConcurrentNavigableMap<String, Entry> range = folded.isEmpty() ? entries : entries.subMap(folded, true, folded + Character.MAX_VALUE, false);
+
+        Map<String, Entry> result = new LinkedHashMap<>();
+        for (Entry entry : range.values()) {
+            result.putIfAbsent(entry.id(), entry);
+            if (result.size() >= limit) break;
+        }
+        return new ArrayList<>(result.values());
+    }
+
+    /**
+     * Obtener el numero de entradas.
+     *
+     * @return las entradas distintas del indice.
+     */
+    public int size() {
+        return keysById.size();
+    }
+
+    /**
+     * Vaciar el indice.
+     */
+    public void clear() {
+        keysById.clear();
+        entries.clear();
+    }
+
+    /**
+     * Normalizar un nombre para compararlo: minusculas y sin acentos.
+     *
+     * @param name el nombre.
+     * @return el nombre normalizado.
+     */
+    static String fold(String name) {
+        String lower = name.toLowerCase(Locale.ROOT);
+        for (int i = 0; i < lower.length(); i++) {
+            if (lower.charAt(i) >= 0x80) return stripMarks(lower);
+        }
+        return lower;
+    }
+
+    private static String stripMarks(String name) {
+        String decomposed = Normalizer.normalize(name, Normalizer.Form.NFD);
+        StringBuilder builder = new StringBuilder(decomposed.length());
+        for (int i = 0; i < decomposed.length(); i++) {
+            char c = decomposed.charAt(i);
+            if (Character.getType(c) != Character.NON_SPACING_MARK) builder.append(c);
+        }
+        return builder.toString();
+    }
+}
@@ -0,0 +1,60 @@
+package dev.josemc.watcher.cache;
+
+import net.dv8tion.jda.api.JDA;
+import net.dv8tion.jda.api.entities.Guild;
+
+/**
+ * Tamaño de la cache de una shard.
+ * <p>
+ * El tamaño en memoria es una estimacion con un coste aproximado por entidad, pensada para dimensionar
+ * el heap y comparar perfiles, no para medir el consumo exacto.
+ *
+ * @param shardId  id de la shard.
+ * @param guilds   servidores.
+ * @param members  miembros en cache.
+ * @param users    usuarios en cache.
+ * @param channels canales, categorias e hilos.
+ * @param roles    roles.
+ * @param emojis   emojis y stickers.
+ */
+public record CacheFootprint(int shardId, long guilds, long members, long users, long channels, long roles, long emojis) {
+
+    static final long GUILD_BYTES = 4096;
+    static final long MEMBER_BYTES = 320;
+    static final long USER_BYTES = 240;
+    static final long CHANNEL_BYTES = 512;
+    static final long ROLE_BYTES = 256;
+    static final long EMOJI_BYTES = 192;
+
+    /**
+     * Medir la cache de una shard. Recorre los servidores, pero solo consulta el tamaño de cada cache.
+     *
+     * @param jda la shard.
+     * @return el tamaño de su cache.
+     */
+    public static CacheFootprint of(JDA jda) {
+        long members = 0;
+        long channels = 0;
+        long emojis = 0;
+        for (Guild guild : jda.getGuildCache()) {
+            members += guild.getMemberCache().size();
+            channels += guild.getTextChannelCache().size() + guild.getVoiceChannelCache().size()
+                    + guild.getNewsChannelCache().size() + guild.getStageChannelCache().size()
+                    + guild.getForumChannelCache().size() + guild.getCategoryCache().size()
+                    + guild.getThreadChannelCache().size();
+            emojis += guild.getEmojiCache().size() + guild.getStickerCache().size();
+        }
+        return new CacheFootprint(jda.getShardInfo().getShardId(), jda.getGuildCache().size(), members,
+                jda.getUserCache().size(), channels, jda.getRoleCache().size(), emojis);
+    }
+
+    /**
+     * Estimacion del tamaño de la cache en memoria.
+     *
+     * @return los bytes estimados.
+     */
+    public long estimatedBytes() {
+        return guilds * GUILD_BYTES + members * MEMBER_BYTES + users * USER_BYTES
+                + channels * CHANNEL_BYTES + roles * ROLE_BYTES + emojis * EMOJI_BYTES;
+    }
+}
@@ -0,0 +1,166 @@
+package dev.josemc.watcher.cache;
+
+import dev.josemc.watcher.ConfigSnapshot;
+import net.dv8tion.jda.api.requests.GatewayIntent;
+import net.dv8tion.jda.api.sharding.DefaultShardManagerBuilder;
+import net.dv8tion.jda.api.utils.ChunkingFilter;
+import net.dv8tion.jda.api.utils.MemberCachePolicy;
+import net.dv8tion.jda.api.utils.cache.CacheFlag;
+
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * Configuracion de la cache de JDA, leida de la seccion {@code cache} de la configuracion.
+ * <p>
+ * El perfil {@code default} mantiene la cache de JDA por defecto. El perfil {@code lean} no guarda miembros
+ * ni las entidades que el bot no usa, y desactiva los intents que solo sirven para llenar esas caches;
+ * los miembros se obtienen bajo demanda con {@link MemberLoader}. Las claves {@code member_cache},
+ * {@code chunking}, {@code disabled_flags} e {@code intents} sustituyen a los valores del perfil. El intent
+ * privilegiado {@code MESSAGE_CONTENT} solo se pide con {@code messages.content}, para el {@link MessageCache}.
+ * <p>
+ * El perfil {@code lean} mantiene el intent {@code GUILD_MEMBERS} si hay activada alguna funcion que usa los eventos de
+ * los miembros ({@link #memberFeatures}): sin el no llegan las entradas, las salidas ni los cambios de roles.
+ *
+ * @param name              nombre del perfil.
+ * @param memberCachePolicy miembros que se guardan en cache.
+ * @param memberCache       la politica tal y como se escribio, para el log.
+ * @param chunkAll          true, si se descargan todos los miembros de cada servidor al conectar.
+ * @param disabledFlags     las {@link CacheFlag} desactivadas.
+ * @param intents           los {@link GatewayIntent} activados.
+ */
+public record CacheProfile(String name, MemberCachePolicy memberCachePolicy, String memberCache, boolean chunkAll,
+                           Set<CacheFlag> disabledFlags, Set<GatewayIntent> intents) {
+
+    /**
+     * Crear el perfil a partir de la configuracion.
+     *
+     * @param config la configuracion.
+     * @return el perfil.
+     * @throws IllegalArgumentException si algun valor no es valido.
+     */
+    public static CacheProfile fromConfig(ConfigSnapshot config) {
+        String name = config.getString("cache.profile", "default").toLowerCase(Locale.ROOT);
+        boolean lean = switch (name) {
+            case "default" -> false;
+            case "lean" -> true;
+            default -> throw new IllegalArgumentException("Perfil de cache desconocido: " + name);
+        };
+
+        String memberCache = config.getString("cache.member_cache", lean ? "none" : "default");
+        boolean chunkAll = "all".equalsIgnoreCase(config.getString("cache.chunking", "none"));
+
+        EnumSet<GatewayIntent> intents;
+        if (config.contains("cache.intents")) {
+            intents = parseEnums(GatewayIntent.class, config.getString("cache.intents"));
+        } else {
+            intents = GatewayIntent.getIntents(GatewayIntent.DEFAULT);
+            if (lean) {
+                EnumSet<GatewayIntent> removed = EnumSet.of(GatewayIntent.GUILD_MEMBERS, GatewayIntent.GUILD_PRESENCES,
+                        GatewayIntent.GUILD_VOICE_STATES, GatewayIntent.GUILD_EMOJIS_AND_STICKERS, GatewayIntent.SCHEDULED_EVENTS,
+                        GatewayIntent.GUILD_INVITES, GatewayIntent.GUILD_WEBHOOKS, GatewayIntent.GUILD_MESSAGE_TYPING,
+                        GatewayIntent.DIRECT_MESSAGE_TYPING);
+                // Sin cache de miembros el intent solo cuesta sus eventos, que son los que necesitan estas funciones.
+                if (!memberFeatures(config).isEmpty()) removed.remove(GatewayIntent.GUILD_MEMBERS);
+                intents.removeAll(removed);
+            } else {
+                intents.add(GatewayIntent.GUILD_MEMBERS);
+                intents.add(GatewayIntent.DIRECT_MESSAGES);
+            }
+            if (config.getBoolean("cache.messages.enabled", true) && config.getBoolean("cache.messages.content", false)) {
+                intents.add(GatewayIntent.GUILD_MESSAGES);
+                intents.add(GatewayIntent.MESSAGE_CONTENT);
+            }
+        }
+
+        EnumSet<CacheFlag> disabledFlags;
+        if (config.contains("cache.disabled_flags")) {
+            disabledFlags = parseEnums(CacheFlag.class, config.getString("cache.disabled_flags"));
+        } else if (lean) {
+            // Los permisos por canal se mantienen, se usan para comprobar los permisos del bot.
+            disabledFlags = EnumSet.complementOf(EnumSet.of(CacheFlag.MEMBER_OVERRIDES));
+        } else {
+            disabledFlags = EnumSet.noneOf(CacheFlag.class);
+        }
+        // Sin su intent la cache no se llenaria y JDA avisaria en cada inicio.
+        for (CacheFlag flag : CacheFlag.values()) {
+            if (flag.getRequiredIntent() != null && !intents.contains(flag.getRequiredIntent())) disabledFlags.add(flag);
+        }
+
+        return new CacheProfile(name, parseMemberCachePolicy(memberCache), memberCache, chunkAll,
+                Set.copyOf(disabledFlags), Set.copyOf(intents));
+    }
+
+    /**
+     * Obtener las funciones activadas que necesitan los eventos de los miembros, y por tanto el intent
+     * {@code GUILD_MEMBERS}: el journal (entradas y salidas), el anti-spam (modo raid) y la cache de permisos
+     * (cambios de roles).
+     *
+     * @param config la configuracion.
+     * @return las claves de configuracion de esas funciones, vacia si no hay ninguna activada.
+     */
+    public static List<String> memberFeatures(ConfigSnapshot config) {
+        List<String> features = new ArrayList<>(3);
+        if (config.getBoolean("journal.enabled", true)) features.add("journal");
+        if (config.getBoolean("antispam.enabled", false)) features.add("antispam");
+        if (config.getBoolean("permissions.cache", true)) features.add("permissions.cache");
+        return features;
+    }
+
+    /**
+     * Aplicar el perfil a un {@link DefaultShardManagerBuilder}.
+     *
+     * @param builder el builder.
+     * @return el mismo builder.
+     */
+    public DefaultShardManagerBuilder apply(DefaultShardManagerBuilder builder) {
+        builder.setEnabledIntents(intents);
+        builder.setMemberCachePolicy(memberCachePolicy);
+        builder.setChunkingFilter(chunkAll ? ChunkingFilter.ALL : ChunkingFilter.NONE);
+        if (!disabledFlags.isEmpty()) builder.disableCache(disabledFlags);
+        return builder;
+    }
+
+    /**
+     * Leer una politica de cache de miembros, combinando varias con {@code +}, por ejemplo {@code voice+owner}.
+     *
+     * @param value la politica.
+     * @return la {@link MemberCachePolicy}.
+     */
+    static MemberCachePolicy parseMemberCachePolicy(String value) {
+        MemberCachePolicy result = null;
+        for (String part : value.split("\\+")) {
+            MemberCachePolicy policy = switch (part.trim().toLowerCase(Locale.ROOT)) {
+                case "none" -> MemberCachePolicy.NONE;
+                case "all" -> MemberCachePolicy.ALL;
+                case "owner" -> MemberCachePolicy.OWNER;
+                case "online" -> MemberCachePolicy.ONLINE;
+                case "voice" -> MemberCachePolicy.VOICE;
+                case "booster" -> MemberCachePolicy.BOOSTER;
+                case "pending" -> MemberCachePolicy.PENDING;
+                case "default" -> MemberCachePolicy.DEFAULT;
+                default -> throw new IllegalArgumentException("Politica de cache de miembros desconocida: " + part);
+            };
+            result = result == null ? policy : result.or(policy);
+        }
+        return result;
+    }
+
+    private static <E extends Enum<E>> EnumSet<E> parseEnums(Class<E> type, String value) {
+        EnumSet<E> result = EnumSet.noneOf(type);
+        if (value == null) return result;
+        for (String part : value.split(",")) {
+            if (!part.isBlank()) result.add(Enum.valueOf(type, part.trim().toUpperCase(Locale.ROOT)));
+        }
+        return result;
+    }
+
+    @Override
+    public String toString() {
+        return name + " (miembros: " + memberCache + ", chunking: " + (chunkAll ? "all" : "none")
+                + ", cache desactivada: " + disabledFlags + ", intents: " + intents + ")";
+    }
+}
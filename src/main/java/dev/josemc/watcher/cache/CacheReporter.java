@@ -0,0 +1,127 @@
+package dev.josemc.watcher.cache;
+
+import dev.josemc.watcher.metrics.WatcherMetrics;
+import net.dv8tion.jda.api.JDA;
+import net.dv8tion.jda.api.events.session.ReadyEvent;
+import net.dv8tion.jda.api.hooks.ListenerAdapter;
+import org.jetbrains.annotations.NotNull;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.ToLongFunction;
+
+/**
+ * Informe del tamaño de la cache de cada shard.
+ * <p>
+ * Cada shard se registra al recibir su {@link ReadyEvent}. El tamaño se exporta como metricas
+ * {@code watcher_cache_*} con la etiqueta {@code shard} y se escribe en el log cada cierto tiempo.
+ * Las medidas se reutilizan durante unos segundos, para que una exportacion no recorra los servidores una vez por metrica.
+ */
+public class CacheReporter extends ListenerAdapter {
+    private static final Logger log = LoggerFactory.getLogger(CacheReporter.class);
+    private static final long MAX_AGE_NANOS = TimeUnit.SECONDS.toNanos(5);
+
+    private final Map<Integer, Shard> shards = new ConcurrentHashMap<>();
+    private final ScheduledExecutorService scheduler;
+
+    /**
+     * @param reportMinutes cada cuantos minutos se escribe el informe en el log (0 = nunca).
+     */
+    public CacheReporter(long reportMinutes) {
+        if (reportMinutes > 0) {
+            scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "Cache-Reporter");
+                thread.setDaemon(true);
+                return thread;
+            });
+            scheduler.scheduleAtFixedRate(this::report, reportMinutes, reportMinutes, TimeUnit.MINUTES);
+        } else {
+            scheduler = null;
+        }
+    }
+
+    @Override
+    public void onReady(@NotNull ReadyEvent event) {
+        JDA jda = event.getJDA();
+        int shardId = jda.getShardInfo().getShardId();
+        Shard shard = new Shard(jda);
+        if (shards.put(shardId, shard) != null) return;
+
+        String labels = "{shard=\"" + shardId + "\"}";
+        WatcherMetrics metrics = WatcherMetrics.get();
+        metrics.gauge("watcher_cache_guilds" + labels, () -> shards.get(shardId).footprint().guilds());
+        metrics.gauge("watcher_cache_members" + labels, () -> shards.get(shardId).footprint().members());
+        metrics.gauge("watcher_cache_users" + labels, () -> shards.get(shardId).footprint().users());
+        metrics.gauge("watcher_cache_channels" + labels, () -> shards.get(shardId).footprint().channels());
+        metrics.gauge("watcher_cache_roles" + labels, () -> shards.get(shardId).footprint().roles());
+        metrics.gauge("watcher_cache_emojis" + labels, () -> shards.get(shardId).footprint().emojis());
+        metrics.gauge("watcher_cache_estimated_bytes" + labels, () -> shards.get(shardId).footprint().estimatedBytes());
+    }
+
+    /**
+     * Medir la cache de todas las shards registradas.
+     *
+     * @return el tamaño de la cache por id de shard.
+     */
+    public Map<Integer, CacheFootprint> getFootprints() {
+        Map<Integer, CacheFootprint> footprints = new TreeMap<>();
+        shards.forEach((shardId, shard) -> footprints.put(shardId, shard.footprint()));
+        return footprints;
+    }
+
+    /**
+     * Escribir en el log el tamaño de la cache de cada shard y el total.
+     */
+    public void report() {
+        Map<Integer, CacheFootprint> footprints = getFootprints();
+        if (footprints.isEmpty()) return;
+
+        footprints.values().forEach(footprint -> log.info("Cache de la shard {}: {} servidores, {} miembros, {} usuarios, {} canales, {} roles, {} emojis (~{} MB)",
+                footprint.shardId(), footprint.guilds(), footprint.members(), footprint.users(), footprint.channels(),
+                footprint.roles(), footprint.emojis(), footprint.estimatedBytes() >> 20));
+        log.info("Cache total: {} miembros, {} usuarios (~{} MB en {} shards)",
+                sum(footprints, CacheFootprint::members), sum(footprints, CacheFootprint::users),
+                sum(footprints, CacheFootprint::estimatedBytes) >> 20, footprints.size());
+    }
+
+    /**
+     * Detener el informe periodico.
+     */
+    public void stop() {
+        if (scheduler != null) scheduler.shutdownNow();
+    }
+
+    private static long sum(Map<Integer, CacheFootprint> footprints, ToLongFunction<CacheFootprint> value) {
+        return footprints.values().stream().mapToLong(value).sum();
+    }
+
+    /**
+     * Una shard con su ultima medida.
+     */
+    private static final class Shard {
+        private final JDA jda;
+        private volatile CacheFootprint footprint;
+        private volatile long measuredNanos;
+
+        Shard(JDA jda) {
+            this.jda = jda;
+        }
+
+        CacheFootprint footprint() {
+            CacheFootprint current = footprint;
+            long now = System.nanoTime();
+            if (current == null || now - measuredNanos > MAX_AGE_NANOS) {
+                current = CacheFootprint.of(jda);
+                footprint = current;
+                measuredNanos = now;
+            }
+            return current;
+        }
+    }
+}
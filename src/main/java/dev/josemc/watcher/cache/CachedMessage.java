@@ -0,0 +1,27 @@
+package dev.josemc.watcher.cache;
+
+import java.util.List;
+
+/**
+ * Un mensaje leido del {@link MessageCache}.
+ *
+ * @param messageId   id del mensaje.
+ * @param guildId     id del servidor.
+ * @param channelId   id del canal.
+ * @param authorId    id del autor.
+ * @param content     el contenido, vacio si el bot no tiene el intent {@code MESSAGE_CONTENT}.
+ * @param attachments los adjuntos.
+ */
+public record CachedMessage(long messageId, long guildId, long channelId, long authorId, String content,
+                            List<Attachment> attachments) {
+
+    /**
+     * Un adjunto de un mensaje. Solo se guardan sus datos, no el fichero.
+     *
+     * @param id       id del adjunto.
+     * @param fileName nombre del fichero.
+     * @param size     tamaño en bytes.
+     */
+    public record Attachment(long id, String fileName, int size) {
+    }
+}
@@ -0,0 +1,127 @@
+package dev.josemc.watcher.cache;
+
+import java.util.Arrays;
+
+/**
+ * Mapa de {@code long} a {@code long} con direccionamiento abierto, sin objetos por entrada.
+ * <p>
+ * Las claves y los valores se guardan en dos arrays; las colisiones se resuelven con sondeo lineal y al borrar se
+ * desplazan las entradas siguientes, sin marcas de borrado. La clave 0 no se puede usar. No es seguro entre hilos.
+ */
+final class LongLongMap {
+    /**
+     * Valor devuelto por {@link #get(long)} si la clave no existe.
+     */
+    static final long MISSING = -1;
+
+    private long[] keys;
+    private long[] values;
+    private int mask;
+    private int size;
+
+    /**
+     * @param expected numero de entradas esperado, para no tener que crecer.
+     */
+    LongLongMap(int expected) {
+        int capacity = Integer.highestOneBit(Math.max(16, expected * 2 - 1) << 1);
+        keys = new long[capacity];
+        values = new long[capacity];
+        mask = capacity - 1;
+    }
+
+    long get(long key) {
+        for (int slot = slot(key); ; slot = (slot + 1) & mask) {
+            long current = keys[slot];
+            if (current == key) return values[slot];
+            if (current == 0) return MISSING;
+        }
+    }
+
+    /**
+     * @return el valor anterior, o {@link #MISSING}.
+     */
+    long put(long key, long value) {
+        for (int slot = slot(key); ; slot = (slot + 1) & mask) {
+            long current = keys[slot];
+            if (current == key) {
+                long previous = values[slot];
+                values[slot] = value;
+                return previous;
+            }
+            if (current == 0) {
+                keys[slot] = key;
+                values[slot] = value;
+                // Se mantiene por debajo del 50% de ocupacion para que los sondeos sean cortos.
+                if (++size * 2 > keys.length) resize();
+                return MISSING;
+            }
+        }
+    }
+
+    /**
+     * @return el valor borrado, o {@link #MISSING}.
+     */
+    long remove(long key) {
+        int slot = slot(key);
+        while (keys[slot] != key) {
+            if (keys[slot] == 0) return MISSING;
+            slot = (slot + 1) & mask;
+        }
+        long previous = values[slot];
+
+        // Mover hacia atras las entradas que dependian del hueco, para no romper sus sondeos.
+        int gap = slot;
+        for (int next = (gap + 1) & mask; keys[next] != 0; next = (next + 1) & mask) {
+            int home = slot(keys[next]);
+            if (((next - home) & mask) >= ((next - gap) & mask)) {
+                keys[gap] = keys[next];
+                values[gap] = values[next];
+                gap = next;
+            }
+        }
+        keys[gap] = 0;
+        size--;
+        return previous;
+    }
+
+    int size() {
+        return size;
+    }
+
+    void clear() {
+        Arrays.fill(keys, 0);
+        size = 0;
+    }
+
+    /**
+     * Memoria ocupada por los arrays, en bytes.
+     */
+    long footprintBytes() {
+        return (long) keys.length * Long.BYTES * 2;
+    }
+
+    private void resize() {
+        long[] oldKeys = keys;
+        long[] oldValues = values;
+        keys = new long[oldKeys.length * 2];
+        values = new long[oldValues.length * 2];
+        mask = keys.length - 1;
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] != 0) {
+                for (int slot = slot(oldKeys[i]); ; slot = (slot + 1) & mask) {
+                    if (keys[slot] == 0) {
+                        keys[slot] = oldKeys[i];
+                        values[slot] = oldValues[i];
+                        break;
+                    }
+                }
+            }
+        }
+    }
+
+    private int slot(long key) {
+        // Los ids de Discord tienen los bits bajos casi constantes: se mezclan antes de tomar la casilla.
+        long hash = key * 0x9E3779B97F4A7C15L;
+        return (int) (hash ^ (hash >>> 32)) & mask;
+    }
+}
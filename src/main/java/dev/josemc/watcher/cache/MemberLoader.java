@@ -0,0 +1,28 @@
+package dev.josemc.watcher.cache;
+
+import net.dv8tion.jda.api.entities.Guild;
+import net.dv8tion.jda.api.entities.Member;
+import net.dv8tion.jda.api.requests.RestAction;
+
+/**
+ * Acceso a los miembros de un servidor que funciona con cualquier {@link CacheProfile}.
+ * <p>
+ * Con el perfil {@code lean} los miembros no se guardan en cache, por lo que {@link Guild#getMemberById(long)}
+ * devuelve null. Este metodo devuelve el miembro de la cache si esta y, si no, lo pide a Discord.
+ */
+public final class MemberLoader {
+
+    private MemberLoader() {
+    }
+
+    /**
+     * Obtener un miembro de un servidor, de la cache o bajo demanda.
+     *
+     * @param guild  el servidor.
+     * @param userId id del usuario.
+     * @return una {@link RestAction} que completa al momento si el miembro esta en cache.
+     */
+    public static RestAction<Member> retrieve(Guild guild, long userId) {
+        return guild.retrieveMemberById(userId);
+    }
+}
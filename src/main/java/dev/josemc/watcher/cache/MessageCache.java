@@ -0,0 +1,461 @@
+package dev.josemc.watcher.cache;
+
+import dev.josemc.watcher.Config;
+import dev.josemc.watcher.metrics.WatcherMetrics;
+import net.dv8tion.jda.api.entities.Message;
+import net.dv8tion.jda.api.events.guild.GuildLeaveEvent;
+import net.dv8tion.jda.api.events.message.MessageBulkDeleteEvent;
+import net.dv8tion.jda.api.events.message.MessageDeleteEvent;
+import net.dv8tion.jda.api.events.message.MessageReceivedEvent;
+import net.dv8tion.jda.api.events.message.MessageUpdateEvent;
+import net.dv8tion.jda.api.hooks.ListenerAdapter;
+import net.dv8tion.jda.api.utils.TimeUtil;
+import org.jetbrains.annotations.NotNull;
+
+import javax.annotation.Nullable;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Cache del contenido de los mensajes recientes, para saber que decia un mensaje editado o borrado.
+ * <p>
+ * Los mensajes se guardan fuera del heap, en bloques de memoria directa que se usan como un anillo: al llenarse
+ * todos, se reutiliza el mas antiguo y se quitan del indice sus mensajes. El contenido se guarda en UTF-8, y
+ * comprimido si es largo. En el heap solo quedan el indice de id a posicion, un {@link LongLongMap} sin objetos por
+ * entrada, y los ids de cada servidor en orden de llegada, para aplicar los limites por servidor de numero de
+ * mensajes y de antigüedad. Buscar un mensaje por id es una consulta al indice.
+ * <p>
+ * Formato de un mensaje: {@code longitud(int) mensaje servidor canal autor(long) comprimido(byte)
+ * longitudContenido(int) longitudOriginal(int) contenido adjuntos(byte)} y por cada adjunto {@code id(long)
+ * tamaño(int) longitudNombre(short) nombre}. Una longitud 0 marca el final de un bloque.
+ */
+public class MessageCache extends ListenerAdapter {
+    /**
+     * Tamaño a partir del cual se intenta comprimir el contenido.
+     */
+    static final int COMPRESS_MIN_BYTES = 160;
+
+    /**
+     * Tamaño de cada bloque de memoria.
+     */
+    static final int SLAB_BYTES = 1024 * 1024;
+
+    private static final int HEADER_SIZE = Integer.BYTES + Long.BYTES * 4 + 1 + Integer.BYTES * 2;
+    private static final int ATTACHMENT_HEADER_SIZE = Long.BYTES + Integer.BYTES + Short.BYTES;
+
+    private final int slabBytes;
+    private final ByteBuffer[] slabs;
+    private final int[] slabEnds;
+    private final int maxPerGuild;
+    private final long maxAgeMillis;
+    private final LongLongMap index;
+    private final Map<Long, GuildQueue> guilds = new HashMap<>();
+    private final Deflater deflater = new Deflater(Deflater.BEST_SPEED, true);
+    private final Inflater inflater = new Inflater(true);
+    private byte[] scratch = new byte[4096];
+    private int currentSlab;
+    private int position;
+    private long evicted;
+    private ScheduledExecutorService sweeper;
+
+    /**
+     * @param maxBytes     memoria fuera del heap para los mensajes.
+     * @param slabBytes    tamaño de cada bloque; se reserva cuando se necesita.
+     * @param maxPerGuild  numero maximo de mensajes de cada servidor.
+     * @param maxAgeMillis antigüedad maxima de un mensaje.
+     */
+    public MessageCache(long maxBytes, int slabBytes, int maxPerGuild, long maxAgeMillis) {
+        this.slabBytes = slabBytes;
+        this.slabs = new ByteBuffer[(int) Math.max(2, maxBytes / slabBytes)];
+        this.slabEnds = new int[slabs.length];
+        this.maxPerGuild = maxPerGuild;
+        this.maxAgeMillis = maxAgeMillis;
+        this.index = new LongLongMap(1024);
+        slabs[0] = ByteBuffer.allocateDirect(slabBytes);
+    }
+
+    /**
+     * Crear la cache segun la seccion {@code cache.messages} de la configuracion.
+     *
+     * @param config la configuracion.
+     * @return la cache, ya iniciada.
+     */
+    public static MessageCache fromConfig(Config config) {
+        MessageCache cache = new MessageCache(Math.max(2, config.getLong("cache.messages.max_mb", 64)) * 1024 * 1024, SLAB_BYTES,
+                config.getInt("cache.messages.max_per_guild", 5000), TimeUnit.MINUTES.toMillis(config.getLong("cache.messages.max_age_minutes", 1440)));
+        cache.start();
+        return cache;
+    }
+
+    /**
+     * Empezar a quitar cada minuto los mensajes demasiado antiguos de los servidores sin actividad, y exportar las metricas.
+     */
+    public synchronized void start() {
+        if (sweeper != null) return;
+        sweeper = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "Message-Cache");
+            thread.setDaemon(true);
+            return thread;
+        });
+        sweeper.scheduleWithFixedDelay(this::evictExpired, 1, 1, TimeUnit.MINUTES);
+
+        WatcherMetrics metrics = WatcherMetrics.get();
+        metrics.gauge("watcher_message_cache_messages", this::size);
+        metrics.gauge("watcher_message_cache_offheap_bytes", this::getOffHeapBytes);
+        metrics.gauge("watcher_message_cache_heap_bytes", this::getHeapBytes);
+        metrics.counter("watcher_message_cache_evicted_total", this::getEvicted);
+    }
+
+    /**
+     * Dejar de quitar los mensajes antiguos.
+     */
+    public synchronized void stop() {
+        if (sweeper == null) return;
+        sweeper.shutdownNow();
+        sweeper = null;
+    }
+
+    /**
+     * Guardar un mensaje de un servidor, o sustituirlo si ya estaba.
+     *
+     * @param message el mensaje.
+     */
+    public void put(Message message) {
+        List<CachedMessage.Attachment> attachments = new ArrayList<>(message.getAttachments().size());
+        for (Message.Attachment attachment : message.getAttachments()) {
+            attachments.add(new CachedMessage.Attachment(attachment.getIdLong(), attachment.getFileName(), attachment.getSize()));
+        }
+        put(message.getIdLong(), message.getGuild().getIdLong(), message.getChannel().getIdLong(), message.getAuthor().getIdLong(),
+                message.getContentRaw(), attachments);
+    }
+
+    /**
+     * Guardar un mensaje, o sustituirlo si ya estaba.
+     *
+     * @param messageId   id del mensaje.
+     * @param guildId     id del servidor.
+     * @param channelId   id del canal.
+     * @param authorId    id del autor.
+     * @param content     el contenido.
+     * @param attachments los adjuntos.
+     */
+    public synchronized void put(long messageId, long guildId, long channelId, long authorId, String content, List<CachedMessage.Attachment> attachments) {
+        byte[] raw = content.getBytes(StandardCharsets.UTF_8);
+        int contentLength = raw.length;
+        boolean compressed = false;
+        if (raw.length >= COMPRESS_MIN_BYTES) {
+            deflater.reset();
+            deflater.setInput(raw);
+            deflater.finish();
+            if (scratch.length < raw.length) scratch = new byte[raw.length];
+            int length = deflater.deflate(scratch, 0, raw.length);
+            if (deflater.finished() && length < raw.length) {
+                compressed = true;
+                contentLength = length;
+            }
+        }
+
+        int attachmentCount = Math.min(attachments.size(), 255);
+        byte[][] names = new byte[attachmentCount][];
+        int length = HEADER_SIZE + contentLength + 1;
+        for (int i = 0; i < attachmentCount; i++) {
+            byte[] name = attachments.get(i).fileName().getBytes(StandardCharsets.UTF_8);
+            names[i] = name.length > Short.MAX_VALUE ? new byte[0] : name;
+            length += ATTACHMENT_HEADER_SIZE + names[i].length;
+        }
+        // Un mensaje que no cabe en un bloque no se guarda.
+        if (length + Integer.BYTES > slabBytes) return;
+
+        if (position + length + Integer.BYTES > slabBytes) nextSlab();
+        ByteBuffer slab = slabs[currentSlab];
+        int offset = position;
+        slab.putInt(offset, length);
+        slab.putLong(offset + 4, messageId);
+        slab.putLong(offset + 12, guildId);
+        slab.putLong(offset + 20, channelId);
+        slab.putLong(offset + 28, authorId);
+        slab.put(offset + 36, (byte) (compressed ? 1 : 0));
+        slab.putInt(offset + 37, contentLength);
+        slab.putInt(offset + 41, raw.length);
+        slab.put(offset + HEADER_SIZE, compressed ? scratch : raw, 0, contentLength);
+        int cursor = offset + HEADER_SIZE + contentLength;
+        slab.put(cursor++, (byte) attachmentCount);
+        for (int i = 0; i < attachmentCount; i++) {
+            CachedMessage.Attachment attachment = attachments.get(i);
+            slab.putLong(cursor, attachment.id());
+            slab.putInt(cursor + 8, attachment.size());
+            slab.putShort(cursor + 12, (short) names[i].length);
+            slab.put(cursor + ATTACHMENT_HEADER_SIZE, names[i]);
+            cursor += ATTACHMENT_HEADER_SIZE + names[i].length;
+        }
+        position = cursor;
+        slab.putInt(position, 0);
+        slabEnds[currentSlab] = position;
+
+        if (index.put(messageId, location(currentSlab, offset)) == LongLongMap.MISSING) {
+            GuildQueue queue = guilds.computeIfAbsent(guildId, id -> new GuildQueue());
+            queue.add(messageId);
+            if (queue.size > maxPerGuild) evictOldest(queue);
+            evictExpired(queue, System.currentTimeMillis() - maxAgeMillis);
+        }
+    }
+
+    /**
+     * Buscar un mensaje.
+     *
+     * @param messageId id del mensaje.
+     * @return el mensaje, o null si no esta en la cache.
+     */
+    @Nullable
+    public synchronized CachedMessage get(long messageId) {
+        long location = index.get(messageId);
+        if (location == LongLongMap.MISSING) return null;
+        return read(messageId, location);
+    }
+
+    /**
+     * Quitar un mensaje, por ejemplo al borrarse.
+     *
+     * @param messageId id del mensaje.
+     * @return el mensaje quitado, o null si no estaba en la cache.
+     */
+    @Nullable
+    public synchronized CachedMessage remove(long messageId) {
+        long location = index.remove(messageId);
+        if (location == LongLongMap.MISSING) return null;
+        // El id se queda en la lista del servidor hasta que sale por antigüedad o por tamaño; quitarlo no hace nada.
+        return read(messageId, location);
+    }
+
+    /**
+     * Quitar todos los mensajes de un servidor.
+     *
+     * @param guildId id del servidor.
+     */
+    public synchronized void removeGuild(long guildId) {
+        GuildQueue queue = guilds.remove(guildId);
+        if (queue == null) return;
+        while (queue.size > 0) {
+            index.remove(queue.poll());
+        }
+    }
+
+    /**
+     * Quitar de todos los servidores los mensajes mas antiguos que el limite.
+     */
+    public synchronized void evictExpired() {
+        long limit = System.currentTimeMillis() - maxAgeMillis;
+        guilds.values().removeIf(queue -> {
+            evictExpired(queue, limit);
+            return queue.size == 0;
+        });
+    }
+
+    private void evictExpired(GuildQueue queue, long limit) {
+        // Los ids de Discord llevan su fecha, no hace falta guardarla.
+        while (queue.size > 0 && (queue.peek() >>> TimeUtil.TIMESTAMP_OFFSET) + TimeUtil.DISCORD_EPOCH < limit) {
+            if (index.remove(queue.poll()) != LongLongMap.MISSING) evicted++;
+        }
+    }
+
+    private void evictOldest(GuildQueue queue) {
+        if (index.remove(queue.poll()) != LongLongMap.MISSING) evicted++;
+    }
+
+    /**
+     * Pasar al siguiente bloque, quitando del indice los mensajes que quedaban en el si ya se habia usado.
+     */
+    private void nextSlab() {
+        slabs[currentSlab].putInt(position, 0);
+        currentSlab = (currentSlab + 1) % slabs.length;
+        position = 0;
+
+        ByteBuffer slab = slabs[currentSlab];
+        if (slab == null) {
+            slabs[currentSlab] = ByteBuffer.allocateDirect(slabBytes);
+            return;
+        }
+        for (int offset = 0; offset < slabEnds[currentSlab]; ) {
+            int length = slab.getInt(offset);
+            if (length == 0) break;
+            long messageId = slab.getLong(offset + 4);
+            if (index.get(messageId) == location(currentSlab, offset)) {
+                index.remove(messageId);
+                evicted++;
+            }
+            offset += length;
+        }
+        slabEnds[currentSlab] = 0;
+        slab.putInt(0, 0);
+    }
+
+    private CachedMessage read(long messageId, long location) {
+        ByteBuffer slab = slabs[(int) (location >>> 32)];
+        int offset = (int) location;
+        long guildId = slab.getLong(offset + 12);
+        long channelId = slab.getLong(offset + 20);
+        long authorId = slab.getLong(offset + 28);
+        boolean compressed = slab.get(offset + 36) != 0;
+        int contentLength = slab.getInt(offset + 37);
+        int originalLength = slab.getInt(offset + 41);
+
+        byte[] stored = new byte[contentLength];
+        slab.get(offset + HEADER_SIZE, stored);
+        String content;
+        if (compressed) {
+            byte[] original = new byte[originalLength];
+            inflater.reset();
+            inflater.setInput(stored);
+            try {
+                inflater.inflate(original);
+            } catch (DataFormatException e) {
+                throw new IllegalStateException("Mensaje dañado en la cache: " + messageId, e);
+            }
+            content = new String(original, StandardCharsets.UTF_8);
+        } else {
+            content = new String(stored, StandardCharsets.UTF_8);
+        }
+
+        int cursor = offset + HEADER_SIZE + contentLength;
+        int attachmentCount = slab.get(cursor++) & 0xFF;
+        List<CachedMessage.Attachment> attachments = new ArrayList<>(attachmentCount);
+        for (int i = 0; i < attachmentCount; i++) {
+            byte[] name = new byte[slab.getShort(cursor + 12)];
+            slab.get(cursor + ATTACHMENT_HEADER_SIZE, name);
+            attachments.add(new CachedMessage.Attachment(slab.getLong(cursor), new String(name, StandardCharsets.UTF_8), slab.getInt(cursor + 8)));
+            cursor += ATTACHMENT_HEADER_SIZE + name.length;
+        }
+        return new CachedMessage(messageId, guildId, channelId, authorId, content, List.copyOf(attachments));
+    }
+
+    private static long location(int slab, int offset) {
+        return ((long) slab << 32) | offset;
+    }
+
+    /**
+     * Obtener el numero de mensajes en la cache.
+     *
+     * @return los mensajes.
+     */
+    public synchronized long size() {
+        return index.size();
+    }
+
+    /**
+     * Obtener la memoria fuera del heap reservada para los mensajes.
+     *
+     * @return los bytes reservados.
+     */
+    public synchronized long getOffHeapBytes() {
+        long bytes = 0;
+        for (ByteBuffer slab : slabs) {
+            if (slab != null) bytes += slab.capacity();
+        }
+        return bytes;
+    }
+
+    /**
+     * Obtener la memoria fuera del heap ocupada por mensajes, incluidos los sustituidos que aun no se han reutilizado.
+     *
+     * @return los bytes usados.
+     */
+    public synchronized long getOffHeapUsedBytes() {
+        long bytes = 0;
+        for (int i = 0; i < slabs.length; i++) {
+            if (slabs[i] != null) bytes += i == currentSlab ? position : slabEnds[i];
+        }
+        return bytes;
+    }
+
+    /**
+     * Obtener una estimacion de la memoria del heap usada por el indice y las listas de los servidores.
+     *
+     * @return los bytes.
+     */
+    public synchronized long getHeapBytes() {
+        long bytes = index.footprintBytes();
+        for (GuildQueue queue : guilds.values()) {
+            bytes += 64 + (long) queue.ids.length * Long.BYTES;
+        }
+        return bytes;
+    }
+
+    /**
+     * Obtener el numero de mensajes quitados por los limites de tamaño o antigüedad.
+     *
+     * @return los mensajes quitados.
+     */
+    public synchronized long getEvicted() {
+        return evicted;
+    }
+
+    @Override
+    public void onMessageReceived(@NotNull MessageReceivedEvent event) {
+        if (event.isFromGuild() && !event.getAuthor().equals(event.getJDA().getSelfUser())) put(event.getMessage());
+    }
+
+    @Override
+    public void onMessageUpdate(@NotNull MessageUpdateEvent event) {
+        if (event.isFromGuild()) put(event.getMessage());
+    }
+
+    @Override
+    public void onMessageDelete(@NotNull MessageDeleteEvent event) {
+        if (event.isFromGuild()) remove(event.getMessageIdLong());
+    }
+
+    @Override
+    public void onMessageBulkDelete(@NotNull MessageBulkDeleteEvent event) {
+        for (String messageId : event.getMessageIds()) {
+            remove(Long.parseUnsignedLong(messageId));
+        }
+    }
+
+    @Override
+    public void onGuildLeave(@NotNull GuildLeaveEvent event) {
+        removeGuild(event.getGuild().getIdLong());
+    }
+
+    /**
+     * Ids de los mensajes de un servidor en orden de llegada, en un array circular que crece hasta el limite.
+     */
+    private static final class GuildQueue {
+        long[] ids = new long[16];
+        int head;
+        int size;
+
+        void add(long id) {
+            if (size == ids.length) {
+                long[] grown = new long[ids.length * 2];
+                for (int i = 0; i < size; i++) {
+                    grown[i] = ids[(head + i) % ids.length];
+                }
+                ids = grown;
+                head = 0;
+            }
+            ids[(head + size) % ids.length] = id;
+            size++;
+        }
+
+        long peek() {
+            return ids[head];
+        }
+
+        long poll() {
+            long id = ids[head];
+            head = (head + 1) % ids.length;
+            size--;
+            return id;
+        }
+    }
+}
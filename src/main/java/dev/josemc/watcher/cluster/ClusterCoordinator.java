@@ -0,0 +1,236 @@
+package dev.josemc.watcher.cluster;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.net.InetAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Coordinador de un cluster de procesos que se reparten las shards usando ficheros de bloqueo.
+ * <p>
+ * Las shards se agrupan en rangos ({@code slot-N.lock}) y cada proceso toma hasta {@code maxSlots} rangos
+ * bloqueando su fichero. El proceso que bloquea {@code leader.lock} es el lider. Los bloqueos los libera
+ * el sistema operativo cuando un proceso muere, y los demas procesos los toman en la siguiente comprobacion,
+ * de forma que sus shards pasan a otro proceso. Funciona con varios procesos en la misma maquina o con una
+ * carpeta compartida que soporte bloqueos.
+ */
+public class ClusterCoordinator {
+    private static final Logger log = LoggerFactory.getLogger(ClusterCoordinator.class);
+
+    private final Path directory;
+    private final int totalShards;
+    private final int shardsPerSlot;
+    private final int maxSlots;
+    private final long pollSeconds;
+    private final String owner;
+    private final Map<Integer, FileLock> slots = new TreeMap<>();
+    private final ClusterSessionController sessionController;
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "Cluster-Coordinator");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private FileLock leaderLock;
+    private volatile boolean leader;
+    private Consumer<List<Integer>> onShardsAcquired;
+    private Runnable onLeaderElected;
+
+    /**
+     * @param directory     carpeta compartida por los procesos del cluster.
+     * @param totalShards   numero total de shards del bot.
+     * @param shardsPerSlot shards de cada rango.
+     * @param maxSlots      rangos que puede tomar como maximo este proceso.
+     * @param pollSeconds   cada cuantos segundos se buscan rangos libres y se comprueba el lider.
+     * @throws IOException si no se puede crear la carpeta.
+     */
+    public ClusterCoordinator(Path directory, int totalShards, int shardsPerSlot, int maxSlots, long pollSeconds) throws IOException {
+        if (totalShards <= 0 || shardsPerSlot <= 0 || maxSlots <= 0) {
+            throw new IllegalArgumentException("total_shards, shards_per_slot y max_slots deben ser mayores que 0");
+        }
+        this.directory = directory;
+        this.totalShards = totalShards;
+        this.shardsPerSlot = shardsPerSlot;
+        this.maxSlots = maxSlots;
+        this.pollSeconds = Math.max(1, pollSeconds);
+        this.owner = ManagementFactory.getRuntimeMXBean().getPid() + "@" + hostName();
+        this.sessionController = new ClusterSessionController(directory);
+        Files.createDirectories(directory);
+    }
+
+    /**
+     * Tomar los rangos libres y empezar a vigilar los de los demas procesos.
+     *
+     * @param onShardsAcquired llamado con las shards de cada rango que toma este proceso, tambien al inicio.
+     * @param onLeaderElected  llamado cuando este proceso pasa a ser el lider.
+     */
+    public void start(Consumer<List<Integer>> onShardsAcquired, Runnable onLeaderElected) {
+        this.onShardsAcquired = onShardsAcquired;
+        this.onLeaderElected = onLeaderElected;
+        poll();
+        if (slots.isEmpty()) log.info("Todos los rangos de shards estan ocupados, {} queda en espera", owner);
+        scheduler.scheduleWithFixedDelay(this::poll, pollSeconds, pollSeconds, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Numero de rangos de shards.
+     */
+    public int getSlotCount() {
+        return (totalShards + shardsPerSlot - 1) / shardsPerSlot;
+    }
+
+    /**
+     * Shards de un rango.
+     *
+     * @param slot el rango.
+     * @return los ids de las shards.
+     */
+    public List<Integer> getShards(int slot) {
+        List<Integer> shards = new ArrayList<>();
+        for (int shard = slot * shardsPerSlot; shard < Math.min(totalShards, (slot + 1) * shardsPerSlot); shard++) {
+            shards.add(shard);
+        }
+        return shards;
+    }
+
+    /**
+     * Obtener las shards de este proceso.
+     *
+     * @return los ids de las shards, en orden.
+     */
+    public synchronized List<Integer> getOwnedShards() {
+        List<Integer> shards = new ArrayList<>();
+        slots.keySet().forEach(slot -> shards.addAll(getShards(slot)));
+        return shards;
+    }
+
+    public int getTotalShards() {
+        return totalShards;
+    }
+
+    /**
+     * Comprobar si este proceso es el lider del cluster.
+     */
+    public boolean isLeader() {
+        return leader;
+    }
+
+    /**
+     * Obtener el controlador de sesiones que reparte los identify entre todos los procesos.
+     */
+    public ClusterSessionController getSessionController() {
+        return sessionController;
+    }
+
+    /**
+     * Liberar los rangos y el liderazgo de este proceso.
+     */
+    public synchronized void close() {
+        scheduler.shutdownNow();
+        slots.values().forEach(ClusterCoordinator::release);
+        slots.clear();
+        if (leaderLock != null) release(leaderLock);
+        leaderLock = null;
+        leader = false;
+    }
+
+    private void poll() {
+        List<List<Integer>> acquired = new ArrayList<>();
+        boolean elected = false;
+        synchronized (this) {
+            for (int slot = 0; slot < getSlotCount() && slots.size() < maxSlots; slot++) {
+                if (slots.containsKey(slot)) continue;
+                FileLock lock = tryLock(directory.resolve("slot-" + slot + ".lock"));
+                if (lock != null) {
+                    slots.put(slot, lock);
+                    acquired.add(getShards(slot));
+                    log.info("{} toma el rango {} (shards {})", owner, slot, getShards(slot));
+                }
+            }
+            if (leaderLock == null) {
+                leaderLock = tryLock(directory.resolve("leader.lock"));
+                if (leaderLock != null) {
+                    leader = true;
+                    elected = true;
+                    log.info("{} es el lider del cluster", owner);
+                }
+            }
+        }
+
+        try {
+            acquired.forEach(onShardsAcquired);
+            if (elected) onLeaderElected.run();
+        } catch (RuntimeException e) {
+            log.error("Error al iniciar las shards del cluster", e);
+        }
+    }
+
+    /**
+     * Intentar bloquear un fichero sin esperar, escribiendo en el el proceso que lo bloquea.
+     *
+     * @return el bloqueo, o null si lo tiene otro proceso.
+     */
+    private FileLock tryLock(Path file) {
+        FileChannel channel = null;
+        try {
+            channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            FileLock lock = channel.tryLock();
+            if (lock == null) {
+                channel.close();
+                return null;
+            }
+            channel.truncate(0);
+            channel.write(ByteBuffer.wrap((owner + "\n").getBytes(StandardCharsets.UTF_8)), 0);
+            channel.force(false);
+            return lock;
+        } catch (OverlappingFileLockException e) {
+            close(channel);
+            return null;
+        } catch (IOException e) {
+            close(channel);
+            log.warn("No se pudo bloquear {}", file, e);
+            return null;
+        }
+    }
+
+    private static void release(FileLock lock) {
+        try {
+            lock.release();
+        } catch (IOException ignored) {
+        }
+        close(lock.channel());
+    }
+
+    private static void close(FileChannel channel) {
+        if (channel == null) return;
+        try {
+            channel.close();
+        } catch (IOException ignored) {
+        }
+    }
+
+    private static String hostName() {
+        try {
+            return InetAddress.getLocalHost().getHostName();
+        } catch (IOException e) {
+            return "localhost";
+        }
+    }
+}
@@ -0,0 +1,110 @@
+package dev.josemc.watcher.cluster;
+
+import net.dv8tion.jda.api.JDA;
+import net.dv8tion.jda.api.utils.ConcurrentSessionController;
+import org.jetbrains.annotations.NotNull;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * {@link ConcurrentSessionController} que respeta el limite de identify entre todos los procesos del cluster.
+ * <p>
+ * Cada grupo de identify ({@code shardId % max_concurrency}) tiene un fichero {@code identify-N.lock}
+ * con la hora del ultimo identify. Antes de conectar una shard se bloquea el fichero de su grupo y se espera
+ * hasta que hayan pasado {@link #IDENTIFY_DELAY} segundos desde el ultimo identify de cualquier proceso.
+ */
+public class ClusterSessionController extends ConcurrentSessionController {
+    private static final Logger log = LoggerFactory.getLogger(ClusterSessionController.class);
+
+    private final Path directory;
+    private final Map<SessionConnectNode, SessionConnectNode> nodes = new ConcurrentHashMap<>();
+    private volatile int concurrency = 1;
+
+    ClusterSessionController(Path directory) {
+        this.directory = directory;
+    }
+
+    @Override
+    public void setConcurrency(int level) {
+        concurrency = Math.max(1, level);
+        super.setConcurrency(level);
+    }
+
+    @Override
+    public void appendSession(@NotNull SessionConnectNode node) {
+        SessionConnectNode wrapped = new StaggeredNode(node);
+        nodes.put(node, wrapped);
+        super.appendSession(wrapped);
+    }
+
+    @Override
+    public void removeSession(@NotNull SessionConnectNode node) {
+        SessionConnectNode wrapped = nodes.remove(node);
+        super.removeSession(wrapped != null ? wrapped : node);
+    }
+
+    /**
+     * Conexion de una shard que espera su turno en el fichero de su grupo de identify.
+     */
+    private final class StaggeredNode implements SessionConnectNode {
+        private final SessionConnectNode delegate;
+
+        StaggeredNode(SessionConnectNode delegate) {
+            this.delegate = delegate;
+        }
+
+        @Override
+        public boolean isReconnect() {
+            return delegate.isReconnect();
+        }
+
+        @NotNull
+        @Override
+        public JDA getJDA() {
+            return delegate.getJDA();
+        }
+
+        @NotNull
+        @Override
+        public JDA.ShardInfo getShardInfo() {
+            return delegate.getShardInfo();
+        }
+
+        @Override
+        public void run(boolean isLast) throws InterruptedException {
+            nodes.remove(delegate);
+            boolean connected = false;
+            int bucket = getShardInfo().getShardId() % concurrency;
+            Path file = directory.resolve("identify-" + bucket + ".lock");
+            try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+                FileLock lock = channel.lock();
+                try {
+                    ByteBuffer buffer = ByteBuffer.allocate(Long.BYTES);
+                    long last = channel.read(buffer, 0) == Long.BYTES ? buffer.flip().getLong() : 0;
+                    long wait = last + IDENTIFY_DELAY * 1000L - System.currentTimeMillis();
+                    if (wait > 0) Thread.sleep(Math.min(wait, IDENTIFY_DELAY * 1000L));
+
+                    connected = true;
+                    delegate.run(isLast);
+
+                    channel.write(ByteBuffer.allocate(Long.BYTES).putLong(0, System.currentTimeMillis()), 0);
+                    channel.force(false);
+                } finally {
+                    lock.release();
+                }
+            } catch (IOException e) {
+                log.warn("No se pudo usar {}, la shard {} conecta sin coordinar el identify", file, getShardInfo().getShardId(), e);
+                if (!connected) delegate.run(isLast);
+            }
+        }
+    }
+}
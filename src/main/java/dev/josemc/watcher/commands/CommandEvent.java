@@ -1,7 +1,8 @@
 package dev.josemc.watcher.commands;
 
 import dev.josemc.watcher.Bot;
-import lombok.Getter;
+import dev.josemc.watcher.i18n.LocaleBundle;
+import dev.josemc.watcher.storage.GuildSettings;
 import lombok.NonNull;
 import net.dv8tion.jda.api.entities.Member;
 import net.dv8tion.jda.api.entities.Message;
@@ -10,7 +11,6 @@ import net.dv8tion.jda.api.entities.channel.concrete.TextChannel;
 import net.dv8tion.jda.api.entities.channel.unions.MessageChannelUnion;
 import net.dv8tion.jda.api.events.interaction.command.SlashCommandInteractionEvent;
 import net.dv8tion.jda.api.interactions.InteractionHook;
-import net.dv8tion.jda.api.utils.messages.MessageCreateBuilder;
 import net.dv8tion.jda.api.utils.messages.MessageCreateData;
 import org.jetbrains.annotations.NotNull;
 
@@ -20,7 +20,6 @@ public class CommandEvent {
     /**
     * Nombre del comando ejecutado
     * */
-    @Getter
     String command;
 
     /**
@@ -53,6 +52,27 @@ public class CommandEvent {
     @Nullable
     SlashCommandInteractionEvent slashCommandInteractionEvent;
 
+    /**
+     * Gestor de comandos que creo el evento, usado para enviar las respuestas.
+     * */
+    final CommandManager commandManager;
+
+    /**
+     * Respuesta a la interaccion, que decide si responder directamente o con un mensaje de seguimiento.
+     * */
+    @Nullable
+    final InteractionResponder responder;
+
+    /**
+     * Si ya se ha enviado alguna respuesta.
+     * */
+    volatile boolean replied;
+
+    /**
+     * Textos del idioma del evento, resueltos al usarlos por primera vez.
+     * */
+    LocaleBundle bundle;
+
     /**
      * Constructor used to save the Data.
      *
@@ -63,6 +83,38 @@ public class CommandEvent {
      * @param slashCommandInteractionEvent the {@link SlashCommandInteractionEvent} Entity.
      */
     public CommandEvent(String command, @NonNull Member member, @NonNull Message message, @NonNull MessageChannelUnion channel, @Nullable String[] arguments, @Nullable SlashCommandInteractionEvent slashCommandInteractionEvent) {
+        this(Bot.getInstance().getCommandManager(), command, member, message, channel, arguments, slashCommandInteractionEvent);
+    }
+
+    /**
+     * Constructor used to save the Data.
+     *
+     * @param commandManager               the {@link CommandManager} that handles the Command.
+     * @param command                      the Command Name.
+     * @param member                       the {@link Member} Entity.
+     * @param message                      the {@link Message} Entity.
+     * @param arguments                    the given Arguments.
+     * @param slashCommandInteractionEvent the {@link SlashCommandInteractionEvent} Entity.
+     */
+    public CommandEvent(CommandManager commandManager, String command, @NonNull Member member, @NonNull Message message, @NonNull MessageChannelUnion channel, @Nullable String[] arguments, @Nullable SlashCommandInteractionEvent slashCommandInteractionEvent) {
+        this(commandManager, command, member, message, channel, arguments, slashCommandInteractionEvent,
+                slashCommandInteractionEvent != null ? new InteractionResponder(slashCommandInteractionEvent, commandManager.getOutbound()) : null);
+    }
+
+    /**
+     * Constructor used to save the Data.
+     *
+     * @param commandManager               the {@link CommandManager} that handles the Command.
+     * @param command                      the Command Name.
+     * @param member                       the {@link Member} Entity.
+     * @param message                      the {@link Message} Entity.
+     * @param arguments                    the given Arguments.
+     * @param slashCommandInteractionEvent the {@link SlashCommandInteractionEvent} Entity.
+     * @param responder                    the {@link InteractionResponder} of the Slash Command.
+     */
+    public CommandEvent(CommandManager commandManager, String command, @NonNull Member member, @NonNull Message message, @NonNull MessageChannelUnion channel, @Nullable String[] arguments, @Nullable SlashCommandInteractionEvent slashCommandInteractionEvent, @Nullable InteractionResponder responder) {
+        this.commandManager = commandManager;
+        this.responder = responder;
         this.command = command;
         this.member = member;
         this.message = message;
@@ -77,9 +129,7 @@ public class CommandEvent {
      * @param message the Message to reply with.
      */
     public void reply(String message) {
-        MessageCreateBuilder messageCreateBuilder = new MessageCreateBuilder();
-        messageCreateBuilder.setContent(message);
-        reply(messageCreateBuilder.build());
+        reply(MessageCreateData.fromContent(message));
     }
 
     /**
@@ -88,9 +138,17 @@ public class CommandEvent {
      * @param message the Message to reply with.
      */
     public void reply(MessageEmbed message) {
-        MessageCreateBuilder messageCreateBuilder = new MessageCreateBuilder();
-        messageCreateBuilder.setEmbeds(message);
-        reply(messageCreateBuilder.build());
+        reply(MessageCreateData.fromEmbeds(message));
+    }
+
+    /**
+     * Reply to the Command execution with a localized Message.
+     *
+     * @param key  the key of the text or embed in the language files.
+     * @param args the arguments of the text.
+     */
+    public void replyResource(String key, Object... args) {
+        reply(getBundle().message(key, args));
     }
 
     /**
@@ -99,7 +157,54 @@ public class CommandEvent {
      * @param message the Message to reply with.
      */
     public void reply(MessageCreateData message) {
-        Bot.getInstance().getCommandManager().sendMessage(message, getChannel(), getInteractionHook());
+        replied = true;
+        if (responder != null) responder.reply(message);
+        else commandManager.sendMessage(message, getChannel());
+    }
+
+    /**
+     * Get a localized text in the language of the Event.
+     *
+     * @param key  the key of the text in the language files.
+     * @param args the arguments of the text.
+     * @return the text.
+     */
+    public String getResource(String key, Object... args) {
+        return getBundle().get(key, args);
+    }
+
+    /**
+     * Get the texts in the language of the Event: the user or guild locale for Slash Commands, the guild locale otherwise.
+     *
+     * @return the {@link LocaleBundle}.
+     */
+    public LocaleBundle getBundle() {
+        LocaleBundle current = bundle;
+        if (current == null) {
+            current = isSlashCommand()
+                    ? commandManager.getLocalization().resolve(getSlashCommandInteractionEvent().getInteraction())
+                    : commandManager.getLocalization().resolve(member != null ? member.getGuild() : null);
+            bundle = current;
+        }
+        return current;
+    }
+
+    /**
+     * Get the {@link CommandManager} that handles the Command.
+     *
+     * @return the {@link CommandManager}.
+     */
+    public CommandManager getCommandManager() {
+        return commandManager;
+    }
+
+    /**
+     * Get the name of the executed Command.
+     *
+     * @return the Command name.
+     */
+    public String getCommand() {
+        return command;
     }
 
     /**
@@ -112,6 +217,15 @@ public class CommandEvent {
     }
 
 
+    /**
+     * Get the {@link GuildSettings} of the Guild where the Command was executed.
+     *
+     * @return the {@link GuildSettings} of the Guild.
+     */
+    public GuildSettings getGuildSettings() {
+        return Bot.getInstance().getGuildSettingsStore().get(getMember().getGuild().getIdLong());
+    }
+
     /**
      * Get the {@link Message} Entity associated with the Event.
      *
@@ -162,10 +276,12 @@ public class CommandEvent {
 
     /**
      * Get the {@link InteractionHook} from the {@link SlashCommandInteractionEvent}.
+     * If the Interaction has not been answered yet, the reply is deferred first so the hook can be used.
      *
      * @return the {@link InteractionHook} Entity.
      */
     public InteractionHook getInteractionHook() {
+        if (responder != null) return responder.getHook().setEphemeral(true);
         if (isSlashCommand()) return getSlashCommandInteractionEvent().getHook().setEphemeral(true);
 
         return null;
@@ -0,0 +1,136 @@
+package dev.josemc.watcher.commands;
+
+import dev.josemc.watcher.commands.interfaces.Command;
+import dev.josemc.watcher.commands.interfaces.ICommand;
+import net.dv8tion.jda.api.Permission;
+import net.dv8tion.jda.api.interactions.commands.build.CommandData;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Indice inmutable de los comandos registrados.
+ * <p>
+ * Se construye una unica vez cada vez que cambia la lista de comandos, de forma que
+ * las busquedas durante la ejecucion son una consulta a un {@link Map} sin reflexion
+ * ni llamadas a {@link ICommand#getCommandData()}.
+ */
+public final class CommandIndex {
+
+    /**
+     * Indice vacio, usado antes de registrar ningun comando.
+     */
+    static final CommandIndex EMPTY = new CommandIndex(List.of(), Map.of(), Map.of(), Map.of(), Map.of());
+
+    private final List<ICommand> commands;
+    private final Map<String, ICommand> byName;
+    private final Map<String, ICommand> bySlashName;
+    private final Map<ICommand, Command> annotations;
+    private final Map<ICommand, Long> permissions;
+
+    private CommandIndex(List<ICommand> commands, Map<String, ICommand> byName, Map<String, ICommand> bySlashName, Map<ICommand, Command> annotations, Map<ICommand, Long> permissions) {
+        this.commands = commands;
+        this.byName = byName;
+        this.bySlashName = bySlashName;
+        this.annotations = annotations;
+        this.permissions = permissions;
+    }
+
+    /**
+     * Construye el indice para los comandos dados.
+     *
+     * @param commands los comandos, en orden de registro.
+     * @return el nuevo indice.
+     */
+    static CommandIndex of(Collection<ICommand> commands) {
+        Map<String, ICommand> byName = new HashMap<>();
+        Map<String, ICommand> bySlashName = new HashMap<>();
+        Map<ICommand, Command> annotations = new IdentityHashMap<>();
+        Map<ICommand, Long> permissions = new IdentityHashMap<>();
+
+        for (ICommand command : commands) {
+            Command annotation = command.getClass().getAnnotation(Command.class);
+            annotations.put(command, annotation);
+            if (annotation.permissions().length > 0) permissions.put(command, Permission.getRaw(annotation.permissions()));
+
+            String name = fold(annotation.name());
+            byName.putIfAbsent(name, command);
+            for (String alias : command.getAlias()) {
+                byName.putIfAbsent(fold(alias), command);
+            }
+
+            CommandData commandData = command.getCommandData();
+            if (commandData != null) {
+                bySlashName.putIfAbsent(fold(commandData.getName()), command);
+            }
+            bySlashName.putIfAbsent(name, command);
+        }
+
+        return new CommandIndex(List.copyOf(commands), Map.copyOf(byName), Map.copyOf(bySlashName), annotations, permissions);
+    }
+
+    /**
+     * Normaliza un nombre para las busquedas.
+     *
+     * @param name el nombre.
+     * @return el nombre en minusculas.
+     */
+    static String fold(String name) {
+        return name.toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * Obtener un comando por nombre o alias.
+     *
+     * @param name nombre del comando.
+     * @return el {@link ICommand} o null si no existe.
+     */
+    public ICommand getByName(String name) {
+        return byName.get(fold(name));
+    }
+
+    /**
+     * Obtener un comando por el nombre slash.
+     *
+     * @param name nombre slash del comando.
+     * @return el {@link ICommand} o null si no existe.
+     */
+    public ICommand getBySlashName(String name) {
+        ICommand command = bySlashName.get(name);
+        return command != null ? command : bySlashName.get(fold(name));
+    }
+
+    /**
+     * Obtener la anotacion {@link Command} de un comando registrado.
+     *
+     * @param command el comando.
+     * @return la anotacion, o null si el comando no esta en el indice.
+     */
+    public Command getAnnotation(ICommand command) {
+        return annotations.get(command);
+    }
+
+    /**
+     * Obtener los permisos que declara un comando en {@link Command#permissions()}.
+     *
+     * @param command el comando.
+     * @return los permisos, como en {@link Permission#getRaw(Permission...)}, o 0 si no necesita ninguno.
+     */
+    public long getPermissions(ICommand command) {
+        Long raw = permissions.get(command);
+        return raw != null ? raw : 0;
+    }
+
+    /**
+     * Obtener todos los comandos del indice.
+     *
+     * @return una {@link List} inmutable con los comandos.
+     */
+    public List<ICommand> getCommands() {
+        return commands;
+    }
+}
@@ -1,29 +1,52 @@
 package dev.josemc.watcher.commands;
 
 import ch.qos.logback.classic.Logger;
+import dev.josemc.watcher.Bot;
+import dev.josemc.watcher.Config;
+import dev.josemc.watcher.autocomplete.AutoCompleteIndex;
 import dev.josemc.watcher.commands.exceptions.CommandInitializerException;
+import dev.josemc.watcher.commands.executor.CommandExecutor;
+import dev.josemc.watcher.commands.executor.CommandExecutors;
+import dev.josemc.watcher.commands.executor.GuildFairCommandExecutor;
 import dev.josemc.watcher.commands.interfaces.Command;
 import dev.josemc.watcher.commands.interfaces.ICommand;
+import dev.josemc.watcher.commands.permissions.PermissionCache;
+import dev.josemc.watcher.commands.ratelimit.CommandRateLimiter;
+import dev.josemc.watcher.i18n.Localization;
+import dev.josemc.watcher.messages.JdaMessageDeleter;
+import dev.josemc.watcher.messages.MessageDeletionScheduler;
+import dev.josemc.watcher.messages.OutboundScheduler;
+import dev.josemc.watcher.metrics.CommandMetrics;
+import dev.josemc.watcher.metrics.WatcherMetrics;
+import dev.josemc.watcher.plugins.PluginClassLoader;
 import net.dv8tion.jda.api.EmbedBuilder;
 import net.dv8tion.jda.api.JDA;
 import net.dv8tion.jda.api.Permission;
 import net.dv8tion.jda.api.entities.Message;
+import net.dv8tion.jda.api.entities.channel.middleman.GuildChannel;
 import net.dv8tion.jda.api.entities.channel.middleman.MessageChannel;
 import net.dv8tion.jda.api.entities.channel.unions.MessageChannelUnion;
+import net.dv8tion.jda.api.events.interaction.command.CommandAutoCompleteInteractionEvent;
 import net.dv8tion.jda.api.events.interaction.command.SlashCommandInteractionEvent;
 import net.dv8tion.jda.api.interactions.InteractionHook;
+import net.dv8tion.jda.api.interactions.commands.DefaultMemberPermissions;
 import net.dv8tion.jda.api.interactions.commands.build.CommandData;
+import net.dv8tion.jda.api.interactions.commands.build.OptionData;
 import net.dv8tion.jda.api.requests.restaction.CommandListUpdateAction;
-import net.dv8tion.jda.api.utils.messages.MessageCreateBuilder;
 import net.dv8tion.jda.api.utils.messages.MessageCreateData;
 import net.dv8tion.jda.internal.interactions.CommandDataImpl;
 import org.reflections.Reflections;
 import org.slf4j.LoggerFactory;
 
 import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Modifier;
 import java.util.ArrayList;
-import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
 import java.util.Set;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
 /*
 * Source (https://github.com/Ree6-Applications/Ree6)
@@ -37,13 +60,66 @@ public class CommandManager {
     Logger log = (Logger) LoggerFactory.getLogger(CommandManager.class);
 
     /**
-     * Lista de todos los comandos registrados
+     * Indice inmutable de los comandos registrados. Cada cambio crea un indice nuevo y lo sustituye de una vez,
+     * de forma que la ejecucion de los comandos lo lee sin bloqueos.
      */
-    static final ArrayList<ICommand> commands = new ArrayList<>();
+    static volatile CommandIndex index = CommandIndex.EMPTY;
+
+    /**
+     * Ejecutor donde se ejecutan los comandos.
+     */
+    private volatile CommandExecutor executor = CommandExecutors.bounded(Runtime.getRuntime().availableProcessors() * 2, 256);
+
+    /**
+     * Limites de uso de los comandos.
+     */
+    private final CommandRateLimiter rateLimiter = new CommandRateLimiter();
+
+    /**
+     * Cola de salida de los mensajes y borrados, por prioridad y ruta.
+     */
+    private final OutboundScheduler outbound = OutboundScheduler.fromConfig(Bot.getConfig());
+
+    /**
+     * Planificador de los borrados retrasados de mensajes.
+     */
+    private final MessageDeletionScheduler deletionScheduler = new MessageDeletionScheduler(new JdaMessageDeleter(outbound), 250, 512);
+
+    /**
+     * Textos de las respuestas en cada idioma.
+     */
+    private volatile Localization localization = Localization.builtin();
+
+    /**
+     * Indices de los nombres usados para autocompletar las opciones de los comandos.
+     */
+    private final AutoCompleteIndex autoCompleteIndex = new AutoCompleteIndex();
+
+    /**
+     * Permisos de los miembros, para los comandos que declaran {@link Command#permissions()}.
+     */
+    private final PermissionCache permissionCache = PermissionCache.fromConfig(Bot.getConfig());
+
+    /**
+     * false una vez se empieza a apagar el bot; los comandos nuevos se rechazan.
+     */
+    private volatile boolean accepting = true;
+
+    /**
+     * Milisegundos que se espera a la respuesta de un comando antes de aplazarla, si no se indica en {@code command_defer}.
+     */
+    static final int DEFAULT_DEFER_MILLIS = 1500;
+
+    /**
+     * Planificador usado para cancelar los comandos que superan su tiempo maximo y aplazar las respuestas.
+     * Los temporizadores cancelados se eliminan al momento, ya que casi todos los aplazamientos se cancelan.
+     */
+    private final ScheduledExecutorService timeoutScheduler = createTimeoutScheduler();
 
     /**
      * Constructor usado para registrar todos los comandos
      *
+     * @param scanClasspath si es true, busca los comandos escaneando el classpath en lugar de usar el registro generado.
      * @throws CommandInitializerException error cargando el comando.
      * @throws IllegalStateException       error cargando un comando invalido.
      * @throws IllegalAccessException      instancia de Command no es accesible.
@@ -51,15 +127,41 @@ public class CommandManager {
      * @throws NoSuchMethodException       constructor de Command no encontrado.
      * @throws InvocationTargetException   instancia del constructor del Command no encontrado.
      */
-    public CommandManager() throws CommandInitializerException, InstantiationException, IllegalAccessException, NoSuchMethodException, InvocationTargetException {
+    public CommandManager(boolean scanClasspath) throws CommandInitializerException, InstantiationException, IllegalAccessException, NoSuchMethodException, InvocationTargetException {
         log.info("Cargando comandos...");
+        long start = System.nanoTime();
+        deletionScheduler.start();
+
+        if (scanClasspath) {
+            Reflections reflections = new Reflections("dev.josemc.watcher.commands");
+            Set<Class<? extends ICommand>> classes = reflections.getSubTypesOf(ICommand.class);
+
+            for (Class<? extends ICommand> aClass : classes) {
+                // Clases base como TypedCommand.
+                if (Modifier.isAbstract(aClass.getModifiers())) continue;
+                log.info("Cargando comando {}", aClass.getSimpleName());
+                addCommand(aClass.getDeclaredConstructor().newInstance());
+            }
+        } else {
+            for (ICommand command : GeneratedCommands.create()) {
+                log.info("Cargando comando {}", command.getClass().getSimpleName());
+                addCommand(command);
+            }
+        }
 
-        Reflections reflections = new Reflections("dev.josemc.watcher.commands");
-        Set<Class<? extends ICommand>> classes = reflections.getSubTypesOf(ICommand.class);
+        log.info("{} comandos cargados en {} ms ({})", getCommands().size(), TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start), scanClasspath ? "escaneo" : "registro");
+    }
 
-        for (Class<? extends ICommand> aClass : classes) {
-            log.info("Cargando comando {}", aClass.getSimpleName());
-            addCommand(aClass.getDeclaredConstructor().newInstance());
+    /**
+     * Constructor usado para registrar una lista concreta de comandos, sin escanear el classpath.
+     *
+     * @param commands los comandos a registrar.
+     * @throws CommandInitializerException error cargando el comando.
+     */
+    public CommandManager(Collection<? extends ICommand> commands) throws CommandInitializerException {
+        deletionScheduler.start();
+        for (ICommand command : commands) {
+            addCommand(command);
         }
     }
 
@@ -69,34 +171,41 @@ public class CommandManager {
      * @param jda Instancia del bot.
      */
     public CommandListUpdateAction addSlashCommand(JDA jda) {
-        CommandListUpdateAction listUpdateAction = jda.updateCommands();
+        return jda.updateCommands().addCommands(getSlashCommandData());
+    }
+
+    /**
+     * Generar el {@link CommandData} de todos los comandos registrados.
+     *
+     * @return una {@link List} con el {@link CommandData} de cada comando.
+     */
+    public List<CommandData> getSlashCommandData() {
+        CommandIndex currentIndex = index;
+        List<CommandData> commandDataList = new ArrayList<>(currentIndex.getCommands().size());
 
-        for (ICommand command : getCommands()) {
-            Command commandAnnotation = command.getClass().getAnnotation(Command.class);
+        for (ICommand command : currentIndex.getCommands()) {
+            Command commandAnnotation = currentIndex.getAnnotation(command);
 
-            CommandData commandData;
+            CommandData commandData = command.getCommandData();
 
-            if (command.getCommandData() != null) {
-                commandData = command.getCommandData();
-            } else {
-                commandData = new CommandDataImpl(command.getClass().getAnnotation(Command.class).name(), command.getClass().getAnnotation(Command.class).description());
+            if (commandData == null) {
+                commandData = new CommandDataImpl(commandAnnotation.name(), commandAnnotation.description());
             }
 
             if (commandData instanceof CommandDataImpl commandData1) {
-                String description = command.getClass().getAnnotation(Command.class).description();
-
-                commandData1.setDescription(description);
-                commandData1.setGuildOnly(true);
-
-                listUpdateAction.addCommands(commandData1);
-            } else {
-                commandData.setGuildOnly(true);
+                commandData1.setDescription(commandAnnotation.description());
+            }
+            commandData.setGuildOnly(true);
 
-                listUpdateAction.addCommands(commandData);
+            // Discord hides the Command from members without the permissions; performSlashCommand checks them anyway.
+            if (commandAnnotation.permissions().length > 0 && commandData.getDefaultPermissions() == DefaultMemberPermissions.ENABLED) {
+                commandData.setDefaultPermissions(DefaultMemberPermissions.enabledFor(commandAnnotation.permissions()));
             }
+
+            commandDataList.add(commandData);
         }
 
-        return listUpdateAction;
+        return commandDataList;
     }
 
     /**
@@ -106,11 +215,40 @@ public class CommandManager {
      * @throws CommandInitializerException error al cargar el comando.
      */
     public void addCommand(ICommand command) throws CommandInitializerException {
-        if (!command.getClass().isAnnotationPresent(Command.class))
-            throw new CommandInitializerException(command.getClass());
+        replaceCommands(List.of(), List.of(command));
+    }
 
-        if (!commands.contains(command)) {
-            commands.add(command);
+    /**
+     * Quitar y añadir varios comandos en un unico cambio del indice, por ejemplo al recargar un plugin.
+     * Las ejecuciones nunca ven un indice con solo parte de los cambios.
+     *
+     * @param removed los comandos a quitar.
+     * @param added   los comandos a añadir.
+     * @throws CommandInitializerException si algun comando no es valido o su nombre ya esta registrado; no se cambia nada.
+     *                                     Se comprueba el nombre slash, con el que Discord envia el comando, o el de
+     *                                     {@link Command#name()} si el comando no es un SlashCommand.
+     */
+    public void replaceCommands(Collection<? extends ICommand> removed, Collection<? extends ICommand> added) throws CommandInitializerException {
+        for (ICommand command : added) {
+            if (!command.getClass().isAnnotationPresent(Command.class))
+                throw new CommandInitializerException(command.getClass());
+        }
+
+        synchronized (CommandManager.class) {
+            List<ICommand> updated = new ArrayList<>(index.getCommands());
+            updated.removeAll(removed);
+            CommandIndex remaining = CommandIndex.of(updated);
+            for (ICommand command : added) {
+                if (updated.contains(command)) continue;
+                CommandData commandData = command.getCommandData();
+                String name = commandData != null ? commandData.getName() : command.getClass().getAnnotation(Command.class).name();
+                if (commandData != null ? remaining.getBySlashName(name) != null : remaining.getByName(name) != null)
+                    throw new CommandInitializerException(command.getClass().getName(), "Command name already registered: " + name);
+            }
+            for (ICommand command : added) {
+                if (!updated.contains(command)) updated.add(command);
+            }
+            index = CommandIndex.of(updated);
         }
     }
 
@@ -121,8 +259,7 @@ public class CommandManager {
      * @return el {@link ICommand} con el mismo nombre.
      */
     public ICommand getCommandByName(String name) {
-        return getCommands().stream().filter(command -> command.getClass().getAnnotation(Command.class).name().equalsIgnoreCase(name) || Arrays.stream(command.getAlias()).anyMatch(s -> s.equalsIgnoreCase(name))).findFirst().orElse(null);
-
+        return index.getByName(name);
     }
 
     /**
@@ -132,7 +269,7 @@ public class CommandManager {
      * @return el {@link ICommand} con el mismo nombre.
      */
     public ICommand getCommandBySlashName(String name) {
-        return getCommands().stream().filter(command -> (command.getCommandData() != null && command.getCommandData().getName().equalsIgnoreCase(name)) || (command.getClass().isAnnotationPresent(Command.class) && command.getClass().getAnnotation(Command.class).name().equalsIgnoreCase(name))).findFirst().orElse(null);
+        return index.getBySlashName(name);
     }
 
     /**
@@ -141,16 +278,84 @@ public class CommandManager {
      * @param command comando que a eliminar.
      */
     public void removeCommand(ICommand command) {
-        commands.remove(command);
+        synchronized (CommandManager.class) {
+            List<ICommand> updated = new ArrayList<>(index.getCommands());
+            if (updated.remove(command)) {
+                index = CommandIndex.of(updated);
+            }
+        }
     }
 
     /**
      * Obtener todos los comandos de la lista.
      *
-     * @return a {@link ArrayList} con todos los comandos.
+     * @return una {@link List} inmutable con todos los comandos.
      */
-    public ArrayList<ICommand> getCommands() {
-        return commands;
+    public List<ICommand> getCommands() {
+        return index.getCommands();
+    }
+
+    /**
+     * Cambiar el ejecutor de comandos.
+     *
+     * @param executor el nuevo {@link CommandExecutor}.
+     */
+    public void setExecutor(CommandExecutor executor) {
+        this.executor = executor;
+    }
+
+    /**
+     * Obtener el ejecutor de comandos.
+     *
+     * @return el {@link CommandExecutor} actual.
+     */
+    public CommandExecutor getExecutor() {
+        return executor;
+    }
+
+    /**
+     * Ejecutar un comando en el {@link CommandExecutor}, aplicando su tiempo maximo.
+     *
+     * @param command      el comando.
+     * @param commandEvent el evento de la ejecucion.
+     */
+    public void execute(ICommand command, CommandEvent commandEvent) {
+        // Los comandos de un plugin lo mantienen cargado hasta que terminan, aunque se recargue mientras tanto. Si el
+        // plugin se cerro despues de buscar el comando, se usa el de la recarga: sin plugin cargado no se ejecuta.
+        PluginClassLoader plugin = null;
+        while (command.getClass().getClassLoader() instanceof PluginClassLoader loader) {
+            if (loader.acquire()) {
+                plugin = loader;
+                break;
+            }
+            // Varios comandos pueden compartir el nombre de la anotacion; el nombre slash es unico.
+            SlashCommandInteractionEvent slashEvent = commandEvent.getSlashCommandInteractionEvent();
+            ICommand reloaded = slashEvent != null ? index.getBySlashName(slashEvent.getName()) : index.getByName(commandEvent.getCommand());
+            if (reloaded == null || reloaded == command) {
+                log.warn("Comando {} no ejecutado, su plugin se ha cerrado", commandEvent.getCommand());
+                commandEvent.replyResource("command.perform.notFound");
+                return;
+            }
+            command = reloaded;
+        }
+        CommandTask task = new CommandTask(command, commandEvent, plugin);
+        if (!executor.submit(commandEvent.getMember().getGuild().getIdLong(), task)) {
+            task.onRejected();
+        }
+    }
+
+    /**
+     * Dejar de aceptar comandos y esperar a que terminen los que estan en curso o en cola.
+     *
+     * @param timeout tiempo maximo de espera.
+     * @param unit    unidad del tiempo.
+     * @return true, si terminaron todos los comandos.
+     * @throws InterruptedException si el hilo fue interrumpido mientras esperaba.
+     */
+    public boolean drain(long timeout, TimeUnit unit) throws InterruptedException {
+        accepting = false;
+        executor.shutdown();
+        return executor.awaitTermination(timeout, unit);
     }
 
     /**
@@ -173,20 +378,68 @@ public class CommandManager {
      */
     private boolean performSlashCommand(MessageChannelUnion textChannel, SlashCommandInteractionEvent slashCommandInteractionEvent) {
         //Get the Command by the Slash Command Name.
-        ICommand command = getCommandBySlashName(slashCommandInteractionEvent.getName());
+        CommandIndex currentIndex = index;
+        ICommand command = currentIndex.getBySlashName(slashCommandInteractionEvent.getName());
+
+        InteractionResponder responder = new InteractionResponder(slashCommandInteractionEvent, outbound);
+
+        if (!accepting) {
+            responder.reply(localization.resolve(slashCommandInteractionEvent.getInteraction()).message("command.perform.restarting"));
+            return false;
+        }
 
         // Check if there is a command with that Name.
         if (command == null || slashCommandInteractionEvent.getGuild() == null || slashCommandInteractionEvent.getMember() == null) {
-            sendMessage("command.perform.notFound", null, slashCommandInteractionEvent.getHook().setEphemeral(true));
+            responder.reply(localization.resolve(slashCommandInteractionEvent.getInteraction()).message("command.perform.notFound"));
             return false;
         }
 
+        Command commandAnnotation = currentIndex.getAnnotation(command);
+
+        // Check the permissions declared on the Command, before spending a use of its limits.
+        long permissions = currentIndex.getPermissions(command);
+        if (permissions != 0 && !permissionCache.hasPermissions(slashCommandInteractionEvent.getMember(), textChannel instanceof GuildChannel guildChannel ? guildChannel : null, permissions)) {
+            responder.reply(localization.resolve(slashCommandInteractionEvent.getInteraction()).message("command.perform.noPermission"));
+            return false;
+        }
+
+        // Check the usage limits declared on the Command.
+        if (rateLimiter.tryAcquire(commandAnnotation, slashCommandInteractionEvent.getUser().getIdLong(), slashCommandInteractionEvent.getGuild().getIdLong()) > 0) {
+            responder.reply(localization.resolve(slashCommandInteractionEvent.getInteraction()).message("command.perform.rateLimited"));
+            return false;
+        }
+
+        // Defer the reply only if the Command does not answer in time.
+        responder.deferAfter(timeoutScheduler, getConfigInt("command_defer", commandAnnotation.name(), DEFAULT_DEFER_MILLIS));
+
         // Perform the Command.
-        command.onASyncPerform(new CommandEvent(command.getClass().getAnnotation(Command.class).name(), slashCommandInteractionEvent.getMember(), null, textChannel, null, slashCommandInteractionEvent));
+        command.onASyncPerform(new CommandEvent(this, commandAnnotation.name(), slashCommandInteractionEvent.getMember(), null, textChannel, null, slashCommandInteractionEvent, responder));
 
         return true;
     }
 
+    /**
+     * Responder al autocompletado de una opcion con las sugerencias del comando.
+     * Se ejecuta en el hilo de JDA, sin pasar por el {@link CommandExecutor}, para responder cuanto antes.
+     *
+     * @param event el evento de autocompletado.
+     */
+    public void autoComplete(CommandAutoCompleteInteractionEvent event) {
+        ICommand command = index.getBySlashName(event.getName());
+        List<net.dv8tion.jda.api.interactions.commands.Command.Choice> choices = List.of();
+
+        if (command != null && event.getGuild() != null) {
+            try {
+                choices = command.onAutoComplete(event, autoCompleteIndex.get(event.getGuild().getIdLong()));
+            } catch (RuntimeException e) {
+                log.error("Error autocompletando {} en el comando {}", event.getFocusedOption().getName(), event.getName(), e);
+            }
+        }
+
+        if (choices.size() > OptionData.MAX_CHOICES) choices = choices.subList(0, OptionData.MAX_CHOICES);
+        WatcherMetrics.get().queue(event.replyChoices(choices));
+    }
+
     /**
      * Send a message to a special Message-Channel.
      *
@@ -194,7 +447,7 @@ public class CommandManager {
      * @param commandEvent      the Command-Event.
      */
     public void sendMessage(MessageCreateData messageCreateData, CommandEvent commandEvent) {
-        sendMessage(messageCreateData, commandEvent.getChannel(), commandEvent.getInteractionHook());
+        commandEvent.reply(messageCreateData);
     }
 
     /**
@@ -216,8 +469,8 @@ public class CommandManager {
      */
     public void sendMessage(MessageCreateData messageCreateData, MessageChannel messageChannel, InteractionHook interactionHook) {
         if (interactionHook == null) {
-            if (messageChannel.canTalk()) messageChannel.sendMessage(messageCreateData).queue();
-        } else interactionHook.sendMessage(messageCreateData).queue();
+            if (messageChannel.canTalk()) outbound.send(messageChannel, messageCreateData, null);
+        } else outbound.followUp(interactionHook.getInteraction().getIdLong(), interactionHook, messageCreateData);
     }
 
     /**
@@ -232,15 +485,9 @@ public class CommandManager {
         if (interactionHook == null) {
             if (messageChannel == null) return;
             if (messageChannel.canTalk())
-                messageChannel.sendMessage(messageCreateData).delay(deleteSecond, TimeUnit.SECONDS).flatMap(message -> {
-                    if (message != null && message.getChannel().retrieveMessageById(message.getId()).complete() != null) {
-                        return message.delete();
-                    }
-
-                    return null;
-                }).queue();
+                outbound.send(messageChannel, messageCreateData, message -> deletionScheduler.schedule(message.getChannel(), message.getIdLong(), deleteSecond, TimeUnit.SECONDS));
         } else {
-            interactionHook.sendMessage(messageCreateData).queue();
+            outbound.followUp(interactionHook.getInteraction().getIdLong(), interactionHook, messageCreateData);
         }
     }
 
@@ -262,7 +509,7 @@ public class CommandManager {
      * @param interactionHook the Interaction-hook if it is a slash command.
      */
     public void sendMessage(String message, MessageChannel messageChannel, InteractionHook interactionHook) {
-        sendMessage(new MessageCreateBuilder().setContent(message).build(), messageChannel, interactionHook);
+        sendMessage(MessageCreateData.fromContent(message), messageChannel, interactionHook);
     }
 
 
@@ -284,7 +531,7 @@ public class CommandManager {
      * @param interactionHook the Interaction-hook if it is a slash command.
      */
     public void sendMessage(EmbedBuilder embedBuilder, MessageChannel messageChannel, InteractionHook interactionHook) {
-        sendMessage(new MessageCreateBuilder().setEmbeds(embedBuilder.build()).build(), messageChannel, interactionHook);
+        sendMessage(MessageCreateData.fromEmbeds(embedBuilder.build()), messageChannel, interactionHook);
     }
 
     /**
@@ -294,11 +541,188 @@ public class CommandManager {
      * @param interactionHook the Interaction-hook, if it is a slash event.
      */
     public void deleteMessage(Message message, InteractionHook interactionHook) {
-        if (message != null && message.getGuild().getSelfMember().hasPermission(Permission.MESSAGE_MANAGE) && message.getChannel().retrieveMessageById(message.getIdLong()).complete() != null && message.getType().canDelete() && !message.isEphemeral() && interactionHook == null) {
-            message.delete().onErrorMap(throwable -> {
-                log.error("[CommandManager] Couldn't delete a Message!", throwable);
-                return null;
-            }).queue();
+        if (message != null && message.getGuild().getSelfMember().hasPermission(Permission.MESSAGE_MANAGE) && message.getType().canDelete() && !message.isEphemeral() && interactionHook == null) {
+            deletionScheduler.schedule(message.getChannel(), message.getIdLong(), 0, TimeUnit.SECONDS);
         }
     }
+
+    /**
+     * Obtener los textos de las respuestas.
+     *
+     * @return la {@link Localization}.
+     */
+    public Localization getLocalization() {
+        return localization;
+    }
+
+    /**
+     * Cambiar los textos de las respuestas.
+     *
+     * @param localization la nueva {@link Localization}.
+     */
+    public void setLocalization(Localization localization) {
+        this.localization = localization;
+    }
+
+    /**
+     * Obtener los indices de autocompletado.
+     *
+     * @return el {@link AutoCompleteIndex}.
+     */
+    public AutoCompleteIndex getAutoCompleteIndex() {
+        return autoCompleteIndex;
+    }
+
+    /**
+     * Obtener la cache de permisos de los miembros.
+     *
+     * @return el {@link PermissionCache}.
+     */
+    public PermissionCache getPermissionCache() {
+        return permissionCache;
+    }
+
+    /**
+     * Obtener la cola de salida de los mensajes.
+     *
+     * @return el {@link OutboundScheduler}.
+     */
+    public OutboundScheduler getOutbound() {
+        return outbound;
+    }
+
+    /**
+     * Obtener el planificador de borrados de mensajes.
+     *
+     * @return el {@link MessageDeletionScheduler}.
+     */
+    public MessageDeletionScheduler getDeletionScheduler() {
+        return deletionScheduler;
+    }
+
+    /**
+     * Ejecucion de un comando, con su tiempo maximo y la respuesta en caso de error.
+     */
+    private final class CommandTask implements GuildFairCommandExecutor.RejectionAware {
+        private static final int PENDING = 0, RUNNING = 1, DONE = 2, TIMED_OUT = 3, CANCELLED = 4;
+
+        private final ICommand command;
+        private final CommandEvent commandEvent;
+        private final long submittedNanos = System.nanoTime();
+        private PluginClassLoader plugin;
+        private int state = PENDING;
+        private Thread thread;
+
+        CommandTask(ICommand command, CommandEvent commandEvent, PluginClassLoader plugin) {
+            this.command = command;
+            this.commandEvent = commandEvent;
+            this.plugin = plugin;
+        }
+
+        @Override
+        public void run() {
+            synchronized (this) {
+                if (state != PENDING) return;
+                state = RUNNING;
+                thread = Thread.currentThread();
+            }
+
+            String name = commandEvent.getCommand();
+            CommandMetrics metrics = WatcherMetrics.get().command(name);
+            long startNanos = System.nanoTime();
+            WatcherMetrics.get().recordQueueWait(startNanos - submittedNanos);
+            long timeout = getConfigInt("command_timeout", name, 0);
+            ScheduledFuture<?> timeoutFuture = timeout > 0 ? timeoutScheduler.schedule(() -> onTimeout(getConfigBoolean("command_cancel", name, true)), timeout, TimeUnit.SECONDS) : null;
+
+            boolean failed = false;
+            try {
+                command.onPerform(commandEvent);
+            } catch (Throwable throwable) {
+                failed = true;
+                metrics.recordError();
+                if (!isCancelled() && (throwable.getMessage() == null || !throwable.getMessage().contains("Unknown Message"))) {
+                    commandEvent.replyResource("command.perform.internalError");
+                    log.error("An error occurred while executing the command!", throwable);
+                }
+            } finally {
+                if (timeoutFuture != null) timeoutFuture.cancel(false);
+                metrics.recordInvocation(System.nanoTime() - startNanos);
+                boolean cancelled;
+                synchronized (this) {
+                    if (state == RUNNING) state = DONE;
+                    cancelled = state == CANCELLED;
+                    thread = null;
+                }
+                releasePlugin();
+                // Limpiar una posible interrupcion del timeout para no afectar a la siguiente tarea del hilo.
+                Thread.interrupted();
+                // La interrupcion solo cancela el comando si deja de ejecutarse por ella: si la ignora y responde, esa es la respuesta.
+                if (cancelled && (failed || !commandEvent.replied)) commandEvent.replyResource("command.perform.timeout");
+            }
+        }
+
+        /**
+         * Marcar el comando como fuera de tiempo e interrumpirlo si se cancela. La respuesta de cancelacion se envia
+         * cuando el comando termina, en {@link #run()}, y solo si ha terminado por la interrupcion o sin responder.
+         */
+        private void onTimeout(boolean cancel) {
+            synchronized (this) {
+                if (state != RUNNING) return;
+                state = cancel ? CANCELLED : TIMED_OUT;
+                if (cancel) thread.interrupt();
+            }
+            WatcherMetrics.get().command(commandEvent.getCommand()).recordTimeout();
+            log.warn("El comando {} ha superado su tiempo maximo{}", commandEvent.getCommand(), cancel ? ", se interrumpe" : "");
+        }
+
+        private synchronized boolean isCancelled() {
+            return state == CANCELLED;
+        }
+
+        @Override
+        public void onRejected() {
+            synchronized (this) {
+                if (state != PENDING) return;
+                state = DONE;
+            }
+            releasePlugin();
+            WatcherMetrics.get().command(commandEvent.getCommand()).recordRejection();
+            log.warn("Comando {} rechazado, el ejecutor esta lleno", commandEvent.getCommand());
+            commandEvent.replyResource("command.perform.busy");
+        }
+
+        private void releasePlugin() {
+            PluginClassLoader current;
+            synchronized (this) {
+                current = plugin;
+                plugin = null;
+            }
+            if (current != null) current.release();
+        }
+    }
+
+    private static ScheduledExecutorService createTimeoutScheduler() {
+        ScheduledThreadPoolExecutor scheduler = new ScheduledThreadPoolExecutor(1, runnable -> {
+            Thread thread = new Thread(runnable, "Command-Timeout");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.setRemoveOnCancelPolicy(true);
+        return scheduler;
+    }
+
+    /**
+     * Leer un valor por comando de la configuracion, usando {@code default} de la seccion si no existe.
+     */
+    private static int getConfigInt(String section, String command, int def) {
+        Config config = Bot.getConfig();
+        if (config == null) return def;
+        return config.getInt(section + "." + command, config.getInt(section + ".default", def));
+    }
+
+    private static boolean getConfigBoolean(String section, String command, boolean def) {
+        Config config = Bot.getConfig();
+        if (config == null) return def;
+        return config.getBoolean(section + "." + command, config.getBoolean(section + ".default", def));
+    }
 }
@@ -0,0 +1,432 @@
+package dev.josemc.watcher.commands;
+
+import net.dv8tion.jda.api.JDA;
+import net.dv8tion.jda.api.entities.Guild;
+import net.dv8tion.jda.api.interactions.commands.Command;
+import net.dv8tion.jda.api.interactions.commands.build.CommandData;
+import net.dv8tion.jda.api.requests.RestAction;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Properties;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+import java.util.function.Function;
+
+/**
+ * Registro de los SlashCommands en Discord, enviando la lista solo cuando ha cambiado.
+ * <p>
+ * Se calcula un hash del {@link CommandData} generado y se guarda el ultimo hash enviado
+ * a cada servidor (o a la aplicacion, en modo global). Los servidores con el mismo hash se omiten,
+ * de forma que un reinicio sin cambios en los comandos no hace ninguna llamada REST.
+ */
+public class CommandRegistrar {
+
+    /**
+     * Clave usada para el hash de los comandos globales.
+     */
+    static final String GLOBAL_KEY = "global";
+
+    /**
+     * Hash de una lista de comandos vacia, el de los comandos globales en modo servidor.
+     */
+    static final String EMPTY_HASH = hash(List.of());
+
+    private static final Logger log = LoggerFactory.getLogger(CommandRegistrar.class);
+
+    /**
+     * Modo de registro de los comandos.
+     */
+    public enum Mode {
+        /**
+         * Los comandos se registran en cada servidor.
+         */
+        GUILD,
+        /**
+         * Los comandos se registran una vez para toda la aplicacion.
+         */
+        GLOBAL;
+
+        /**
+         * Obtener el modo a partir de su nombre en la configuracion.
+         *
+         * @param name el nombre, puede ser null.
+         * @return el modo, {@link #GUILD} por defecto.
+         */
+        public static Mode fromConfig(String name) {
+            return "global".equalsIgnoreCase(name) ? GLOBAL : GUILD;
+        }
+    }
+
+    private final CommandManager commandManager;
+    private final Mode mode;
+    private final Path hashFile;
+    private final Map<String, String> pushedHashes = new ConcurrentHashMap<>();
+    /**
+     * Claves enviadas o restauradas por este proceso que aun no se han guardado en el fichero.
+     */
+    private final Set<String> unsavedKeys = ConcurrentHashMap.newKeySet();
+    private final AtomicBoolean globalPushed = new AtomicBoolean();
+    private final AtomicBoolean savePending = new AtomicBoolean();
+    private final AtomicInteger restCalls = new AtomicInteger();
+    private final AtomicInteger skipped = new AtomicInteger();
+    private final AtomicInteger failed = new AtomicInteger();
+    private volatile String currentHash;
+    private volatile List<CommandData> currentCommandData;
+    private volatile Map<String, String> currentCommandHashes = Map.of();
+    private volatile BooleanSupplier leader = () -> true;
+
+    /**
+     * @param commandManager el {@link CommandManager} con los comandos a registrar.
+     * @param mode           el modo de registro.
+     * @param hashFile       fichero donde se guardan los hashes enviados.
+     */
+    public CommandRegistrar(CommandManager commandManager, Mode mode, Path hashFile) {
+        this.commandManager = commandManager;
+        this.mode = mode;
+        this.hashFile = hashFile;
+        load();
+        refresh();
+    }
+
+    /**
+     * Indicar como saber si este proceso es el lider del cluster. En modo global solo el lider registra los comandos.
+     *
+     * @param leader funcion que devuelve true si este proceso es el lider.
+     */
+    public void setLeaderCheck(BooleanSupplier leader) {
+        this.leader = leader;
+    }
+
+    /**
+     * Cambios en los comandos entre dos llamadas a {@link #refresh()}.
+     *
+     * @param previousHash el hash de la lista anterior, null la primera vez.
+     * @param changed      los comandos nuevos o modificados.
+     * @param removed      los nombres de los comandos eliminados.
+     */
+    public record Changes(String previousHash, List<CommandData> changed, Set<String> removed) {
+        /**
+         * Saber si no ha cambiado ningun comando.
+         *
+         * @return true, si no hay cambios.
+         */
+        public boolean isEmpty() {
+            return changed.isEmpty() && removed.isEmpty();
+        }
+    }
+
+    /**
+     * Recalcular el {@link CommandData} y su hash, por ejemplo tras añadir o eliminar comandos.
+     *
+     * @return los comandos que han cambiado desde la ultima vez.
+     */
+    public synchronized Changes refresh() {
+        List<CommandData> commandData = commandManager.getSlashCommandData();
+        Map<String, String> commandHashes = new HashMap<>();
+        List<CommandData> changed = new ArrayList<>();
+        Map<String, String> previousHashes = currentCommandHashes;
+        for (CommandData data : commandData) {
+            String hash = hash(List.of(data));
+            commandHashes.put(data.getName(), hash);
+            if (!hash.equals(previousHashes.get(data.getName()))) changed.add(data);
+        }
+        Set<String> removed = new HashSet<>(previousHashes.keySet());
+        removed.removeAll(commandHashes.keySet());
+
+        String previousHash = currentHash;
+        currentCommandData = commandData;
+        currentCommandHashes = Map.copyOf(commandHashes);
+        currentHash = hash(commandData);
+        return new Changes(previousHash, List.copyOf(changed), Set.copyOf(removed));
+    }
+
+    /**
+     * Enviar los cambios de los comandos a los servidores (o a la aplicacion, en modo global) de las shards conectadas.
+     * <p>
+     * Donde los comandos estaban al dia, si solo hay comandos nuevos o modificados se envian solo esos; si se ha
+     * eliminado alguno se sustituye la lista completa, que es una unica llamada. Donde no estaban al dia se envia
+     * la lista completa, como al conectar.
+     *
+     * @param changes los cambios devueltos por {@link #refresh()}.
+     * @param shards  las shards conectadas.
+     */
+    public void pushChanges(Changes changes, Collection<JDA> shards) {
+        if (changes.isEmpty() || shards.isEmpty()) return;
+
+        if (mode == Mode.GLOBAL) {
+            if (!leader.getAsBoolean()) return;
+            JDA jda = shards.iterator().next();
+            if (changes.removed().isEmpty() && Objects.equals(changes.previousHash(), pushedHashes.get(GLOBAL_KEY))) {
+                upsert(GLOBAL_KEY, changes.changed(), jda::upsertCommand);
+            } else {
+                globalPushed.set(false);
+                pushGlobal(jda);
+            }
+            return;
+        }
+
+        for (JDA jda : shards) {
+            for (Guild guild : jda.getGuildCache()) {
+                if (changes.removed().isEmpty() && Objects.equals(changes.previousHash(), pushedHashes.get(guild.getId()))) {
+                    upsert(guild.getId(), changes.changed(), guild::upsertCommand);
+                } else {
+                    onGuildReady(guild);
+                }
+            }
+        }
+    }
+
+    private void upsert(String key, List<CommandData> changed, Function<CommandData, RestAction<Command>> upsert) {
+        String hash = currentHash;
+        List<RestAction<Command>> actions = new ArrayList<>(changed.size());
+        for (CommandData data : changed) {
+            actions.add(upsert.apply(data));
+        }
+
+        restCalls.addAndGet(actions.size());
+        RestAction.allOf(actions).queue(commands -> {
+            pushed(key, hash);
+        }, throwable -> {
+            failed.incrementAndGet();
+            log.error("No se pudieron actualizar los comandos en {}", key, throwable);
+        });
+    }
+
+    /**
+     * Llamado cuando un servidor esta listo o el bot entra en uno nuevo.
+     *
+     * @param guild el servidor.
+     */
+    public void onGuildReady(Guild guild) {
+        if (mode != Mode.GUILD) return;
+
+        String key = guild.getId();
+        String hash = currentHash;
+        if (hash.equals(pushedHashes.get(key))) {
+            skipped.incrementAndGet();
+            return;
+        }
+
+        restCalls.incrementAndGet();
+        guild.updateCommands().addCommands(currentCommandData).queue(commands -> {
+            pushed(key, hash);
+        }, throwable -> {
+            failed.incrementAndGet();
+            log.error("No se pudieron registrar los comandos en el servidor {}", key, throwable);
+        });
+    }
+
+    /**
+     * Llamado cuando una shard esta lista. En modo global registra los comandos una unica vez y en modo servidor
+     * borra los globales, por ejemplo los registrados antes en modo global; en ambos modos escribe en el log las
+     * llamadas REST hechas hasta el momento.
+     *
+     * @param jda la shard que esta lista.
+     */
+    public void onShardReady(JDA jda) {
+        pushGlobal(jda);
+
+        log.info("Registro de comandos ({}, shard {}): {} llamadas REST, {} sin cambios, {} fallidas",
+                mode.name().toLowerCase(), jda.getShardInfo().getShardId(), restCalls.get(), skipped.get(), failed.get());
+    }
+
+    /**
+     * Llamado cuando este proceso pasa a ser el lider del cluster, para registrar (o borrar, en modo servidor) los
+     * comandos globales si el lider anterior no llego a hacerlo.
+     *
+     * @param jda una shard conectada de este proceso.
+     */
+    public void onLeaderElected(JDA jda) {
+        pushGlobal(jda);
+    }
+
+    private void pushGlobal(JDA jda) {
+        if (!leader.getAsBoolean() || !globalPushed.compareAndSet(false, true)) return;
+
+        // En modo servidor la lista global se deja vacia: si no, cada comando apareceria dos veces en los servidores.
+        boolean global = mode == Mode.GLOBAL;
+        String hash = global ? currentHash : EMPTY_HASH;
+        if (hash.equals(pushedHashes.get(GLOBAL_KEY))) {
+            skipped.incrementAndGet();
+            return;
+        }
+
+        restCalls.incrementAndGet();
+        jda.updateCommands().addCommands(global ? currentCommandData : List.of()).queue(commands -> {
+            pushed(GLOBAL_KEY, hash);
+        }, throwable -> {
+            failed.incrementAndGet();
+            globalPushed.set(false);
+            log.error(global ? "No se pudieron registrar los comandos globales" : "No se pudieron borrar los comandos globales", throwable);
+        });
+    }
+
+    /**
+     * Obtener el hash de la lista de comandos actual.
+     *
+     * @return el hash en hexadecimal.
+     */
+    public String getCurrentHash() {
+        return currentHash;
+    }
+
+    /**
+     * Obtener los hashes enviados a cada servidor.
+     *
+     * @return un {@link Map} inmutable de id de servidor (o {@value #GLOBAL_KEY}) a hash.
+     */
+    public Map<String, String> getPushedHashes() {
+        return Map.copyOf(pushedHashes);
+    }
+
+    /**
+     * Añadir los hashes guardados al apagar el bot que aun no estaban en el fichero, por ejemplo porque se
+     * registraron justo antes de apagarlo. Los del fichero se mantienen, ya que otro proceso del cluster puede
+     * haberlos actualizado despues.
+     *
+     * @param hashes los hashes guardados, de id de servidor (o {@value #GLOBAL_KEY}) a hash.
+     */
+    public void restore(Map<String, String> hashes) {
+        hashes.forEach((key, hash) -> {
+            if (pushedHashes.putIfAbsent(key, hash) == null) unsavedKeys.add(key);
+        });
+        if (!unsavedKeys.isEmpty()) scheduleSave();
+    }
+
+    /**
+     * Guardar ya los hashes pendientes de guardar, sin esperar al guardado agrupado.
+     */
+    public void flush() {
+        if (savePending.compareAndSet(true, false)) save();
+    }
+
+    /**
+     * Calcular un hash estable del {@link CommandData}, independiente del orden de los comandos y de sus claves.
+     *
+     * @param commandData la lista de comandos.
+     * @return el hash SHA-256 en hexadecimal.
+     */
+    static String hash(List<CommandData> commandData) {
+        StringBuilder builder = new StringBuilder();
+        commandData.stream()
+                .sorted(Comparator.comparing(CommandData::getName))
+                .forEach(data -> appendCanonical(builder, data.toData().toMap()));
+
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(digest.digest(builder.toString().getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static void appendCanonical(StringBuilder builder, Object value) {
+        if (value instanceof Map<?, ?> map) {
+            builder.append('{');
+            new TreeMap<>(map).forEach((key, entry) -> {
+                builder.append(key).append('=');
+                appendCanonical(builder, entry);
+                builder.append(',');
+            });
+            builder.append('}');
+        } else if (value instanceof List<?> list) {
+            builder.append('[');
+            list.forEach(entry -> {
+                appendCanonical(builder, entry);
+                builder.append(',');
+            });
+            builder.append(']');
+        } else {
+            builder.append(value);
+        }
+    }
+
+    private void load() {
+        if (!Files.exists(hashFile)) return;
+
+        Properties properties = new Properties();
+        try (InputStream inputStream = Files.newInputStream(hashFile)) {
+            properties.load(inputStream);
+            properties.forEach((key, value) -> pushedHashes.put(key.toString(), value.toString()));
+        } catch (IOException e) {
+            log.warn("No se pudo leer {}, se registraran todos los comandos", hashFile, e);
+        }
+    }
+
+    /**
+     * Anotar un hash enviado y programar su guardado.
+     */
+    private void pushed(String key, String hash) {
+        pushedHashes.put(key, hash);
+        unsavedKeys.add(key);
+        scheduleSave();
+    }
+
+    /**
+     * Guardar los hashes tras un segundo, agrupando en una sola escritura los registros de muchos servidores.
+     */
+    private void scheduleSave() {
+        if (savePending.compareAndSet(false, true)) {
+            CompletableFuture.delayedExecutor(1, TimeUnit.SECONDS).execute(() -> {
+                savePending.set(false);
+                save();
+            });
+        }
+    }
+
+    private synchronized void save() {
+        // Se parte del fichero actual, que pueden haber actualizado otros procesos del cluster con sus servidores, y solo
+        // se escriben las claves que ha enviado este proceso: las demas en memoria pueden ser mas antiguas que las del fichero.
+        Properties properties = new Properties();
+        if (Files.exists(hashFile)) {
+            try (InputStream inputStream = Files.newInputStream(hashFile)) {
+                properties.load(inputStream);
+            } catch (IOException e) {
+                log.warn("No se pudo leer {} antes de guardarlo", hashFile, e);
+            }
+        }
+        List<String> keys = new ArrayList<>(unsavedKeys);
+        unsavedKeys.removeAll(keys);
+        for (String key : keys) {
+            String hash = pushedHashes.get(key);
+            if (hash != null) properties.setProperty(key, hash);
+        }
+
+        try {
+            Files.createDirectories(hashFile.toAbsolutePath().getParent());
+            Path temp = Files.createTempFile(hashFile.toAbsolutePath().getParent(), hashFile.getFileName().toString(), ".tmp");
+            try (OutputStream outputStream = Files.newOutputStream(temp)) {
+                properties.store(outputStream, "Ultimo hash de comandos enviado a cada servidor");
+            }
+            Files.move(temp, hashFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            unsavedKeys.addAll(keys);
+            log.error("No se pudo guardar {}", hashFile, e);
+        }
+    }
+}
@@ -0,0 +1,108 @@
+package dev.josemc.watcher.commands;
+
+import dev.josemc.watcher.messages.OutboundScheduler;
+import dev.josemc.watcher.metrics.WatcherMetrics;
+import net.dv8tion.jda.api.events.interaction.command.SlashCommandInteractionEvent;
+import net.dv8tion.jda.api.interactions.InteractionHook;
+import net.dv8tion.jda.api.utils.messages.MessageCreateData;
+
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Respuesta a una interaccion que solo se aplaza si hace falta.
+ * <p>
+ * Si el comando responde antes de {@code deferMillis}, la respuesta se envia directamente como respuesta
+ * a la interaccion, ahorrando el {@code deferReply} y el mensaje de seguimiento. Si no, un temporizador
+ * aplaza la respuesta y las respuestas posteriores se envian por el {@link InteractionHook}, a traves del
+ * {@link OutboundScheduler}.
+ * El estado cambia con un CAS, de forma que el temporizador y la respuesta nunca envian ambos la primera respuesta.
+ * <p>
+ * El tiempo hasta la primera respuesta, directa o de seguimiento, se mide desde que se crea el responder al recibir la
+ * interaccion, incluidas las respuestas que rechazan el comando antes de ejecutarlo.
+ */
+public class InteractionResponder {
+    private static final int PENDING = 0, DEFERRED = 1, REPLIED = 2;
+
+    private final SlashCommandInteractionEvent event;
+    private final OutboundScheduler outbound;
+    private final AtomicInteger state = new AtomicInteger(PENDING);
+    private final AtomicBoolean replied = new AtomicBoolean();
+    private final long createdNanos = System.nanoTime();
+    private volatile ScheduledFuture<?> deferTimer;
+
+    /**
+     * @param event    el evento de la interaccion, todavia sin responder.
+     * @param outbound la cola de salida de los mensajes de seguimiento.
+     */
+    public InteractionResponder(SlashCommandInteractionEvent event, OutboundScheduler outbound) {
+        this.event = event;
+        this.outbound = outbound;
+    }
+
+    /**
+     * Aplazar la respuesta si no se ha respondido en el tiempo indicado.
+     *
+     * @param scheduler   planificador del temporizador.
+     * @param deferMillis milisegundos de espera; 0 o menos aplaza la respuesta al momento.
+     */
+    public void deferAfter(ScheduledExecutorService scheduler, long deferMillis) {
+        if (deferMillis <= 0) {
+            defer();
+            return;
+        }
+        deferTimer = scheduler.schedule(this::defer, deferMillis, TimeUnit.MILLISECONDS);
+        // Si se respondio mientras se creaba el temporizador, cancelarlo.
+        if (state.get() != PENDING) deferTimer.cancel(false);
+    }
+
+    /**
+     * Aplazar la respuesta si todavia no se ha respondido.
+     *
+     * @return true, si se ha aplazado ahora.
+     */
+    public boolean defer() {
+        if (!state.compareAndSet(PENDING, DEFERRED)) return false;
+        WatcherMetrics.get().recordDefer();
+        WatcherMetrics.get().queue(event.getInteraction().deferReply(true));
+        return true;
+    }
+
+    /**
+     * Responder a la interaccion: directamente si todavia no hay respuesta, o con un mensaje de seguimiento si no.
+     *
+     * @param message el mensaje.
+     */
+    public void reply(MessageCreateData message) {
+        if (replied.compareAndSet(false, true)) WatcherMetrics.get().recordFirstReply(System.nanoTime() - createdNanos);
+        if (state.compareAndSet(PENDING, REPLIED)) {
+            ScheduledFuture<?> timer = deferTimer;
+            if (timer != null) timer.cancel(false);
+            WatcherMetrics.get().recordDirectReply();
+            WatcherMetrics.get().queue(event.getInteraction().reply(message).setEphemeral(true));
+        } else {
+            outbound.followUp(event.getIdLong(), event.getHook().setEphemeral(true), message);
+        }
+    }
+
+    /**
+     * Obtener el {@link InteractionHook}, aplazando antes la respuesta si todavia no se ha respondido,
+     * para que el hook se pueda usar directamente.
+     *
+     * @return el hook.
+     */
+    public InteractionHook getHook() {
+        defer();
+        return event.getHook();
+    }
+
+    /**
+     * Comprobar si ya se ha respondido o aplazado la respuesta.
+     */
+    public boolean isAcknowledged() {
+        return state.get() != PENDING;
+    }
+}
@@ -0,0 +1,33 @@
+package dev.josemc.watcher.commands.executor;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Motor de ejecucion de comandos usado por {@link dev.josemc.watcher.commands.CommandManager}.
+ */
+public interface CommandExecutor {
+
+    /**
+     * Enviar una tarea para su ejecucion.
+     *
+     * @param guildId id del servidor donde se ejecuto el comando, usado para repartir los hilos.
+     * @param task    la tarea a ejecutar.
+     * @return true, si la tarea fue aceptada. | false, si fue rechazada por falta de capacidad.
+     */
+    boolean submit(long guildId, Runnable task);
+
+    /**
+     * Dejar de aceptar tareas nuevas. Las tareas pendientes se siguen ejecutando.
+     */
+    void shutdown();
+
+    /**
+     * Esperar a que terminen las tareas pendientes.
+     *
+     * @param timeout tiempo maximo de espera.
+     * @param unit    unidad del tiempo.
+     * @return true, si terminaron todas las tareas.
+     * @throws InterruptedException si el hilo fue interrumpido mientras esperaba.
+     */
+    boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException;
+}
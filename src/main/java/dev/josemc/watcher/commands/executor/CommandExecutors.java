@@ -0,0 +1,86 @@
+package dev.josemc.watcher.commands.executor;
+
+import dev.josemc.watcher.Config;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.annotation.Nullable;
+import java.lang.reflect.Method;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Creacion de los {@link CommandExecutor} a partir de la configuracion.
+ */
+public final class CommandExecutors {
+    private static final Logger log = LoggerFactory.getLogger(CommandExecutors.class);
+
+    private CommandExecutors() {
+    }
+
+    /**
+     * Crear el ejecutor descrito en la seccion {@code command_executor} de la configuracion.
+     *
+     * @param config la configuracion del bot.
+     * @return el ejecutor configurado.
+     */
+    public static CommandExecutor fromConfig(Config config) {
+        String mode = config.getString("command_executor.mode");
+        int threads = config.getInt("command_executor.threads", Runtime.getRuntime().availableProcessors() * 2);
+        int queue = config.getInt("command_executor.queue", 256);
+        int guildConcurrency = config.getInt("command_executor.guild_concurrency", 2);
+        int guildQueue = config.getInt("command_executor.guild_queue", 16);
+
+        CommandExecutor executor = "virtual".equalsIgnoreCase(mode) ? virtual() : null;
+        if (executor == null) {
+            if ("virtual".equalsIgnoreCase(mode)) log.warn("Los hilos virtuales no estan disponibles en esta version de Java, usando el ejecutor bounded");
+            executor = bounded(threads, queue);
+            mode = "bounded";
+        }
+        log.info("Ejecutor de comandos: {} (hilos: {}, cola: {}, por servidor: {}/{})", mode, threads, queue, guildConcurrency, guildQueue);
+        return new GuildFairCommandExecutor(executor, guildConcurrency, guildQueue);
+    }
+
+    /**
+     * Ejecutor con un numero fijo de hilos y una cola limitada.
+     *
+     * @param threads numero de hilos.
+     * @param queue   tamaño maximo de la cola.
+     * @return el ejecutor.
+     */
+    public static CommandExecutor bounded(int threads, int queue) {
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(Math.max(1, queue)), threadFactory("Command-Worker-"), new ThreadPoolExecutor.AbortPolicy());
+        executor.allowCoreThreadTimeOut(true);
+        return new ExecutorServiceCommandExecutor(executor);
+    }
+
+    /**
+     * Ejecutor con un hilo virtual por tarea. Requiere Java 21.
+     *
+     * @return el ejecutor, o null si los hilos virtuales no estan disponibles en esta version de Java.
+     */
+    @Nullable
+    public static CommandExecutor virtual() {
+        try {
+            Method method = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return new ExecutorServiceCommandExecutor((ExecutorService) method.invoke(null));
+        } catch (ReflectiveOperationException e) {
+            return null;
+        }
+    }
+
+    private static ThreadFactory threadFactory(String prefix) {
+        AtomicInteger counter = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, prefix + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+}
@@ -0,0 +1,37 @@
+package dev.josemc.watcher.commands.executor;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link CommandExecutor} que delega en un {@link ExecutorService}.
+ * Las tareas rechazadas por el servicio se notifican devolviendo false.
+ */
+public class ExecutorServiceCommandExecutor implements CommandExecutor {
+    private final ExecutorService executorService;
+
+    public ExecutorServiceCommandExecutor(ExecutorService executorService) {
+        this.executorService = executorService;
+    }
+
+    @Override
+    public boolean submit(long guildId, Runnable task) {
+        try {
+            executorService.execute(task);
+            return true;
+        } catch (RejectedExecutionException e) {
+            return false;
+        }
+    }
+
+    @Override
+    public void shutdown() {
+        executorService.shutdown();
+    }
+
+    @Override
+    public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+        return executorService.awaitTermination(timeout, unit);
+    }
+}
@@ -0,0 +1,148 @@
+package dev.josemc.watcher.commands.executor;
+
+import java.util.ArrayDeque;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link CommandExecutor} que limita cuantas tareas de un mismo servidor se ejecutan a la vez.
+ * <p>
+ * Cada servidor tiene su propia cola: cuando alcanza {@code maxRunning} tareas en ejecucion,
+ * las siguientes esperan en su cola en lugar de ocupar hilos del ejecutor compartido, de forma
+ * que un servidor muy activo no puede acaparar todos los hilos.
+ * <p>
+ * Al apagarlo se rechazan las tareas nuevas, pero las que esperan en las colas de los servidores se siguen enviando
+ * al ejecutor compartido, que solo se apaga cuando todas las colas se han vaciado.
+ */
+public class GuildFairCommandExecutor implements CommandExecutor {
+    private final CommandExecutor delegate;
+    private final int maxRunning;
+    private final int maxPending;
+    private final ConcurrentHashMap<Long, Lane> lanes = new ConcurrentHashMap<>();
+    /**
+     * Monitor con el que {@link #awaitTermination} espera a que se vacien las colas.
+     */
+    private final Object idle = new Object();
+    private volatile boolean shutdown;
+
+    /**
+     * @param delegate   ejecutor compartido donde se ejecutan las tareas.
+     * @param maxRunning tareas de un mismo servidor que se pueden ejecutar a la vez.
+     * @param maxPending tareas de un mismo servidor que pueden esperar en cola.
+     */
+    public GuildFairCommandExecutor(CommandExecutor delegate, int maxRunning, int maxPending) {
+        this.delegate = delegate;
+        this.maxRunning = Math.max(1, maxRunning);
+        this.maxPending = Math.max(0, maxPending);
+    }
+
+    @Override
+    public boolean submit(long guildId, Runnable task) {
+        if (shutdown) return false;
+        while (true) {
+            Lane lane = lanes.computeIfAbsent(guildId, Lane::new);
+            synchronized (lane) {
+                // La cola pudo retirarse entre computeIfAbsent y el bloqueo.
+                if (lane.retired) continue;
+                if (shutdown) {
+                    retireIfIdle(lane);
+                    return false;
+                }
+
+                if (lane.running < maxRunning) {
+                    lane.running++;
+                    if (dispatch(lane, task)) return true;
+                    lane.running--;
+                    retireIfIdle(lane);
+                    return false;
+                }
+                if (lane.pending.size() < maxPending) {
+                    lane.pending.add(task);
+                    return true;
+                }
+                return false;
+            }
+        }
+    }
+
+    /**
+     * Enviar una tarea de la cola al ejecutor compartido. Debe llamarse con el bloqueo de la cola.
+     */
+    private boolean dispatch(Lane lane, Runnable task) {
+        return delegate.submit(lane.guildId, () -> {
+            try {
+                task.run();
+            } finally {
+                onComplete(lane);
+            }
+        });
+    }
+
+    private void onComplete(Lane lane) {
+        synchronized (lane) {
+            Runnable next;
+            while ((next = lane.pending.poll()) != null) {
+                if (dispatch(lane, next)) return;
+                if (next instanceof RejectionAware rejectionAware) rejectionAware.onRejected();
+            }
+            lane.running--;
+            retireIfIdle(lane);
+        }
+    }
+
+    private void retireIfIdle(Lane lane) {
+        if (lane.running == 0 && lane.pending.isEmpty()) {
+            lane.retired = true;
+            lanes.remove(lane.guildId, lane);
+            if (shutdown) shutdownIfIdle();
+        }
+    }
+
+    /**
+     * Apagar el ejecutor compartido si ya no queda ninguna cola, y avisar a {@link #awaitTermination}.
+     */
+    private void shutdownIfIdle() {
+        synchronized (idle) {
+            if (!lanes.isEmpty()) return;
+            delegate.shutdown();
+            idle.notifyAll();
+        }
+    }
+
+    @Override
+    public void shutdown() {
+        shutdown = true;
+        shutdownIfIdle();
+    }
+
+    @Override
+    public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+        synchronized (idle) {
+            while (!lanes.isEmpty()) {
+                long remaining = deadline - System.nanoTime();
+                if (remaining <= 0) return false;
+                TimeUnit.NANOSECONDS.timedWait(idle, remaining);
+            }
+        }
+        return delegate.awaitTermination(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Tarea que necesita saber si fue rechazada despues de haber sido aceptada en la cola de su servidor.
+     */
+    public interface RejectionAware extends Runnable {
+        void onRejected();
+    }
+
+    private static final class Lane {
+        final long guildId;
+        final ArrayDeque<Runnable> pending = new ArrayDeque<>();
+        int running;
+        boolean retired;
+
+        Lane(long guildId) {
+            this.guildId = guildId;
+        }
+    }
+}
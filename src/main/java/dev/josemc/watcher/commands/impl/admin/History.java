@@ -0,0 +1,74 @@
+package dev.josemc.watcher.commands.impl.admin;
+
+import dev.josemc.watcher.Bot;
+import dev.josemc.watcher.commands.CommandEvent;
+import dev.josemc.watcher.commands.interfaces.Command;
+import dev.josemc.watcher.commands.interfaces.Option;
+import dev.josemc.watcher.commands.interfaces.Perform;
+import dev.josemc.watcher.commands.interfaces.TypedCommand;
+import dev.josemc.watcher.i18n.LocaleBundle;
+import dev.josemc.watcher.journal.Journal;
+import dev.josemc.watcher.journal.JournalEventType;
+import dev.josemc.watcher.journal.JournalQuery;
+import dev.josemc.watcher.journal.JournalRecord;
+import net.dv8tion.jda.api.EmbedBuilder;
+import net.dv8tion.jda.api.Permission;
+import net.dv8tion.jda.api.entities.User;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+@Command(name = "history", description = "Ver los eventos registrados del servidor", userLimit = 5, period = 60, permissions = Permission.VIEW_AUDIT_LOGS)
+public class History extends TypedCommand {
+    /**
+     * Numero maximo de eventos que se muestran.
+     */
+    private static final int LIMIT = 20;
+
+    /**
+     * Caracteres del texto de cada evento que se muestran.
+     */
+    private static final int DATA_CHARS = 80;
+
+    @Perform
+    public void perform(CommandEvent commandEvent,
+                        @Option(name = "user", description = "Usuario", required = false) User user,
+                        @Option(name = "type", description = "Tipo de evento", required = false) JournalEventType type,
+                        @Option(name = "hours", description = "Horas hacia atras (24 por defecto)", required = false, min = 1, max = 24 * 30) Integer hours) {
+        Journal journal = Bot.getInstance().getJournal();
+        if (journal == null) {
+            commandEvent.replyResource("command.history.disabled");
+            return;
+        }
+
+        long now = System.currentTimeMillis();
+        long from = now - TimeUnit.HOURS.toMillis(hours != null ? hours : 24);
+        List<JournalRecord> records = journal.query(new JournalQuery(commandEvent.getMember().getGuild().getIdLong(),
+                user != null ? user.getIdLong() : 0, type, from, now, LIMIT));
+
+        if (records.isEmpty()) {
+            commandEvent.replyResource("command.history.empty");
+            return;
+        }
+
+        LocaleBundle bundle = commandEvent.getBundle();
+        StringBuilder description = new StringBuilder();
+        for (JournalRecord record : records) {
+            description.append("<t:").append(TimeUnit.MILLISECONDS.toSeconds(record.timestamp())).append(":f> **")
+                    .append(bundle.get("journal.type." + record.type().getKey())).append("**");
+            if (record.userId() != 0) description.append(" <@").append(Long.toUnsignedString(record.userId())).append('>');
+            if (record.channelId() != 0) description.append(" <#").append(Long.toUnsignedString(record.channelId())).append('>');
+            if (!record.data().isEmpty()) {
+                String data = record.data().length() > DATA_CHARS ? record.data().substring(0, DATA_CHARS) + "…" : record.data();
+                description.append(" `").append(data.replace('`', '\'').replace('\n', ' ')).append('`');
+            }
+            description.append('\n');
+        }
+
+        commandEvent.reply(new EmbedBuilder()
+                .setTitle(bundle.get("command.history.title"))
+                .setDescription(description)
+                .setColor(0x5865F2)
+                .build());
+    }
+}
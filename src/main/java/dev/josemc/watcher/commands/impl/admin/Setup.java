@@ -2,23 +2,32 @@ package dev.josemc.watcher.commands.impl.admin;
 
 import dev.josemc.watcher.commands.CommandEvent;
 import dev.josemc.watcher.commands.interfaces.Command;
-import dev.josemc.watcher.commands.interfaces.ICommand;
-import net.dv8tion.jda.api.interactions.commands.build.CommandData;
+import dev.josemc.watcher.commands.interfaces.Option;
+import dev.josemc.watcher.commands.interfaces.Perform;
+import dev.josemc.watcher.commands.interfaces.TypedCommand;
+import dev.josemc.watcher.storage.GuildSettings;
+import net.dv8tion.jda.api.Permission;
+import net.dv8tion.jda.api.entities.channel.middleman.GuildChannel;
 
-@Command(name = "setup", description = "Configurar el bot")
-public class Setup implements ICommand {
-    @Override
-    public void onPerform(CommandEvent commandEvent) {
-        
-    }
+@Command(name = "setup", description = "Configurar el bot", userLimit = 5, period = 60, permissions = Permission.ADMINISTRATOR)
+public class Setup extends TypedCommand {
+    /**
+     * Ajuste con el canal donde el bot envia los registros del servidor.
+     */
+    public static final String LOG_CHANNEL = "log_channel";
 
-    @Override
-    public CommandData getCommandData() {
-        return null;
-    }
+    @Perform
+    public void perform(CommandEvent commandEvent,
+                        @Option(name = LOG_CHANNEL, description = "Canal donde se envian los registros", required = false) GuildChannel logChannel) {
+        GuildSettings settings = commandEvent.getGuildSettings();
+
+        if (logChannel == null) {
+            String current = settings.get(LOG_CHANNEL);
+            commandEvent.replyResource("command.setup.current", current != null ? "<#" + current + ">" : commandEvent.getResource("command.setup.none"));
+            return;
+        }
 
-    @Override
-    public String[] getAlias() {
-        return new String[0];
+        settings.set(LOG_CHANNEL, logChannel.getId());
+        commandEvent.replyResource("command.setup.saved", logChannel.getAsMention());
     }
 }
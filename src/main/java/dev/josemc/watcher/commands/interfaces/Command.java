@@ -1,5 +1,7 @@
 package dev.josemc.watcher.commands.interfaces;
 
+import net.dv8tion.jda.api.Permission;
+
 import java.lang.annotation.ElementType;
 import java.lang.annotation.Retention;
 import java.lang.annotation.RetentionPolicy;
@@ -10,4 +12,29 @@ import java.lang.annotation.Target;
 public @interface Command {
     String name();
     String description();
+
+    /**
+     * Usos permitidos a cada usuario en cada {@link #period()}; 0 sin limite.
+     */
+    int userLimit() default 0;
+
+    /**
+     * Usos permitidos en cada servidor en cada {@link #period()}; 0 sin limite.
+     */
+    int guildLimit() default 0;
+
+    /**
+     * Usos permitidos en total en cada {@link #period()}; 0 sin limite.
+     */
+    int globalLimit() default 0;
+
+    /**
+     * Periodo en segundos de los limites de uso.
+     */
+    int period() default 60;
+
+    /**
+     * Permisos que necesita el miembro en el canal para ejecutar el comando.
+     */
+    Permission[] permissions() default {};
 }
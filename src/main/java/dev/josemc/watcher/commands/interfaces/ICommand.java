@@ -1,11 +1,13 @@
 package dev.josemc.watcher.commands.interfaces;
 
+import dev.josemc.watcher.autocomplete.GuildIndex;
 import dev.josemc.watcher.commands.CommandEvent;
+import net.dv8tion.jda.api.events.interaction.command.CommandAutoCompleteInteractionEvent;
 import net.dv8tion.jda.api.interactions.commands.build.CommandData;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.util.concurrent.CompletableFuture;
+import java.util.List;
 
 /**
  * An Interface class, used to make it easier for the creation of Commands.
@@ -22,13 +24,7 @@ public interface ICommand {
      * @param commandEvent the Event, with every needed data.
      */
     default void onASyncPerform(CommandEvent commandEvent) {
-        CompletableFuture.runAsync(() -> onPerform(commandEvent)).exceptionally(throwable -> {
-            if (!throwable.getMessage().contains("Unknown Message")) {
-                commandEvent.reply("command.perform.internalError");
-                log.error("An error occurred while executing the command!", throwable);
-            }
-            return null;
-        });
+        commandEvent.getCommandManager().execute(this, commandEvent);
     }
 
     /**
@@ -38,6 +34,18 @@ public interface ICommand {
      */
     void onPerform(CommandEvent commandEvent);
 
+    /**
+     * Will be fired when the User is typing an Option with autocomplete enabled.
+     * Runs on the JDA thread and must answer in a few milliseconds, so it should only search the {@link GuildIndex}.
+     *
+     * @param event the Event, {@link CommandAutoCompleteInteractionEvent#getFocusedOption()} is the Option being typed.
+     * @param index the indexes of the Guild.
+     * @return the suggested Choices, only the first 25 are sent.
+     */
+    default List<net.dv8tion.jda.api.interactions.commands.Command.Choice> onAutoComplete(CommandAutoCompleteInteractionEvent event, GuildIndex index) {
+        return List.of();
+    }
+
     /**
      * A CommandData implementation for JDAs SlashCommand Interaction Implementation.
      *
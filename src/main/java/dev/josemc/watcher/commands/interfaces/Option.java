@@ -0,0 +1,37 @@
+package dev.josemc.watcher.commands.interfaces;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Una opcion del SlashCommand, declarada como parametro del metodo {@link Perform} de un {@link TypedCommand}.
+ * El tipo de la opcion se obtiene del tipo del parametro.
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target({ElementType.PARAMETER})
+public @interface Option {
+    String name();
+    String description();
+
+    /**
+     * Si el usuario tiene que indicar la opcion. Si no la indica, el parametro es null, o 0 y false si es primitivo.
+     */
+    boolean required() default true;
+
+    /**
+     * Valor minimo de una opcion numerica; sin limite si es NaN.
+     */
+    double min() default Double.NaN;
+
+    /**
+     * Valor maximo de una opcion numerica; sin limite si es NaN.
+     */
+    double max() default Double.NaN;
+
+    /**
+     * Si la opcion se autocompleta con {@link ICommand#onAutoComplete}.
+     */
+    boolean autoComplete() default false;
+}
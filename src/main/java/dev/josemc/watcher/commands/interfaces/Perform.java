@@ -0,0 +1,15 @@
+package dev.josemc.watcher.commands.interfaces;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Metodo que ejecuta un {@link TypedCommand}. Su primer parametro es el
+ * {@link dev.josemc.watcher.commands.CommandEvent} y el resto son las opciones, anotadas con {@link Option}.
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target({ElementType.METHOD})
+public @interface Perform {
+}
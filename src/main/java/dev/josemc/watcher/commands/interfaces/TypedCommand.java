@@ -0,0 +1,52 @@
+package dev.josemc.watcher.commands.interfaces;
+
+import dev.josemc.watcher.commands.CommandEvent;
+import dev.josemc.watcher.commands.options.OptionBinder;
+import net.dv8tion.jda.api.interactions.commands.build.CommandData;
+import net.dv8tion.jda.api.interactions.commands.build.Commands;
+import net.dv8tion.jda.api.interactions.commands.build.SlashCommandData;
+
+/**
+ * Comando cuyas opciones se declaran como parametros de un metodo anotado con {@link Perform}, cada uno con
+ * su {@link Option}. El {@link CommandData} se genera a partir del {@link Command} y de las opciones, y al
+ * ejecutar el comando las opciones recibidas se pasan ya convertidas al tipo de cada parametro.
+ */
+public abstract class TypedCommand implements ICommand {
+    private final OptionBinder binder = OptionBinder.of(this);
+    private CommandData commandData;
+
+    @Override
+    public void onPerform(CommandEvent commandEvent) {
+        try {
+            binder.invoke(commandEvent);
+        } catch (RuntimeException | Error e) {
+            throw e;
+        } catch (Throwable throwable) {
+            throw new RuntimeException(throwable);
+        }
+    }
+
+    @Override
+    public synchronized CommandData getCommandData() {
+        if (commandData == null) {
+            Command command = getClass().getAnnotation(Command.class);
+            commandData = configure(Commands.slash(command.name(), command.description()).addOptions(binder.getOptions()));
+        }
+        return commandData;
+    }
+
+    /**
+     * Completar el {@link SlashCommandData} generado, por ejemplo con los nombres traducidos.
+     *
+     * @param commandData el SlashCommand con el nombre, la descripcion y las opciones.
+     * @return el SlashCommand a registrar.
+     */
+    protected SlashCommandData configure(SlashCommandData commandData) {
+        return commandData;
+    }
+
+    @Override
+    public String[] getAlias() {
+        return new String[0];
+    }
+}
@@ -0,0 +1,221 @@
+package dev.josemc.watcher.commands.options;
+
+import dev.josemc.watcher.commands.CommandEvent;
+import dev.josemc.watcher.commands.interfaces.Option;
+import dev.josemc.watcher.commands.interfaces.Perform;
+import net.dv8tion.jda.api.entities.IMentionable;
+import net.dv8tion.jda.api.entities.Member;
+import net.dv8tion.jda.api.entities.Message;
+import net.dv8tion.jda.api.entities.Role;
+import net.dv8tion.jda.api.entities.User;
+import net.dv8tion.jda.api.entities.channel.ChannelType;
+import net.dv8tion.jda.api.entities.channel.concrete.TextChannel;
+import net.dv8tion.jda.api.entities.channel.middleman.GuildChannel;
+import net.dv8tion.jda.api.events.interaction.command.SlashCommandInteractionEvent;
+import net.dv8tion.jda.api.interactions.commands.OptionMapping;
+import net.dv8tion.jda.api.interactions.commands.OptionType;
+import net.dv8tion.jda.api.interactions.commands.build.OptionData;
+
+import javax.annotation.Nullable;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Method;
+import java.lang.reflect.Parameter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.function.Function;
+
+/**
+ * Enlaza las opciones de un SlashCommand con los parametros del metodo {@link Perform} de un comando.
+ * <p>
+ * Todo el trabajo con reflexion se hace una vez, al crear el comando: se lee el tipo y la anotacion {@link Option}
+ * de cada parametro, se genera el {@link OptionData} y se elige la conversion de cada opcion, y el metodo se
+ * convierte en un {@link MethodHandle} que recibe los argumentos en un array. Al ejecutar el comando solo se
+ * recorren las opciones recibidas, se convierten y se llama al metodo, sin reflexion ni mapas.
+ */
+public final class OptionBinder {
+    private final MethodHandle invoker;
+    private final String[] names;
+    private final Function<OptionMapping, Object>[] converters;
+    private final Object[] absent;
+    private final List<OptionData> options;
+
+    @SuppressWarnings("unchecked")
+    private OptionBinder(MethodHandle invoker, List<Binding> bindings) {
+        this.invoker = invoker;
+        this.names = new String[bindings.size()];
+        this.converters = (Function<OptionMapping, Object>[]) new Function<?, ?>[bindings.size()];
+        this.absent = new Object[bindings.size()];
+        List<OptionData> options = new ArrayList<>(bindings.size());
+        for (int i = 0; i < bindings.size(); i++) {
+            Binding binding = bindings.get(i);
+            names[i] = binding.option.getName();
+            converters[i] = binding.converter;
+            absent[i] = binding.absent;
+            options.add(binding.option);
+        }
+        this.options = List.copyOf(options);
+    }
+
+    /**
+     * Crear el enlace de un comando.
+     *
+     * @param command el comando, con un unico metodo anotado con {@link Perform}.
+     * @return el enlace.
+     * @throws IllegalArgumentException si el metodo no existe o algun parametro no es valido.
+     */
+    public static OptionBinder of(Object command) {
+        Method method = null;
+        for (Method candidate : command.getClass().getMethods()) {
+            if (!candidate.isAnnotationPresent(Perform.class)) continue;
+            if (method != null) throw invalid(command, "Hay mas de un metodo @Perform");
+            method = candidate;
+        }
+        if (method == null) throw invalid(command, "No hay ningun metodo @Perform publico");
+
+        Parameter[] parameters = method.getParameters();
+        if (parameters.length == 0 || parameters[0].getType() != CommandEvent.class) {
+            throw invalid(command, "El primer parametro de " + method.getName() + " debe ser CommandEvent");
+        }
+        List<Binding> bindings = new ArrayList<>(parameters.length - 1);
+        for (int i = 1; i < parameters.length; i++) {
+            Option option = parameters[i].getAnnotation(Option.class);
+            if (option == null) throw invalid(command, "Falta @Option en el parametro " + parameters[i].getName());
+            Binding binding = bind(parameters[i].getType(), option);
+            if (binding == null) throw invalid(command, "Tipo de opcion no soportado: " + parameters[i].getType().getName());
+            bindings.add(binding);
+        }
+        // Discord exige que las opciones obligatorias vayan antes que las opcionales.
+        boolean optional = false;
+        for (Binding binding : bindings) {
+            if (binding.option.isRequired() && optional) throw invalid(command, "Opcion obligatoria despues de una opcional: " + binding.option.getName());
+            optional |= !binding.option.isRequired();
+        }
+
+        try {
+            method.trySetAccessible();
+            MethodHandle handle = MethodHandles.lookup().unreflect(method).bindTo(command);
+            MethodHandle invoker = handle.asSpreader(Object[].class, parameters.length)
+                    .asType(MethodType.methodType(void.class, Object[].class));
+            return new OptionBinder(invoker, bindings);
+        } catch (IllegalAccessException e) {
+            throw new IllegalArgumentException(command.getClass().getName() + "; No se puede acceder a " + method.getName(), e);
+        }
+    }
+
+    /**
+     * Obtener las opciones del SlashCommand, en el orden de los parametros.
+     *
+     * @return las opciones.
+     */
+    public List<OptionData> getOptions() {
+        return options;
+    }
+
+    /**
+     * Ejecutar el metodo del comando con las opciones de la interaccion.
+     *
+     * @param commandEvent el evento, con la interaccion.
+     * @throws Throwable cualquier error del metodo.
+     */
+    public void invoke(CommandEvent commandEvent) throws Throwable {
+        Object[] arguments = new Object[names.length + 1];
+        arguments[0] = commandEvent;
+        System.arraycopy(absent, 0, arguments, 1, absent.length);
+
+        SlashCommandInteractionEvent event = commandEvent.getSlashCommandInteractionEvent();
+        if (event != null) {
+            for (OptionMapping mapping : event.getOptions()) {
+                int index = indexOf(mapping.getName());
+                if (index >= 0) arguments[index + 1] = converters[index].apply(mapping);
+            }
+        }
+        invoker.invokeExact(arguments);
+    }
+
+    private int indexOf(String name) {
+        // Como mucho 25 opciones: recorrerlas es mas rapido que calcular un hash.
+        for (int i = 0; i < names.length; i++) {
+            if (names[i].equals(name)) return i;
+        }
+        return -1;
+    }
+
+    @Nullable
+    private static Binding bind(Class<?> type, Option annotation) {
+        if (type == String.class) return binding(OptionType.STRING, annotation, OptionMapping::getAsString, null);
+        if (type == long.class || type == Long.class) {
+            return numeric(OptionType.INTEGER, annotation, OptionMapping::getAsLong, type == long.class ? 0L : null);
+        }
+        if (type == int.class || type == Integer.class) {
+            Binding binding = numeric(OptionType.INTEGER, annotation, mapping -> (int) mapping.getAsLong(), type == int.class ? 0 : null);
+            if (Double.isNaN(annotation.min()) && Double.isNaN(annotation.max())) {
+                binding.option.setRequiredRange(Integer.MIN_VALUE, Integer.MAX_VALUE);
+            }
+            return binding;
+        }
+        if (type == double.class || type == Double.class) {
+            return numeric(OptionType.NUMBER, annotation, OptionMapping::getAsDouble, type == double.class ? 0D : null);
+        }
+        if (type == boolean.class || type == Boolean.class) {
+            return binding(OptionType.BOOLEAN, annotation, OptionMapping::getAsBoolean, type == boolean.class ? false : null);
+        }
+        if (type == User.class) return binding(OptionType.USER, annotation, OptionMapping::getAsUser, null);
+        if (type == Member.class) return binding(OptionType.USER, annotation, OptionMapping::getAsMember, null);
+        if (type == Role.class) return binding(OptionType.ROLE, annotation, OptionMapping::getAsRole, null);
+        if (type == IMentionable.class) return binding(OptionType.MENTIONABLE, annotation, OptionMapping::getAsMentionable, null);
+        if (type == Message.Attachment.class) return binding(OptionType.ATTACHMENT, annotation, OptionMapping::getAsAttachment, null);
+        if (type == TextChannel.class) {
+            Binding binding = binding(OptionType.CHANNEL, annotation, mapping -> mapping.getAsChannel().asTextChannel(), null);
+            binding.option.setChannelTypes(ChannelType.TEXT);
+            return binding;
+        }
+        if (GuildChannel.class.isAssignableFrom(type)) {
+            return binding(OptionType.CHANNEL, annotation, mapping -> type.cast(mapping.getAsChannel()), null);
+        }
+        if (type.isEnum()) {
+            // Cada constante es una opcion con su posicion como valor: convertirla es leer el array de constantes.
+            Object[] constants = type.getEnumConstants();
+            Binding binding = binding(OptionType.INTEGER, annotation, mapping -> constants[(int) mapping.getAsLong()], null);
+            for (Object constant : constants) {
+                Enum<?> value = (Enum<?>) constant;
+                binding.option.addChoice(value.name().toLowerCase(Locale.ROOT), value.ordinal());
+            }
+            return binding;
+        }
+        return null;
+    }
+
+    private static Binding numeric(OptionType type, Option annotation, Function<OptionMapping, Object> converter, @Nullable Object absent) {
+        Binding binding = binding(type, annotation, converter, absent);
+        if (type == OptionType.INTEGER) {
+            if (!Double.isNaN(annotation.min())) binding.option.setMinValue((long) annotation.min());
+            if (!Double.isNaN(annotation.max())) binding.option.setMaxValue((long) annotation.max());
+        } else {
+            if (!Double.isNaN(annotation.min())) binding.option.setMinValue(annotation.min());
+            if (!Double.isNaN(annotation.max())) binding.option.setMaxValue(annotation.max());
+        }
+        return binding;
+    }
+
+    private static Binding binding(OptionType type, Option annotation, Function<OptionMapping, Object> converter, @Nullable Object absent) {
+        OptionData option = new OptionData(type, annotation.name(), annotation.description(), annotation.required(), annotation.autoComplete());
+        return new Binding(option, converter, absent);
+    }
+
+    private static IllegalArgumentException invalid(Object command, String reason) {
+        return new IllegalArgumentException(command.getClass().getName() + "; " + reason);
+    }
+
+    /**
+     * Una opcion y como convertirla al tipo del parametro.
+     *
+     * @param option    la opcion del SlashCommand.
+     * @param converter la conversion desde el valor recibido.
+     * @param absent    el valor del parametro si el usuario no indica la opcion.
+     */
+    private record Binding(OptionData option, Function<OptionMapping, Object> converter, @Nullable Object absent) {
+    }
+}
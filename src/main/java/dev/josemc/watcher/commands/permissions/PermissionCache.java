@@ -0,0 +1,397 @@
+package dev.josemc.watcher.commands.permissions;
+
+import dev.josemc.watcher.Config;
+import dev.josemc.watcher.metrics.WatcherMetrics;
+import net.dv8tion.jda.api.Permission;
+import net.dv8tion.jda.api.entities.Member;
+import net.dv8tion.jda.api.entities.Role;
+import net.dv8tion.jda.api.entities.channel.middleman.GuildChannel;
+import net.dv8tion.jda.api.events.channel.ChannelDeleteEvent;
+import net.dv8tion.jda.api.events.guild.GuildLeaveEvent;
+import net.dv8tion.jda.api.events.guild.member.GuildMemberRemoveEvent;
+import net.dv8tion.jda.api.events.guild.member.GuildMemberRoleAddEvent;
+import net.dv8tion.jda.api.events.guild.member.GuildMemberRoleRemoveEvent;
+import net.dv8tion.jda.api.events.guild.member.GuildMemberUpdateEvent;
+import net.dv8tion.jda.api.events.guild.override.GenericPermissionOverrideEvent;
+import net.dv8tion.jda.api.events.guild.update.GuildUpdateOwnerEvent;
+import net.dv8tion.jda.api.events.role.RoleDeleteEvent;
+import net.dv8tion.jda.api.events.role.update.RoleUpdatePermissionsEvent;
+import net.dv8tion.jda.api.events.session.ReadyEvent;
+import net.dv8tion.jda.api.hooks.ListenerAdapter;
+import net.dv8tion.jda.api.requests.GatewayIntent;
+import net.dv8tion.jda.internal.utils.PermissionUtil;
+import org.jetbrains.annotations.NotNull;
+
+import javax.annotation.Nullable;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Predicate;
+
+/**
+ * Permisos efectivos de los miembros que usan comandos, por servidor, miembro y canal.
+ * <p>
+ * Los permisos se guardan como el {@code long} de bits de Discord, de forma que comprobar los permisos de un comando
+ * es una busqueda y una mascara en lugar de recorrer los roles y los permisos del canal en cada ejecucion. Se guardan
+ * por el canal que tiene los permisos ({@link GuildChannel#getPermissionContainer()}), asi que los hilos comparten
+ * los de su canal.
+ * <p>
+ * Las entradas se borran con los eventos que cambian los permisos: los de un miembro al cambiar sus roles o salir del
+ * servidor, los de los miembros con un rol al cambiar los permisos del rol o borrarlo, y los de un canal al cambiar
+ * sus permisos o borrarlo. Sin el intent {@code GUILD_MEMBERS} no llegan los cambios de roles de los miembros, y cada
+ * entrada se comprueba ademas con los roles del miembro de la interaccion.
+ * <p>
+ * Los permisos de los miembros aislados (timeout) se calculan siempre: Discord no envia ningun evento cuando termina
+ * el aislamiento, asi que unos permisos recortados guardados durante el aislamiento seguirian usandose despues.
+ */
+public class PermissionCache extends ListenerAdapter {
+    /**
+     * Canales guardados de cada miembro; al pasar de este numero se descarta el mas antiguo.
+     */
+    private static final int MAX_CHANNELS = 16;
+
+    /**
+     * Canal de los permisos del servidor, sin permisos de canal.
+     */
+    private static final long GUILD = 0;
+
+    private final Map<Long, GuildPermissions> guilds = new ConcurrentHashMap<>();
+    private final boolean enabled;
+    private final int maxMembers;
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder invalidations = new LongAdder();
+    private volatile boolean memberEvents;
+
+    /**
+     * @param enabled    false para calcular los permisos en cada comprobacion, sin guardarlos.
+     * @param maxMembers miembros guardados de cada servidor; al llenarse se vacian los del servidor.
+     */
+    public PermissionCache(boolean enabled, int maxMembers) {
+        this.enabled = enabled;
+        this.maxMembers = maxMembers;
+
+        WatcherMetrics metrics = WatcherMetrics.get();
+        metrics.counter("watcher_permission_cache_hits_total", hits::sum);
+        metrics.counter("watcher_permission_cache_misses_total", misses::sum);
+        metrics.counter("watcher_permission_cache_invalidations_total", invalidations::sum);
+        metrics.gauge("watcher_permission_cache_members", this::size);
+    }
+
+    /**
+     * Crear la cache con la seccion {@code permissions} de la configuracion.
+     *
+     * @param config la configuracion, puede ser null.
+     * @return la cache.
+     */
+    public static PermissionCache fromConfig(@Nullable Config config) {
+        if (config == null) return new PermissionCache(true, 5000);
+        return new PermissionCache(config.getBoolean("permissions.cache", true), config.getInt("permissions.max_members", 5000));
+    }
+
+    /**
+     * Comprobar si un miembro tiene unos permisos.
+     *
+     * @param member   el miembro.
+     * @param channel  el canal, o null para los permisos del servidor.
+     * @param required los permisos necesarios, ver {@link Permission#getRaw(Permission...)}.
+     * @return true si tiene todos los permisos.
+     */
+    public boolean hasPermissions(Member member, @Nullable GuildChannel channel, long required) {
+        // Con ADMINISTRATOR los permisos calculados ya son todos.
+        return (getPermissions(member, channel) & required) == required;
+    }
+
+    /**
+     * Obtener los permisos efectivos de un miembro.
+     *
+     * @param member  el miembro.
+     * @param channel el canal, o null para los permisos del servidor.
+     * @return los permisos, como en {@link Permission#getRaw(Permission...)}.
+     */
+    public long getPermissions(Member member, @Nullable GuildChannel channel) {
+        if (!enabled || member.isTimedOut()) return compute(member, channel);
+
+        long containerId = channel != null ? channel.getPermissionContainer().getIdLong() : GUILD;
+        GuildPermissions guild = guilds.computeIfAbsent(member.getGuild().getIdLong(), ignored -> new GuildPermissions());
+        boolean verify = !memberEvents;
+        long fingerprint = verify ? fingerprint(member.getRoles()) : 0;
+
+        MemberPermissions cached = guild.members.get(member.getIdLong());
+        if (cached != null && (!verify || cached.fingerprint == fingerprint)) {
+            int index = cached.indexOf(containerId);
+            if (index >= 0) {
+                hits.increment();
+                return cached.permissions[index];
+            }
+        }
+
+        misses.increment();
+        long generation = guild.generation.get();
+        long permissions = compute(member, channel);
+        guild.store(member, containerId, permissions, generation, maxMembers);
+        return permissions;
+    }
+
+    /**
+     * Obtener el numero de miembros con permisos guardados.
+     *
+     * @return los miembros.
+     */
+    public long size() {
+        long size = 0;
+        for (GuildPermissions guild : guilds.values()) size += guild.members.size();
+        return size;
+    }
+
+    /**
+     * Obtener las comprobaciones resueltas con permisos guardados.
+     *
+     * @return los aciertos.
+     */
+    public long getHits() {
+        return hits.sum();
+    }
+
+    /**
+     * Obtener las comprobaciones que han tenido que calcular los permisos.
+     *
+     * @return los fallos.
+     */
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    /**
+     * Obtener los permisos guardados (de un miembro en un canal) que se han borrado por un evento.
+     *
+     * @return las invalidaciones.
+     */
+    public long getInvalidations() {
+        return invalidations.sum();
+    }
+
+    /**
+     * Indicar si llegan los eventos de cambios de roles de los miembros. Si no llegan, los permisos guardados se
+     * comprueban con los roles del miembro antes de usarlos.
+     *
+     * @param memberEvents true si el bot tiene el intent {@code GUILD_MEMBERS}.
+     */
+    public void setMemberEvents(boolean memberEvents) {
+        this.memberEvents = memberEvents;
+    }
+
+    @Override
+    public void onReady(@NotNull ReadyEvent event) {
+        setMemberEvents(event.getJDA().getGatewayIntents().contains(GatewayIntent.GUILD_MEMBERS));
+    }
+
+    @Override
+    public void onGuildLeave(@NotNull GuildLeaveEvent event) {
+        GuildPermissions guild = guilds.remove(event.getGuild().getIdLong());
+        if (guild != null) invalidate(guild, member -> true);
+    }
+
+    @Override
+    public void onGuildUpdateOwner(@NotNull GuildUpdateOwnerEvent event) {
+        invalidateMember(event.getGuild().getIdLong(), event.getOldOwnerIdLong());
+        invalidateMember(event.getGuild().getIdLong(), event.getNewOwnerIdLong());
+    }
+
+    @Override
+    public void onGuildMemberRoleAdd(@NotNull GuildMemberRoleAddEvent event) {
+        invalidateMember(event.getGuild().getIdLong(), event.getMember().getIdLong());
+    }
+
+    @Override
+    public void onGuildMemberRoleRemove(@NotNull GuildMemberRoleRemoveEvent event) {
+        invalidateMember(event.getGuild().getIdLong(), event.getMember().getIdLong());
+    }
+
+    @Override
+    public void onGuildMemberUpdate(@NotNull GuildMemberUpdateEvent event) {
+        // Tambien llega para los miembros que no estan en cache, que no generan los eventos de roles.
+        invalidateMember(event.getGuild().getIdLong(), event.getMember().getIdLong());
+    }
+
+    @Override
+    public void onGuildMemberRemove(@NotNull GuildMemberRemoveEvent event) {
+        invalidateMember(event.getGuild().getIdLong(), event.getUser().getIdLong());
+    }
+
+    @Override
+    public void onRoleUpdatePermissions(@NotNull RoleUpdatePermissionsEvent event) {
+        invalidateRole(event.getGuild().getIdLong(), event.getRole().getIdLong());
+    }
+
+    @Override
+    public void onRoleDelete(@NotNull RoleDeleteEvent event) {
+        invalidateRole(event.getGuild().getIdLong(), event.getRole().getIdLong());
+    }
+
+    @Override
+    public void onGenericPermissionOverride(@NotNull GenericPermissionOverrideEvent event) {
+        GuildPermissions guild = guilds.get(event.getGuild().getIdLong());
+        if (guild == null) return;
+
+        long channelId = event.getChannel().getIdLong();
+        long holderId = event.getPermissionOverride().getIdLong();
+        if (event.isMemberOverride()) {
+            invalidateChannel(guild, channelId, member -> member.getKey() == holderId);
+        } else if (holderId == event.getGuild().getIdLong()) {
+            // El rol @everyone tiene el id del servidor y lo tienen todos los miembros.
+            invalidateChannel(guild, channelId, member -> true);
+        } else {
+            invalidateChannel(guild, channelId, member -> member.getValue().hasRole(holderId));
+        }
+    }
+
+    @Override
+    public void onChannelDelete(@NotNull ChannelDeleteEvent event) {
+        if (!event.isFromGuild()) return;
+        GuildPermissions guild = guilds.get(event.getGuild().getIdLong());
+        if (guild != null) invalidateChannel(guild, event.getChannel().getIdLong(), member -> true);
+    }
+
+    private void invalidateMember(long guildId, long memberId) {
+        GuildPermissions guild = guilds.get(guildId);
+        if (guild == null) return;
+        guild.generation.incrementAndGet();
+        MemberPermissions removed = guild.members.remove(memberId);
+        if (removed != null) invalidations.add(removed.channels.length);
+    }
+
+    private void invalidateRole(long guildId, long roleId) {
+        GuildPermissions guild = guilds.get(guildId);
+        if (guild == null) return;
+        if (roleId == guildId) {
+            invalidate(guild, member -> true);
+        } else {
+            invalidate(guild, member -> member.getValue().hasRole(roleId));
+        }
+    }
+
+    private void invalidate(GuildPermissions guild, Predicate<Map.Entry<Long, MemberPermissions>> filter) {
+        // La generacion cambia antes de borrar, para que un calculo que empezo antes del evento no se guarde despues.
+        guild.generation.incrementAndGet();
+        guild.members.entrySet().removeIf(member -> {
+            if (!filter.test(member)) return false;
+            invalidations.add(member.getValue().channels.length);
+            return true;
+        });
+    }
+
+    private void invalidateChannel(GuildPermissions guild, long channelId, Predicate<Map.Entry<Long, MemberPermissions>> filter) {
+        guild.generation.incrementAndGet();
+        for (Map.Entry<Long, MemberPermissions> member : guild.members.entrySet()) {
+            if (!filter.test(member) || member.getValue().indexOf(channelId) < 0) continue;
+            guild.members.computeIfPresent(member.getKey(), (id, current) -> {
+                MemberPermissions updated = current.without(channelId);
+                if (updated != current) invalidations.increment();
+                return updated;
+            });
+        }
+    }
+
+    private static long compute(Member member, @Nullable GuildChannel channel) {
+        return channel != null ? PermissionUtil.getEffectivePermission(channel, member) : PermissionUtil.getEffectivePermission(member);
+    }
+
+    /**
+     * Resumen de los roles de un miembro que no depende de su orden.
+     */
+    private static long fingerprint(List<Role> roles) {
+        long fingerprint = roles.size();
+        for (Role role : roles) {
+            long id = role.getIdLong() * 0x9E3779B97F4A7C15L;
+            fingerprint += id ^ (id >>> 29);
+        }
+        return fingerprint;
+    }
+
+    private static final class GuildPermissions {
+        private final Map<Long, MemberPermissions> members = new ConcurrentHashMap<>();
+        private final AtomicLong generation = new AtomicLong();
+
+        void store(Member member, long containerId, long permissions, long generation, int maxMembers) {
+            long memberId = member.getIdLong();
+            List<Role> roles = member.getRoles();
+            if (members.size() >= maxMembers && !members.containsKey(memberId)) members.clear();
+
+            members.compute(memberId, (id, current) -> {
+                // Si ha llegado un evento mientras se calculaban, los permisos pueden estar ya desfasados.
+                if (this.generation.get() != generation) return current;
+                long fingerprint = fingerprint(roles);
+                if (current == null || current.fingerprint != fingerprint) {
+                    return new MemberPermissions(fingerprint, roleIds(roles), new long[]{containerId}, new long[]{permissions});
+                }
+                return current.with(containerId, permissions);
+            });
+        }
+
+        private static long[] roleIds(List<Role> roles) {
+            long[] ids = new long[roles.size()];
+            for (int i = 0; i < ids.length; i++) ids[i] = roles.get(i).getIdLong();
+            Arrays.sort(ids);
+            return ids;
+        }
+    }
+
+    /**
+     * Permisos guardados de un miembro. Es inmutable: cada cambio crea una copia, para leerlos sin bloqueos.
+     *
+     * @param fingerprint resumen de los roles con los que se calcularon.
+     * @param roles       los ids de los roles, ordenados.
+     * @param channels    los canales, {@link #GUILD} para los permisos del servidor.
+     * @param permissions los permisos de cada canal.
+     */
+    private record MemberPermissions(long fingerprint, long[] roles, long[] channels, long[] permissions) {
+
+        int indexOf(long channelId) {
+            for (int i = 0; i < channels.length; i++) {
+                if (channels[i] == channelId) return i;
+            }
+            return -1;
+        }
+
+        boolean hasRole(long roleId) {
+            return Arrays.binarySearch(roles, roleId) >= 0;
+        }
+
+        MemberPermissions with(long channelId, long value) {
+            int index = indexOf(channelId);
+            long[] channels;
+            long[] permissions;
+            if (index >= 0) {
+                channels = this.channels;
+                permissions = this.permissions.clone();
+                permissions[index] = value;
+            } else {
+                int keep = Math.min(this.channels.length, MAX_CHANNELS - 1);
+                int from = this.channels.length - keep;
+                channels = Arrays.copyOfRange(this.channels, from, from + keep + 1);
+                permissions = Arrays.copyOfRange(this.permissions, from, from + keep + 1);
+                channels[keep] = channelId;
+                permissions[keep] = value;
+            }
+            return new MemberPermissions(fingerprint, roles, channels, permissions);
+        }
+
+        @Nullable
+        MemberPermissions without(long channelId) {
+            int index = indexOf(channelId);
+            if (index < 0) return this;
+            if (channels.length == 1) return null;
+            long[] channels = new long[this.channels.length - 1];
+            long[] permissions = new long[channels.length];
+            System.arraycopy(this.channels, 0, channels, 0, index);
+            System.arraycopy(this.channels, index + 1, channels, index, channels.length - index);
+            System.arraycopy(this.permissions, 0, permissions, 0, index);
+            System.arraycopy(this.permissions, index + 1, permissions, index, permissions.length - index);
+            return new MemberPermissions(fingerprint, roles, channels, permissions);
+        }
+    }
+}
@@ -0,0 +1,70 @@
+package dev.josemc.watcher.commands.ratelimit;
+
+import dev.josemc.watcher.commands.interfaces.Command;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Limites de uso de los comandos, declarados en la anotacion {@link Command}.
+ */
+public class CommandRateLimiter {
+
+    /**
+     * Numero de ids por limite a partir del cual se eliminan los que han caducado.
+     */
+    private static final int MAX_ENTRIES = 10_000;
+
+    private final ConcurrentHashMap<String, Limits> limits = new ConcurrentHashMap<>();
+
+    /**
+     * Intentar consumir un uso de un comando.
+     *
+     * @param command la anotacion del comando.
+     * @param userId  id del usuario que lo ejecuta.
+     * @param guildId id del servidor donde se ejecuta.
+     * @return 0 si se permite; si no, los nanosegundos que faltan para poder usarlo.
+     */
+    public long tryAcquire(Command command, long userId, long guildId) {
+        if (command.userLimit() <= 0 && command.guildLimit() <= 0 && command.globalLimit() <= 0) return 0;
+
+        Limits commandLimits = limits.get(command.name());
+        if (commandLimits == null || commandLimits.command != command) {
+            commandLimits = new Limits(command);
+            limits.put(command.name(), commandLimits);
+        }
+
+        long now = System.nanoTime();
+        long wait;
+        if (commandLimits.user != null && (wait = commandLimits.user.tryAcquire(userId, now)) > 0) return wait;
+        // Si un limite rechaza el uso, se devuelve a los que ya lo habian contado: el comando no se ejecuta.
+        if (commandLimits.guild != null && (wait = commandLimits.guild.tryAcquire(guildId, now)) > 0) {
+            if (commandLimits.user != null) commandLimits.user.refund(userId);
+            return wait;
+        }
+        if (commandLimits.global != null && (wait = commandLimits.global.tryAcquire(0, now)) > 0) {
+            if (commandLimits.user != null) commandLimits.user.refund(userId);
+            if (commandLimits.guild != null) commandLimits.guild.refund(guildId);
+            return wait;
+        }
+        return 0;
+    }
+
+    /**
+     * Limites de un comando. Se crean de nuevo si cambia la anotacion, por ejemplo al recargar el comando.
+     */
+    private static final class Limits {
+        final Command command;
+        final TokenBucket user;
+        final TokenBucket guild;
+        final TokenBucket global;
+
+        Limits(Command command) {
+            this.command = command;
+            long period = TimeUnit.SECONDS.toNanos(Math.max(1, command.period()));
+            this.user = command.userLimit() > 0 ? new TokenBucket(command.userLimit(), period, MAX_ENTRIES) : null;
+            this.guild = command.guildLimit() > 0 ? new TokenBucket(command.guildLimit(), period, MAX_ENTRIES) : null;
+            this.global = command.globalLimit() > 0 ? new TokenBucket(command.globalLimit(), period, 1) : null;
+        }
+    }
+}
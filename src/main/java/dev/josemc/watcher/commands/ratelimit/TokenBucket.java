@@ -0,0 +1,133 @@
+package dev.josemc.watcher.commands.ratelimit;
+
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Conjunto de limites de uso con la misma capacidad y periodo, uno por id (usuario, servidor...).
+ * <p>
+ * Cada limite se guarda como un unico {@code long}, el momento teorico en que el cubo vuelve a estar
+ * lleno (algoritmo GCRA), y se actualiza con CAS sin bloqueos. Un limite cuyo momento ya ha pasado
+ * equivale a uno que no existe, asi que se eliminan de forma perezosa al recorrer el mapa de vez en cuando.
+ * Cada limpieza revisa solo {@value #SWEEP_BATCH} limites y la siguiente continua por donde lo dejo, para que un
+ * comando usado por muchos usuarios distintos no recorra todo el mapa en el hilo del evento.
+ * <p>
+ * Un limite se marca como eliminado con un CAS antes de quitarlo del mapa: un hilo que ya lo habia leido no puede
+ * consumir un uso en el y lo vuelve a buscar en el mapa, de forma que nunca hay dos limites activos para el mismo id.
+ */
+public final class TokenBucket {
+
+    /**
+     * Cada cuantas adquisiciones se intenta limpiar el mapa.
+     */
+    private static final int SWEEP_INTERVAL = 64;
+
+    /**
+     * Limites revisados en cada limpieza.
+     */
+    private static final int SWEEP_BATCH = 64;
+
+    /**
+     * Valor de un limite ya eliminado del mapa.
+     */
+    private static final long REMOVED = Long.MIN_VALUE;
+
+    private final long emissionNanos;
+    private final long periodNanos;
+    private final int maxEntries;
+    private final ConcurrentHashMap<Long, AtomicLong> buckets = new ConcurrentHashMap<>();
+    private final AtomicInteger acquisitions = new AtomicInteger();
+    private final AtomicBoolean sweeping = new AtomicBoolean();
+    /**
+     * Posicion de la limpieza en el mapa, solo la usa el hilo que tiene {@link #sweeping}.
+     */
+    private Iterator<Map.Entry<Long, AtomicLong>> cursor;
+
+    /**
+     * @param capacity    usos permitidos en cada periodo.
+     * @param periodNanos duracion del periodo en nanosegundos.
+     * @param maxEntries  numero de ids a partir del cual cada id nuevo limpia parte del mapa.
+     */
+    public TokenBucket(int capacity, long periodNanos, int maxEntries) {
+        this.emissionNanos = periodNanos / capacity;
+        this.periodNanos = periodNanos;
+        this.maxEntries = maxEntries;
+    }
+
+    /**
+     * Intentar consumir un uso.
+     *
+     * @param id  el id del limite.
+     * @param now el momento actual, de {@link System#nanoTime()}.
+     * @return 0 si se permite el uso; si no, los nanosegundos que faltan para poder usarlo.
+     */
+    public long tryAcquire(long id, long now) {
+        int count = acquisitions.incrementAndGet();
+        AtomicLong bucket = buckets.get(id);
+        if (bucket == null) {
+            bucket = buckets.computeIfAbsent(id, key -> new AtomicLong(now));
+            if (buckets.size() > maxEntries) sweep(now);
+        }
+        if ((count & (SWEEP_INTERVAL - 1)) == 0) sweep(now);
+
+        while (true) {
+            long full = bucket.get();
+            if (full == REMOVED) {
+                bucket = buckets.computeIfAbsent(id, key -> new AtomicLong(now));
+                continue;
+            }
+            long next = Math.max(full, now) + emissionNanos;
+            if (next - now > periodNanos) return next - now - periodNanos;
+            if (bucket.compareAndSet(full, next)) return 0;
+        }
+    }
+
+    /**
+     * Devolver un uso consumido con {@link #tryAcquire(long, long)} que al final no se ha hecho, por ejemplo porque
+     * otro limite lo ha rechazado.
+     *
+     * @param id el id del limite.
+     */
+    public void refund(long id) {
+        AtomicLong bucket = buckets.get(id);
+        if (bucket == null) return;
+        while (true) {
+            long full = bucket.get();
+            // Eliminado por estar lleno: no hay nada que devolver.
+            if (full == REMOVED || bucket.compareAndSet(full, full - emissionNanos)) return;
+        }
+    }
+
+    /**
+     * Numero de ids guardados.
+     */
+    public int size() {
+        return buckets.size();
+    }
+
+    /**
+     * Eliminar los limites que ya estan llenos entre los {@value #SWEEP_BATCH} siguientes del mapa. Solo un hilo
+     * limpia a la vez; el resto continua sin esperar.
+     */
+    private void sweep(long now) {
+        if (!sweeping.compareAndSet(false, true)) return;
+        try {
+            for (int i = 0; i < SWEEP_BATCH; i++) {
+                if (cursor == null || !cursor.hasNext()) {
+                    cursor = buckets.entrySet().iterator();
+                    if (!cursor.hasNext()) return;
+                }
+                Map.Entry<Long, AtomicLong> entry = cursor.next();
+                AtomicLong bucket = entry.getValue();
+                long full = bucket.get();
+                if (full != REMOVED && full - now <= 0 && bucket.compareAndSet(full, REMOVED)) buckets.remove(entry.getKey(), bucket);
+            }
+        } finally {
+            sweeping.set(false);
+        }
+    }
+}
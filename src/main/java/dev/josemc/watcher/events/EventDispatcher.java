@@ -0,0 +1,476 @@
+package dev.josemc.watcher.events;
+
+import dev.josemc.watcher.Config;
+import dev.josemc.watcher.metrics.WatcherMetrics;
+import net.dv8tion.jda.api.entities.Guild;
+import net.dv8tion.jda.api.events.GenericEvent;
+import net.dv8tion.jda.api.events.UpdateEvent;
+import net.dv8tion.jda.api.events.guild.GenericGuildEvent;
+import net.dv8tion.jda.api.events.interaction.GenericInteractionCreateEvent;
+import net.dv8tion.jda.api.hooks.EventListener;
+import net.dv8tion.jda.api.hooks.IEventManager;
+import net.dv8tion.jda.api.hooks.ListenerAdapter;
+import net.dv8tion.jda.internal.requests.WebSocketClient;
+import org.jetbrains.annotations.NotNull;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.ToLongFunction;
+
+/**
+ * {@link IEventManager} que reparte los eventos de Discord en colas por servidor.
+ * <p>
+ * Los eventos de un servidor se atienden de uno en uno y en el orden en que llegan, y cada evento pasa por los
+ * listeners en el orden en que se registraron; los de servidores distintos se atienden a la vez en varios hilos. Asi
+ * un listener lento solo retrasa a su servidor, y no al hilo del gateway de la shard. Los eventos sin servidor
+ * (mensajes directos, la sesion...) van a una cola por shard.
+ * <p>
+ * Solo pasan por las colas los eventos que llegan en el hilo del gateway. Los que JDA lanza desde otros hilos (las
+ * respuestas REST en {@code HttpRequestEvent}, los cambios de estado...) se atienden en ese hilo, como antes: esperar
+ * en la cola de la shard retrasaria los limites de Discord del {@code OutboundScheduler}, y frenar los hilos de las
+ * llamadas REST bajaria su ritmo justo cuando hay mas carga. Las interacciones (comandos, autocompletado, botones...)
+ * tampoco pasan por las colas, porque Discord solo espera 3 segundos la respuesta y la cola de un servidor puede
+ * tener cientos de eventos durante un raid, justo cuando los moderadores usan los comandos.
+ * <p>
+ * Los listeners que atienden cada clase de evento se calculan una vez: un {@link ListenerAdapter} solo recibe los
+ * eventos para los que sobrescribe algun metodo {@code on...}, y los eventos que no atiende ningun listener no se
+ * ponen en cola.
+ * <p>
+ * Si hay demasiados eventos en cola ({@code max_pending} en total o {@code lane_queue} en un servidor), el hilo del
+ * gateway espera como maximo {@code block_millis} a que se atiendan, lo que frena la lectura del gateway. Pasado ese
+ * tiempo el evento se pone en cola igualmente, para no perderlo ni cambiar el orden.
+ * <p>
+ * Se usa la misma instancia en todas las shards: cada shard registra los mismos listeners, que solo se añaden una vez.
+ */
+public class EventDispatcher implements IEventManager {
+    private static final Logger log = LoggerFactory.getLogger(EventDispatcher.class);
+
+    /**
+     * Eventos que atiende una cola seguidos antes de dejar el hilo a las demas.
+     */
+    private static final int BATCH = 64;
+
+    /**
+     * Tiempo minimo entre dos avisos de retraso en el log.
+     */
+    private static final long LAG_LOG_INTERVAL_NANOS = TimeUnit.SECONDS.toNanos(30);
+
+    /**
+     * Resultado de {@link Route#lane} para los eventos sin servidor.
+     */
+    private static final long NO_GUILD = 0;
+
+    private final List<Object> listeners = new CopyOnWriteArrayList<>();
+    private final Map<Class<?>, Route> routes = new ConcurrentHashMap<>();
+    private final Map<Long, Lane> lanes = new ConcurrentHashMap<>();
+    private final ExecutorService workers;
+    private final Semaphore capacity;
+    private final int laneQueue;
+    private final long blockNanos;
+    private final long lagWarnNanos;
+    private final AtomicLong pending = new AtomicLong();
+    private final AtomicLong lastLagLog = new AtomicLong(System.nanoTime() - LAG_LOG_INTERVAL_NANOS);
+    private final LongAdder dispatched = new LongAdder();
+    private final LongAdder blocked = new LongAdder();
+    private final LongAdder overflowed = new LongAdder();
+    private final LongAdder errors = new LongAdder();
+
+    /**
+     * @param threads      hilos que atienden las colas.
+     * @param maxPending   eventos en cola entre todas las colas antes de frenar el gateway.
+     * @param laneQueue    eventos en cola de un servidor antes de frenar el gateway.
+     * @param blockMillis  tiempo maximo que se frena el gateway por cada evento.
+     * @param lagWarnMillis retraso de un evento a partir del cual se avisa en el log (0 = nunca).
+     */
+    public EventDispatcher(int threads, int maxPending, int laneQueue, long blockMillis, long lagWarnMillis) {
+        this.workers = Executors.newFixedThreadPool(Math.max(1, threads), new WorkerFactory());
+        this.capacity = new Semaphore(Math.max(1, maxPending));
+        this.laneQueue = Math.max(1, laneQueue);
+        this.blockNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(0, blockMillis));
+        this.lagWarnNanos = lagWarnMillis > 0 ? TimeUnit.MILLISECONDS.toNanos(lagWarnMillis) : Long.MAX_VALUE;
+
+        WatcherMetrics metrics = WatcherMetrics.get();
+        metrics.gauge("watcher_events_pending", pending::get);
+        metrics.gauge("watcher_events_lanes", lanes::size);
+        metrics.gauge("watcher_events_oldest_millis", this::getOldestMillis);
+        metrics.counter("watcher_events_dispatched_total", dispatched::sum);
+        metrics.counter("watcher_events_blocked_total", blocked::sum);
+        metrics.counter("watcher_events_overflow_total", overflowed::sum);
+        metrics.counter("watcher_events_errors_total", errors::sum);
+    }
+
+    /**
+     * Crear el repartidor con la seccion {@code events} de la configuracion.
+     *
+     * @param config la configuracion.
+     * @return el repartidor.
+     */
+    public static EventDispatcher fromConfig(Config config) {
+        int threads = config.getInt("events.threads", 0);
+        return new EventDispatcher(threads > 0 ? threads : Runtime.getRuntime().availableProcessors(),
+                config.getInt("events.max_pending", 10_000), config.getInt("events.lane_queue", 1000),
+                config.getLong("events.block_millis", 100), config.getLong("events.lag_warn_millis", 1000));
+    }
+
+    @Override
+    public void register(@NotNull Object listener) {
+        if (!(listener instanceof EventListener)) {
+            throw new IllegalArgumentException("El listener debe implementar EventListener: " + listener.getClass().getName());
+        }
+        synchronized (listeners) {
+            for (Object registered : listeners) {
+                if (registered == listener) return;
+            }
+            listeners.add(listener);
+            routes.clear();
+        }
+    }
+
+    @Override
+    public void unregister(@NotNull Object listener) {
+        synchronized (listeners) {
+            if (listeners.removeIf(registered -> registered == listener)) routes.clear();
+        }
+    }
+
+    @NotNull
+    @Override
+    public List<Object> getRegisteredListeners() {
+        return List.copyOf(listeners);
+    }
+
+    @Override
+    public void handle(@NotNull GenericEvent event) {
+        Route route = routes.get(event.getClass());
+        if (route == null) route = routes.computeIfAbsent(event.getClass(), this::route);
+        if (route.listeners.length == 0) return;
+
+        long received = System.nanoTime();
+        if (route.inline || !WebSocketClient.WS_THREAD.get()) {
+            deliver(event, route.listeners);
+            dispatched.increment();
+            return;
+        }
+
+        long guildId = route.lane.applyAsLong(event);
+        // Los ids de los servidores son positivos; las colas de las shards usan los negativos.
+        long key = guildId != NO_GUILD ? guildId : -1 - event.getJDA().getShardInfo().getShardId();
+        long deadline = received + blockNanos;
+
+        boolean permit = capacity.tryAcquire();
+        if (!permit) {
+            blocked.increment();
+            try {
+                permit = capacity.tryAcquire(blockNanos, TimeUnit.NANOSECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        boolean overflow = !permit;
+
+        Queued queued = new Queued(event, route.listeners, permit, received);
+        while (true) {
+            Lane lane = lanes.computeIfAbsent(key, Lane::new);
+            synchronized (lane) {
+                // La cola pudo retirarse entre computeIfAbsent y el bloqueo.
+                if (lane.retired) continue;
+
+                if (lane.queue.size() >= laneQueue) {
+                    if (!overflow) blocked.increment();
+                    long remaining;
+                    while (lane.queue.size() >= laneQueue && (remaining = deadline - System.nanoTime()) > 0) {
+                        lane.waiting++;
+                        try {
+                            TimeUnit.NANOSECONDS.timedWait(lane, remaining);
+                        } catch (InterruptedException e) {
+                            Thread.currentThread().interrupt();
+                            break;
+                        } finally {
+                            lane.waiting--;
+                        }
+                    }
+                    if (lane.queue.size() >= laneQueue) overflow = true;
+                }
+                if (overflow) overflowed.increment();
+
+                lane.queue.add(queued);
+                pending.incrementAndGet();
+                if (!lane.scheduled) {
+                    lane.scheduled = true;
+                    execute(lane);
+                }
+                return;
+            }
+        }
+    }
+
+    /**
+     * Esperar a que se atiendan los eventos en cola y parar los hilos. Los eventos que lleguen despues se atienden
+     * en el hilo que los envia.
+     *
+     * @param timeout tiempo maximo de espera.
+     * @param unit    unidad del tiempo.
+     * @return true si se atendieron todos los eventos.
+     * @throws InterruptedException si se interrumpe la espera.
+     */
+    public boolean shutdown(long timeout, TimeUnit unit) throws InterruptedException {
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+        while (pending.get() > 0 && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        workers.shutdown();
+        return workers.awaitTermination(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS) && pending.get() == 0;
+    }
+
+    /**
+     * Obtener los eventos en cola.
+     *
+     * @return los eventos.
+     */
+    public long getPending() {
+        return pending.get();
+    }
+
+    /**
+     * Obtener los eventos atendidos.
+     *
+     * @return los eventos.
+     */
+    public long getDispatched() {
+        return dispatched.sum();
+    }
+
+    /**
+     * Obtener cuanto lleva esperando el evento mas antiguo en cola.
+     *
+     * @return el tiempo en milisegundos, 0 si no hay eventos en cola.
+     */
+    public long getOldestMillis() {
+        long now = System.nanoTime();
+        long oldest = 0;
+        for (Lane lane : lanes.values()) {
+            synchronized (lane) {
+                Queued head = lane.queue.peek();
+                if (head != null) oldest = Math.max(oldest, now - head.receivedNanos);
+            }
+        }
+        return TimeUnit.NANOSECONDS.toMillis(oldest);
+    }
+
+    private void execute(Lane lane) {
+        try {
+            workers.execute(lane);
+        } catch (RejectedExecutionException e) {
+            // Despues de shutdown: se atiende en este hilo, en orden con lo que quedara en la cola.
+            lane.run();
+        }
+    }
+
+    private void dispatch(long key, Queued queued) {
+        // Desde que llego el evento, contando la espera del gateway si las colas estaban llenas.
+        long lag = System.nanoTime() - queued.receivedNanos;
+        WatcherMetrics.get().recordEventLag(lag);
+        if (lag > lagWarnNanos) warnLag(key, lag);
+
+        try {
+            deliver(queued.event, queued.listeners);
+        } finally {
+            dispatched.increment();
+            pending.decrementAndGet();
+            if (queued.permit) capacity.release();
+        }
+    }
+
+    private void deliver(GenericEvent event, EventListener[] listeners) {
+        for (EventListener listener : listeners) {
+            try {
+                listener.onEvent(event);
+            } catch (Throwable throwable) {
+                // Como en JDA, un listener que falla no impide que el evento llegue a los demas.
+                errors.increment();
+                log.error("Error en {} con el evento {}", listener.getClass().getName(), event.getClass().getSimpleName(), throwable);
+            }
+        }
+    }
+
+    private void warnLag(long key, long lag) {
+        long now = System.nanoTime();
+        long last = lastLagLog.get();
+        if (now - last < LAG_LOG_INTERVAL_NANOS || !lastLagLog.compareAndSet(last, now)) return;
+        log.warn("Los eventos van con {} ms de retraso ({}, {} en cola)", TimeUnit.NANOSECONDS.toMillis(lag),
+                key > 0 ? "servidor " + key : "shard " + (-1 - key), pending.get());
+    }
+
+    /**
+     * Calcular los listeners que atienden una clase de evento y como se obtiene su servidor.
+     */
+    private Route route(Class<?> type) {
+        List<EventListener> handlers = new ArrayList<>();
+        for (Object listener : listeners) {
+            if (handles(listener, type)) handlers.add((EventListener) listener);
+        }
+        return new Route(handlers.toArray(EventListener[]::new), laneOf(type), GenericInteractionCreateEvent.class.isAssignableFrom(type));
+    }
+
+    /**
+     * Comprobar si un listener atiende una clase de evento. {@link ListenerAdapter#onEvent} llama a
+     * {@code onGenericEvent}, a {@code onGenericUpdate} y a un metodo {@code on...} por cada clase e interfaz del
+     * evento; si el listener no sobrescribe ninguno, el evento no le llega.
+     */
+    static boolean handles(Object listener, Class<?> type) {
+        if (!(listener instanceof ListenerAdapter)) return true;
+
+        Class<?> listenerClass = listener.getClass();
+        if (overrides(listenerClass, "onGenericEvent", GenericEvent.class)) return true;
+        if (UpdateEvent.class.isAssignableFrom(type) && overrides(listenerClass, "onGenericUpdate", UpdateEvent.class)) return true;
+        for (Class<?> eventClass : hierarchy(type)) {
+            String name = eventClass.getSimpleName();
+            if (name.endsWith("Event")) name = name.substring(0, name.length() - "Event".length());
+            if (overrides(listenerClass, "on" + name, eventClass)) return true;
+        }
+        return false;
+    }
+
+    private static boolean overrides(Class<?> listenerClass, String name, Class<?> parameter) {
+        try {
+            return listenerClass.getMethod(name, parameter).getDeclaringClass() != ListenerAdapter.class;
+        } catch (NoSuchMethodException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Clases e interfaces de un evento hasta {@link GenericEvent}.
+     */
+    private static Set<Class<?>> hierarchy(Class<?> type) {
+        Set<Class<?>> classes = new LinkedHashSet<>();
+        ArrayDeque<Class<?>> queue = new ArrayDeque<>();
+        queue.add(type);
+        while (!queue.isEmpty()) {
+            Class<?> current = queue.poll();
+            if (!GenericEvent.class.isAssignableFrom(current) || !classes.add(current)) continue;
+            if (current.getSuperclass() != null) queue.add(current.getSuperclass());
+            queue.addAll(List.of(current.getInterfaces()));
+        }
+        return classes;
+    }
+
+    /**
+     * Obtener como se calcula el servidor de una clase de evento: los eventos de servidor directamente, y el resto
+     * con su {@code getGuild()} si lo tienen, comprobando {@code isFromGuild()} si existe.
+     */
+    static ToLongFunction<GenericEvent> laneOf(Class<?> type) {
+        if (GenericGuildEvent.class.isAssignableFrom(type)) return event -> ((GenericGuildEvent) event).getGuild().getIdLong();
+
+        MethodHandles.Lookup lookup = MethodHandles.publicLookup();
+        MethodHandle guild;
+        try {
+            guild = lookup.findVirtual(type, "getGuild", MethodType.methodType(Guild.class))
+                    .asType(MethodType.methodType(Guild.class, GenericEvent.class));
+        } catch (NoSuchMethodException | IllegalAccessException e) {
+            return event -> NO_GUILD;
+        }
+        MethodHandle fromGuild;
+        try {
+            fromGuild = lookup.findVirtual(type, "isFromGuild", MethodType.methodType(boolean.class))
+                    .asType(MethodType.methodType(boolean.class, GenericEvent.class));
+        } catch (NoSuchMethodException | IllegalAccessException e) {
+            fromGuild = null;
+        }
+        MethodHandle isFromGuild = fromGuild;
+        return event -> {
+            try {
+                if (isFromGuild != null && !(boolean) isFromGuild.invokeExact(event)) return NO_GUILD;
+                Guild result = (Guild) guild.invokeExact(event);
+                return result != null ? result.getIdLong() : NO_GUILD;
+            } catch (Throwable throwable) {
+                return NO_GUILD;
+            }
+        };
+    }
+
+    /**
+     * Listeners de una clase de evento, en orden de registro, como se obtiene su servidor y si se atiende sin cola.
+     */
+    private record Route(EventListener[] listeners, ToLongFunction<GenericEvent> lane, boolean inline) {
+    }
+
+    private static final class Queued {
+        final GenericEvent event;
+        final EventListener[] listeners;
+        final boolean permit;
+        final long receivedNanos;
+
+        Queued(GenericEvent event, EventListener[] listeners, boolean permit, long receivedNanos) {
+            this.event = event;
+            this.listeners = listeners;
+            this.permit = permit;
+            this.receivedNanos = receivedNanos;
+        }
+    }
+
+    /**
+     * Cola de un servidor o de una shard. Solo la atiende un hilo cada vez; al vaciarse se retira.
+     */
+    private final class Lane implements Runnable {
+        final long key;
+        final ArrayDeque<Queued> queue = new ArrayDeque<>();
+        boolean scheduled;
+        boolean retired;
+        int waiting;
+
+        Lane(long key) {
+            this.key = key;
+        }
+
+        @Override
+        public void run() {
+            for (int i = 0; i < BATCH; i++) {
+                Queued next;
+                synchronized (this) {
+                    next = queue.poll();
+                    if (next == null) {
+                        scheduled = false;
+                        retired = true;
+                        lanes.remove(key, this);
+                        return;
+                    }
+                    if (waiting > 0) notifyAll();
+                }
+                dispatch(key, next);
+            }
+            // Se vuelve a la cola del ejecutor para no acaparar el hilo mientras esperan otros servidores.
+            execute(this);
+        }
+    }
+
+    private static final class WorkerFactory implements java.util.concurrent.ThreadFactory {
+        private final AtomicInteger counter = new AtomicInteger();
+
+        @Override
+        public Thread newThread(@NotNull Runnable runnable) {
+            Thread thread = new Thread(runnable, "Event-Worker-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+}
@@ -0,0 +1,69 @@
+package dev.josemc.watcher.i18n;
+
+import net.dv8tion.jda.api.EmbedBuilder;
+import net.dv8tion.jda.api.entities.MessageEmbed;
+
+import javax.annotation.Nullable;
+
+/**
+ * Embed con titulo, descripcion y pie como {@link MessageTemplate}.
+ * <p>
+ * Si ninguna parte tiene parametros, el {@link MessageEmbed} se crea una vez al cargarlo y se reutiliza.
+ */
+public final class EmbedTemplate {
+    @Nullable
+    private final MessageTemplate title;
+    @Nullable
+    private final MessageTemplate description;
+    @Nullable
+    private final MessageTemplate footer;
+    private final int color;
+    @Nullable
+    private final MessageEmbed constant;
+
+    /**
+     * @param title       el titulo, puede ser null.
+     * @param description la descripcion, puede ser null.
+     * @param footer      el pie, puede ser null.
+     * @param color       el color RGB, o -1 para ninguno.
+     */
+    public EmbedTemplate(@Nullable MessageTemplate title, @Nullable MessageTemplate description, @Nullable MessageTemplate footer, int color) {
+        this.title = title;
+        this.description = description;
+        this.footer = footer;
+        this.color = color;
+        this.constant = isConstant(title) && isConstant(description) && isConstant(footer) ? build((Object[]) null) : null;
+    }
+
+    private static boolean isConstant(@Nullable MessageTemplate template) {
+        return template == null || template.isConstant();
+    }
+
+    /**
+     * Saber si el embed no tiene parametros.
+     *
+     * @return true, si siempre se genera el mismo embed.
+     */
+    public boolean isConstant() {
+        return constant != null;
+    }
+
+    /**
+     * Rellenar los parametros y crear el embed.
+     *
+     * @param args los argumentos, por posicion, compartidos por todas las partes.
+     * @return el {@link MessageEmbed}.
+     */
+    public MessageEmbed render(Object... args) {
+        return constant != null ? constant : build(args);
+    }
+
+    private MessageEmbed build(Object[] args) {
+        EmbedBuilder builder = new EmbedBuilder();
+        if (title != null) builder.setTitle(title.render(args));
+        if (description != null) builder.setDescription(description.render(args));
+        if (footer != null) builder.setFooter(footer.render(args));
+        if (color >= 0) builder.setColor(color);
+        return builder.build();
+    }
+}
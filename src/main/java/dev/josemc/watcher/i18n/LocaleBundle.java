@@ -0,0 +1,132 @@
+package dev.josemc.watcher.i18n;
+
+import net.dv8tion.jda.api.interactions.DiscordLocale;
+import net.dv8tion.jda.api.utils.messages.MessageCreateData;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.awt.Color;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Textos de un idioma, ya compilados.
+ * <p>
+ * Cada clave es un texto, salvo las que terminan en {@code .title}, {@code .description}, {@code .footer}
+ * o {@code .color}, que forman el embed con el nombre de la clave sin el sufijo. Los mensajes sin parametros
+ * se crean una vez al cargar el idioma, de forma que responder con ellos no crea ningun objeto.
+ */
+public final class LocaleBundle {
+    private static final Logger log = LoggerFactory.getLogger(LocaleBundle.class);
+
+    private final DiscordLocale locale;
+    private final Map<String, MessageTemplate> texts = new HashMap<>();
+    private final Map<String, EmbedTemplate> embeds = new HashMap<>();
+    private final Map<String, MessageCreateData> constants = new HashMap<>();
+    private final Set<String> missing = ConcurrentHashMap.newKeySet();
+
+    /**
+     * @param locale  el idioma.
+     * @param entries los textos, incluidos los del idioma por defecto que no se han traducido.
+     */
+    LocaleBundle(DiscordLocale locale, Map<String, String> entries) {
+        this.locale = locale;
+
+        Map<String, String[]> embedParts = new HashMap<>();
+        entries.forEach((key, value) -> {
+            int part = embedPart(key);
+            if (part < 0) {
+                texts.put(key, MessageTemplate.compile(value));
+            } else {
+                embedParts.computeIfAbsent(key.substring(0, key.lastIndexOf('.')), name -> new String[4])[part] = value;
+            }
+        });
+        embedParts.forEach((name, parts) -> embeds.put(name, new EmbedTemplate(compile(parts[0]), compile(parts[1]), compile(parts[2]), parseColor(name, parts[3]))));
+
+        texts.forEach((key, template) -> {
+            if (template.isConstant() && !embeds.containsKey(key)) constants.put(key, MessageCreateData.fromContent(template.render()));
+        });
+        embeds.forEach((key, template) -> {
+            if (template.isConstant()) constants.put(key, MessageCreateData.fromEmbeds(template.render()));
+        });
+    }
+
+    private static int embedPart(String key) {
+        if (key.endsWith(".title")) return 0;
+        if (key.endsWith(".description")) return 1;
+        if (key.endsWith(".footer")) return 2;
+        if (key.endsWith(".color")) return 3;
+        return -1;
+    }
+
+    private static MessageTemplate compile(String value) {
+        return value == null ? null : MessageTemplate.compile(value);
+    }
+
+    private static int parseColor(String name, String value) {
+        if (value == null) return -1;
+        try {
+            return Color.decode(value.trim()).getRGB() & 0xFFFFFF;
+        } catch (NumberFormatException e) {
+            log.warn("Color {} no valido en el embed {}", value, name);
+            return -1;
+        }
+    }
+
+    /**
+     * Obtener el idioma.
+     *
+     * @return el {@link DiscordLocale}.
+     */
+    public DiscordLocale getLocale() {
+        return locale;
+    }
+
+    /**
+     * Obtener un texto.
+     *
+     * @param key  la clave.
+     * @param args los argumentos del texto.
+     * @return el texto, o la clave si no existe.
+     */
+    public String get(String key, Object... args) {
+        MessageTemplate template = texts.get(key);
+        if (template == null) return missing(key);
+        return template.render(args);
+    }
+
+    /**
+     * Crear el mensaje de una clave: el embed si la clave tiene uno, si no el texto.
+     *
+     * @param key  la clave.
+     * @param args los argumentos del texto o del embed.
+     * @return el {@link MessageCreateData}, que no se debe modificar.
+     */
+    public MessageCreateData message(String key, Object... args) {
+        MessageCreateData constant = constants.get(key);
+        if (constant != null) return constant;
+
+        EmbedTemplate embed = embeds.get(key);
+        if (embed != null) return MessageCreateData.fromEmbeds(embed.render(args));
+
+        MessageTemplate template = texts.get(key);
+        return MessageCreateData.fromContent(template != null ? template.render(args) : missing(key));
+    }
+
+    /**
+     * Comprobar si existe una clave.
+     *
+     * @param key la clave.
+     * @return true, si la clave es un texto o un embed.
+     */
+    public boolean contains(String key) {
+        return texts.containsKey(key) || embeds.containsKey(key);
+    }
+
+    private String missing(String key) {
+        if (missing.add(key)) log.warn("Falta el texto {} en el idioma {}", key, locale.getLocale());
+        return key;
+    }
+}
@@ -0,0 +1,217 @@
+package dev.josemc.watcher.i18n;
+
+import dev.josemc.watcher.ConfigSnapshot;
+import net.dv8tion.jda.api.entities.Guild;
+import net.dv8tion.jda.api.interactions.DiscordLocale;
+import net.dv8tion.jda.api.interactions.Interaction;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.annotation.Nullable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Properties;
+
+/**
+ * Idiomas del bot, cargados de {@code lang/messages*.properties}.
+ * <p>
+ * {@code messages.properties} tiene los textos del idioma por defecto; {@code messages_en.properties} o
+ * {@code messages_en-US.properties} sustituyen los textos traducidos de un idioma o de una variante. Los ficheros
+ * de la carpeta de idiomas, si existe, sustituyen a los incluidos en el bot. Todos los idiomas de Discord se
+ * resuelven al cargar, de forma que elegir el idioma de una respuesta es una lectura de un {@link EnumMap}.
+ */
+public final class Localization {
+    private static final Logger log = LoggerFactory.getLogger(Localization.class);
+
+    /**
+     * De donde se toma el idioma de una interaccion.
+     */
+    public enum Source {
+        /**
+         * El idioma del usuario que la ejecuta. Las respuestas son efimeras, solo las ve el usuario.
+         */
+        USER,
+        /**
+         * El idioma del servidor.
+         */
+        GUILD;
+
+        /**
+         * Obtener la fuente a partir de su nombre en la configuracion.
+         *
+         * @param name el nombre, puede ser null.
+         * @return la fuente, {@link #USER} por defecto.
+         */
+        public static Source fromConfig(String name) {
+            return "guild".equalsIgnoreCase(name) ? GUILD : USER;
+        }
+    }
+
+    private final Source source;
+    private final LocaleBundle defaultBundle;
+    private final Map<DiscordLocale, LocaleBundle> bundles = new EnumMap<>(DiscordLocale.class);
+
+    private Localization(Source source, LocaleBundle defaultBundle, Map<DiscordLocale, LocaleBundle> bundles) {
+        this.source = source;
+        this.defaultBundle = defaultBundle;
+        this.bundles.putAll(bundles);
+    }
+
+    /**
+     * Cargar solo los idiomas incluidos en el bot, con el español por defecto.
+     *
+     * @return la {@link Localization}.
+     */
+    public static Localization builtin() {
+        return load(null, DiscordLocale.SPANISH, Source.USER);
+    }
+
+    /**
+     * Cargar los idiomas segun la seccion {@code locale} de la configuracion.
+     *
+     * @param config la configuracion.
+     * @param folder la carpeta con los ficheros de idioma propios, puede no existir.
+     * @return la {@link Localization}.
+     */
+    public static Localization fromConfig(ConfigSnapshot config, Path folder) {
+        DiscordLocale defaultLocale = DiscordLocale.from(config.getString("locale.default", "es-ES"));
+        if (defaultLocale == DiscordLocale.UNKNOWN) {
+            log.warn("Idioma por defecto desconocido: {}, se usa es-ES", config.getString("locale.default"));
+            defaultLocale = DiscordLocale.SPANISH;
+        }
+        return load(folder, defaultLocale, Source.fromConfig(config.getString("locale.source", "user")));
+    }
+
+    /**
+     * Cargar los idiomas.
+     *
+     * @param folder        la carpeta con los ficheros de idioma propios, puede ser null.
+     * @param defaultLocale el idioma de los usuarios y servidores sin traduccion.
+     * @param source        de donde se toma el idioma de una interaccion.
+     * @return la {@link Localization}.
+     */
+    public static Localization load(@Nullable Path folder, DiscordLocale defaultLocale, Source source) {
+        Map<String, String> base = read(folder, "messages");
+        Map<String, String> defaults = overlay(base, folder, defaultLocale);
+        LocaleBundle defaultBundle = new LocaleBundle(defaultLocale, defaults != null ? defaults : base);
+
+        Map<DiscordLocale, LocaleBundle> bundles = new EnumMap<>(DiscordLocale.class);
+        int translated = 0;
+        for (DiscordLocale locale : DiscordLocale.values()) {
+            if (locale == DiscordLocale.UNKNOWN || locale == defaultLocale) continue;
+            Map<String, String> entries = overlay(base, folder, locale);
+            // Los idiomas sin traduccion comparten el idioma por defecto.
+            if (entries == null) continue;
+            bundles.put(locale, new LocaleBundle(locale, entries));
+            translated++;
+        }
+
+        log.info("Idiomas cargados: {} por defecto, {} traducidos", defaultLocale.getLocale(), translated);
+        return new Localization(source, defaultBundle, bundles);
+    }
+
+    /**
+     * Aplicar sobre los textos por defecto los del idioma y los de su variante.
+     *
+     * @return los textos, o null si el idioma no tiene fichero propio.
+     */
+    private static Map<String, String> overlay(Map<String, String> base, @Nullable Path folder, DiscordLocale locale) {
+        String tag = locale.getLocale();
+        int dash = tag.indexOf('-');
+        Map<String, String> language = dash > 0 ? read(folder, "messages_" + tag.substring(0, dash)) : Map.of();
+        Map<String, String> variant = read(folder, "messages_" + tag);
+        if (language.isEmpty() && variant.isEmpty()) return null;
+
+        Map<String, String> entries = new HashMap<>(base);
+        entries.putAll(language);
+        entries.putAll(variant);
+        return entries;
+    }
+
+    /**
+     * Leer un fichero de idioma del bot y, encima, el de la carpeta.
+     */
+    private static Map<String, String> read(@Nullable Path folder, String name) {
+        Map<String, String> entries = new HashMap<>();
+        try (InputStream inputStream = Localization.class.getResourceAsStream("/lang/" + name + ".properties")) {
+            if (inputStream != null) load(inputStream, entries);
+        } catch (IOException e) {
+            log.error("No se pudo leer el idioma {} incluido en el bot", name, e);
+        }
+
+        if (folder != null) {
+            Path file = folder.resolve(name + ".properties");
+            if (Files.isRegularFile(file)) {
+                try (InputStream inputStream = Files.newInputStream(file)) {
+                    load(inputStream, entries);
+                } catch (IOException e) {
+                    log.error("No se pudo leer {}", file, e);
+                }
+            }
+        }
+        return entries;
+    }
+
+    private static void load(InputStream inputStream, Map<String, String> entries) throws IOException {
+        Properties properties = new Properties();
+        try (Reader reader = new InputStreamReader(inputStream, StandardCharsets.UTF_8)) {
+            properties.load(reader);
+        }
+        properties.forEach((key, value) -> entries.put(key.toString(), value.toString()));
+    }
+
+    /**
+     * Obtener los textos de un idioma.
+     *
+     * @param locale el idioma, puede ser null.
+     * @return el {@link LocaleBundle} del idioma, o el del idioma por defecto si no esta traducido.
+     */
+    public LocaleBundle get(@Nullable DiscordLocale locale) {
+        if (locale == null) return defaultBundle;
+        return bundles.getOrDefault(locale, defaultBundle);
+    }
+
+    /**
+     * Obtener los textos para responder a una interaccion.
+     *
+     * @param interaction la interaccion.
+     * @return el {@link LocaleBundle} del usuario o del servidor, segun {@link Source}.
+     */
+    public LocaleBundle resolve(Interaction interaction) {
+        DiscordLocale locale = source == Source.GUILD && interaction.isFromGuild() ? interaction.getGuildLocale() : interaction.getUserLocale();
+        return get(locale);
+    }
+
+    /**
+     * Obtener los textos de un servidor.
+     *
+     * @param guild el servidor, puede ser null.
+     * @return el {@link LocaleBundle} del servidor.
+     */
+    public LocaleBundle resolve(@Nullable Guild guild) {
+        return guild == null ? defaultBundle : get(guild.getLocale());
+    }
+
+    /**
+     * Obtener los textos del idioma por defecto.
+     *
+     * @return el {@link LocaleBundle} por defecto.
+     */
+    public LocaleBundle getDefault() {
+        return defaultBundle;
+    }
+
+    @Override
+    public String toString() {
+        return String.format(Locale.ROOT, "%s (%s, %d traducidos)", defaultBundle.getLocale().getLocale(), source.name().toLowerCase(Locale.ROOT), bundles.size());
+    }
+}
@@ -0,0 +1,113 @@
+package dev.josemc.watcher.i18n;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Texto con parametros {@code {0}}, {@code {1}}... ya separado en partes al cargarlo.
+ * <p>
+ * Rellenarlo solo copia las partes fijas y los argumentos a un {@link StringBuilder} del tamaño adecuado,
+ * sin volver a analizar el texto. Las llaves que no forman un parametro se copian tal cual.
+ */
+public final class MessageTemplate {
+    private static final Object[] NO_ARGS = new Object[0];
+
+    private final String source;
+    /**
+     * Partes fijas; hay una mas que parametros, la primera va antes del primer parametro.
+     */
+    private final String[] literals;
+    private final int[] arguments;
+    private final int literalLength;
+
+    private MessageTemplate(String source, String[] literals, int[] arguments) {
+        this.source = source;
+        this.literals = literals;
+        this.arguments = arguments;
+        int length = 0;
+        for (String literal : literals) length += literal.length();
+        this.literalLength = length;
+    }
+
+    /**
+     * Analizar un texto.
+     *
+     * @param source el texto con los parametros.
+     * @return el {@link MessageTemplate}.
+     */
+    public static MessageTemplate compile(String source) {
+        List<String> literals = new ArrayList<>();
+        List<Integer> arguments = new ArrayList<>();
+        StringBuilder literal = new StringBuilder();
+
+        int i = 0;
+        while (i < source.length()) {
+            char c = source.charAt(i);
+            int end = c == '{' ? source.indexOf('}', i + 1) : -1;
+            if (end > i + 1 && isIndex(source, i + 1, end)) {
+                literals.add(literal.toString());
+                literal.setLength(0);
+                arguments.add(Integer.parseInt(source, i + 1, end, 10));
+                i = end + 1;
+            } else {
+                literal.append(c);
+                i++;
+            }
+        }
+        literals.add(literal.toString());
+
+        return new MessageTemplate(source, literals.toArray(String[]::new), arguments.stream().mapToInt(Integer::intValue).toArray());
+    }
+
+    private static boolean isIndex(String source, int from, int to) {
+        if (to - from > 2) return false;
+        for (int i = from; i < to; i++) {
+            if (!Character.isDigit(source.charAt(i))) return false;
+        }
+        return true;
+    }
+
+    /**
+     * Saber si el texto no tiene parametros.
+     *
+     * @return true, si siempre se genera el mismo texto.
+     */
+    public boolean isConstant() {
+        return arguments.length == 0;
+    }
+
+    /**
+     * Rellenar los parametros. Los parametros sin argumento se dejan como en el texto original.
+     *
+     * @param args los argumentos, por posicion.
+     * @return el texto.
+     */
+    public String render(Object... args) {
+        if (arguments.length == 0) return literals[0];
+        if (args == null) args = NO_ARGS;
+
+        StringBuilder builder = new StringBuilder(literalLength + arguments.length * 16);
+        builder.append(literals[0]);
+        for (int i = 0; i < arguments.length; i++) {
+            int index = arguments[i];
+            if (index < args.length) builder.append(args[index]);
+            else builder.append('{').append(index).append('}');
+            builder.append(literals[i + 1]);
+        }
+        return builder.toString();
+    }
+
+    /**
+     * Obtener el texto original.
+     *
+     * @return el texto sin rellenar.
+     */
+    public String getSource() {
+        return source;
+    }
+
+    @Override
+    public String toString() {
+        return source;
+    }
+}
@@ -0,0 +1,304 @@
+package dev.josemc.watcher.journal;
+
+import dev.josemc.watcher.Config;
+import dev.josemc.watcher.metrics.WatcherMetrics;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Registro duradero de los eventos de los servidores, en segmentos de solo añadir mapeados en memoria.
+ * <p>
+ * {@link #append(JournalRecord)} solo pone el evento en una cola limitada, por lo que nunca bloquea a los hilos de
+ * JDA; si la cola esta llena el evento se descarta y se cuenta. Un unico hilo escribe los eventos en el segmento
+ * actual y los pasa a disco juntos cada {@code syncMillis} (group commit), con una sola llamada por lote.
+ * <p>
+ * Cada segmento tiene en memoria la posicion de sus registros por servidor y por usuario, en orden de escritura,
+ * por lo que una busqueda solo lee los registros del servidor o del usuario, de mas reciente a mas antiguo, y
+ * descarta los segmentos fuera del rango de tiempo sin leerlos. Al superar {@code maxSegments} se borra el mas antiguo.
+ */
+public class Journal implements Closeable {
+    private static final Logger log = LoggerFactory.getLogger(Journal.class);
+
+    /**
+     * Tamaño maximo del texto de un registro; los textos mas largos se recortan.
+     */
+    static final int MAX_DATA_CHARS = 512;
+
+    /**
+     * Numero maximo de eventos que se escriben de una vez.
+     */
+    private static final int MAX_BATCH = 4096;
+
+    private final Path folder;
+    private final int segmentBytes;
+    private final int maxSegments;
+    private final long syncMillis;
+    private final BlockingQueue<JournalRecord> queue;
+    private final AtomicLong appended = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+    private final AtomicLong commits = new AtomicLong();
+    private final Thread writer;
+    private volatile List<Segment> segments;
+    private volatile boolean running = true;
+    private long lastTimestamp;
+
+    /**
+     * Abrir el journal, leyendo los segmentos existentes para construir sus indices.
+     *
+     * @param folder       la carpeta de los segmentos.
+     * @param segmentBytes tamaño de cada segmento.
+     * @param maxSegments  numero maximo de segmentos que se conservan.
+     * @param queueSize    numero maximo de eventos esperando a escribirse.
+     * @param syncMillis   cada cuantos milisegundos se pasan a disco los eventos escritos.
+     * @throws IOException si no se puede crear la carpeta o abrir un segmento.
+     */
+    public Journal(Path folder, int segmentBytes, int maxSegments, int queueSize, long syncMillis) throws IOException {
+        this.folder = folder;
+        this.segmentBytes = segmentBytes;
+        this.maxSegments = Math.max(1, maxSegments);
+        this.syncMillis = syncMillis;
+        this.queue = new ArrayBlockingQueue<>(queueSize);
+
+        long start = System.nanoTime();
+        Files.createDirectories(folder);
+        List<Long> ids = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(folder, "segment-*.log")) {
+            for (Path file : stream) {
+                String name = file.getFileName().toString();
+                ids.add(Long.parseLong(name.substring("segment-".length(), name.length() - ".log".length())));
+            }
+        }
+        ids.sort(null);
+
+        List<Segment> opened = new ArrayList<>();
+        long records = 0;
+        for (long id : ids) {
+            Segment segment = Segment.open(id, segmentFile(id), segmentBytes);
+            opened.add(segment);
+            records += segment.getRecords();
+            lastTimestamp = Math.max(lastTimestamp, segment.getMaxTimestamp());
+        }
+        if (opened.isEmpty()) opened.add(Segment.open(0, segmentFile(0), segmentBytes));
+        segments = List.copyOf(opened);
+        log.info("Journal abierto: {} segmentos, {} eventos en {} ms", opened.size(), records, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+
+        WatcherMetrics.get().counter("watcher_journal_appended_total", appended::get);
+        WatcherMetrics.get().counter("watcher_journal_dropped_total", dropped::get);
+        WatcherMetrics.get().counter("watcher_journal_commits_total", commits::get);
+        WatcherMetrics.get().gauge("watcher_journal_queue_depth", () -> queue.size());
+
+        writer = new Thread(this::write, "Journal-Writer");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    /**
+     * Abrir el journal segun la seccion {@code journal} de la configuracion.
+     *
+     * @param config la configuracion.
+     * @return el journal.
+     * @throws IOException si no se puede abrir.
+     */
+    public static Journal fromConfig(Config config) throws IOException {
+        return new Journal(Path.of(config.getSnapshot().getString("journal.directory", "Watcher/journal")),
+                config.getInt("journal.segment_mb", 32) * 1024 * 1024, config.getInt("journal.max_segments", 8),
+                config.getInt("journal.queue", 65536), config.getLong("journal.sync_millis", 50));
+    }
+
+    /**
+     * Añadir un evento. Nunca bloquea: si la cola esta llena el evento se descarta.
+     *
+     * @param record el evento.
+     * @return false, si se ha descartado.
+     */
+    public boolean append(JournalRecord record) {
+        if (running && queue.offer(record)) return true;
+        if (dropped.getAndIncrement() == 0) log.warn("Cola del journal llena, se descartan eventos");
+        return false;
+    }
+
+    /**
+     * Buscar los eventos de un servidor, de mas reciente a mas antiguo.
+     *
+     * @param query la busqueda.
+     * @return los eventos encontrados, como maximo {@link JournalQuery#limit()}.
+     */
+    public List<JournalRecord> query(JournalQuery query) {
+        List<JournalRecord> result = new ArrayList<>(Math.min(query.limit(), 64));
+        List<Segment> current = segments;
+
+        for (int i = current.size() - 1; i >= 0 && result.size() < query.limit(); i--) {
+            Segment segment = current.get(i);
+            if (segment.getRecords() == 0) continue;
+            if (segment.getMaxTimestamp() < query.from()) break;
+            if (segment.getMinTimestamp() > query.to()) continue;
+
+            OffsetList list = query.userId() != 0 ? segment.byUser(query.userId()) : segment.byGuild(query.guildId());
+            if (list == null) continue;
+            int size = list.size();
+            int[] offsets = list.offsets();
+
+            // Los registros estan en orden de tiempo: se salta directamente al ultimo anterior a "to".
+            for (int j = lastAtOrBefore(segment, offsets, size, query.to()); j >= 0; j--) {
+                int offset = offsets[j];
+                if (segment.timestamp(offset) < query.from()) return result;
+                JournalRecord record = segment.read(offset);
+                if (record.guildId() != query.guildId() || (query.type() != null && record.type() != query.type())) continue;
+                result.add(record);
+                if (result.size() >= query.limit()) break;
+            }
+        }
+        return result;
+    }
+
+    private static int lastAtOrBefore(Segment segment, int[] offsets, int size, long to) {
+        int low = 0;
+        int high = size - 1;
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            if (segment.timestamp(offsets[middle]) <= to) low = middle + 1;
+            else high = middle - 1;
+        }
+        return high;
+    }
+
+    /**
+     * Dejar de aceptar eventos, escribir los que estan en cola y pasarlos a disco.
+     */
+    @Override
+    public void close() {
+        running = false;
+        try {
+            writer.join(TimeUnit.SECONDS.toMillis(5));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void write() {
+        List<JournalRecord> batch = new ArrayList<>(MAX_BATCH);
+        long lastSync = System.nanoTime();
+        boolean dirty = false;
+
+        while (running || !queue.isEmpty()) {
+            try {
+                JournalRecord first = queue.poll(syncMillis, TimeUnit.MILLISECONDS);
+                if (first != null) {
+                    batch.add(first);
+                    queue.drainTo(batch, MAX_BATCH - 1);
+                    for (JournalRecord record : batch) {
+                        writeRecord(record);
+                    }
+                    appended.addAndGet(batch.size());
+                    batch.clear();
+                    dirty = true;
+                }
+
+                if (dirty && (System.nanoTime() - lastSync >= TimeUnit.MILLISECONDS.toNanos(syncMillis) || !running)) {
+                    segments.get(segments.size() - 1).force();
+                    commits.incrementAndGet();
+                    lastSync = System.nanoTime();
+                    dirty = false;
+                }
+            } catch (InterruptedException e) {
+                break;
+            } catch (IOException | RuntimeException e) {
+                log.error("Error escribiendo el journal", e);
+                batch.clear();
+            }
+        }
+
+        if (dirty) segments.get(segments.size() - 1).force();
+    }
+
+    private void writeRecord(JournalRecord record) throws IOException {
+        // Los momentos no retroceden, de forma que cada indice queda ordenado por tiempo.
+        lastTimestamp = Math.max(lastTimestamp, record.timestamp());
+        if (record.timestamp() != lastTimestamp) {
+            record = new JournalRecord(lastTimestamp, record.type(), record.guildId(), record.userId(), record.channelId(), record.targetId(), record.data());
+        }
+
+        String text = record.data() == null ? "" : record.data();
+        byte[] data = (text.length() > MAX_DATA_CHARS ? text.substring(0, MAX_DATA_CHARS) : text).getBytes(StandardCharsets.UTF_8);
+        if (!segments.get(segments.size() - 1).append(record, data)) {
+            roll();
+            segments.get(segments.size() - 1).append(record, data);
+        }
+    }
+
+    /**
+     * Cerrar el segmento actual y empezar uno nuevo, borrando el mas antiguo si sobran.
+     */
+    private void roll() throws IOException {
+        List<Segment> current = segments;
+        Segment last = current.get(current.size() - 1);
+        last.force();
+
+        List<Segment> updated = new ArrayList<>(current);
+        updated.add(Segment.open(last.getId() + 1, segmentFile(last.getId() + 1), segmentBytes));
+        List<Segment> removed = new ArrayList<>();
+        while (updated.size() > maxSegments) {
+            removed.add(updated.remove(0));
+        }
+        segments = List.copyOf(updated);
+
+        for (Segment segment : removed) {
+            segment.delete();
+            log.info("Segmento {} del journal borrado ({} eventos)", segment.getId(), segment.getRecords());
+        }
+    }
+
+    private Path segmentFile(long id) {
+        return folder.resolve(String.format(Locale.ROOT, "segment-%010d.log", id));
+    }
+
+    /**
+     * Obtener el numero de eventos escritos desde el inicio.
+     *
+     * @return los eventos escritos.
+     */
+    public long getAppended() {
+        return appended.get();
+    }
+
+    /**
+     * Obtener el numero de eventos descartados porque la cola estaba llena.
+     *
+     * @return los eventos descartados.
+     */
+    public long getDropped() {
+        return dropped.get();
+    }
+
+    /**
+     * Obtener el numero de veces que se han pasado a disco los eventos escritos.
+     *
+     * @return los lotes pasados a disco.
+     */
+    public long getCommits() {
+        return commits.get();
+    }
+
+    /**
+     * Obtener el numero de eventos esperando a escribirse.
+     *
+     * @return los eventos en cola.
+     */
+    public int getQueued() {
+        return queue.size();
+    }
+}
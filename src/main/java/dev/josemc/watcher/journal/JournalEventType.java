@@ -0,0 +1,73 @@
+package dev.josemc.watcher.journal;
+
+import javax.annotation.Nullable;
+import java.util.Locale;
+
+/**
+ * Tipos de evento del {@link Journal}. El id se guarda en cada registro y no debe cambiar.
+ */
+public enum JournalEventType {
+    MEMBER_JOIN(1),
+    MEMBER_LEAVE(2),
+    MESSAGE_EDIT(3),
+    MESSAGE_DELETE(4),
+    COMMAND(5);
+
+    private static final JournalEventType[] BY_ID = new JournalEventType[8];
+
+    static {
+        for (JournalEventType type : values()) {
+            BY_ID[type.id] = type;
+        }
+    }
+
+    private final byte id;
+
+    JournalEventType(int id) {
+        this.id = (byte) id;
+    }
+
+    /**
+     * Obtener el id que se guarda en los registros.
+     *
+     * @return el id.
+     */
+    public byte getId() {
+        return id;
+    }
+
+    /**
+     * Obtener el nombre del tipo en minusculas, como se usa en las claves de idioma y en los comandos.
+     *
+     * @return el nombre.
+     */
+    public String getKey() {
+        return name().toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * Obtener el tipo de un id guardado.
+     *
+     * @param id el id.
+     * @return el tipo, o null si no existe.
+     */
+    @Nullable
+    public static JournalEventType fromId(int id) {
+        return id > 0 && id < BY_ID.length ? BY_ID[id] : null;
+    }
+
+    /**
+     * Obtener el tipo a partir de su nombre.
+     *
+     * @param key el nombre devuelto por {@link #getKey()}, puede ser null.
+     * @return el tipo, o null si no existe.
+     */
+    @Nullable
+    public static JournalEventType fromKey(@Nullable String key) {
+        if (key == null) return null;
+        for (JournalEventType type : values()) {
+            if (type.getKey().equalsIgnoreCase(key)) return type;
+        }
+        return null;
+    }
+}
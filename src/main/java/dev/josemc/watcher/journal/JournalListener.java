@@ -0,0 +1,87 @@
+package dev.josemc.watcher.journal;
+
+import dev.josemc.watcher.cache.CachedMessage;
+import dev.josemc.watcher.cache.MessageCache;
+import net.dv8tion.jda.api.entities.Message;
+import net.dv8tion.jda.api.events.guild.member.GuildMemberJoinEvent;
+import net.dv8tion.jda.api.events.guild.member.GuildMemberRemoveEvent;
+import net.dv8tion.jda.api.events.interaction.command.SlashCommandInteractionEvent;
+import net.dv8tion.jda.api.events.message.MessageBulkDeleteEvent;
+import net.dv8tion.jda.api.events.message.MessageDeleteEvent;
+import net.dv8tion.jda.api.events.message.MessageUpdateEvent;
+import net.dv8tion.jda.api.hooks.ListenerAdapter;
+import org.jetbrains.annotations.NotNull;
+
+import javax.annotation.Nullable;
+
+/**
+ * Guarda en el {@link Journal} las entradas y salidas de miembros, las ediciones y borrados de mensajes y los
+ * comandos ejecutados. Solo crea el registro y lo pone en la cola del journal, sin bloquear el hilo de JDA.
+ * <p>
+ * Con un {@link MessageCache}, las ediciones guardan tambien el texto anterior y los borrados el autor y el texto.
+ * Tiene que registrarse antes que la cache, para leer el mensaje antes de que la cache lo sustituya o lo quite.
+ */
+public class JournalListener extends ListenerAdapter {
+    private final Journal journal;
+    @Nullable
+    private final MessageCache messageCache;
+
+    /**
+     * @param journal      el journal donde se guardan los eventos.
+     * @param messageCache la cache de mensajes, o null si esta desactivada.
+     */
+    public JournalListener(Journal journal, @Nullable MessageCache messageCache) {
+        this.journal = journal;
+        this.messageCache = messageCache;
+    }
+
+    @Override
+    public void onGuildMemberJoin(@NotNull GuildMemberJoinEvent event) {
+        journal.append(new JournalRecord(System.currentTimeMillis(), JournalEventType.MEMBER_JOIN, event.getGuild().getIdLong(),
+                event.getUser().getIdLong(), 0, 0, event.getUser().getName()));
+    }
+
+    @Override
+    public void onGuildMemberRemove(@NotNull GuildMemberRemoveEvent event) {
+        journal.append(new JournalRecord(System.currentTimeMillis(), JournalEventType.MEMBER_LEAVE, event.getGuild().getIdLong(),
+                event.getUser().getIdLong(), 0, 0, event.getUser().getName()));
+    }
+
+    @Override
+    public void onMessageUpdate(@NotNull MessageUpdateEvent event) {
+        if (!event.isFromGuild() || event.getAuthor().isBot()) return;
+        Message message = event.getMessage();
+        CachedMessage previous = messageCache != null ? messageCache.get(message.getIdLong()) : null;
+        String data = previous != null ? previous.content() + " → " + message.getContentRaw() : message.getContentRaw();
+        journal.append(new JournalRecord(System.currentTimeMillis(), JournalEventType.MESSAGE_EDIT, event.getGuild().getIdLong(),
+                event.getAuthor().getIdLong(), event.getChannel().getIdLong(), message.getIdLong(), data));
+    }
+
+    @Override
+    public void onMessageDelete(@NotNull MessageDeleteEvent event) {
+        if (!event.isFromGuild()) return;
+        journal.append(deleted(System.currentTimeMillis(), event.getGuild().getIdLong(), event.getChannel().getIdLong(), event.getMessageIdLong()));
+    }
+
+    @Override
+    public void onMessageBulkDelete(@NotNull MessageBulkDeleteEvent event) {
+        long now = System.currentTimeMillis();
+        for (String messageId : event.getMessageIds()) {
+            journal.append(deleted(now, event.getGuild().getIdLong(), event.getChannel().getIdLong(), Long.parseUnsignedLong(messageId)));
+        }
+    }
+
+    private JournalRecord deleted(long timestamp, long guildId, long channelId, long messageId) {
+        // Discord no indica el autor de un mensaje borrado; solo se conoce si el mensaje estaba en la cache.
+        CachedMessage message = messageCache != null ? messageCache.get(messageId) : null;
+        return new JournalRecord(timestamp, JournalEventType.MESSAGE_DELETE, guildId, message != null ? message.authorId() : 0,
+                channelId, messageId, message != null ? message.content() : "");
+    }
+
+    @Override
+    public void onSlashCommandInteraction(@NotNull SlashCommandInteractionEvent event) {
+        if (event.getGuild() == null) return;
+        journal.append(new JournalRecord(System.currentTimeMillis(), JournalEventType.COMMAND, event.getGuild().getIdLong(),
+                event.getUser().getIdLong(), event.getChannel().getIdLong(), event.getIdLong(), event.getCommandString()));
+    }
+}
@@ -0,0 +1,16 @@
+package dev.josemc.watcher.journal;
+
+import javax.annotation.Nullable;
+
+/**
+ * Busqueda de eventos de un servidor en el {@link Journal}, de mas reciente a mas antiguo.
+ *
+ * @param guildId id del servidor.
+ * @param userId  id del usuario, 0 para todos.
+ * @param type    el tipo de evento, null para todos.
+ * @param from    momento minimo, incluido, en milisegundos desde 1970.
+ * @param to      momento maximo, incluido, en milisegundos desde 1970.
+ * @param limit   numero maximo de eventos.
+ */
+public record JournalQuery(long guildId, long userId, @Nullable JournalEventType type, long from, long to, int limit) {
+}
@@ -0,0 +1,16 @@
+package dev.josemc.watcher.journal;
+
+/**
+ * Un evento del {@link Journal}. Los ids que no aplican a un tipo de evento son 0.
+ *
+ * @param timestamp momento del evento, en milisegundos desde 1970.
+ * @param type      el tipo de evento.
+ * @param guildId   id del servidor.
+ * @param userId    id del usuario que lo provoca o al que afecta.
+ * @param channelId id del canal.
+ * @param targetId  id del mensaje afectado.
+ * @param data      texto del evento, como el contenido nuevo de un mensaje o el comando ejecutado.
+ */
+public record JournalRecord(long timestamp, JournalEventType type, long guildId, long userId, long channelId, long targetId,
+                            String data) {
+}
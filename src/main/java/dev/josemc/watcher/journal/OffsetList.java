@@ -0,0 +1,37 @@
+package dev.josemc.watcher.journal;
+
+import java.util.Arrays;
+
+/**
+ * Lista de posiciones de registros en un segmento, en orden de escritura.
+ * <p>
+ * Solo la modifica el hilo que escribe el journal; las busquedas la leen sin bloqueos. Cada posicion se escribe
+ * antes de publicar el nuevo tamaño, y el array solo se sustituye por uno mayor con las mismas posiciones.
+ */
+final class OffsetList {
+    private volatile int[] offsets = new int[4];
+    private volatile int size;
+
+    void add(int offset) {
+        int[] current = offsets;
+        if (size == current.length) {
+            current = Arrays.copyOf(current, current.length * 2);
+            current[size] = offset;
+            offsets = current;
+        } else {
+            current[size] = offset;
+        }
+        size = size + 1;
+    }
+
+    /**
+     * Leer antes que {@link #offsets()}: el array leido despues tiene al menos ese numero de posiciones.
+     */
+    int size() {
+        return size;
+    }
+
+    int[] offsets() {
+        return offsets;
+    }
+}
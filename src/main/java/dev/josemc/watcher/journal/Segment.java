@@ -0,0 +1,193 @@
+package dev.josemc.watcher.journal;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.zip.CRC32;
+
+/**
+ * Un fichero del {@link Journal}, de tamaño fijo y mapeado en memoria, con sus indices por servidor y por usuario.
+ * <p>
+ * Formato de un registro: {@code longitud(int) crc(int) tipo(byte) momento(long) servidor(long) usuario(long)
+ * canal(long) objetivo(long) longitudTexto(short) texto}, donde la longitud incluye la cabecera y el crc cubre
+ * todo lo que va detras de el. El fichero se crea lleno de ceros, por lo que una longitud 0 marca el final.
+ */
+final class Segment {
+    static final int HEADER_SIZE = Integer.BYTES * 2 + 1 + Long.BYTES * 5 + Short.BYTES;
+
+    private final long id;
+    private final Path file;
+    private final MappedByteBuffer buffer;
+    private final Map<Long, OffsetList> byGuild = new ConcurrentHashMap<>();
+    private final Map<Long, OffsetList> byUser = new ConcurrentHashMap<>();
+    private final CRC32 crc = new CRC32();
+    private int position;
+    private int synced;
+    private volatile long minTimestamp = Long.MAX_VALUE;
+    private volatile long maxTimestamp = Long.MIN_VALUE;
+    private volatile int records;
+
+    private Segment(long id, Path file, MappedByteBuffer buffer) {
+        this.id = id;
+        this.file = file;
+        this.buffer = buffer;
+    }
+
+    /**
+     * Abrir o crear un segmento y leer sus registros para construir los indices.
+     *
+     * @param id    numero del segmento.
+     * @param file  el fichero.
+     * @param bytes tamaño del fichero si hay que crearlo.
+     * @return el segmento, listo para añadir registros tras el ultimo valido.
+     * @throws IOException si no se puede abrir o mapear el fichero.
+     */
+    static Segment open(long id, Path file, int bytes) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            long size = channel.size() > 0 ? channel.size() : bytes;
+            Segment segment = new Segment(id, file, channel.map(FileChannel.MapMode.READ_WRITE, 0, size));
+            segment.recover();
+            return segment;
+        }
+    }
+
+    /**
+     * Añadir un registro. Solo se llama desde el hilo que escribe el journal.
+     *
+     * @param record el registro.
+     * @param data   el texto del registro en UTF-8.
+     * @return false, si no cabe en el segmento.
+     */
+    boolean append(JournalRecord record, byte[] data) {
+        int length = HEADER_SIZE + data.length;
+        // Se deja sitio para la longitud 0 que marca el final.
+        if (position + length + Integer.BYTES > buffer.capacity()) return false;
+
+        int offset = position;
+        buffer.put(offset + 8, record.type().getId());
+        buffer.putLong(offset + 9, record.timestamp());
+        buffer.putLong(offset + 17, record.guildId());
+        buffer.putLong(offset + 25, record.userId());
+        buffer.putLong(offset + 33, record.channelId());
+        buffer.putLong(offset + 41, record.targetId());
+        buffer.putShort(offset + 49, (short) data.length);
+        buffer.put(offset + HEADER_SIZE, data);
+
+        crc.reset();
+        crc.update(buffer.slice(offset + 8, length - 8));
+        buffer.putInt(offset + 4, (int) crc.getValue());
+        // La longitud se escribe la ultima: un registro a medias al caer el proceso se lee como el final.
+        buffer.putInt(offset, length);
+
+        position = offset + length;
+        index(offset, record);
+        return true;
+    }
+
+    private void index(int offset, JournalRecord record) {
+        // Los limites se actualizan antes de publicar la posicion, para que una busqueda no descarte el segmento.
+        if (record.timestamp() < minTimestamp) minTimestamp = record.timestamp();
+        if (record.timestamp() > maxTimestamp) maxTimestamp = record.timestamp();
+        byGuild.computeIfAbsent(record.guildId(), key -> new OffsetList()).add(offset);
+        if (record.userId() != 0) byUser.computeIfAbsent(record.userId(), key -> new OffsetList()).add(offset);
+        records++;
+    }
+
+    /**
+     * Leer los registros ya escritos hasta encontrar el final o un registro incompleto.
+     */
+    private void recover() {
+        int offset = 0;
+        while (offset + HEADER_SIZE <= buffer.capacity()) {
+            int length = buffer.getInt(offset);
+            if (length < HEADER_SIZE || offset + length > buffer.capacity()) break;
+
+            crc.reset();
+            crc.update(buffer.slice(offset + 8, length - 8));
+            if ((int) crc.getValue() != buffer.getInt(offset + 4)) break;
+
+            index(offset, read(offset));
+            offset += length;
+        }
+        position = offset;
+        synced = offset;
+        // Borrar los restos de un registro incompleto, para que no se lean tras el siguiente.
+        if (offset + Integer.BYTES <= buffer.capacity()) buffer.putInt(offset, 0);
+    }
+
+    /**
+     * Leer un registro. Se puede llamar desde cualquier hilo.
+     *
+     * @param offset la posicion del registro.
+     * @return el registro.
+     */
+    JournalRecord read(int offset) {
+        byte[] data = new byte[buffer.getShort(offset + 49) & 0xFFFF];
+        buffer.get(offset + HEADER_SIZE, data);
+        return new JournalRecord(buffer.getLong(offset + 9), JournalEventType.fromId(buffer.get(offset + 8)),
+                buffer.getLong(offset + 17), buffer.getLong(offset + 25), buffer.getLong(offset + 33), buffer.getLong(offset + 41),
+                new String(data, StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Leer solo el momento de un registro.
+     *
+     * @param offset la posicion del registro.
+     * @return el momento, en milisegundos desde 1970.
+     */
+    long timestamp(int offset) {
+        return buffer.getLong(offset + 9);
+    }
+
+    /**
+     * Escribir en disco los registros añadidos desde la ultima vez.
+     */
+    void force() {
+        if (position == synced) return;
+        buffer.force(synced, position - synced);
+        synced = position;
+    }
+
+    /**
+     * Borrar el fichero. El mapeo se libera cuando deja de usarse.
+     *
+     * @throws IOException si no se puede borrar.
+     */
+    void delete() throws IOException {
+        Files.deleteIfExists(file);
+    }
+
+    OffsetList byGuild(long guildId) {
+        return byGuild.get(guildId);
+    }
+
+    OffsetList byUser(long userId) {
+        return byUser.get(userId);
+    }
+
+    long getId() {
+        return id;
+    }
+
+    long getMinTimestamp() {
+        return minTimestamp;
+    }
+
+    long getMaxTimestamp() {
+        return maxTimestamp;
+    }
+
+    int getRecords() {
+        return records;
+    }
+
+    int getPosition() {
+        return position;
+    }
+}
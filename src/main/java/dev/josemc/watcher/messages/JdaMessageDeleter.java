@@ -0,0 +1,99 @@
+package dev.josemc.watcher.messages;
+
+import dev.josemc.watcher.metrics.WatcherMetrics;
+import net.dv8tion.jda.api.Permission;
+import net.dv8tion.jda.api.entities.channel.middleman.GuildMessageChannel;
+import net.dv8tion.jda.api.entities.channel.middleman.MessageChannel;
+import net.dv8tion.jda.api.exceptions.ErrorHandler;
+import net.dv8tion.jda.api.requests.ErrorResponse;
+import net.dv8tion.jda.api.requests.RestAction;
+import net.dv8tion.jda.api.utils.TimeUtil;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.annotation.Nullable;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * {@link MessageDeleter} que usa el borrado masivo de Discord cuando es posible.
+ * <p>
+ * El borrado masivo necesita {@link Permission#MESSAGE_MANAGE} y solo acepta mensajes de menos
+ * de dos semanas; el resto se borran uno a uno. Los mensajes que ya no existen se ignoran
+ * al recibir el error, en lugar de comprobarlos antes con otra llamada.
+ */
+public class JdaMessageDeleter implements MessageDeleter {
+    private static final Logger log = LoggerFactory.getLogger(JdaMessageDeleter.class);
+
+    /**
+     * Antigüedad maxima de un mensaje para el borrado masivo, con un margen sobre las dos semanas de Discord.
+     */
+    private static final long BULK_DELETE_MAX_AGE_DAYS = 13;
+
+    private final ErrorHandler errorHandler = new ErrorHandler()
+            .ignore(ErrorResponse.UNKNOWN_MESSAGE, ErrorResponse.UNKNOWN_CHANNEL)
+            .handle(Throwable.class, throwable -> log.error("[MessageDeleter] Couldn't delete a Message!", throwable));
+    private final WatcherMetrics.RestFailureHandler trackedErrorHandler = WatcherMetrics.get().failureHandler(errorHandler);
+
+    @Nullable
+    private final OutboundScheduler outbound;
+
+    /**
+     * Borrar los mensajes directamente con JDA.
+     */
+    public JdaMessageDeleter() {
+        this(null);
+    }
+
+    /**
+     * @param outbound la cola de salida donde se ponen los borrados, con la prioridad mas baja. Si es null se envian directamente.
+     */
+    public JdaMessageDeleter(@Nullable OutboundScheduler outbound) {
+        this.outbound = outbound;
+    }
+
+    @Override
+    public void delete(MessageChannel channel, List<Long> messageIds) {
+        List<String> bulk = new ArrayList<>(messageIds.size());
+
+        if (messageIds.size() > 1 && channel instanceof GuildMessageChannel guildChannel
+                && guildChannel.getGuild().getSelfMember().hasPermission(guildChannel, Permission.MESSAGE_MANAGE)) {
+            // Los ids son snowflakes: comparar con el id minimo de la fecha limite evita crear fechas por mensaje.
+            long limitId = TimeUtil.getDiscordTimestamp(System.currentTimeMillis() - TimeUnit.DAYS.toMillis(BULK_DELETE_MAX_AGE_DAYS));
+            for (long messageId : messageIds) {
+                if (messageId > limitId) {
+                    bulk.add(Long.toUnsignedString(messageId));
+                } else {
+                    deleteOne(channel, messageId);
+                }
+            }
+
+            if (bulk.size() == 1) {
+                deleteOne(channel, Long.parseUnsignedLong(bulk.get(0)));
+            } else if (!bulk.isEmpty()) {
+                queue(channel, () -> guildChannel.deleteMessagesByIds(bulk));
+            }
+            return;
+        }
+
+        for (long messageId : messageIds) {
+            deleteOne(channel, messageId);
+        }
+    }
+
+    private void deleteOne(MessageChannel channel, long messageId) {
+        queue(channel, () -> channel.deleteMessageById(messageId));
+    }
+
+    private void queue(MessageChannel channel, Supplier<? extends RestAction<?>> action) {
+        if (outbound != null) {
+            if (!outbound.submit(OutboundScheduler.Priority.DELETION, "delete:" + channel.getId(), action, errorHandler)) {
+                log.warn("[MessageDeleter] Cola de salida llena, no se borra un mensaje del canal {}", channel.getId());
+            }
+        } else {
+            WatcherMetrics.get().queue(action.get(), trackedErrorHandler);
+        }
+    }
+}
@@ -0,0 +1,20 @@
+package dev.josemc.watcher.messages;
+
+import net.dv8tion.jda.api.entities.channel.middleman.MessageChannel;
+
+import java.util.List;
+
+/**
+ * Capa que borra los mensajes de un canal. Separada de {@link MessageDeletionScheduler}
+ * para poder medirlo sin conexion a Discord.
+ */
+public interface MessageDeleter {
+
+    /**
+     * Borrar mensajes de un mismo canal.
+     *
+     * @param channel    el canal.
+     * @param messageIds ids de los mensajes, como maximo {@link MessageDeletionScheduler#MAX_BULK_DELETE}.
+     */
+    void delete(MessageChannel channel, List<Long> messageIds);
+}
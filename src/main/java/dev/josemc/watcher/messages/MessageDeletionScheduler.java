@@ -0,0 +1,211 @@
+package dev.josemc.watcher.messages;
+
+import net.dv8tion.jda.api.entities.channel.middleman.GuildChannel;
+import net.dv8tion.jda.api.entities.channel.middleman.MessageChannel;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Planificador de borrados de mensajes basado en una rueda de tiempo.
+ * <p>
+ * Los borrados pendientes se guardan en la casilla de la rueda que corresponde a su vencimiento.
+ * En cada tick se recogen los borrados vencidos, se agrupan por canal y se envian juntos al
+ * {@link MessageDeleter}, que puede usar el borrado masivo. Nunca se bloquea ningun hilo de JDA.
+ */
+public class MessageDeletionScheduler {
+    private static final Logger log = LoggerFactory.getLogger(MessageDeletionScheduler.class);
+
+    /**
+     * Numero maximo de mensajes que Discord permite en un borrado masivo.
+     */
+    public static final int MAX_BULK_DELETE = 100;
+
+    private final MessageDeleter deleter;
+    private final long tickNanos;
+    private final List<Entry>[] wheel;
+    private final long startNanos;
+    private long currentTick;
+    private int pending;
+    private ScheduledExecutorService ticker;
+
+    /**
+     * @param deleter    la capa que borra los mensajes.
+     * @param tickMillis duracion de cada casilla de la rueda.
+     * @param wheelSize  numero de casillas; los retrasos mas largos que una vuelta esperan varias vueltas.
+     */
+    @SuppressWarnings("unchecked")
+    public MessageDeletionScheduler(MessageDeleter deleter, long tickMillis, int wheelSize) {
+        this.deleter = deleter;
+        this.tickNanos = TimeUnit.MILLISECONDS.toNanos(tickMillis);
+        this.wheel = (List<Entry>[]) new List<?>[wheelSize];
+        for (int i = 0; i < wheelSize; i++) {
+            wheel[i] = new ArrayList<>();
+        }
+        this.startNanos = System.nanoTime();
+    }
+
+    /**
+     * Arrancar el hilo que avanza la rueda.
+     */
+    public synchronized void start() {
+        if (ticker != null) return;
+
+        ticker = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "Message-Deletion");
+            thread.setDaemon(true);
+            return thread;
+        });
+        ticker.scheduleAtFixedRate(this::advance, tickNanos, tickNanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Detener el hilo de la rueda. Los borrados pendientes se conservan.
+     */
+    public synchronized void stop() {
+        if (ticker == null) return;
+        ticker.shutdownNow();
+        ticker = null;
+    }
+
+    /**
+     * Programar el borrado de un mensaje.
+     *
+     * @param channel   canal del mensaje.
+     * @param messageId id del mensaje.
+     * @param delay     retraso hasta el borrado.
+     * @param unit      unidad del retraso.
+     */
+    public void schedule(MessageChannel channel, long messageId, long delay, TimeUnit unit) {
+        long ticks = Math.max(1, (unit.toNanos(delay) + tickNanos - 1) / tickNanos);
+
+        synchronized (this) {
+            long deadline = currentTick + ticks;
+            wheel[(int) (deadline % wheel.length)].add(new Entry(channel, messageId, deadline));
+            pending++;
+        }
+    }
+
+    /**
+     * Obtener el numero de borrados pendientes.
+     *
+     * @return el numero de mensajes por borrar.
+     */
+    public synchronized int getPending() {
+        return pending;
+    }
+
+    /**
+     * Avanzar la rueda hasta el momento actual, ejecutando los borrados vencidos.
+     */
+    void advance() {
+        long targetTick = (System.nanoTime() - startNanos) / tickNanos;
+        while (true) {
+            List<Entry> due;
+            synchronized (this) {
+                if (currentTick >= targetTick) return;
+                due = collectDue();
+            }
+            try {
+                flush(due);
+            } catch (RuntimeException e) {
+                log.error("[MessageDeletionScheduler] Error borrando mensajes", e);
+            }
+        }
+    }
+
+    /**
+     * Ejecutar ya todos los borrados pendientes, sin esperar a su vencimiento.
+     */
+    public void flushAll() {
+        List<Entry> due = new ArrayList<>();
+        synchronized (this) {
+            for (List<Entry> bucket : wheel) {
+                due.addAll(bucket);
+                bucket.clear();
+            }
+            pending = 0;
+        }
+        flush(due);
+    }
+
+    /**
+     * Sacar todos los borrados pendientes sin ejecutarlos, por ejemplo para guardarlos al apagar el bot.
+     * Debe llamarse con la rueda detenida.
+     *
+     * @return los borrados pendientes, con el tiempo que les faltaba.
+     */
+    public List<PendingDeletion> drain() {
+        List<PendingDeletion> drained = new ArrayList<>();
+        synchronized (this) {
+            for (List<Entry> bucket : wheel) {
+                for (Entry entry : bucket) {
+                    long guildId = entry.channel instanceof GuildChannel guildChannel ? guildChannel.getGuild().getIdLong() : 0;
+                    long delayMillis = TimeUnit.NANOSECONDS.toMillis(Math.max(0, entry.deadline - currentTick) * tickNanos);
+                    drained.add(new PendingDeletion(guildId, entry.channel.getIdLong(), entry.messageId, delayMillis));
+                }
+                bucket.clear();
+            }
+            pending = 0;
+        }
+        return drained;
+    }
+
+    /**
+     * Sacar de la casilla actual los borrados vencidos y pasar a la siguiente. Debe llamarse con el bloqueo.
+     */
+    private List<Entry> collectDue() {
+        currentTick++;
+        List<Entry> bucket = wheel[(int) (currentTick % wheel.length)];
+        if (bucket.isEmpty()) return List.of();
+
+        List<Entry> due = new ArrayList<>();
+        bucket.removeIf(entry -> {
+            if (entry.deadline > currentTick) return false;
+            due.add(entry);
+            return true;
+        });
+        pending -= due.size();
+        return due;
+    }
+
+    private void flush(List<Entry> due) {
+        if (due.isEmpty()) return;
+
+        Map<Long, List<Long>> byChannel = new HashMap<>();
+        Map<Long, MessageChannel> channels = new HashMap<>();
+        for (Entry entry : due) {
+            long channelId = entry.channel.getIdLong();
+            channels.putIfAbsent(channelId, entry.channel);
+            byChannel.computeIfAbsent(channelId, id -> new ArrayList<>()).add(entry.messageId);
+        }
+
+        byChannel.forEach((channelId, messageIds) -> {
+            MessageChannel channel = channels.get(channelId);
+            for (int from = 0; from < messageIds.size(); from += MAX_BULK_DELETE) {
+                deleter.delete(channel, messageIds.subList(from, Math.min(messageIds.size(), from + MAX_BULK_DELETE)));
+            }
+        });
+    }
+
+    private record Entry(MessageChannel channel, long messageId, long deadline) {
+    }
+
+    /**
+     * Un borrado pendiente sacado de la rueda con {@link #drain()}.
+     *
+     * @param guildId     id del servidor del canal, 0 si es un mensaje privado.
+     * @param channelId   id del canal.
+     * @param messageId   id del mensaje.
+     * @param delayMillis tiempo que faltaba para el borrado.
+     */
+    public record PendingDeletion(long guildId, long channelId, long messageId, long delayMillis) {
+    }
+}
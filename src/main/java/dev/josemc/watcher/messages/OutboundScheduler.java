@@ -0,0 +1,413 @@
+package dev.josemc.watcher.messages;
+
+import dev.josemc.watcher.Config;
+import dev.josemc.watcher.metrics.WatcherMetrics;
+import net.dv8tion.jda.api.entities.Message;
+import net.dv8tion.jda.api.entities.channel.middleman.MessageChannel;
+import net.dv8tion.jda.api.events.http.HttpRequestEvent;
+import net.dv8tion.jda.api.hooks.ListenerAdapter;
+import net.dv8tion.jda.api.interactions.InteractionHook;
+import net.dv8tion.jda.api.requests.RestAction;
+import net.dv8tion.jda.api.utils.messages.MessageCreateBuilder;
+import net.dv8tion.jda.api.utils.messages.MessageCreateData;
+import org.jetbrains.annotations.NotNull;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.annotation.Nullable;
+import java.util.ArrayDeque;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * Cola de salida de los mensajes y borrados, entre {@link dev.josemc.watcher.commands.CommandManager} y JDA.
+ * <p>
+ * Las llamadas se agrupan por ruta ({@code channel:id}, {@code delete:id} o {@code interaction:id}) y cada ruta
+ * envia una llamada cada vez, como hace el limite de Discord. Entre rutas se envia primero lo de mayor
+ * {@link Priority}, con un maximo de llamadas en curso, para que los mensajes de los canales no retrasen los
+ * seguimientos de las interacciones. Al recibir un 429 de una ruta, la ruta se detiene hasta que Discord lo permite
+ * (todas, si el limite es global). Mientras una ruta espera, los mensajes de solo texto seguidos al mismo canal
+ * se juntan en uno si caben en {@link Message#MAX_CONTENT_LENGTH}.
+ * <p>
+ * La respuesta inicial y el {@code deferReply} de las interacciones no pasan por aqui: tienen que enviarse en
+ * 3 segundos y Discord no les aplica el limite global.
+ */
+public class OutboundScheduler extends ListenerAdapter {
+    private static final Logger log = LoggerFactory.getLogger(OutboundScheduler.class);
+
+    /**
+     * Prioridad de una llamada.
+     */
+    public enum Priority {
+        /**
+         * Mensajes de seguimiento de las interacciones, que el usuario esta esperando. Nunca se descartan.
+         */
+        INTERACTION,
+        /**
+         * Mensajes enviados a un canal.
+         */
+        CHANNEL,
+        /**
+         * Borrados de mensajes.
+         */
+        DELETION;
+
+        private final String label = name().toLowerCase(Locale.ROOT);
+    }
+
+    private final int maxInFlight;
+    private final Map<Priority, Integer> maxQueued = new EnumMap<>(Priority.class);
+    private final Map<String, Route> routes = new HashMap<>();
+    private final Map<Priority, Set<Route>> ready = new EnumMap<>(Priority.class);
+    private final Map<Priority, AtomicLong> queued = new EnumMap<>(Priority.class);
+    private final Map<Priority, AtomicLong> dropped = new EnumMap<>(Priority.class);
+    private final AtomicLong coalesced = new AtomicLong();
+    private final AtomicLong rateLimited = new AtomicLong();
+    private final ScheduledExecutorService timer = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "Outbound-Scheduler");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private int inFlight;
+    private long globalBlockedUntil;
+
+    /**
+     * @param maxInFlight     llamadas en curso como maximo, entre todas las rutas.
+     * @param maxChannelQueue mensajes a canales en cola como maximo; los siguientes se descartan.
+     * @param maxDeletionQueue borrados en cola como maximo; los siguientes se descartan.
+     */
+    public OutboundScheduler(int maxInFlight, int maxChannelQueue, int maxDeletionQueue) {
+        this.maxInFlight = Math.max(1, maxInFlight);
+        maxQueued.put(Priority.INTERACTION, Integer.MAX_VALUE);
+        maxQueued.put(Priority.CHANNEL, maxChannelQueue);
+        maxQueued.put(Priority.DELETION, maxDeletionQueue);
+        for (Priority priority : Priority.values()) {
+            ready.put(priority, new LinkedHashSet<>());
+            AtomicLong depth = new AtomicLong();
+            AtomicLong drops = new AtomicLong();
+            queued.put(priority, depth);
+            dropped.put(priority, drops);
+            WatcherMetrics.get().gauge("watcher_outbound_queue_depth{priority=\"" + priority.label + "\"}", depth::get);
+            WatcherMetrics.get().counter("watcher_outbound_dropped_total{priority=\"" + priority.label + "\"}", drops::get);
+        }
+        WatcherMetrics.get().counter("watcher_outbound_coalesced_total", coalesced::get);
+        WatcherMetrics.get().counter("watcher_outbound_rate_limited_total", rateLimited::get);
+    }
+
+    /**
+     * Crear la cola segun la seccion {@code outbound} de la configuracion.
+     *
+     * @param config la configuracion, puede ser null.
+     * @return el {@link OutboundScheduler}.
+     */
+    public static OutboundScheduler fromConfig(@Nullable Config config) {
+        if (config == null) return new OutboundScheduler(40, 1000, 10000);
+        return new OutboundScheduler(config.getInt("outbound.max_in_flight", 40), config.getInt("outbound.channel_queue", 1000), config.getInt("outbound.deletion_queue", 10000));
+    }
+
+    /**
+     * Enviar un mensaje a un canal. Los mensajes de solo texto pueden juntarse con otros al mismo canal.
+     *
+     * @param channel   el canal.
+     * @param message   el mensaje.
+     * @param onSuccess llamado con el mensaje enviado, puede ser null. Los mensajes con callback no se juntan.
+     * @return false, si la cola estaba llena y el mensaje se ha descartado.
+     */
+    public boolean send(MessageChannel channel, MessageCreateData message, @Nullable Consumer<Message> onSuccess) {
+        Task task = new Task(Priority.CHANNEL, "channel:" + channel.getId(), null, channel, message, onSuccess, null);
+        return submit(task);
+    }
+
+    /**
+     * Enviar un mensaje de seguimiento de una interaccion, con la maxima prioridad.
+     *
+     * @param interactionId el id de la interaccion.
+     * @param hook          el hook de la interaccion, ya aplazada o respondida.
+     * @param message       el mensaje.
+     */
+    public void followUp(long interactionId, InteractionHook hook, MessageCreateData message) {
+        submit(Priority.INTERACTION, "interaction:" + interactionId, () -> hook.sendMessage(message), null);
+    }
+
+    /**
+     * Poner en cola una llamada.
+     *
+     * @param priority la prioridad.
+     * @param route    la ruta de la llamada, usada para el limite de Discord.
+     * @param action   crea la llamada al enviarla.
+     * @param failure  manejador de errores, puede ser null para usar el de JDA.
+     * @return false, si la cola estaba llena y la llamada se ha descartado.
+     */
+    public boolean submit(Priority priority, String route, Supplier<? extends RestAction<?>> action, @Nullable Consumer<? super Throwable> failure) {
+        return submit(new Task(priority, route, action, null, null, null, failure));
+    }
+
+    private boolean submit(Task task) {
+        synchronized (this) {
+            Route route = routes.computeIfAbsent(task.route, Route::new);
+            ArrayDeque<Task> queue = route.queues.get(task.priority);
+            Task last = queue.peekLast();
+            if (last != null && last.coalesce(task)) {
+                coalesced.incrementAndGet();
+                return true;
+            }
+
+            AtomicLong depth = queued.get(task.priority);
+            if (depth.get() >= maxQueued.get(task.priority)) {
+                dropped.get(task.priority).incrementAndGet();
+                if (route.isEmpty() && !route.inFlight) routes.remove(task.route);
+                return false;
+            }
+            queue.add(task);
+            depth.incrementAndGet();
+            ready.get(task.priority).add(route);
+        }
+        drain();
+        return true;
+    }
+
+    /**
+     * Enviar las llamadas que se pueden enviar ahora, de mayor a menor prioridad.
+     */
+    void drain() {
+        while (true) {
+            Task task;
+            synchronized (this) {
+                task = next(System.nanoTime());
+                if (task == null) return;
+            }
+            execute(task);
+        }
+    }
+
+    /**
+     * Sacar la siguiente llamada a enviar. Debe llamarse con el bloqueo.
+     */
+    private Task next(long now) {
+        if (inFlight >= maxInFlight || now < globalBlockedUntil) return null;
+
+        for (Priority priority : Priority.values()) {
+            Iterator<Route> iterator = ready.get(priority).iterator();
+            while (iterator.hasNext()) {
+                Route route = iterator.next();
+                if (route.inFlight || now < route.blockedUntil) continue;
+
+                ArrayDeque<Task> queue = route.queues.get(priority);
+                Task task = queue.poll();
+                if (queue.isEmpty()) iterator.remove();
+                if (task == null) continue;
+
+                queued.get(priority).decrementAndGet();
+                route.inFlight = true;
+                inFlight++;
+                return task;
+            }
+        }
+        return null;
+    }
+
+    @SuppressWarnings("unchecked")
+    private void execute(Task task) {
+        RestAction<Object> action;
+        try {
+            action = (RestAction<Object>) task.createAction();
+        } catch (RuntimeException e) {
+            log.error("No se pudo crear la llamada de la ruta {}", task.route, e);
+            completed(task);
+            return;
+        }
+
+        WatcherMetrics.get().restQueued();
+        action.queue(result -> {
+            WatcherMetrics.get().restCompleted();
+            completed(task);
+            if (task.onSuccess != null) task.onSuccess.accept((Message) result);
+        }, throwable -> {
+            WatcherMetrics.get().restCompleted();
+            completed(task);
+            if (task.failure != null) task.failure.accept(throwable);
+            else RestAction.getDefaultFailure().accept(throwable);
+        });
+    }
+
+    private void completed(Task task) {
+        synchronized (this) {
+            inFlight--;
+            Route route = routes.get(task.route);
+            if (route != null) {
+                route.inFlight = false;
+                if (route.isEmpty() && System.nanoTime() >= route.blockedUntil) routes.remove(task.route);
+            }
+        }
+        drain();
+    }
+
+    /**
+     * Detener las rutas que han recibido un 429 hasta que Discord permita volver a enviar.
+     */
+    @Override
+    public void onHttpRequest(@NotNull HttpRequestEvent event) {
+        if (!event.isRateLimit()) return;
+
+        rateLimited.incrementAndGet();
+        long retryAfterMillis = Math.max(0, event.getResponse().retryAfter);
+        long until = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(retryAfterMillis);
+        String route = routeOf(event);
+        boolean global = "true".equalsIgnoreCase(event.getResponseHeaders().get("X-RateLimit-Global"));
+
+        synchronized (this) {
+            if (global) {
+                globalBlockedUntil = Math.max(globalBlockedUntil, until);
+            } else if (route != null) {
+                // Solo importan las rutas con llamadas de esta cola; las demas no tienen nada que detener.
+                Route blocked = routes.get(route);
+                if (blocked != null) blocked.blockedUntil = until;
+            }
+        }
+        log.debug("429 en {} ({}), se espera {} ms", global ? "global" : route, event.getRoute(), retryAfterMillis);
+        timer.schedule(this::drain, retryAfterMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Obtener la ruta propia de una llamada de JDA, o null si no es de un canal.
+     */
+    private static String routeOf(HttpRequestEvent event) {
+        String major = event.getRoute().getMajorParameters();
+        if (major == null || !major.startsWith("channel_id=")) return null;
+
+        int end = major.indexOf('&');
+        String channelId = major.substring("channel_id=".length(), end < 0 ? major.length() : end);
+        String compiled = event.getRoute().getCompiledRoute();
+        boolean deletion = event.getRoute().getMethod().name().equals("DELETE") || compiled.endsWith("bulk-delete");
+        return (deletion ? "delete:" : "channel:") + channelId;
+    }
+
+    /**
+     * Obtener el numero de llamadas en cola de una prioridad.
+     *
+     * @param priority la prioridad.
+     * @return las llamadas en cola.
+     */
+    public long getQueued(Priority priority) {
+        return queued.get(priority).get();
+    }
+
+    /**
+     * Obtener el numero de llamadas descartadas de una prioridad porque la cola estaba llena.
+     *
+     * @param priority la prioridad.
+     * @return las llamadas descartadas.
+     */
+    public long getDropped(Priority priority) {
+        return dropped.get(priority).get();
+    }
+
+    /**
+     * Obtener el numero de mensajes que se han juntado con el anterior en lugar de enviarse.
+     *
+     * @return los mensajes juntados.
+     */
+    public long getCoalesced() {
+        return coalesced.get();
+    }
+
+    /**
+     * Obtener el numero de 429 recibidos.
+     *
+     * @return las respuestas 429.
+     */
+    public long getRateLimited() {
+        return rateLimited.get();
+    }
+
+    /**
+     * Detener el temporizador. Las llamadas en cola se siguen enviando al terminar las que estan en curso.
+     */
+    public void stop() {
+        timer.shutdownNow();
+    }
+
+    /**
+     * Llamadas en cola de una ruta, por prioridad.
+     */
+    private static final class Route {
+        final Map<Priority, ArrayDeque<Task>> queues = new EnumMap<>(Priority.class);
+        boolean inFlight;
+        long blockedUntil;
+
+        Route(String route) {
+            for (Priority priority : Priority.values()) {
+                queues.put(priority, new ArrayDeque<>());
+            }
+        }
+
+        boolean isEmpty() {
+            for (ArrayDeque<Task> queue : queues.values()) {
+                if (!queue.isEmpty()) return false;
+            }
+            return true;
+        }
+    }
+
+    /**
+     * Una llamada en cola. Los mensajes de texto guardan el canal y el contenido para poder juntarlos.
+     */
+    private static final class Task {
+        final Priority priority;
+        final String route;
+        final Supplier<? extends RestAction<?>> action;
+        final MessageChannel channel;
+        MessageCreateData message;
+        final Consumer<Message> onSuccess;
+        final Consumer<? super Throwable> failure;
+
+        Task(Priority priority, String route, Supplier<? extends RestAction<?>> action, MessageChannel channel, MessageCreateData message, Consumer<Message> onSuccess, Consumer<? super Throwable> failure) {
+            this.priority = priority;
+            this.route = route;
+            this.action = action;
+            this.channel = channel;
+            this.message = message;
+            this.onSuccess = onSuccess;
+            this.failure = failure;
+        }
+
+        RestAction<?> createAction() {
+            return action != null ? action.get() : channel.sendMessage(message);
+        }
+
+        /**
+         * Añadir el texto de otra llamada a esta, si las dos son mensajes de solo texto sin callback, con las mismas
+         * menciones permitidas y opciones, y caben juntos. El mensaje unido conserva las opciones del primero.
+         */
+        boolean coalesce(Task other) {
+            if (!isPlainText() || !other.isPlainText()) return false;
+            if (!message.getAllowedMentions().equals(other.message.getAllowedMentions())
+                    || message.isMentionRepliedUser() != other.message.isMentionRepliedUser()
+                    || message.isSuppressEmbeds() != other.message.isSuppressEmbeds()) return false;
+
+            String content = message.getContent() + "\n" + other.message.getContent();
+            if (content.length() > Message.MAX_CONTENT_LENGTH) return false;
+
+            // from() no copia suppressEmbeds.
+            message = MessageCreateBuilder.from(message).setContent(content).setSuppressEmbeds(message.isSuppressEmbeds()).build();
+            return true;
+        }
+
+        private boolean isPlainText() {
+            return message != null && onSuccess == null && failure == null && !message.getContent().isEmpty()
+                    && message.getEmbeds().isEmpty() && message.getFiles().isEmpty() && message.getComponents().isEmpty()
+                    && !message.isTTS() && message.getMentionedUsers().isEmpty() && message.getMentionedRoles().isEmpty();
+        }
+    }
+}
@@ -0,0 +1,78 @@
+package dev.josemc.watcher.metrics;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Metricas de un comando.
+ */
+public final class CommandMetrics implements CommandMetricsMXBean {
+    private final String command;
+    final LongAdder invocations = new LongAdder();
+    final LongAdder errors = new LongAdder();
+    final LongAdder rejections = new LongAdder();
+    final LongAdder timeouts = new LongAdder();
+    final LatencyHistogram duration = new LatencyHistogram();
+
+    CommandMetrics(String command) {
+        this.command = command;
+    }
+
+    public void recordInvocation(long durationNanos) {
+        invocations.increment();
+        duration.record(durationNanos);
+    }
+
+    public void recordError() {
+        errors.increment();
+    }
+
+    public void recordRejection() {
+        rejections.increment();
+    }
+
+    public void recordTimeout() {
+        timeouts.increment();
+    }
+
+    @Override
+    public String getCommand() {
+        return command;
+    }
+
+    @Override
+    public long getInvocations() {
+        return invocations.sum();
+    }
+
+    @Override
+    public long getErrors() {
+        return errors.sum();
+    }
+
+    @Override
+    public long getRejections() {
+        return rejections.sum();
+    }
+
+    @Override
+    public long getTimeouts() {
+        return timeouts.sum();
+    }
+
+    @Override
+    public double getMeanMillis() {
+        long count = duration.getCount();
+        return count == 0 ? 0 : duration.getSumNanos() / (double) count / TimeUnit.MILLISECONDS.toNanos(1);
+    }
+
+    @Override
+    public double getP50Millis() {
+        return duration.quantileNanos(0.5) / (double) TimeUnit.MILLISECONDS.toNanos(1);
+    }
+
+    @Override
+    public double getP99Millis() {
+        return duration.quantileNanos(0.99) / (double) TimeUnit.MILLISECONDS.toNanos(1);
+    }
+}
@@ -0,0 +1,22 @@
+package dev.josemc.watcher.metrics;
+
+/**
+ * Metricas de un comando expuestas por JMX.
+ */
+public interface CommandMetricsMXBean {
+    String getCommand();
+
+    long getInvocations();
+
+    long getErrors();
+
+    long getRejections();
+
+    long getTimeouts();
+
+    double getMeanMillis();
+
+    double getP50Millis();
+
+    double getP99Millis();
+}
@@ -0,0 +1,88 @@
+package dev.josemc.watcher.metrics;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Histograma de latencias con casillas fijas en potencias de dos de microsegundos (1 us a ~34 min).
+ * <p>
+ * {@link #record(long)} no reserva memoria ni bloquea: calcula la casilla con operaciones de bits
+ * y la incrementa de forma atomica.
+ */
+public final class LatencyHistogram {
+
+    /**
+     * Numero de casillas; la ultima recoge todo lo que supera el limite de la anterior.
+     */
+    static final int BUCKETS = 32;
+
+    private final AtomicLongArray buckets = new AtomicLongArray(BUCKETS);
+    private final LongAdder count = new LongAdder();
+    private final LongAdder sumNanos = new LongAdder();
+
+    /**
+     * Registrar una latencia.
+     *
+     * @param nanos la latencia en nanosegundos.
+     */
+    public void record(long nanos) {
+        if (nanos < 0) nanos = 0;
+        long micros = nanos / 1000;
+        int bucket = micros == 0 ? 0 : Math.min(BUCKETS - 1, 64 - Long.numberOfLeadingZeros(micros));
+        buckets.incrementAndGet(bucket);
+        count.increment();
+        sumNanos.add(nanos);
+    }
+
+    /**
+     * Limite superior de una casilla.
+     *
+     * @param bucket el indice de la casilla.
+     * @return el limite en nanosegundos, o {@link Long#MAX_VALUE} para la ultima.
+     */
+    static long upperBoundNanos(int bucket) {
+        return bucket == BUCKETS - 1 ? Long.MAX_VALUE : (1L << bucket) * 1000;
+    }
+
+    public long getCount() {
+        return count.sum();
+    }
+
+    public long getSumNanos() {
+        return sumNanos.sum();
+    }
+
+    /**
+     * Obtener una copia de las casillas.
+     *
+     * @return el numero de registros de cada casilla, no acumulado.
+     */
+    public long[] snapshot() {
+        long[] snapshot = new long[BUCKETS];
+        for (int i = 0; i < BUCKETS; i++) {
+            snapshot[i] = buckets.get(i);
+        }
+        return snapshot;
+    }
+
+    /**
+     * Estimar un percentil a partir de las casillas.
+     *
+     * @param quantile el percentil, entre 0 y 1.
+     * @return el limite superior de la casilla que contiene el percentil, en nanosegundos.
+     */
+    public long quantileNanos(double quantile) {
+        long[] snapshot = snapshot();
+        long total = 0;
+        for (long value : snapshot) total += value;
+        if (total == 0) return 0;
+
+        long target = (long) Math.ceil(quantile * total);
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += snapshot[i];
+            if (seen >= target) return upperBoundNanos(i);
+        }
+        return upperBoundNanos(BUCKETS - 1);
+    }
+}
@@ -0,0 +1,62 @@
+package dev.josemc.watcher.metrics;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.Executors;
+
+/**
+ * Servidor HTTP local que expone {@link WatcherMetrics} en {@code /metrics} con el formato de Prometheus.
+ */
+public class MetricsHttpServer {
+    private static final Logger log = LoggerFactory.getLogger(MetricsHttpServer.class);
+
+    private final HttpServer server;
+
+    /**
+     * Arrancar el servidor.
+     *
+     * @param host direccion donde escuchar, normalmente {@code 127.0.0.1}.
+     * @param port puerto donde escuchar.
+     * @throws IOException si no se puede abrir el puerto.
+     */
+    public MetricsHttpServer(String host, int port) throws IOException {
+        server = HttpServer.create(new InetSocketAddress(host, port), 0);
+        server.createContext("/metrics", this::handle);
+        server.setExecutor(Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "Metrics-Http");
+            thread.setDaemon(true);
+            return thread;
+        }));
+        server.start();
+        log.info("Metricas disponibles en http://{}:{}/metrics", host, port);
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            if (!"GET".equals(exchange.getRequestMethod())) {
+                exchange.sendResponseHeaders(405, -1);
+                return;
+            }
+            byte[] body = WatcherMetrics.get().toPrometheus().getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().set("Content-Type", "text/plain; version=0.0.4; charset=utf-8");
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream outputStream = exchange.getResponseBody()) {
+                outputStream.write(body);
+            }
+        }
+    }
+
+    /**
+     * Detener el servidor.
+     */
+    public void stop() {
+        server.stop(0);
+    }
+}
@@ -0,0 +1,331 @@
+package dev.josemc.watcher.metrics;
+
+import net.dv8tion.jda.api.requests.RestAction;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+import java.util.function.LongSupplier;
+
+/**
+ * Registro de las metricas del bot.
+ * <p>
+ * Las metricas se registran sin reservar memoria (contadores {@link java.util.concurrent.atomic.LongAdder}
+ * e histogramas de casillas fijas) y se exponen por JMX y en formato de texto de Prometheus.
+ */
+public final class WatcherMetrics implements WatcherMetricsMXBean {
+    private static final Logger log = LoggerFactory.getLogger(WatcherMetrics.class);
+    private static final WatcherMetrics INSTANCE = new WatcherMetrics();
+
+    private final ConcurrentHashMap<String, CommandMetrics> commands = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, LongSupplier> gauges = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, LongSupplier> counters = new ConcurrentHashMap<>();
+    private final LatencyHistogram queueWait = new LatencyHistogram();
+    private final LatencyHistogram firstReply = new LatencyHistogram();
+    private final LatencyHistogram eventLag = new LatencyHistogram();
+    private final AtomicLong restQueueDepth = new AtomicLong();
+    private final LongAdder defers = new LongAdder();
+    private final LongAdder directReplies = new LongAdder();
+    private final Consumer<Object> restSuccess = ignored -> restCompleted();
+    private final Consumer<Throwable> restFailure = throwable -> {
+        restCompleted();
+        RestAction.getDefaultFailure().accept(throwable);
+    };
+
+    private WatcherMetrics() {
+        register(this, "dev.josemc.watcher:type=Metrics");
+    }
+
+    /**
+     * Obtener el registro de metricas.
+     *
+     * @return la instancia unica.
+     */
+    public static WatcherMetrics get() {
+        return INSTANCE;
+    }
+
+    /**
+     * Obtener las metricas de un comando, creandolas la primera vez.
+     *
+     * @param command nombre del comando.
+     * @return las {@link CommandMetrics} del comando.
+     */
+    public CommandMetrics command(String command) {
+        CommandMetrics metrics = commands.get(command);
+        if (metrics != null) return metrics;
+
+        return commands.computeIfAbsent(command, name -> {
+            CommandMetrics created = new CommandMetrics(name);
+            register(created, "dev.josemc.watcher:type=Command,name=" + ObjectName.quote(name));
+            return created;
+        });
+    }
+
+    /**
+     * Registrar el tiempo que un comando espero en la cola del ejecutor.
+     */
+    public void recordQueueWait(long nanos) {
+        queueWait.record(nanos);
+    }
+
+    /**
+     * Registrar el tiempo entre recibir una interaccion y enviar su primera respuesta, directa o de seguimiento.
+     */
+    public void recordFirstReply(long nanos) {
+        firstReply.record(nanos);
+    }
+
+    /**
+     * Registrar el tiempo que un evento de Discord espero en la cola de su servidor.
+     */
+    public void recordEventLag(long nanos) {
+        eventLag.record(nanos);
+    }
+
+    /**
+     * Registrar un {@code deferReply} enviado porque el comando no respondio a tiempo.
+     */
+    public void recordDefer() {
+        defers.increment();
+    }
+
+    /**
+     * Registrar una respuesta directa a una interaccion, sin {@code deferReply}. Cada una ahorra una llamada REST.
+     */
+    public void recordDirectReply() {
+        directReplies.increment();
+    }
+
+    /**
+     * Poner en cola un {@link RestAction}, contandolo en la profundidad de la cola REST.
+     * Los errores se tratan con el manejador por defecto de JDA.
+     *
+     * @param action la accion.
+     */
+    public void queue(RestAction<?> action) {
+        restQueued();
+        action.queue(restSuccess, restFailure);
+    }
+
+    /**
+     * Poner en cola un {@link RestAction} con un manejador de errores propio, creado una vez con {@link #failureHandler}.
+     *
+     * @param action  la accion.
+     * @param failure el manejador de errores.
+     */
+    public void queue(RestAction<?> action, RestFailureHandler failure) {
+        restQueued();
+        action.queue(restSuccess, failure);
+    }
+
+    /**
+     * Crear un manejador de errores para {@link #queue(RestAction, RestFailureHandler)} que ademas cuenta la llamada
+     * como terminada. Se crea una vez y se reutiliza, para no crear un objeto en cada llamada.
+     *
+     * @param failure el manejador de errores.
+     * @return el manejador.
+     */
+    public RestFailureHandler failureHandler(Consumer<? super Throwable> failure) {
+        return new RestFailureHandler(failure);
+    }
+
+    /**
+     * Llamado al poner en cola una llamada REST.
+     */
+    public void restQueued() {
+        restQueueDepth.incrementAndGet();
+    }
+
+    /**
+     * Llamado al terminar una llamada REST, con exito o no.
+     */
+    public void restCompleted() {
+        restQueueDepth.decrementAndGet();
+    }
+
+    /**
+     * Añadir un valor que se lee en cada exportacion, como el tamaño de una cola.
+     *
+     * @param name     nombre de la metrica en Prometheus, con sus etiquetas si tiene ({@code nombre{shard="0"}}).
+     * @param supplier funcion que devuelve el valor actual.
+     */
+    public void gauge(String name, LongSupplier supplier) {
+        gauges.put(name, supplier);
+    }
+
+    /**
+     * Añadir un contador que se lee en cada exportacion, como los descartes de una cola.
+     *
+     * @param name     nombre de la metrica en Prometheus, con sus etiquetas si tiene ({@code nombre{cola="x"}}).
+     * @param supplier funcion que devuelve el valor actual, que solo puede crecer.
+     */
+    public void counter(String name, LongSupplier supplier) {
+        counters.put(name, supplier);
+    }
+
+    @Override
+    public long getInteractionDefers() {
+        return defers.sum();
+    }
+
+    @Override
+    public long getInteractionDirectReplies() {
+        return directReplies.sum();
+    }
+
+    @Override
+    public long getRestQueueDepth() {
+        return restQueueDepth.get();
+    }
+
+    @Override
+    public long getQueueWaitCount() {
+        return queueWait.getCount();
+    }
+
+    @Override
+    public double getQueueWaitP99Millis() {
+        return queueWait.quantileNanos(0.99) / (double) TimeUnit.MILLISECONDS.toNanos(1);
+    }
+
+    @Override
+    public long getFirstReplyCount() {
+        return firstReply.getCount();
+    }
+
+    @Override
+    public double getFirstReplyP99Millis() {
+        return firstReply.quantileNanos(0.99) / (double) TimeUnit.MILLISECONDS.toNanos(1);
+    }
+
+    @Override
+    public long getEventLagCount() {
+        return eventLag.getCount();
+    }
+
+    @Override
+    public double getEventLagP99Millis() {
+        return eventLag.quantileNanos(0.99) / (double) TimeUnit.MILLISECONDS.toNanos(1);
+    }
+
+    /**
+     * Escribir todas las metricas en el formato de texto de Prometheus.
+     *
+     * @return el texto de la exportacion.
+     */
+    public String toPrometheus() {
+        StringBuilder builder = new StringBuilder(4096);
+        Map<String, CommandMetrics> sorted = new TreeMap<>(commands);
+
+        header(builder, "watcher_command_invocations_total", "counter", "Comandos ejecutados");
+        sorted.forEach((name, metrics) -> sample(builder, "watcher_command_invocations_total", name, metrics.getInvocations()));
+        header(builder, "watcher_command_errors_total", "counter", "Comandos que terminaron con error");
+        sorted.forEach((name, metrics) -> sample(builder, "watcher_command_errors_total", name, metrics.getErrors()));
+        header(builder, "watcher_command_rejections_total", "counter", "Comandos rechazados por falta de capacidad");
+        sorted.forEach((name, metrics) -> sample(builder, "watcher_command_rejections_total", name, metrics.getRejections()));
+        header(builder, "watcher_command_timeouts_total", "counter", "Comandos que superaron su tiempo maximo");
+        sorted.forEach((name, metrics) -> sample(builder, "watcher_command_timeouts_total", name, metrics.getTimeouts()));
+
+        header(builder, "watcher_command_duration_seconds", "histogram", "Duracion de la ejecucion de los comandos");
+        sorted.forEach((name, metrics) -> histogram(builder, "watcher_command_duration_seconds", "command=\"" + escape(name) + "\",", metrics.duration));
+        header(builder, "watcher_command_queue_wait_seconds", "histogram", "Tiempo de espera de los comandos en la cola del ejecutor");
+        histogram(builder, "watcher_command_queue_wait_seconds", "", queueWait);
+        header(builder, "watcher_interaction_first_reply_seconds", "histogram", "Tiempo desde recibir la interaccion hasta la primera respuesta");
+        histogram(builder, "watcher_interaction_first_reply_seconds", "", firstReply);
+        header(builder, "watcher_event_lag_seconds", "histogram", "Tiempo de espera de los eventos de Discord en la cola de su servidor");
+        histogram(builder, "watcher_event_lag_seconds", "", eventLag);
+
+        header(builder, "watcher_interaction_defers_total", "counter", "Interacciones aplazadas con deferReply");
+        builder.append("watcher_interaction_defers_total ").append(defers.sum()).append('\n');
+        header(builder, "watcher_interaction_direct_replies_total", "counter", "Interacciones respondidas directamente, sin deferReply");
+        builder.append("watcher_interaction_direct_replies_total ").append(directReplies.sum()).append('\n');
+
+        header(builder, "watcher_rest_queue_depth", "gauge", "Llamadas REST en cola o en curso");
+        builder.append("watcher_rest_queue_depth ").append(restQueueDepth.get()).append('\n');
+        suppliers(builder, gauges, "gauge");
+        suppliers(builder, counters, "counter");
+        return builder.toString();
+    }
+
+    /**
+     * Escribir los valores registrados con {@link #gauge} o {@link #counter}, con una cabecera por familia.
+     */
+    private static void suppliers(StringBuilder builder, Map<String, LongSupplier> suppliers, String type) {
+        String lastFamily = null;
+        for (Map.Entry<String, LongSupplier> entry : new TreeMap<>(suppliers).entrySet()) {
+            String name = entry.getKey();
+            int labels = name.indexOf('{');
+            String family = labels < 0 ? name : name.substring(0, labels);
+            if (!family.equals(lastFamily)) {
+                header(builder, family, type, family);
+                lastFamily = family;
+            }
+            builder.append(name).append(' ').append(entry.getValue().getAsLong()).append('\n');
+        }
+    }
+
+    private static void header(StringBuilder builder, String name, String type, String help) {
+        builder.append("# HELP ").append(name).append(' ').append(help).append('\n');
+        builder.append("# TYPE ").append(name).append(' ').append(type).append('\n');
+    }
+
+    private static void sample(StringBuilder builder, String name, String command, long value) {
+        builder.append(name).append("{command=\"").append(escape(command)).append("\"} ").append(value).append('\n');
+    }
+
+    private static void histogram(StringBuilder builder, String name, String labels, LatencyHistogram histogram) {
+        long[] buckets = histogram.snapshot();
+        long cumulative = 0;
+        for (int i = 0; i < buckets.length; i++) {
+            cumulative += buckets[i];
+            long bound = LatencyHistogram.upperBoundNanos(i);
+            String le = bound == Long.MAX_VALUE ? "+Inf" : String.format(Locale.ROOT, "%.6f", bound / 1e9);
+            builder.append(name).append("_bucket{").append(labels).append("le=\"").append(le).append("\"} ").append(cumulative).append('\n');
+        }
+        String plainLabels = labels.isEmpty() ? "" : "{" + labels.substring(0, labels.length() - 1) + "}";
+        builder.append(name).append("_sum").append(plainLabels).append(' ').append(String.format(Locale.ROOT, "%.6f", histogram.getSumNanos() / 1e9)).append('\n');
+        builder.append(name).append("_count").append(plainLabels).append(' ').append(cumulative).append('\n');
+    }
+
+    private static String escape(String value) {
+        return value.replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n");
+    }
+
+    private static void register(Object bean, String name) {
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            ObjectName objectName = new ObjectName(name);
+            if (!server.isRegistered(objectName)) server.registerMBean(bean, objectName);
+        } catch (Exception e) {
+            log.warn("No se pudo registrar el MBean {}", name, e);
+        }
+    }
+
+    /**
+     * Manejador de errores de una llamada REST que la cuenta como terminada antes de tratar el error.
+     */
+    public final class RestFailureHandler implements Consumer<Throwable> {
+        private final Consumer<? super Throwable> failure;
+
+        private RestFailureHandler(Consumer<? super Throwable> failure) {
+            this.failure = failure;
+        }
+
+        @Override
+        public void accept(Throwable throwable) {
+            restCompleted();
+            failure.accept(throwable);
+        }
+    }
+}
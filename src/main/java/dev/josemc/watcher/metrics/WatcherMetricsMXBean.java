@@ -0,0 +1,24 @@
+package dev.josemc.watcher.metrics;
+
+/**
+ * Metricas generales del bot expuestas por JMX.
+ */
+public interface WatcherMetricsMXBean {
+    long getRestQueueDepth();
+
+    long getQueueWaitCount();
+
+    double getQueueWaitP99Millis();
+
+    long getFirstReplyCount();
+
+    double getFirstReplyP99Millis();
+
+    long getEventLagCount();
+
+    double getEventLagP99Millis();
+
+    long getInteractionDefers();
+
+    long getInteractionDirectReplies();
+}
@@ -0,0 +1,90 @@
+package dev.josemc.watcher.plugins;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * {@link URLClassLoader} de un plugin, que cuenta las ejecuciones de sus comandos en curso.
+ * <p>
+ * Al recargar o quitar el plugin se retira: deja de aceptar ejecuciones nuevas y se cierra, borrando su copia
+ * del jar, cuando termina la ultima en curso.
+ */
+public final class PluginClassLoader extends URLClassLoader {
+    private static final Logger log = LoggerFactory.getLogger(PluginClassLoader.class);
+
+    /**
+     * Valor de {@link #leases} una vez cerrado.
+     */
+    private static final int CLOSED = -1;
+
+    private final Path jar;
+    private final AtomicInteger leases = new AtomicInteger();
+    private volatile boolean retired;
+
+    /**
+     * @param name   nombre del plugin.
+     * @param jar    la copia del jar que se carga, que se borra al cerrar.
+     * @param parent el classloader del bot.
+     * @throws MalformedURLException si la ruta del jar no es valida.
+     */
+    public PluginClassLoader(String name, Path jar, ClassLoader parent) throws MalformedURLException {
+        super(name, new URL[]{jar.toUri().toURL()}, parent);
+        this.jar = jar;
+    }
+
+    /**
+     * Registrar el inicio de una ejecucion.
+     *
+     * @return false, si el plugin ya esta cerrado.
+     */
+    public boolean acquire() {
+        while (true) {
+            int current = leases.get();
+            if (current == CLOSED) return false;
+            if (leases.compareAndSet(current, current + 1)) return true;
+        }
+    }
+
+    /**
+     * Registrar el fin de una ejecucion iniciada con {@link #acquire()}.
+     */
+    public void release() {
+        if (leases.decrementAndGet() == 0 && retired) tryClose();
+    }
+
+    /**
+     * Retirar el plugin, cerrandolo en cuanto no tenga ejecuciones en curso.
+     */
+    public void retire() {
+        retired = true;
+        tryClose();
+    }
+
+    /**
+     * Obtener el numero de ejecuciones en curso.
+     *
+     * @return las ejecuciones en curso, o -1 si ya esta cerrado.
+     */
+    public int getLeases() {
+        return leases.get();
+    }
+
+    private void tryClose() {
+        if (!leases.compareAndSet(0, CLOSED)) return;
+        try {
+            close();
+            Files.deleteIfExists(jar);
+            log.info("Plugin {} descargado", getName());
+        } catch (IOException e) {
+            log.warn("No se pudo cerrar el plugin {}", getName(), e);
+        }
+    }
+}
@@ -0,0 +1,235 @@
+package dev.josemc.watcher.plugins;
+
+import dev.josemc.watcher.commands.CommandManager;
+import dev.josemc.watcher.commands.exceptions.CommandInitializerException;
+import dev.josemc.watcher.commands.interfaces.ICommand;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.ServiceConfigurationError;
+import java.util.ServiceLoader;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Plugins de comandos cargados de los jar de una carpeta.
+ * <p>
+ * Cada jar declara sus comandos en {@code META-INF/services/dev.josemc.watcher.commands.interfaces.ICommand}
+ * y se carga en su propio {@link PluginClassLoader}, desde una copia del jar para poder sustituir el original.
+ * Al añadir, cambiar o borrar un jar, sus comandos se sustituyen en el {@link CommandManager} en un unico cambio
+ * y la version anterior se descarga cuando terminan sus ejecuciones en curso. Si la version nueva no se puede
+ * cargar, se mantiene la anterior.
+ */
+public class PluginManager {
+    private static final Logger log = LoggerFactory.getLogger(PluginManager.class);
+
+    /**
+     * Tiempo que se espera tras un cambio en la carpeta antes de recargar, para no leer un jar a medio copiar.
+     */
+    private static final long DEBOUNCE_MILLIS = 1000;
+
+    private final CommandManager commandManager;
+    private final Path folder;
+    private final Path loadedFolder;
+    private final Runnable onCommandsChanged;
+    private final Map<String, Plugin> plugins = new HashMap<>();
+    private final ScheduledExecutorService worker = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "Plugin-Worker");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private ScheduledFuture<?> pendingScan;
+    private WatchService watchService;
+    private long loadCounter;
+
+    /**
+     * @param commandManager    el {@link CommandManager} donde se registran los comandos.
+     * @param folder            la carpeta de los jar.
+     * @param onCommandsChanged llamado tras cambiar los comandos, para registrarlos en Discord.
+     */
+    public PluginManager(CommandManager commandManager, Path folder, Runnable onCommandsChanged) {
+        this.commandManager = commandManager;
+        this.folder = folder;
+        this.loadedFolder = folder.resolve(".loaded");
+        this.onCommandsChanged = onCommandsChanged;
+    }
+
+    /**
+     * Cargar los plugins de la carpeta y empezar a vigilarla.
+     *
+     * @throws IOException si no se puede crear la carpeta.
+     */
+    public void start() throws IOException {
+        Files.createDirectories(loadedFolder);
+        // Copias de una ejecucion anterior que no se llegaron a borrar.
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(loadedFolder, "*.jar")) {
+            for (Path jar : stream) Files.deleteIfExists(jar);
+        }
+
+        scan(false);
+        startWatcher();
+    }
+
+    /**
+     * Comparar los jar de la carpeta con los cargados y cargar, recargar o descargar los que han cambiado.
+     *
+     * @param notify si hay que avisar del cambio de los comandos.
+     */
+    synchronized void scan(boolean notify) {
+        Map<String, Path> jars = new HashMap<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(folder, "*.jar")) {
+            for (Path jar : stream) jars.put(jar.getFileName().toString(), jar);
+        } catch (IOException e) {
+            log.error("No se pudo leer la carpeta de plugins {}", folder, e);
+            return;
+        }
+
+        boolean changed = false;
+        for (String name : new HashSet<>(plugins.keySet())) {
+            if (!jars.containsKey(name)) changed |= unload(name);
+        }
+        for (Map.Entry<String, Path> jar : jars.entrySet()) {
+            Plugin current = plugins.get(jar.getKey());
+            try {
+                if (current == null || current.isModified(jar.getValue())) changed |= load(jar.getKey(), jar.getValue(), current);
+            } catch (IOException e) {
+                log.error("No se pudo leer el plugin {}", jar.getKey(), e);
+            }
+        }
+
+        if (changed && notify) onCommandsChanged.run();
+    }
+
+    private boolean load(String name, Path source, Plugin previous) throws IOException {
+        long lastModified = Files.getLastModifiedTime(source).toMillis();
+        long size = Files.size(source);
+        Path copy = loadedFolder.resolve(name.substring(0, name.length() - ".jar".length()) + "-" + (++loadCounter) + ".jar");
+        Files.copy(source, copy, StandardCopyOption.REPLACE_EXISTING);
+
+        PluginClassLoader loader = new PluginClassLoader(name, copy, PluginManager.class.getClassLoader());
+        List<ICommand> commands = new ArrayList<>();
+        try {
+            // El ServiceLoader tambien ve los servicios del bot; solo se toman las clases del propio jar.
+            for (ServiceLoader.Provider<ICommand> provider : ServiceLoader.load(ICommand.class, loader).stream().toList()) {
+                if (provider.type().getClassLoader() == loader) commands.add(provider.get());
+            }
+            commandManager.replaceCommands(previous != null ? previous.commands : List.of(), commands);
+        } catch (CommandInitializerException | RuntimeException | ServiceConfigurationError e) {
+            log.error("No se pudo cargar el plugin {}{}", name, previous != null ? ", se mantiene la version anterior" : "", e);
+            loader.retire();
+            // No se vuelve a intentar hasta que el jar cambie otra vez.
+            if (previous != null) plugins.put(name, previous.withSource(lastModified, size));
+            else plugins.put(name, new Plugin(null, List.of(), lastModified, size));
+            return false;
+        }
+
+        plugins.put(name, new Plugin(loader, List.copyOf(commands), lastModified, size));
+        if (previous != null && previous.loader != null) previous.loader.retire();
+        log.info("Plugin {} {} con {} comandos", name, previous != null ? "recargado" : "cargado", commands.size());
+        return true;
+    }
+
+    private boolean unload(String name) {
+        Plugin plugin = plugins.remove(name);
+        if (plugin.loader == null) return false;
+
+        try {
+            commandManager.replaceCommands(plugin.commands, List.of());
+        } catch (CommandInitializerException e) {
+            // Quitar comandos nunca falla.
+            throw new IllegalStateException(e);
+        }
+        plugin.loader.retire();
+        log.info("Plugin {} quitado", name);
+        return true;
+    }
+
+    /**
+     * Obtener los comandos de cada plugin cargado.
+     *
+     * @return un {@link Map} de nombre del jar a sus comandos.
+     */
+    public synchronized Map<String, List<ICommand>> getPlugins() {
+        Map<String, List<ICommand>> result = new HashMap<>();
+        plugins.forEach((name, plugin) -> {
+            if (plugin.loader != null) result.put(name, plugin.commands);
+        });
+        return result;
+    }
+
+    /**
+     * Dejar de vigilar la carpeta. Los plugins siguen cargados.
+     */
+    public void close() {
+        worker.shutdown();
+        try {
+            if (watchService != null) watchService.close();
+        } catch (IOException e) {
+            log.warn("No se pudo cerrar el WatchService de los plugins", e);
+        }
+    }
+
+    private void startWatcher() {
+        try {
+            watchService = folder.getFileSystem().newWatchService();
+            folder.register(watchService, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY, StandardWatchEventKinds.ENTRY_DELETE);
+        } catch (IOException | UnsupportedOperationException e) {
+            log.warn("No se puede vigilar {}, los plugins no se recargaran automaticamente", folder, e);
+            return;
+        }
+
+        Thread thread = new Thread(this::watch, "Plugin-Watcher");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    private void watch() {
+        try {
+            while (true) {
+                WatchKey key = watchService.take();
+                for (WatchEvent<?> event : key.pollEvents()) {
+                    if (event.context() instanceof Path path && path.toString().endsWith(".jar")) {
+                        scheduleScan();
+                    }
+                }
+                if (!key.reset()) return;
+            }
+        } catch (InterruptedException | ClosedWatchServiceException ignored) {
+        }
+    }
+
+    private synchronized void scheduleScan() {
+        if (pendingScan != null) pendingScan.cancel(false);
+        pendingScan = worker.schedule(() -> scan(true), DEBOUNCE_MILLIS, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Un jar cargado. {@code loader} es null si el jar no se pudo cargar y no habia version anterior.
+     */
+    private record Plugin(PluginClassLoader loader, List<ICommand> commands, long lastModified, long size) {
+        boolean isModified(Path source) throws IOException {
+            return Files.getLastModifiedTime(source).toMillis() != lastModified || Files.size(source) != size;
+        }
+
+        Plugin withSource(long lastModified, long size) {
+            return new Plugin(loader, commands, lastModified, size);
+        }
+    }
+}
@@ -0,0 +1,68 @@
+package dev.josemc.watcher.state;
+
+import dev.josemc.watcher.messages.MessageDeletionScheduler;
+import dev.josemc.watcher.messages.MessageDeletionScheduler.PendingDeletion;
+import net.dv8tion.jda.api.entities.Guild;
+import net.dv8tion.jda.api.entities.channel.middleman.GuildMessageChannel;
+import net.dv8tion.jda.api.events.guild.GuildReadyEvent;
+import net.dv8tion.jda.api.hooks.ListenerAdapter;
+import org.jetbrains.annotations.NotNull;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Borrados de mensajes pendientes al apagar el bot, que se vuelven a programar cuando su servidor esta listo
+ * y sus canales se pueden obtener de la cache. Los que ya han vencido se borran al momento.
+ */
+public class RestoredDeletions extends ListenerAdapter {
+    private static final Logger log = LoggerFactory.getLogger(RestoredDeletions.class);
+
+    private final MessageDeletionScheduler scheduler;
+    private final long createdAt;
+    private final Map<Long, List<PendingDeletion>> byGuild = new ConcurrentHashMap<>();
+
+    /**
+     * @param scheduler el planificador donde se programan los borrados.
+     * @param snapshot  el estado guardado.
+     */
+    public RestoredDeletions(MessageDeletionScheduler scheduler, StateSnapshot snapshot) {
+        this.scheduler = scheduler;
+        this.createdAt = snapshot.getCreatedAt();
+        for (PendingDeletion deletion : snapshot.getDeletions()) {
+            // Los mensajes privados no se guardan con servidor y no se pueden volver a obtener sin una llamada REST.
+            if (deletion.guildId() != 0) byGuild.computeIfAbsent(deletion.guildId(), id -> new ArrayList<>()).add(deletion);
+        }
+    }
+
+    @Override
+    public void onGuildReady(@NotNull GuildReadyEvent event) {
+        Guild guild = event.getGuild();
+        List<PendingDeletion> deletions = byGuild.remove(guild.getIdLong());
+        if (deletions == null) return;
+
+        int restored = 0;
+        long now = System.currentTimeMillis();
+        for (PendingDeletion deletion : deletions) {
+            GuildMessageChannel channel = guild.getChannelById(GuildMessageChannel.class, deletion.channelId());
+            if (channel == null) continue;
+            scheduler.schedule(channel, deletion.messageId(), Math.max(0, createdAt + deletion.delayMillis() - now), TimeUnit.MILLISECONDS);
+            restored++;
+        }
+        log.debug("{} borrados pendientes restaurados en el servidor {}", restored, guild.getId());
+    }
+
+    /**
+     * Obtener el numero de borrados que esperan a que su servidor este listo.
+     *
+     * @return los borrados.
+     */
+    public int getPending() {
+        return byGuild.values().stream().mapToInt(List::size).sum();
+    }
+}
@@ -0,0 +1,228 @@
+package dev.josemc.watcher.state;
+
+import dev.josemc.watcher.messages.MessageDeletionScheduler.PendingDeletion;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.annotation.Nullable;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedInputStream;
+import java.util.zip.CheckedOutputStream;
+
+/**
+ * Estado guardado al apagar el bot para arrancar mas rapido la siguiente vez: los hashes de los comandos
+ * registrados, los servidores que estaban en la cache de ajustes y los borrados de mensajes pendientes.
+ * <p>
+ * Formato: {@code magic(int) version(short) creado(long)}, los hashes ({@code n(int)} y por cada uno
+ * {@code clave(utf) longitud(byte) hash}), los servidores ({@code n(int)} y sus ids), los borrados ({@code n(int)} y
+ * por cada uno {@code servidor canal mensaje vencimiento}, todos long, con el vencimiento en milisegundos
+ * desde 1970) y al final el crc de todo lo anterior. Un fichero con otra version o un crc incorrecto se ignora.
+ */
+public final class StateSnapshot {
+    private static final Logger log = LoggerFactory.getLogger(StateSnapshot.class);
+
+    private static final int MAGIC = 0x57535450;
+    private static final short VERSION = 1;
+
+    private final long createdAt;
+    private final Map<String, String> commandHashes;
+    private final long[] cachedGuilds;
+    private final List<PendingDeletion> deletions;
+
+    /**
+     * @param createdAt     momento en que se tomo, en milisegundos desde 1970.
+     * @param commandHashes los hashes de los comandos registrados, de id de servidor a hash.
+     * @param cachedGuilds  los servidores de la cache de ajustes.
+     * @param deletions     los borrados pendientes, con el tiempo que les faltaba al tomarlo.
+     */
+    public StateSnapshot(long createdAt, Map<String, String> commandHashes, long[] cachedGuilds, List<PendingDeletion> deletions) {
+        this.createdAt = createdAt;
+        this.commandHashes = commandHashes;
+        this.cachedGuilds = cachedGuilds;
+        this.deletions = deletions;
+    }
+
+    /**
+     * Escribir el estado en un fichero, sustituyendo el anterior de forma atomica.
+     *
+     * @param file el fichero.
+     * @throws IOException si no se puede escribir.
+     */
+    public void write(Path file) throws IOException {
+        Files.createDirectories(file.toAbsolutePath().getParent());
+        // Un nombre temporal unico: en un cluster varios procesos pueden escribir a la vez en la misma carpeta.
+        Path temp = Files.createTempFile(file.toAbsolutePath().getParent(), file.getFileName().toString(), ".tmp");
+        HexFormat hex = HexFormat.of();
+
+        CheckedOutputStream checked = new CheckedOutputStream(new BufferedOutputStream(Files.newOutputStream(temp)), new CRC32());
+        try (DataOutputStream output = new DataOutputStream(checked)) {
+            output.writeInt(MAGIC);
+            output.writeShort(VERSION);
+            output.writeLong(createdAt);
+
+            Map<String, byte[]> hashes = new HashMap<>();
+            commandHashes.forEach((key, hash) -> {
+                // Los hashes son SHA-256 en hexadecimal; un valor editado a mano se omite.
+                if (hash.length() == 64 && hash.chars().allMatch(HexFormat::isHexDigit)) hashes.put(key, hex.parseHex(hash));
+            });
+            output.writeInt(hashes.size());
+            for (Map.Entry<String, byte[]> entry : hashes.entrySet()) {
+                output.writeUTF(entry.getKey());
+                output.writeByte(entry.getValue().length);
+                output.write(entry.getValue());
+            }
+
+            output.writeInt(cachedGuilds.length);
+            for (long guildId : cachedGuilds) {
+                output.writeLong(guildId);
+            }
+
+            output.writeInt(deletions.size());
+            for (PendingDeletion deletion : deletions) {
+                output.writeLong(deletion.guildId());
+                output.writeLong(deletion.channelId());
+                output.writeLong(deletion.messageId());
+                output.writeLong(createdAt + deletion.delayMillis());
+            }
+
+            output.writeInt((int) checked.getChecksum().getValue());
+        }
+        Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Obtener la parte del estado de una shard: los servidores de la cache y los borrados de los servidores de la
+     * shard, con todos los hashes de los comandos.
+     *
+     * @param shardId     la shard.
+     * @param totalShards el numero total de shards.
+     * @return el estado de la shard.
+     */
+    public StateSnapshot forShard(int shardId, int totalShards) {
+        long[] guilds = Arrays.stream(cachedGuilds).filter(guildId -> shardOf(guildId, totalShards) == shardId).toArray();
+        List<PendingDeletion> shardDeletions = deletions.stream()
+                .filter(deletion -> deletion.guildId() != 0 && shardOf(deletion.guildId(), totalShards) == shardId)
+                .toList();
+        return new StateSnapshot(createdAt, commandHashes, guilds, shardDeletions);
+    }
+
+    /**
+     * Shard de un servidor, con la formula de Discord.
+     */
+    static int shardOf(long guildId, int totalShards) {
+        return (int) ((guildId >>> 22) % totalShards);
+    }
+
+    /**
+     * Leer el estado de un fichero.
+     *
+     * @param file el fichero.
+     * @return el estado, o null si no existe o no es valido.
+     */
+    @Nullable
+    public static StateSnapshot read(Path file) {
+        HexFormat hex = HexFormat.of();
+        CheckedInputStream checked;
+        try {
+            checked = new CheckedInputStream(new BufferedInputStream(Files.newInputStream(file)), new CRC32());
+        } catch (NoSuchFileException e) {
+            return null;
+        } catch (IOException e) {
+            log.warn("No se pudo leer el estado guardado {}", file, e);
+            return null;
+        }
+
+        try (DataInputStream input = new DataInputStream(checked)) {
+            if (input.readInt() != MAGIC || input.readShort() != VERSION) {
+                log.warn("El estado guardado {} es de otra version, se ignora", file);
+                return null;
+            }
+            long createdAt = input.readLong();
+
+            int hashCount = input.readInt();
+            Map<String, String> commandHashes = new HashMap<>(hashCount * 2);
+            for (int i = 0; i < hashCount; i++) {
+                String key = input.readUTF();
+                byte[] hash = new byte[input.readUnsignedByte()];
+                input.readFully(hash);
+                commandHashes.put(key, hex.formatHex(hash));
+            }
+
+            long[] cachedGuilds = new long[input.readInt()];
+            for (int i = 0; i < cachedGuilds.length; i++) {
+                cachedGuilds[i] = input.readLong();
+            }
+
+            int deletionCount = input.readInt();
+            List<PendingDeletion> deletions = new ArrayList<>(deletionCount);
+            for (int i = 0; i < deletionCount; i++) {
+                long guildId = input.readLong();
+                long channelId = input.readLong();
+                long messageId = input.readLong();
+                long dueAt = input.readLong();
+                deletions.add(new PendingDeletion(guildId, channelId, messageId, dueAt - createdAt));
+            }
+
+            int expected = (int) checked.getChecksum().getValue();
+            if (input.readInt() != expected) {
+                log.warn("El estado guardado {} esta dañado, se ignora", file);
+                return null;
+            }
+            return new StateSnapshot(createdAt, commandHashes, cachedGuilds, deletions);
+        } catch (IOException | RuntimeException e) {
+            log.warn("El estado guardado {} esta incompleto, se ignora", file, e);
+            return null;
+        }
+    }
+
+    /**
+     * Obtener el momento en que se tomo el estado.
+     *
+     * @return milisegundos desde 1970.
+     */
+    public long getCreatedAt() {
+        return createdAt;
+    }
+
+    /**
+     * Obtener los hashes de los comandos registrados.
+     *
+     * @return un {@link Map} de id de servidor a hash.
+     */
+    public Map<String, String> getCommandHashes() {
+        return commandHashes;
+    }
+
+    /**
+     * Obtener los servidores que estaban en la cache de ajustes.
+     *
+     * @return los ids.
+     */
+    public long[] getCachedGuilds() {
+        return cachedGuilds;
+    }
+
+    /**
+     * Obtener los borrados pendientes. {@link PendingDeletion#delayMillis()} es el tiempo que faltaba al tomar el estado.
+     *
+     * @return los borrados.
+     */
+    public List<PendingDeletion> getDeletions() {
+        return deletions;
+    }
+}
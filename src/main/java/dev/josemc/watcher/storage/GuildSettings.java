@@ -0,0 +1,87 @@
+package dev.josemc.watcher.storage;
+
+import java.util.Map;
+
+/**
+ * Ajustes de un servidor.
+ * <p>
+ * Es una copia inmutable de los valores en el momento de obtenerla; los cambios se hacen a traves
+ * de {@link #set(String, String)} y {@link #remove(String)}, que los guardan en el {@link GuildSettingsStore}.
+ */
+public final class GuildSettings {
+    private final GuildSettingsStore store;
+    private final long guildId;
+    private final Map<String, String> values;
+
+    GuildSettings(GuildSettingsStore store, long guildId, Map<String, String> values) {
+        this.store = store;
+        this.guildId = guildId;
+        this.values = values;
+    }
+
+    /**
+     * Obtener el id del servidor.
+     *
+     * @return el id del servidor.
+     */
+    public long getGuildId() {
+        return guildId;
+    }
+
+    /**
+     * Obtener un ajuste.
+     *
+     * @param key la clave del ajuste.
+     * @return el valor, o null si no existe.
+     */
+    public String get(String key) {
+        return values.get(key);
+    }
+
+    public String get(String key, String def) {
+        return values.getOrDefault(key, def);
+    }
+
+    public long getLong(String key, long def) {
+        String value = values.get(key);
+        if (value == null) return def;
+        try {
+            return Long.parseLong(value);
+        } catch (NumberFormatException e) {
+            return def;
+        }
+    }
+
+    public boolean getBoolean(String key, boolean def) {
+        String value = values.get(key);
+        return value == null ? def : Boolean.parseBoolean(value);
+    }
+
+    /**
+     * Guardar un ajuste. Este objeto no cambia; los siguientes {@link GuildSettingsStore#get(long)} veran el valor nuevo.
+     *
+     * @param key   la clave del ajuste.
+     * @param value el valor.
+     */
+    public void set(String key, String value) {
+        store.put(guildId, key, value);
+    }
+
+    /**
+     * Eliminar un ajuste.
+     *
+     * @param key la clave del ajuste.
+     */
+    public void remove(String key) {
+        store.remove(guildId, key);
+    }
+
+    /**
+     * Obtener todos los ajustes.
+     *
+     * @return un {@link Map} inmutable con los ajustes.
+     */
+    public Map<String, String> asMap() {
+        return values;
+    }
+}
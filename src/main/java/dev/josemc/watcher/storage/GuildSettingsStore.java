@@ -0,0 +1,396 @@
+package dev.josemc.watcher.storage;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.zip.CRC32;
+
+/**
+ * Almacen de ajustes por servidor en un fichero local de solo añadir.
+ * <p>
+ * Cada cambio se añade al final del fichero como un registro {@code (servidor, clave, valor)}; un registro
+ * sin valor marca la clave como eliminada. En memoria solo se guarda la posicion del ultimo registro de cada
+ * clave, y delante hay una cache LRU con los ajustes ya leidos de los servidores mas usados.
+ * <p>
+ * Los registros se pasan a disco juntos cada {@code syncMillis} (group commit, como el journal), en lugar de en
+ * cada cambio: un cierre inesperado puede perder como maximo los cambios de ese intervalo.
+ * <p>
+ * Periodicamente, si mas de la mitad del fichero son registros sustituidos, se reescribe con solo los
+ * registros vigentes y se cambia por el original de forma atomica.
+ * <p>
+ * Formato de un registro: {@code crc(int) servidor(long) longitudClave(short) clave longitudValor(int) valor},
+ * donde {@code longitudValor} es -1 para una clave eliminada y el crc cubre el resto del registro.
+ */
+public class GuildSettingsStore implements Closeable {
+    private static final Logger log = LoggerFactory.getLogger(GuildSettingsStore.class);
+
+    private static final int HEADER_SIZE = Integer.BYTES + Long.BYTES + Short.BYTES;
+    private static final int TOMBSTONE = -1;
+
+    /**
+     * Tamaño minimo del fichero para compactarlo.
+     */
+    private static final long COMPACTION_MIN_BYTES = 1024 * 1024;
+
+    private final Path file;
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final ConcurrentHashMap<Long, Map<String, Location>> keydir = new ConcurrentHashMap<>();
+    private final StripedLruCache<GuildSettings> cache;
+    private final ScheduledExecutorService compactor;
+    private final long syncMillis;
+    /**
+     * Si hay registros escritos que aun no se han pasado a disco.
+     */
+    private final AtomicBoolean dirty = new AtomicBoolean();
+    private FileChannel channel;
+    private long size;
+    private long liveBytes;
+
+    /**
+     * Abrir el almacen, leyendo el fichero para construir el indice en memoria.
+     *
+     * @param file              el fichero del almacen.
+     * @param cacheSize         numero maximo de servidores en la cache.
+     * @param compactionMinutes cada cuantos minutos se comprueba si hay que compactar; 0 para no compactar.
+     * @param syncMillis        cada cuantos milisegundos se pasan a disco los cambios; 0 para hacerlo en cada cambio.
+     * @throws IOException si no se puede abrir o leer el fichero.
+     */
+    public GuildSettingsStore(Path file, int cacheSize, long compactionMinutes, long syncMillis) throws IOException {
+        this.file = file;
+        this.syncMillis = syncMillis;
+        this.cache = new StripedLruCache<>(cacheSize, Runtime.getRuntime().availableProcessors() * 4);
+        Files.createDirectories(file.toAbsolutePath().getParent());
+        channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        recover();
+
+        compactor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "GuildSettings-Compactor");
+            thread.setDaemon(true);
+            return thread;
+        });
+        if (compactionMinutes > 0) {
+            compactor.scheduleWithFixedDelay(this::compactIfNeeded, compactionMinutes, compactionMinutes, TimeUnit.MINUTES);
+        }
+        if (syncMillis > 0) {
+            compactor.scheduleWithFixedDelay(this::sync, syncMillis, syncMillis, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * Obtener los ajustes de un servidor.
+     *
+     * @param guildId el id del servidor.
+     * @return los {@link GuildSettings} del servidor, vacios si no tiene ninguno.
+     */
+    public GuildSettings get(long guildId) {
+        GuildSettings settings = cache.get(guildId);
+        if (settings != null) return settings;
+
+        lock.readLock().lock();
+        try {
+            return cache.putIfAbsent(guildId, load(guildId));
+        } catch (IOException e) {
+            throw new StorageException("No se pudieron leer los ajustes del servidor " + guildId, e);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Guardar un ajuste.
+     *
+     * @param guildId el id del servidor.
+     * @param key     la clave.
+     * @param value   el valor; null elimina la clave.
+     */
+    public void put(long guildId, String key, String value) {
+        byte[] keyBytes = key.getBytes(StandardCharsets.UTF_8);
+        byte[] valueBytes = value == null ? null : value.getBytes(StandardCharsets.UTF_8);
+        if (keyBytes.length > Short.MAX_VALUE) throw new IllegalArgumentException("Clave demasiado larga");
+        ByteBuffer record = encode(guildId, keyBytes, valueBytes);
+
+        lock.writeLock().lock();
+        try {
+            long position = size;
+            while (record.hasRemaining()) {
+                channel.write(record, position + record.position());
+            }
+            if (syncMillis > 0) dirty.set(true);
+            else channel.force(false);
+            size += record.limit();
+            apply(guildId, key, valueBytes == null ? -1 : position, record.limit());
+
+            GuildSettings cached = cache.get(guildId);
+            if (cached != null) {
+                Map<String, String> values = new HashMap<>(cached.asMap());
+                if (value == null) values.remove(key);
+                else values.put(key, value);
+                cache.replace(guildId, new GuildSettings(this, guildId, Map.copyOf(values)));
+            }
+        } catch (IOException e) {
+            throw new StorageException("No se pudo guardar el ajuste " + key + " del servidor " + guildId, e);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Eliminar un ajuste.
+     *
+     * @param guildId el id del servidor.
+     * @param key     la clave.
+     */
+    public void remove(long guildId, String key) {
+        Map<String, Location> keys = keydir.get(guildId);
+        if (keys == null || !keys.containsKey(key)) return;
+        put(guildId, key, null);
+    }
+
+    /**
+     * Pasar a disco los cambios escritos desde la ultima vez. Los cambios siguen entrando mientras tanto.
+     */
+    public void sync() {
+        if (!dirty.getAndSet(false)) return;
+        // Con el bloqueo de lectura la compactacion no puede cambiar el fichero, pero los cambios solo esperan a que acabe.
+        lock.readLock().lock();
+        try {
+            channel.force(false);
+        } catch (IOException e) {
+            dirty.set(true);
+            log.error("No se pudieron pasar a disco los ajustes de {}", file, e);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Obtener los ids de los servidores que estan en la cache.
+     *
+     * @return los ids.
+     */
+    public long[] getCachedGuilds() {
+        return cache.keys();
+    }
+
+    /**
+     * Compactar el fichero si mas de la mitad de su contenido son registros sustituidos.
+     */
+    public void compactIfNeeded() {
+        long currentSize;
+        long currentLive;
+        lock.readLock().lock();
+        try {
+            currentSize = size;
+            currentLive = liveBytes;
+        } finally {
+            lock.readLock().unlock();
+        }
+
+        if (currentSize >= COMPACTION_MIN_BYTES && currentLive * 2 < currentSize) {
+            try {
+                compact();
+            } catch (IOException | RuntimeException e) {
+                log.error("No se pudo compactar {}", file, e);
+            }
+        }
+    }
+
+    /**
+     * Reescribir el fichero con solo los registros vigentes.
+     *
+     * @throws IOException si no se puede escribir el fichero nuevo.
+     */
+    public void compact() throws IOException {
+        Path temp = file.resolveSibling(file.getFileName() + ".compact");
+
+        lock.writeLock().lock();
+        try {
+            long before = size;
+            Map<Long, Map<String, Location>> newKeydir = new HashMap<>();
+            long position = 0;
+
+            try (FileChannel output = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+                for (Map.Entry<Long, Map<String, Location>> guild : keydir.entrySet()) {
+                    Map<String, Location> offsets = new HashMap<>();
+                    for (Map.Entry<String, Location> entry : guild.getValue().entrySet()) {
+                        ByteBuffer record = readRecord(entry.getValue());
+                        offsets.put(entry.getKey(), new Location(position, record.limit()));
+                        while (record.hasRemaining()) {
+                            position += output.write(record, position);
+                        }
+                    }
+                    newKeydir.put(guild.getKey(), offsets);
+                }
+                output.force(true);
+            }
+
+            channel.close();
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE);
+
+            keydir.clear();
+            newKeydir.forEach((guildId, offsets) -> keydir.put(guildId, new ConcurrentHashMap<>(offsets)));
+            size = position;
+            liveBytes = position;
+            log.info("Ajustes de servidores compactados: {} -> {} bytes", before, position);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        compactor.shutdownNow();
+        lock.writeLock().lock();
+        try {
+            channel.force(true);
+            channel.close();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Leer los ajustes de un servidor desde el fichero. Debe llamarse con el bloqueo de lectura.
+     */
+    private GuildSettings load(long guildId) throws IOException {
+        Map<String, Location> offsets = keydir.get(guildId);
+        if (offsets == null || offsets.isEmpty()) return new GuildSettings(this, guildId, Map.of());
+
+        Map<String, String> values = new HashMap<>();
+        for (Map.Entry<String, Location> entry : offsets.entrySet()) {
+            ByteBuffer record = readRecord(entry.getValue());
+            record.position(HEADER_SIZE + (record.getShort(HEADER_SIZE - Short.BYTES) & 0xFFFF));
+            int valueLength = record.getInt();
+            values.put(entry.getKey(), StandardCharsets.UTF_8.decode(record.limit(record.position() + valueLength)).toString());
+        }
+        return new GuildSettings(this, guildId, Map.copyOf(values));
+    }
+
+    /**
+     * Leer un registro ya indexado.
+     */
+    private ByteBuffer readRecord(Location location) throws IOException {
+        ByteBuffer record = ByteBuffer.allocate(location.length());
+        readFully(record, location.position());
+        return record.flip();
+    }
+
+    /**
+     * Leer un registro completo en la posicion dada, usando las longitudes de su cabecera.
+     */
+    private ByteBuffer readRecord(long position) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+        readFully(header, position);
+        int keyLength = header.getShort(HEADER_SIZE - Short.BYTES) & 0xFFFF;
+
+        ByteBuffer lengthBuffer = ByteBuffer.allocate(Integer.BYTES);
+        readFully(lengthBuffer, position + HEADER_SIZE + keyLength);
+        int valueLength = Math.max(0, lengthBuffer.getInt(0));
+
+        ByteBuffer record = ByteBuffer.allocate(HEADER_SIZE + keyLength + Integer.BYTES + valueLength);
+        readFully(record, position);
+        return record.flip();
+    }
+
+    private void readFully(ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            int read = channel.read(buffer, position + buffer.position());
+            if (read < 0) throw new IOException("Fin de fichero inesperado en " + file);
+        }
+    }
+
+    private static ByteBuffer encode(long guildId, byte[] key, byte[] value) {
+        ByteBuffer record = ByteBuffer.allocate(HEADER_SIZE + key.length + Integer.BYTES + (value == null ? 0 : value.length));
+        record.putInt(0);
+        record.putLong(guildId);
+        record.putShort((short) key.length);
+        record.put(key);
+        record.putInt(value == null ? TOMBSTONE : value.length);
+        if (value != null) record.put(value);
+
+        CRC32 crc = new CRC32();
+        crc.update(record.array(), Integer.BYTES, record.position() - Integer.BYTES);
+        record.putInt(0, (int) crc.getValue());
+        return record.flip();
+    }
+
+    /**
+     * Actualizar el indice en memoria con un registro nuevo.
+     *
+     * @param position posicion del registro, o -1 si elimina la clave.
+     * @param length   tamaño del registro.
+     */
+    private void apply(long guildId, String key, long position, int length) {
+        Map<String, Location> offsets = keydir.computeIfAbsent(guildId, id -> new ConcurrentHashMap<>());
+        Location previous = position < 0 ? offsets.remove(key) : offsets.put(key, new Location(position, length));
+        if (previous != null) liveBytes -= previous.length();
+        if (position >= 0) liveBytes += length;
+        if (offsets.isEmpty()) keydir.remove(guildId, offsets);
+    }
+
+    /**
+     * Leer todo el fichero para construir el indice. Un registro incompleto o corrupto al final
+     * (por ejemplo, por un cierre inesperado) se descarta truncando el fichero.
+     */
+    private void recover() throws IOException {
+        long fileSize = channel.size();
+        long position = 0;
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+        CRC32 crc = new CRC32();
+
+        while (position + HEADER_SIZE <= fileSize) {
+            header.clear();
+            readFully(header, position);
+            int keyLength = header.getShort(HEADER_SIZE - Short.BYTES) & 0xFFFF;
+            if (position + HEADER_SIZE + keyLength + Integer.BYTES > fileSize) break;
+
+            ByteBuffer record;
+            try {
+                record = readRecord(position);
+            } catch (IOException e) {
+                break;
+            }
+
+            crc.reset();
+            crc.update(record.array(), Integer.BYTES, record.limit() - Integer.BYTES);
+            if ((int) crc.getValue() != record.getInt(0)) break;
+
+            long guildId = record.getLong(Integer.BYTES);
+            String key = new String(record.array(), HEADER_SIZE, keyLength, StandardCharsets.UTF_8);
+            int valueLength = record.getInt(HEADER_SIZE + keyLength);
+            size = position + record.limit();
+            apply(guildId, key, valueLength == TOMBSTONE ? -1 : position, record.limit());
+            position = size;
+        }
+
+        if (position < fileSize) {
+            log.warn("Registro incompleto al final de {}, se descartan {} bytes", file, fileSize - position);
+            channel.truncate(position);
+        }
+        size = position;
+    }
+
+    /**
+     * Posicion y tamaño del ultimo registro de una clave.
+     */
+    private record Location(long position, int length) {
+    }
+}
@@ -0,0 +1,17 @@
+package dev.josemc.watcher.storage;
+
+/**
+ * Error de lectura o escritura en un almacen local.
+ */
+public class StorageException extends RuntimeException {
+
+    /**
+     * Serial version ID.
+     */
+    @java.io.Serial
+    private static final long serialVersionUID = 2962437511372153210L;
+
+    public StorageException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
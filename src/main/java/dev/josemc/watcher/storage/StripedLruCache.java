@@ -0,0 +1,103 @@
+package dev.josemc.watcher.storage;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Cache LRU de tamaño limitado dividida en segmentos con su propio bloqueo,
+ * para que las lecturas concurrentes de claves distintas no compitan por un unico bloqueo.
+ *
+ * @param <V> el tipo de los valores.
+ */
+final class StripedLruCache<V> {
+    private final Segment<V>[] segments;
+    private final int mask;
+
+    @SuppressWarnings("unchecked")
+    StripedLruCache(int capacity, int concurrency) {
+        int stripes = Integer.highestOneBit(Math.max(1, concurrency - 1) << 1);
+        segments = (Segment<V>[]) new Segment<?>[stripes];
+        int perSegment = Math.max(1, (capacity + stripes - 1) / stripes);
+        for (int i = 0; i < stripes; i++) {
+            segments[i] = new Segment<>(perSegment);
+        }
+        mask = stripes - 1;
+    }
+
+    V get(long key) {
+        Segment<V> segment = segment(key);
+        synchronized (segment) {
+            return segment.get(key);
+        }
+    }
+
+    /**
+     * Añadir un valor si la clave no esta en la cache.
+     *
+     * @return el valor que queda en la cache.
+     */
+    V putIfAbsent(long key, V value) {
+        Segment<V> segment = segment(key);
+        synchronized (segment) {
+            V existing = segment.putIfAbsent(key, value);
+            return existing != null ? existing : value;
+        }
+    }
+
+    /**
+     * Sustituir el valor solo si la clave ya esta en la cache.
+     */
+    void replace(long key, V value) {
+        Segment<V> segment = segment(key);
+        synchronized (segment) {
+            segment.replace(key, value);
+        }
+    }
+
+    void invalidateAll() {
+        for (Segment<V> segment : segments) {
+            synchronized (segment) {
+                segment.clear();
+            }
+        }
+    }
+
+    long[] keys() {
+        int size = 0;
+        long[][] perSegment = new long[segments.length][];
+        for (int i = 0; i < segments.length; i++) {
+            synchronized (segments[i]) {
+                perSegment[i] = segments[i].keySet().stream().mapToLong(Long::longValue).toArray();
+            }
+            size += perSegment[i].length;
+        }
+        long[] keys = new long[size];
+        int position = 0;
+        for (long[] segmentKeys : perSegment) {
+            System.arraycopy(segmentKeys, 0, keys, position, segmentKeys.length);
+            position += segmentKeys.length;
+        }
+        return keys;
+    }
+
+    private Segment<V> segment(long key) {
+        long hash = key * 0x9E3779B97F4A7C15L;
+        return segments[(int) (hash >>> 32) & mask];
+    }
+
+    private static final class Segment<V> extends LinkedHashMap<Long, V> {
+        private static final long serialVersionUID = 1L;
+
+        private final int capacity;
+
+        Segment(int capacity) {
+            super(16, 0.75f, true);
+            this.capacity = capacity;
+        }
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Long, V> eldest) {
+            return size() > capacity;
+        }
+    }
+}